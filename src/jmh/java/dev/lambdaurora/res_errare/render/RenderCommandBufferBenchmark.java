@@ -0,0 +1,104 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render;
+
+import dev.lambdaurora.res_errare.render.texture.TextureType;
+import dev.lambdaurora.res_errare.system.GL;
+import dev.lambdaurora.res_errare.system.HeadlessFunctionFetcher;
+import org.joml.Matrix4f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the recording and the replay of a {@link RenderCommandBuffer} against issuing the same calls immediately.
+ * <p>
+ * The bindings are backed by {@link HeadlessFunctionFetcher#noop(String...)}, so every benchmark pays the same upcall
+ * per OpenGL call and the difference between {@link #replay()} and {@link #immediate()} is the cost of decoding the commands.
+ * Each draw binds a program, a vertex array and a texture, sets two uniforms and draws, with the bindings
+ * cycling over a few objects so that the state cache elides part of them.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class RenderCommandBufferBenchmark {
+	private static final HeadlessFunctionFetcher BACKEND = HeadlessFunctionFetcher.noop();
+
+	static {
+		GL.init(BACKEND);
+	}
+
+	@Param({"16", "256"})
+	private int draws;
+
+	private final Matrix4f model = new Matrix4f();
+	private RenderCommandBuffer commands;
+
+	@Setup
+	public void setup() {
+		this.commands = new RenderCommandBuffer();
+		this.record(this.commands);
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.commands.close();
+	}
+
+	private void record(RenderCommandBuffer commands) {
+		commands.clear(GL.GL11.COLOR_BUFFER_BIT | GL.GL11.DEPTH_BUFFER_BIT);
+
+		for (int i = 0; i < this.draws; i++) {
+			commands.useProgram(1 + (i & 1))
+					.bindVertexArray(1 + (i & 3))
+					.bindTexture(TextureType.TEXTURE_2D, 1 + (i & 7))
+					.uniformMatrix4fv(0, false, this.model)
+					.uniform1i(1, i)
+					.drawArrays(GeometricPrimitive.TRIANGLES, 0, 36);
+		}
+	}
+
+	@Benchmark
+	public RenderCommandBuffer record() {
+		this.record(this.commands.reset());
+		return this.commands;
+	}
+
+	@Benchmark
+	public void replay() {
+		this.commands.replay();
+	}
+
+	@Benchmark
+	public void immediate() {
+		var gl = GL.get();
+		gl.clear(GL.GL11.COLOR_BUFFER_BIT | GL.GL11.DEPTH_BUFFER_BIT);
+
+		for (int i = 0; i < this.draws; i++) {
+			gl.useProgram(1 + (i & 1));
+			gl.bindVertexArray(1 + (i & 3));
+			gl.bindTexture(TextureType.TEXTURE_2D, 1 + (i & 7));
+			gl.uniformMatrix4fv(0, false, this.model);
+			gl.uniform1i(1, i);
+			gl.drawArrays(GeometricPrimitive.TRIANGLES, 0, 36);
+		}
+	}
+}
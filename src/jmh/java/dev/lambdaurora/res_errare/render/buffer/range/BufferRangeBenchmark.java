@@ -0,0 +1,74 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.buffer.range;
+
+import dev.lambdaurora.res_errare.system.memory.NativeStack;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+import jdk.incubator.foreign.SegmentAllocator;
+import org.joml.Matrix4f;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks writing a matrix directly into caller-provided memory against staging it in a newly allocated segment.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BufferRangeBenchmark {
+	private final Matrix4fBufferRange range = new Matrix4fBufferRange(64);
+	private final Matrix4f matrix = new Matrix4f();
+	private ResourceScope scope;
+	private MemorySegment mapped;
+
+	@Setup
+	public void setup() {
+		this.scope = ResourceScope.newConfinedScope();
+		this.mapped = MemorySegment.allocateNative(256, 16, this.scope);
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.scope.close();
+	}
+
+	@Benchmark
+	public MemorySegment write() {
+		this.range.write(this.mapped, this.matrix);
+		return this.mapped;
+	}
+
+	@Benchmark
+	public long createSegmentOnStack() {
+		try (var stack = NativeStack.stackPush()) {
+			return this.range.createSegment(stack, this.matrix).byteSize();
+		}
+	}
+
+	@Benchmark
+	public long createSegmentInScope() {
+		try (var scope = ResourceScope.newConfinedScope()) {
+			return this.range.createSegment(SegmentAllocator.ofScope(scope), this.matrix).byteSize();
+		}
+	}
+}
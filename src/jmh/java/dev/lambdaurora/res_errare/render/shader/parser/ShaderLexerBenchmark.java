@@ -0,0 +1,77 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.shader.parser;
+
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the lexing of generated shader sources of increasing sizes, the time per byte should stay constant.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class ShaderLexerBenchmark {
+	@Param({"65536", "262144", "1048576"})
+	public int size;
+
+	private String source;
+
+	@Setup
+	public void setup() {
+		this.source = generate(this.size);
+	}
+
+	@Benchmark
+	public void lex(Blackhole blackhole) {
+		var lexer = new ShaderLexer(this.source);
+
+		while (lexer.hasNext()) {
+			blackhole.consume(lexer.next());
+		}
+	}
+
+	/**
+	 * Generates a shader source of at least the given size, mixing directives and code.
+	 *
+	 * @param size the size of the source in characters
+	 * @return the source
+	 */
+	static String generate(int size) {
+		var builder = new StringBuilder(size + 256);
+		builder.append("#version 450\n\n");
+
+		for (int i = 0; builder.length() < size; i++) {
+			builder.append("#define VALUE_").append(i).append(' ').append(i).append(".0\n")
+					.append("// Computes the value ").append(i).append(".\n")
+					.append("float value_").append(i).append("(vec2 uv) {\n")
+					.append("\tfloat x = uv.x * VALUE_").append(i).append(";\n")
+					.append("\treturn sqrt(x * x + uv.y * uv.y);\n")
+					.append("}\n\n")
+					.append("#ifdef USE_VALUE_").append(i).append('\n')
+					.append("#endif\n");
+		}
+
+		return builder.toString();
+	}
+}
@@ -0,0 +1,149 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.system;
+
+import dev.lambdaurora.res_errare.render.GeometricPrimitive;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import jdk.incubator.foreign.CLinker;
+import jdk.incubator.foreign.MemoryAddress;
+import org.openjdk.jmh.annotations.*;
+
+import java.lang.invoke.MethodHandle;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Benchmarks the dispatch of the hot OpenGL calls through the {@link GL} bindings.
+ * <p>
+ * Every entry point is bound to the C library's {@code abs}, which only reads its first integer argument and whose result
+ * is ignored, so that only the dispatch is measured. The bindings are compared to {@link LookupDispatch},
+ * the previous bindings which looked up the handle by name in a map on every call,
+ * to a downcall handle held in a {@code static final} field, which is the lower bound,
+ * and to a handle loaded from a field on every call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class GLDispatchBenchmark {
+	private static final MemoryAddress ABS = CLinker.systemLookup().lookup("abs").orElseThrow();
+	private static final MethodHandle STATIC_HANDLE = LibraryLoader.getFunctionHandle(ABS, void.class, int.class, int.class);
+
+	static {
+		GL.init(name -> ABS);
+	}
+
+	private final LookupDispatch lookup = new LookupDispatch(name -> ABS);
+	private MethodHandle fieldHandle;
+	private int location = 1;
+	private float value = 1.f;
+	private int count = 6;
+
+	@Setup
+	public void setup() {
+		this.fieldHandle = LibraryLoader.getFunctionHandle(ABS, void.class, int.class, int.class);
+	}
+
+	@Benchmark
+	public void staticHandle() throws Throwable {
+		STATIC_HANDLE.invokeExact(this.location, 1);
+	}
+
+	@Benchmark
+	public void fieldHandle() throws Throwable {
+		this.fieldHandle.invokeExact(this.location, 1);
+	}
+
+	@Benchmark
+	public void uniform1i() {
+		GL.get().uniform1i(this.location, 1);
+	}
+
+	@Benchmark
+	public void uniform1iLookup() {
+		this.lookup.uniform1i(this.location, 1);
+	}
+
+	@Benchmark
+	public void uniform1f() {
+		GL.get().uniform1f(this.location, this.value);
+	}
+
+	@Benchmark
+	public void uniform1fLookup() {
+		this.lookup.uniform1f(this.location, this.value);
+	}
+
+	@Benchmark
+	public void drawArrays() {
+		GL.get().drawArrays(GeometricPrimitive.TRIANGLES, 0, this.count);
+	}
+
+	@Benchmark
+	public void drawArraysLookup() {
+		this.lookup.drawArrays(GeometricPrimitive.TRIANGLES, 0, this.count);
+	}
+
+	/**
+	 * Represents the previous dispatch of the bindings, which resolved the handle of the function by name on every call.
+	 * <p>
+	 * Each call hashes the name, looks it up in the map and allocates the capturing factory lambda.
+	 */
+	static final class LookupDispatch {
+		private final Map<String, MethodHandle> functions = new Object2ObjectOpenHashMap<>();
+		private final GL.FunctionFetcher functionFetcher;
+
+		LookupDispatch(GL.FunctionFetcher functionFetcher) {
+			this.functionFetcher = functionFetcher;
+		}
+
+		private MethodHandle getFunction(String functionName, Function<MemoryAddress, MethodHandle> functionFactory) {
+			return this.functions.computeIfAbsent(functionName, name -> functionFactory.apply(this.functionFetcher.fetch(name)));
+		}
+
+		void drawArrays(GeometricPrimitive mode, int first, int count) {
+			try {
+				this.getFunction("glDrawArrays", address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class, int.class))
+						.invokeExact(mode.glId(), first, count);
+			} catch (Throwable e) {
+				throw new NativeFunctionInvocationException(e);
+			}
+		}
+
+		void uniform1i(int location, int value) {
+			try {
+				this.getFunction("glUniform1i", address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class))
+						.invokeExact(location, value);
+			} catch (Throwable e) {
+				throw new NativeFunctionInvocationException(e);
+			}
+		}
+
+		void uniform1f(int location, float value) {
+			try {
+				this.getFunction("glUniform1f", address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, float.class))
+						.invokeExact(location, value);
+			} catch (Throwable e) {
+				throw new NativeFunctionInvocationException(e);
+			}
+		}
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.system.memory;
+
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Benchmarks the bulk writes of {@link SegmentOutput} against writing the same values one at a time.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SegmentOutputBenchmark {
+	@Param({"64", "4096", "262144"})
+	public int size;
+
+	private ResourceScope scope;
+	private SegmentOutput output;
+	private byte[] bytes;
+	private float[] floats;
+
+	@Setup
+	public void setup() {
+		this.scope = ResourceScope.newConfinedScope();
+		this.output = new SegmentOutput(MemorySegment.allocateNative(this.size, 16, this.scope));
+		this.bytes = new byte[this.size];
+		this.floats = new float[this.size / Float.BYTES];
+
+		for (int i = 0; i < this.bytes.length; i++)
+			this.bytes[i] = (byte) i;
+		for (int i = 0; i < this.floats.length; i++)
+			this.floats[i] = i;
+	}
+
+	@TearDown
+	public void tearDown() {
+		this.scope.close();
+	}
+
+	@Benchmark
+	public SegmentOutput writeBytes() {
+		var output = this.output.position(0);
+		output.write(this.bytes);
+		return output;
+	}
+
+	@Benchmark
+	public SegmentOutput writeBytesOneByOne() {
+		var output = this.output.position(0);
+		for (byte b : this.bytes)
+			output.writeByte(b);
+		return output;
+	}
+
+	@Benchmark
+	public SegmentOutput writeFloats() {
+		return this.output.position(0).writeFloats(this.floats);
+	}
+
+	@Benchmark
+	public SegmentOutput writeFloatsOneByOne() {
+		var output = this.output.position(0);
+		for (float f : this.floats)
+			output.writeFloat(f);
+		return output;
+	}
+}
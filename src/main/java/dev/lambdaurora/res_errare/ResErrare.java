@@ -17,35 +17,86 @@
 
 package dev.lambdaurora.res_errare;
 
+import dev.lambdaurora.res_errare.frame.FramePacer;
+import dev.lambdaurora.res_errare.frame.FramePipeline;
+import dev.lambdaurora.res_errare.frame.GameLoop;
 import dev.lambdaurora.res_errare.input.ButtonAction;
 import dev.lambdaurora.res_errare.render.Camera;
 import dev.lambdaurora.res_errare.render.GameRenderer;
 import dev.lambdaurora.res_errare.render.Skybox;
 import dev.lambdaurora.res_errare.render.graphics.Graphics2D;
-import dev.lambdaurora.res_errare.render.shader.Shader;
+import dev.lambdaurora.res_errare.render.shader.ProgramCache;
 import dev.lambdaurora.res_errare.render.shader.ShaderProgram;
+import dev.lambdaurora.res_errare.render.shader.ShaderReloader;
 import dev.lambdaurora.res_errare.render.shader.ShaderType;
+import dev.lambdaurora.res_errare.render.shader.ShaderVariants;
 import dev.lambdaurora.res_errare.render.texture.*;
+import dev.lambdaurora.res_errare.render.texture.Image;
+import dev.lambdaurora.res_errare.render.voxelspace.IncrementalVoxelSpace;
+import dev.lambdaurora.res_errare.render.voxelspace.Terrain;
+import dev.lambdaurora.res_errare.render.voxelspace.VoxelSpacePass;
+import dev.lambdaurora.res_errare.render.voxelspace.VoxelSpaceRenderer;
+import dev.lambdaurora.res_errare.resource.AssetLoader;
+import dev.lambdaurora.res_errare.resource.ResourceManager;
+import dev.lambdaurora.res_errare.resource.ResourceType;
 import dev.lambdaurora.res_errare.system.GL;
 import dev.lambdaurora.res_errare.system.GLFW;
 import dev.lambdaurora.res_errare.util.Identifier;
 import dev.lambdaurora.res_errare.window.Window;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
 
 import java.awt.*;
 import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 public final class ResErrare {
+	/**
+	 * The number of simulation ticks per second, movement speeds are expressed per tick.
+	 */
+	private static final double TICK_RATE = 60.;
+	/**
+	 * The size after which the voxel space terrain tiles.
+	 */
+	private static final int TERRAIN_SIZE = 1024;
+	/**
+	 * {@code true} if the loading and shutdown statistics are printed, enabled with the {@code res_errare.debug} system property.
+	 */
+	private static final boolean DEBUG = Boolean.getBoolean("res_errare.debug");
+	private static final Map<ShaderType, Identifier> VOXEL_SPACE_SHADERS = Map.of(
+			ShaderType.FRAGMENT, new Identifier("voxelspace/shader"),
+			ShaderType.VERTEX, Graphics2D.FRAMEBUFFER_SHADER_ID
+	);
+
 	private Window window;
 	private boolean running = true;
 	private boolean wireframe = false;
 	private Camera camera = new Camera();
+	private Camera previousCamera;
+	private final GameLoop gameLoop = new GameLoop(TICK_RATE);
+	private boolean moving = false;
+	private boolean changedSinceSnapshot = false;
 	private GameRenderer renderer;
+	private final AssetLoader assetLoader;
+	private ShaderReloader shaderReloader;
 	private Skybox skybox;
-	private ShaderProgram voxelSpaceComputeShader;
+	private VoxelSpacePass voxelSpacePass;
+	private IncrementalVoxelSpace incrementalVoxelSpace;
 	private ShaderProgram voxelSpaceShader;
 	private Texture2D outputTexture;
+	private Texture2D heightmapTexture;
+	private Texture2D colormapTexture;
+	private VoxelSpaceRenderer softwareVoxelSpace;
+	private Terrain terrain;
+	private MemorySegment softwareOutput;
 	private float yaw = 0.f;
+	private float previousYaw = 0.f;
 	private float horizon = 15.f;
+	private float previousHorizon = 15.f;
 	private int dirty = 2;
 
 	public ResErrare(String title) throws IOException {
@@ -58,27 +109,30 @@ public final class ResErrare {
 
 		this.renderer = new GameRenderer();
 
-		this.skybox = Skybox.of(CubeMapTexture.builder()
-						.facesFromDirectory(new Identifier("textures/skybox"), "jpg")
-						.withCleanup()
-						.build())
-				.getOrThrow();
-		this.skybox.scale(50.f);
+		this.assetLoader = new AssetLoader(AssetLoader.defaultThreadCount());
 
-		this.voxelSpaceComputeShader = ShaderProgram.builder()
-				.shader(Shader.compile(ShaderType.COMPUTE, new Identifier("voxelspace/shader")))
-				.build().getOrThrow();
-		this.voxelSpaceShader = ShaderProgram.builder()
-				.shader(Shader.compile(ShaderType.FRAGMENT, new Identifier("voxelspace/shader")))
-				.shader(Shader.compile(ShaderType.VERTEX, Graphics2D.FRAMEBUFFER_SHADER_ID))
-				.build().getOrThrow();
+		if (Boolean.getBoolean("res_errare.voxelspace.software") || !GL.get().isAvailable("glDispatchCompute")) {
+			if (DEBUG)
+				System.out.println("Using the software voxel space renderer.");
+			this.softwareVoxelSpace = new VoxelSpaceRenderer();
+		}
+
+		if (ShaderReloader.isEnabled()) {
+			this.shaderReloader = new ShaderReloader(ResourceManager.getDefault(ResourceType.ASSETS));
+			if (DEBUG)
+				System.out.println("Shader hot reloading enabled.");
+		}
 
 		this.init();
 	}
 
 	private void init() {
 		this.window.setFramebufferSizeCallback((width, height) -> {
-			this.outputTexture.initEmpty(Texture2D.Target.TEXTURE_2D, 0, Texture.InternalFormat.RGBA32F, width, height);
+			// Events are polled while loading, before the output textures exist.
+			if (this.outputTexture != null)
+				this.outputTexture.initEmpty(Texture2D.Target.TEXTURE_2D, 0, VoxelSpacePass.OUTPUT_FORMAT, width, height);
+			if (this.incrementalVoxelSpace != null)
+				this.incrementalVoxelSpace.resize(width, height);
 			this.renderer.setupProjection(width, height);
 		});
 		this.window.setKeyCallback((key, scancode, action, mods) -> {
@@ -94,90 +148,166 @@ public final class ResErrare {
 		});
 
 		this.camera.setPosition(0, 148, 3);
-
-		this.voxelSpaceComputeShader.use();
-		this.voxelSpaceComputeShader.setInt("heightmap", 1);
-		this.voxelSpaceComputeShader.setInt("colormap", 2);
-		this.voxelSpaceComputeShader.setInt("height", 50);
-		this.voxelSpaceComputeShader.setInt("size", 1024);
+		this.previousCamera = new Camera(this.camera);
 	}
 
 	public void run() {
+		try {
+			if (this.load())
+				this.loop();
+		} finally {
+			this.close();
+		}
+	}
+
+	/**
+	 * Loads the assets while presenting empty frames.
+	 *
+	 * @return {@code true} if the assets have been loaded, or {@code false} if the window has been closed or if loading failed
+	 */
+	private boolean load() {
 		GL.get().enable(GL.GL11.CULL_FACE);
 		GL.get().enable(GL.GL11.DEPTH_TEST);
 
-		Texture2D heightmapTexture, colormapTexture;
-		try {
-			heightmapTexture = Texture2D.builder(new Identifier("textures/heightmap.png"))
-					.parameter(TextureParameters.MIN_FILTER, TextureParameters.FilterValue.NEAREST)
-					.parameter(TextureParameters.MAG_FILTER, TextureParameters.FilterValue.NEAREST)
-					.build();
-			colormapTexture = Texture2D.builder(new Identifier("textures/colormap.png"))
-					.parameter(TextureParameters.MIN_FILTER, TextureParameters.FilterValue.NEAREST)
-					.parameter(TextureParameters.MAG_FILTER, TextureParameters.FilterValue.NEAREST)
-					.build();
-		} catch (IOException e) {
-			e.printStackTrace();
-			return;
-		}
-		this.outputTexture = Texture2D.of(800, 600, Texture.InternalFormat.RGBA32F);
+		// Every asset is decoded on the asset loader threads, the uploads are spread over the loading frames.
+		long loadStart = System.nanoTime();
+		var uploader = TextureUploader.isSupported() ? TextureUploader.of() : null;
+		var skyboxFuture = Skybox.load(this.assetLoader, this.assetLoader.cubeMap(new Identifier("textures/skybox"), "jpg"));
+		var heightmapFuture = this.assetLoader.texture(new Identifier("textures/heightmap.png"), Image.Format.RED,
+				Texture2D.Builder::minMaxPyramid);
+		var colormapFuture = this.assetLoader.texture(new Identifier("textures/colormap.png"), Image.Format.ARGB,
+				builder -> builder.internalFormat(Texture.InternalFormat.RGBA8)
+						.uploader(uploader)
+						.mipmaps()
+						.parameter(TextureParameters.MIN_FILTER, TextureParameters.FilterValue.NEAREST_MIPMAP_NEAREST)
+						.parameter(TextureParameters.MAG_FILTER, TextureParameters.FilterValue.NEAREST));
+		var terrainFuture = this.softwareVoxelSpace == null ? CompletableFuture.completedFuture((Terrain) null)
+				: this.assetLoader.supply(() -> {
+			try (var heightmap = NativeImage.load(new Identifier("textures/heightmap.png"), Image.Format.RED);
+			     var colormap = NativeImage.load(new Identifier("textures/colormap.png"), Image.Format.ARGB)) {
+				return Terrain.of(heightmap, colormap);
+			}
+		});
 
-		var graphics = Graphics2D.get();
+		// The programs are compiled by the driver in the background if supported, while the loading frames are presented.
+		var voxelSpaceShaderFuture = this.assetLoader.program(VOXEL_SPACE_SHADERS);
+		var voxelSpacePassFuture = this.softwareVoxelSpace != null ? CompletableFuture.completedFuture((VoxelSpacePass) null)
+				: VoxelSpacePass.load(this.assetLoader, TERRAIN_SIZE);
+		var graphicsFuture = Graphics2D.load(this.assetLoader);
 
-		float deltaTime; // Time between current frame and last frame.
-		float lastFrame = 0.f;
-		boolean direction = true;
-		while (this.running) {
-			float currentFrame = GLFW.getTime();
-			deltaTime = currentFrame - lastFrame;
-			lastFrame = currentFrame;
+		var loaded = CompletableFuture.allOf(skyboxFuture, heightmapFuture, colormapFuture, terrainFuture, voxelSpaceShaderFuture,
+				voxelSpacePassFuture, graphicsFuture);
+		long uploadBudget = AssetLoader.defaultUploadBudget();
+		try {
+			while (!loaded.isDone() || this.assetLoader.hasPendingUploads()) {
+				this.assetLoader.processUploads(uploadBudget);
+				GLFW.pollEvents();
+				GL.get().clear(GL.GL11.COLOR_BUFFER_BIT | GL.GL11.DEPTH_BUFFER_BIT);
+				this.window.swapBuffers();
+
+				if (this.window.shouldClose())
+					return false;
+			}
 
-			float newYaw = this.camera.getYaw() + .5f;
-			float newPitch = this.camera.getPitch() + (direction ? 1 : -1) * .25f;
-			if (newPitch > 89) direction = false;
-			else if (newPitch < -89) direction = true;
-			//this.camera.setAngles(newYaw, newPitch);
+			loaded.join();
+			this.skybox = skyboxFuture.join();
+			this.heightmapTexture = heightmapFuture.join();
+			this.colormapTexture = colormapFuture.join();
+			this.terrain = terrainFuture.join();
+			this.voxelSpaceShader = voxelSpaceShaderFuture.join();
+			this.voxelSpacePass = voxelSpacePassFuture.join();
+		} catch (CompletionException e) {
+			e.getCause().printStackTrace();
+			return false;
+		} finally {
+			if (uploader != null)
+				uploader.close();
+		}
+		this.skybox.scale(50.f);
+		if (this.shaderReloader != null) {
+			this.assetLoader.shaderVariants().watch(this.shaderReloader, new ShaderVariants.Variant(VOXEL_SPACE_SHADERS, Map.of()),
+					program -> this.voxelSpaceShader = program);
+			if (this.voxelSpacePass != null)
+				this.voxelSpacePass.watch(this.shaderReloader);
+		}
+		if (DEBUG) {
+			if (this.voxelSpacePass != null)
+				System.out.println("Voxel space pass running " + this.voxelSpacePass.localSize() + " columns per workgroup.");
+			System.out.printf("Loaded assets in %.1f ms (%d uploads taking %.1f ms).%n",
+					(System.nanoTime() - loadStart) / 1_000_000., this.assetLoader.uploadCount(), this.assetLoader.uploadMillis());
+			var programCache = ProgramCache.getDefault();
+			if (programCache.isEnabled())
+				System.out.printf("Program cache: %d loaded, %d compiled, %d rejected.%n",
+						programCache.hits(), programCache.misses(), programCache.rejected());
+			if (this.assetLoader.programCompiler().isParallel())
+				System.out.println("Shader programs compiled in parallel by the driver.");
+		}
 
-			this.renderer.updateView(this.camera.getViewMatrix());
+		return true;
+	}
 
-			GL.get().clear(GL.GL11.COLOR_BUFFER_BIT | GL.GL11.DEPTH_BUFFER_BIT);
-			GL.get().clearColor(0.f, 0.f, 0.f, 1.f);
+	private void loop() {
+		this.outputTexture = Texture2D.of(800, 600, VoxelSpacePass.OUTPUT_FORMAT);
+		if (this.voxelSpacePass != null) {
+			var size = this.window.getFramebufferSize();
+			this.incrementalVoxelSpace = new IncrementalVoxelSpace(this.voxelSpacePass, size.width(), size.height());
+		}
 
-			if (this.dirty != 0) {
-				this.voxelSpaceComputeShader.use();
-				this.voxelSpaceComputeShader.setVec3f("pos", this.camera.getPosition());
-				this.voxelSpaceComputeShader.setFloat("yaw", (float) Math.toRadians(yaw));
-				this.voxelSpaceComputeShader.setFloat("pitch", horizon);
-				outputTexture.bind();
-				try (var ignored = outputTexture.bindImageTexture(0, 0, GL.Access.WRITE_ONLY, Texture.InternalFormat.RGBA32F)) {
-					heightmapTexture.bind();
-					var boundHeightmap = heightmapTexture.bindImageTexture(1, 0, GL.Access.READ_ONLY, Texture.InternalFormat.RGBA32F);
-					colormapTexture.bind();
-					var boundColormap = colormapTexture.bindImageTexture(2, 0, GL.Access.READ_ONLY, Texture.InternalFormat.RGBA32F);
-					var dimensions = this.window.getFramebufferSize();
-					this.voxelSpaceComputeShader.dispatchCompute(dimensions.width(), 1, 1);
-					GL.get().memoryBarrier(GL.GL42.SHADER_IMAGE_ACCESS_BARRIER_BIT);
-					boundHeightmap.close();
-					boundColormap.close();
-				}
-				Texture.unbind(TextureType.TEXTURE_2D);
-				ShaderProgram.useNone();
+		var graphics = Graphics2D.get();
 
-				this.dirty--;
+		// The camera, yaw and horizon now belong to the simulation stage.
+		try (var pipeline = new FramePipeline<InputSnapshot, SimulationSnapshot, FrameSnapshot>(FramePipeline.defaultThreadCount(),
+				this::simulate, ResErrare::prepare)) {
+			if (DEBUG)
+				System.out.println("Frame pipeline running on " + pipeline.threadCount() + " thread(s).");
+			var pacer = FramePacer.fromProperties();
+
+			while (this.running) {
+				// Pace before sampling so that waiting does not delay the input.
+				pacer.pace();
+				pipeline.runFrame(this::sampleInput, frame -> this.submit(frame, graphics, this.heightmapTexture, this.colormapTexture));
+				this.running &= !this.window.shouldClose();
 			}
 
-			//this.render();
-
-			graphics.drawScreenWith(outputTexture, this.voxelSpaceShader);
+			if (DEBUG) {
+				System.out.println("Frame pipeline timings:");
+				pipeline.timers().forEach(timer -> System.out.println("\t" + timer));
+			}
+		}
 
-			GLFW.pollEvents();
-			this.window.swapBuffers();
-			this.processInput(deltaTime);
-			this.running &= !this.window.shouldClose();
+		if (DEBUG) {
+			var stateCache = GL.get().stateCache();
+			System.out.printf("GL state cache: %d redundant state changes dropped out of %d (%.1f%%).%n",
+					stateCache.redundantCalls(), stateCache.calls(), stateCache.redundantCallRatio() * 100);
 		}
+	}
 
-		this.voxelSpaceComputeShader.close();
-		this.voxelSpaceShader.close();
+	/**
+	 * Releases the resources of the game, including those of an interrupted loading.
+	 */
+	private void close() {
+		if (this.shaderReloader != null)
+			this.shaderReloader.close();
+		if (this.incrementalVoxelSpace != null) {
+			if (DEBUG)
+				System.out.printf("Voxel space: %.1f%% of the output re-rendered per frame on average.%n",
+						this.incrementalVoxelSpace.averageRecomputedRatio() * 100);
+			this.incrementalVoxelSpace.close();
+		}
+		if (this.softwareOutput != null)
+			this.softwareOutput.scope().close();
+		if (this.outputTexture != null)
+			this.outputTexture.close();
+		if (this.heightmapTexture != null)
+			this.heightmapTexture.close();
+		if (this.colormapTexture != null)
+			this.colormapTexture.close();
+		if (this.skybox != null)
+			this.skybox.close();
+		// Unmaps the streaming uniform buffer and deletes its fences, while the context is still current.
+		this.renderer.close();
+		// Last, the asset loader owns the shader programs of the other resources.
+		this.assetLoader.close();
 	}
 
 	public static void main(String[] args) throws IOException {
@@ -197,44 +327,178 @@ public final class ResErrare {
 		this.skybox.draw();
 	}
 
-	public void processInput(float deltaTime) {
-		if (this.window.getKey(' ').isPressing()) {
+	/* Frame stages */
+
+	/**
+	 * Polls the window events and samples the keys, runs on the thread owning the context.
+	 *
+	 * @return the input snapshot
+	 */
+	private InputSnapshot sampleInput() {
+		GLFW.pollEvents();
+
+		return new InputSnapshot(GLFW.getTime(),
+				this.window.getKey(' ').isPressing(), this.window.getKey(340).isPressing(),
+				this.window.getKey('W').isPressing(), this.window.getKey('S').isPressing(),
+				this.window.getKey('A').isPressing(), this.window.getKey('D').isPressing(),
+				this.window.getKey(262).isPressing(), this.window.getKey(263).isPressing(),
+				this.window.getKey(264).isPressing(), this.window.getKey(265).isPressing()
+		);
+	}
+
+	/**
+	 * Runs the simulation ticks which are due, runs on the simulation thread.
+	 *
+	 * @param input the input snapshot
+	 * @return the simulation snapshot
+	 */
+	private SimulationSnapshot simulate(InputSnapshot input) {
+		float alpha = (float) this.gameLoop.advance(input.time(), () -> this.tick(input));
+		// While moving, the interpolated state changes every frame even without a new tick.
+		boolean dirty = this.changedSinceSnapshot || this.moving;
+		this.changedSinceSnapshot = false;
+
+		return new SimulationSnapshot(this.previousCamera, new Camera(this.camera), this.previousYaw, this.yaw,
+				this.previousHorizon, this.horizon, alpha, dirty);
+	}
+
+	private void tick(InputSnapshot input) {
+		this.previousCamera = new Camera(this.camera);
+		this.previousYaw = this.yaw;
+		this.previousHorizon = this.horizon;
+
+		this.moving = this.processInput(input);
+		this.changedSinceSnapshot |= this.moving;
+	}
+
+	/**
+	 * Prepares the data of the frame by interpolating between the two last ticks, runs on the preparation thread.
+	 *
+	 * @param snapshot the simulation snapshot
+	 * @return the prepared frame
+	 */
+	private static FrameSnapshot prepare(SimulationSnapshot snapshot) {
+		float alpha = snapshot.alpha();
+		var camera = snapshot.previousCamera().lerp(snapshot.camera(), alpha);
+		float yaw = snapshot.previousYaw() + (snapshot.yaw() - snapshot.previousYaw()) * alpha;
+		float horizon = snapshot.previousHorizon() + (snapshot.horizon() - snapshot.previousHorizon()) * alpha;
+
+		return new FrameSnapshot(camera.getViewMatrix(new Matrix4f()), new Vector3f(camera.getPosition()),
+				(float) Math.toRadians(yaw), horizon, snapshot.dirty());
+	}
+
+	/**
+	 * Submits the frame, runs on the thread owning the context.
+	 */
+	private void submit(FrameSnapshot frame, Graphics2D graphics, Texture2D heightmapTexture, Texture2D colormapTexture) {
+		if (frame.dirty())
+			this.dirty = Math.max(this.dirty, 1);
+
+		// Reloaded programs are swapped in between frames, the previous output was rendered by the old ones.
+		if (this.shaderReloader != null && this.shaderReloader.processReloads() != 0 && this.incrementalVoxelSpace != null)
+			this.incrementalVoxelSpace.invalidate();
+
+		this.renderer.updateView(frame.view());
+
+		GL.get().clear(GL.GL11.COLOR_BUFFER_BIT | GL.GL11.DEPTH_BUFFER_BIT);
+		GL.get().clearColor(0.f, 0.f, 0.f, 1.f);
+
+		Texture2D output;
+		if (this.incrementalVoxelSpace != null) {
+			// Compares the view to the one held by the output, only what changed is rendered again.
+			this.incrementalVoxelSpace.render(heightmapTexture, colormapTexture, frame.position(), frame.yawRadians(), frame.horizon());
+			output = this.incrementalVoxelSpace.output();
+		} else {
+			if (this.dirty != 0) {
+				this.renderSoftware(frame);
+				this.dirty--;
+			}
+			output = this.outputTexture;
+		}
+
+		//this.render();
+
+		graphics.drawScreenWith(output, this.voxelSpaceShader);
+
+		this.window.swapBuffers();
+		this.renderer.endFrame();
+	}
+
+	/**
+	 * Renders the voxel space on the CPU and uploads the result to the output texture.
+	 *
+	 * @param frame the frame to render
+	 */
+	private void renderSoftware(FrameSnapshot frame) {
+		var dimensions = this.window.getFramebufferSize();
+		int width = dimensions.width();
+		int height = dimensions.height();
+
+		if (this.softwareOutput == null || this.softwareOutput.byteSize() != (long) width * height * VoxelSpaceRenderer.PIXEL_SIZE) {
+			if (this.softwareOutput != null)
+				this.softwareOutput.scope().close();
+			// Shared since the columns are written from the fork-join pool.
+			this.softwareOutput = VoxelSpaceRenderer.allocateOutput(width, height, ResourceScope.newSharedScope());
+		}
+
+		this.softwareVoxelSpace.render(this.terrain,
+				new VoxelSpaceRenderer.View(frame.position(), frame.yawRadians(), frame.horizon(), TERRAIN_SIZE),
+				this.softwareOutput, width, height);
+
+		this.outputTexture.bind();
+		GL.get().texImage2D(Texture2D.Target.TEXTURE_2D, 0, VoxelSpacePass.OUTPUT_FORMAT, width, height,
+				Image.Format.ARGB, GL.GL11.FLOAT, this.softwareOutput.address());
+		Texture.unbind(TextureType.TEXTURE_2D);
+	}
+
+	/**
+	 * Applies the given input to the camera for one tick.
+	 *
+	 * @param input the input snapshot
+	 * @return {@code true} if the camera has changed, else {@code false}
+	 */
+	public boolean processInput(InputSnapshot input) {
+		boolean dirty = false;
+
+		if (input.up()) {
 			this.camera.getPosition().y++;
-			this.dirty = 1;
-		} else if (this.window.getKey(340).isPressing()) {
+			dirty = true;
+		} else if (input.down()) {
 			this.camera.getPosition().y--;
-			this.dirty = 1;
+			dirty = true;
 		}
 
-		if (this.window.getKey('W').isPressing())
-			this.processMovement(1, deltaTime);
-		if (this.window.getKey('S').isPressing())
-			this.processMovement(2, deltaTime);
-		if (this.window.getKey('A').isPressing())
-			this.processMovement(3, deltaTime);
-		if (this.window.getKey('D').isPressing())
-			this.processMovement(4, deltaTime);
+		if (input.forward())
+			dirty |= this.processMovement(1);
+		if (input.backward())
+			dirty |= this.processMovement(2);
+		if (input.left())
+			dirty |= this.processMovement(3);
+		if (input.right())
+			dirty |= this.processMovement(4);
 
-		if (this.window.getKey(262).isPressing()) {
+		if (input.turnRight()) {
 			this.yaw--;
 			this.camera.setYaw(-this.yaw);
-			this.dirty = 1;
-		} else if (this.window.getKey(263).isPressing()) {
+			dirty = true;
+		} else if (input.turnLeft()) {
 			this.yaw++;
 			this.camera.setYaw(-this.yaw);
-			this.dirty = 1;
+			dirty = true;
 		}
-		if (this.window.getKey(264).isPressing()) {
+		if (input.horizonDown()) {
 			this.horizon -= 5f;
-			this.dirty = 1;
-		} else if (this.window.getKey(265).isPressing()) {
+			dirty = true;
+		} else if (input.horizonUp()) {
 			this.horizon += 5f;
-			this.dirty = 1;
+			dirty = true;
 		}
+
+		return dirty;
 	}
 
-	private void processMovement(int direction, float deltaTime) {
-		float velocity = /*2.5f **/ 1;
+	private boolean processMovement(int direction) {
+		float velocity = 1; // Per tick.
 		var front = camera.frontVector();
 		var right = camera.rightVector();
 		switch (direction) {
@@ -244,7 +508,7 @@ public final class ResErrare {
 			case 4 -> camera.getPosition().add(right.x * velocity, right.y * velocity, right.z * velocity);
 		}
 
-		this.dirty = 1;
+		return true;
 	}
 
 	public static void terminate() {
@@ -257,4 +521,29 @@ public final class ResErrare {
 		return Color.HSBtoRGB((float) ((System.currentTimeMillis() - x * 10.0D - y * 10.0D) % speed) / speed,
 				.75f, .9f);
 	}
+
+	/**
+	 * Represents the state of the keys at the start of a frame.
+	 *
+	 * @param time the time at which the keys were sampled in seconds
+	 */
+	public record InputSnapshot(double time, boolean up, boolean down,
+	                            boolean forward, boolean backward, boolean left, boolean right,
+	                            boolean turnRight, boolean turnLeft, boolean horizonDown, boolean horizonUp) {
+	}
+
+	/**
+	 * Represents the state of the simulation at the two last ticks, the cameras are copies owned by the snapshot.
+	 *
+	 * @param alpha the interpolation factor between the two last ticks
+	 */
+	private record SimulationSnapshot(Camera previousCamera, Camera camera, float previousYaw, float yaw,
+	                                  float previousHorizon, float horizon, float alpha, boolean dirty) {
+	}
+
+	/**
+	 * Represents the data needed to submit a frame.
+	 */
+	private record FrameSnapshot(Matrix4f view, Vector3f position, float yawRadians, float horizon, boolean dirty) {
+	}
 }
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.frame;
+
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Represents a frame-rate limiter.
+ * <p>
+ * Waiting is done by sleeping until shortly before the deadline, then spinning until the deadline,
+ * as sleeping alone overshoots by up to a scheduler quantum while spinning alone burns a whole core.
+ * <p>
+ * The pacer should be called right before sampling the input of a frame, so that waiting does not add input latency.
+ */
+public final class FramePacer {
+	/**
+	 * The time before the deadline from which the pacer spins instead of sleeping.
+	 */
+	private static final long SPIN_NANOS = 1_500_000L;
+	private static final FramePacer UNCAPPED = new FramePacer(0);
+
+	private final long frameNanos;
+	private long deadline = 0;
+
+	private FramePacer(long frameNanos) {
+		this.frameNanos = frameNanos;
+	}
+
+	/**
+	 * {@return a pacer limiting the frame rate to the given number of frames per second, or an uncapped pacer if {@code 0}}
+	 *
+	 * @param maxFrameRate the maximum number of frames per second
+	 */
+	public static FramePacer of(int maxFrameRate) {
+		if (maxFrameRate < 0)
+			throw new IllegalArgumentException("Invalid frame rate cap " + maxFrameRate + ".");
+		else if (maxFrameRate == 0)
+			return UNCAPPED;
+
+		return new FramePacer(1_000_000_000L / maxFrameRate);
+	}
+
+	/**
+	 * {@return a pacer configured with the {@code res_errare.fps_cap} system property, uncapped by default}
+	 */
+	public static FramePacer fromProperties() {
+		return of(Integer.getInteger("res_errare.fps_cap", 0));
+	}
+
+	/**
+	 * {@return {@code true} if this pacer limits the frame rate, else {@code false}}
+	 */
+	public boolean isCapped() {
+		return this.frameNanos != 0;
+	}
+
+	/**
+	 * Waits until the start of the next frame.
+	 */
+	public void pace() {
+		if (this.frameNanos == 0)
+			return;
+
+		long now = System.nanoTime();
+
+		if (this.deadline == 0 || now - this.deadline > this.frameNanos) {
+			// First frame, or too late to catch up: restart the schedule from now instead of rushing the next frames.
+			this.deadline = now + this.frameNanos;
+			return;
+		}
+
+		long remaining;
+		while ((remaining = this.deadline - System.nanoTime()) > SPIN_NANOS) {
+			LockSupport.parkNanos(this, remaining - SPIN_NANOS);
+		}
+		while (this.deadline - System.nanoTime() > 0) {
+			Thread.onSpinWait();
+		}
+
+		this.deadline += this.frameNanos;
+	}
+}
@@ -0,0 +1,238 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.frame;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.function.Function;
+import java.util.function.Supplier;
+
+/**
+ * Represents a frame pipeline which splits a frame into four stages:
+ * <ol>
+ *     <li>sampling: reads the input, on the thread owning the context;</li>
+ *     <li>simulation: integrates the input into the simulation state and returns an immutable snapshot of it;</li>
+ *     <li>preparation: prepares the data of the frame from the simulation snapshot;</li>
+ *     <li>submission: submits the prepared frame to the GPU, on the thread owning the context.</li>
+ * </ol>
+ * <p>
+ * With three threads, simulation and preparation each get their own thread and the stages overlap:
+ * while frame {@code N} is submitted, frame {@code N + 1} is prepared and frame {@code N + 2} is simulated.
+ * With two threads, simulation and preparation share a thread. Stages hand immutable snapshots to each other
+ * through {@link SnapshotExchange}s, every input is simulated exactly once and a stage waits for the next one
+ * to take its snapshot before producing another, so the simulation is paced by the submission.
+ * The frame submitted by {@link #runFrame(Supplier, Consumer)} has been sampled {@code threadCount - 1} frames earlier,
+ * the first calls only fill the pipeline and do not submit anything.
+ * <p>
+ * With a single thread, every stage runs in order on the calling thread, which makes the pipeline fully deterministic.
+ *
+ * @param <I> the type of the input snapshots
+ * @param <S> the type of the simulation snapshots
+ * @param <F> the type of the prepared frames
+ */
+public final class FramePipeline<I, S, F> implements AutoCloseable {
+	private final int threadCount;
+	private final Function<I, S> simulation;
+	private final Function<S, F> preparation;
+	private final SnapshotExchange<I> inputs = new SnapshotExchange<>();
+	private final SnapshotExchange<S> simulations = new SnapshotExchange<>();
+	private final SnapshotExchange<F> frames = new SnapshotExchange<>();
+	private final List<Thread> threads = new ArrayList<>();
+	private volatile @Nullable Throwable failure;
+	private int framesInFlight = 0;
+
+	private final StageTimer samplingTimer = new StageTimer("sampling");
+	private final StageTimer simulationTimer = new StageTimer("simulation");
+	private final StageTimer preparationTimer = new StageTimer("preparation");
+	private final StageTimer waitTimer = new StageTimer("wait");
+	private final StageTimer submissionTimer = new StageTimer("submission");
+	private final StageTimer frameTimer = new StageTimer("frame");
+
+	/**
+	 * Creates a new frame pipeline and starts its worker threads.
+	 *
+	 * @param threadCount the number of threads, including the calling thread, between {@code 1} and {@code 3}
+	 * @param simulation the simulation stage
+	 * @param preparation the preparation stage
+	 */
+	public FramePipeline(int threadCount, Function<I, S> simulation, Function<S, F> preparation) {
+		if (threadCount < 1 || threadCount > 3)
+			throw new IllegalArgumentException("Invalid frame pipeline thread count " + threadCount + ", expected between 1 and 3.");
+
+		this.threadCount = threadCount;
+		this.simulation = simulation;
+		this.preparation = preparation;
+
+		if (threadCount == 2) {
+			this.start("simulation", () -> {
+				I input;
+				while ((input = this.inputs.take()) != null) {
+					if (!this.frames.publish(this.prepare(this.simulate(input))))
+						return;
+				}
+			});
+		} else if (threadCount == 3) {
+			this.start("simulation", () -> {
+				I input;
+				while ((input = this.inputs.take()) != null) {
+					if (!this.simulations.publish(this.simulate(input)))
+						return;
+				}
+			});
+			this.start("preparation", () -> {
+				S snapshot;
+				while ((snapshot = this.simulations.take()) != null) {
+					if (!this.frames.publish(this.prepare(snapshot)))
+						return;
+				}
+			});
+		}
+	}
+
+	/**
+	 * {@return the default number of threads, which can be overridden with the {@code res_errare.pipeline.threads} system property}
+	 */
+	public static int defaultThreadCount() {
+		return Integer.getInteger("res_errare.pipeline.threads", Math.min(3, Runtime.getRuntime().availableProcessors()));
+	}
+
+	/**
+	 * {@return the number of threads of this pipeline, including the submission thread}
+	 */
+	public int threadCount() {
+		return this.threadCount;
+	}
+
+	/**
+	 * Runs a frame, must be called on the thread owning the context.
+	 * <p>
+	 * With more than one thread, the submitted frame has been simulated from the input sampled {@code threadCount - 1}
+	 * frames earlier, and nothing is submitted until the pipeline is filled.
+	 *
+	 * @param sampler the sampling stage
+	 * @param submission the submission stage
+	 */
+	public void runFrame(Supplier<I> sampler, Consumer<F> submission) {
+		long frameStart = System.nanoTime();
+
+		var input = sampler.get();
+		long sampled = System.nanoTime();
+		this.samplingTimer.record(sampled - frameStart);
+
+		F frame;
+		if (this.threadCount == 1) {
+			frame = this.prepare(this.simulate(input));
+		} else {
+			// Waits for the simulation to take the previous input if it is lagging behind.
+			if (!this.inputs.publish(input))
+				this.throwClosed();
+
+			if (++this.framesInFlight < this.threadCount)
+				return;
+
+			frame = this.frames.take();
+			this.framesInFlight--;
+
+			if (frame == null)
+				this.throwClosed();
+		}
+
+		long submissionStart = System.nanoTime();
+		if (this.threadCount != 1)
+			this.waitTimer.record(submissionStart - sampled);
+
+		submission.accept(frame);
+
+		long end = System.nanoTime();
+		this.submissionTimer.record(end - submissionStart);
+		this.frameTimer.record(end - frameStart);
+	}
+
+	private S simulate(I input) {
+		long start = System.nanoTime();
+		var snapshot = this.simulation.apply(input);
+		this.simulationTimer.record(System.nanoTime() - start);
+		return snapshot;
+	}
+
+	private F prepare(S snapshot) {
+		long start = System.nanoTime();
+		var frame = this.preparation.apply(snapshot);
+		this.preparationTimer.record(System.nanoTime() - start);
+		return frame;
+	}
+
+	private void start(String name, Runnable stage) {
+		var thread = new Thread(() -> {
+			try {
+				stage.run();
+			} catch (Throwable e) {
+				this.failure = e;
+				this.closeExchanges();
+			}
+		}, "res_errare-" + name);
+		thread.setDaemon(true);
+		thread.start();
+		this.threads.add(thread);
+	}
+
+	private void throwClosed() {
+		var failure = this.failure;
+		if (failure != null)
+			throw new IllegalStateException("A frame pipeline stage has failed.", failure);
+		throw new IllegalStateException("The frame pipeline is closed.");
+	}
+
+	/**
+	 * {@return the timers of the stages of this pipeline}
+	 * <p>
+	 * The {@code wait} timer measures how long the submission thread waited for a prepared frame,
+	 * the {@code frame} timer measures a whole {@link #runFrame(Supplier, Consumer)} call.
+	 */
+	public List<StageTimer> timers() {
+		if (this.threadCount == 1)
+			return List.of(this.samplingTimer, this.simulationTimer, this.preparationTimer, this.submissionTimer, this.frameTimer);
+		return List.of(this.samplingTimer, this.simulationTimer, this.preparationTimer, this.waitTimer, this.submissionTimer, this.frameTimer);
+	}
+
+	private void closeExchanges() {
+		this.inputs.close();
+		this.simulations.close();
+		this.frames.close();
+	}
+
+	/**
+	 * Stops the worker threads, waiting for them to finish their current stage.
+	 */
+	@Override
+	public void close() {
+		this.closeExchanges();
+
+		for (var thread : this.threads) {
+			try {
+				thread.join();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				return;
+			}
+		}
+	}
+}
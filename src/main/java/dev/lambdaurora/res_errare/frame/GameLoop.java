@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.frame;
+
+/**
+ * Represents a fixed timestep clock, the simulation advances by ticks of constant length regardless of the frame rate.
+ * <p>
+ * Each frame, {@link #advance(double, Runnable)} runs as many ticks as the elapsed time allows and returns
+ * how far the current time is between the last tick and the next one, which is used to interpolate
+ * the state rendered between two ticks.
+ * <p>
+ * A game loop must only be used by a single thread.
+ */
+public final class GameLoop {
+	/**
+	 * The maximum number of ticks run in a single frame, past which the simulation slows down instead of spiraling
+	 * into longer and longer frames.
+	 */
+	public static final int MAX_TICKS_PER_FRAME = 8;
+
+	private final double tickLength;
+	private double lastTime = Double.NaN;
+	private double accumulator = 0;
+	private long ticks = 0;
+
+	/**
+	 * Creates a new game loop.
+	 *
+	 * @param tickRate the number of ticks per second
+	 */
+	public GameLoop(double tickRate) {
+		if (tickRate <= 0)
+			throw new IllegalArgumentException("Invalid tick rate " + tickRate + ".");
+
+		this.tickLength = 1. / tickRate;
+	}
+
+	/**
+	 * {@return the length of a tick in seconds}
+	 */
+	public double tickLength() {
+		return this.tickLength;
+	}
+
+	/**
+	 * {@return the number of ticks run since the creation of this loop}
+	 */
+	public long ticks() {
+		return this.ticks;
+	}
+
+	/**
+	 * Advances the clock to the given time, running the ticks which are due.
+	 * <p>
+	 * The first call only starts the clock.
+	 *
+	 * @param time the current time in seconds, from a monotonic clock
+	 * @param tick the action to run on each tick
+	 * @return the interpolation factor between the previous tick and the last tick, between {@code 0} and {@code 1}
+	 */
+	public double advance(double time, Runnable tick) {
+		if (!Double.isNaN(this.lastTime))
+			this.accumulator += Math.max(0, time - this.lastTime);
+		this.lastTime = time;
+
+		int ran = 0;
+		while (this.accumulator >= this.tickLength) {
+			if (ran == MAX_TICKS_PER_FRAME) {
+				// Drop the time the simulation cannot catch up with.
+				this.accumulator %= this.tickLength;
+				break;
+			}
+
+			tick.run();
+			this.accumulator -= this.tickLength;
+			this.ticks++;
+			ran++;
+		}
+
+		return this.accumulator / this.tickLength;
+	}
+}
@@ -0,0 +1,120 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.frame;
+
+import org.jetbrains.annotations.Nullable;
+
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Represents a lock-free single-slot handoff of immutable snapshots between two threads.
+ * <p>
+ * The producer {@linkplain #publish(Object) publishes} a snapshot, waiting for the previous one to be taken,
+ * and the consumer {@linkplain #take() takes} it, waiting for one to be published. Every published snapshot
+ * is taken exactly once.
+ *
+ * @param <T> the type of the snapshots, must be immutable
+ */
+public final class SnapshotExchange<T> implements AutoCloseable {
+	/**
+	 * Waiting threads are woken up by the other side, the timeout only bounds a wake-up race.
+	 */
+	private static final long PARK_NANOS = 1_000_000L;
+
+	private final AtomicReference<T> slot = new AtomicReference<>();
+	private volatile @Nullable Thread waitingProducer;
+	private volatile @Nullable Thread waitingConsumer;
+	private volatile boolean closed = false;
+
+	/**
+	 * Publishes the given snapshot, waiting until the previous snapshot has been taken.
+	 *
+	 * @param snapshot the snapshot to publish
+	 * @return {@code true} if the snapshot has been published, or {@code false} if this exchange has been closed
+	 */
+	public boolean publish(T snapshot) {
+		while (!this.slot.compareAndSet(null, snapshot)) {
+			if (this.closed)
+				return false;
+
+			this.waitingProducer = Thread.currentThread();
+			if (this.slot.get() != null && !this.closed)
+				LockSupport.parkNanos(this, PARK_NANOS);
+			this.waitingProducer = null;
+		}
+
+		LockSupport.unpark(this.waitingConsumer);
+		return true;
+	}
+
+	/**
+	 * Takes the current snapshot without waiting.
+	 *
+	 * @return the snapshot if present, else {@code null}
+	 */
+	public @Nullable T poll() {
+		var snapshot = this.slot.getAndSet(null);
+
+		if (snapshot != null)
+			LockSupport.unpark(this.waitingProducer);
+
+		return snapshot;
+	}
+
+	/**
+	 * Takes the current snapshot, waiting for one to be published.
+	 *
+	 * @return the snapshot, or {@code null} if this exchange has been closed
+	 */
+	public @Nullable T take() {
+		T snapshot;
+		while ((snapshot = this.poll()) == null) {
+			if (this.closed)
+				return null;
+
+			this.park();
+		}
+
+		return snapshot;
+	}
+
+	private void park() {
+		this.waitingConsumer = Thread.currentThread();
+		if (this.slot.get() == null && !this.closed)
+			LockSupport.parkNanos(this, PARK_NANOS);
+		this.waitingConsumer = null;
+	}
+
+	/**
+	 * {@return {@code true} if this exchange has been closed, else {@code false}}
+	 */
+	public boolean isClosed() {
+		return this.closed;
+	}
+
+	/**
+	 * Closes this exchange, waking up any waiting thread.
+	 */
+	@Override
+	public void close() {
+		this.closed = true;
+		LockSupport.unpark(this.waitingProducer);
+		LockSupport.unpark(this.waitingConsumer);
+	}
+}
@@ -0,0 +1,90 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.frame;
+
+/**
+ * Represents the timings of a stage of a frame pipeline.
+ * <p>
+ * A timer is written by the thread running its stage and may be read from any thread.
+ */
+public final class StageTimer {
+	/**
+	 * The weight of the latest sample in the moving average, roughly averages the last 20 frames.
+	 */
+	private static final double SMOOTHING = .05;
+
+	private final String name;
+	private volatile long lastNanos;
+	private volatile double averageNanos;
+	private volatile long maxNanos;
+	private volatile long samples;
+
+	public StageTimer(String name) {
+		this.name = name;
+	}
+
+	public String name() {
+		return this.name;
+	}
+
+	/**
+	 * Records a sample.
+	 *
+	 * @param nanos the time spent in the stage in nanoseconds
+	 */
+	public void record(long nanos) {
+		this.lastNanos = nanos;
+		this.averageNanos = this.samples == 0 ? nanos : this.averageNanos + (nanos - this.averageNanos) * SMOOTHING;
+		if (nanos > this.maxNanos)
+			this.maxNanos = nanos;
+		this.samples++;
+	}
+
+	/**
+	 * {@return the latest sample in milliseconds}
+	 */
+	public double lastMillis() {
+		return this.lastNanos / 1_000_000.;
+	}
+
+	/**
+	 * {@return the moving average of the samples in milliseconds}
+	 */
+	public double averageMillis() {
+		return this.averageNanos / 1_000_000.;
+	}
+
+	/**
+	 * {@return the largest sample in milliseconds}
+	 */
+	public double maxMillis() {
+		return this.maxNanos / 1_000_000.;
+	}
+
+	/**
+	 * {@return the number of recorded samples}
+	 */
+	public long samples() {
+		return this.samples;
+	}
+
+	@Override
+	public String toString() {
+		return String.format("%s: %.3f ms avg, %.3f ms max", this.name, this.averageMillis(), this.maxMillis());
+	}
+}
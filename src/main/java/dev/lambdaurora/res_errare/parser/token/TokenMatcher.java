@@ -25,17 +25,19 @@ import java.util.regex.Pattern;
  * Represents a token matcher.
  * <p>
  * The goal is to have a simple way to match tokens.
+ * The input is matched in place from an offset, so lexing never copies the remaining input.
  */
 @FunctionalInterface
 public interface TokenMatcher {
 	/**
-	 * Attempts to match a string.
+	 * Attempts to match the input at the given offset.
 	 *
-	 * @param input the string to match
-	 * @param startOfLine if the string to match is at the beginning of a line
-	 * @return the length of the matched string, {@code 0} if the match failed.
+	 * @param input the input to match
+	 * @param offset the offset in the input where the match starts
+	 * @param startOfLine if the offset is at the beginning of a line
+	 * @return the length of the matched string, {@code 0} if the match failed, or {@code -1} if the token is incomplete
 	 */
-	int match(String input, boolean startOfLine);
+	int match(CharSequence input, int offset, boolean startOfLine);
 
 	/**
 	 * Returns a single character token matcher.
@@ -56,9 +58,9 @@ public interface TokenMatcher {
 	 * @return the token matcher
 	 */
 	static TokenMatcher of(char c, boolean requireWhitespaceToSeparate) {
-		return (input, startOfLine) -> {
-			if (input.charAt(0) == c) {
-				if (requireWhitespaceToSeparate && input.length() > 1 && input.charAt(1) == c) return 0; // Might be a double character token.
+		return (input, offset, startOfLine) -> {
+			if (input.charAt(offset) == c) {
+				if (requireWhitespaceToSeparate && StringUtil.getCharAt(input, offset + 1) == c) return 0; // Might be a double character token.
 				return 1;
 			} else return 0;
 		};
@@ -71,35 +73,44 @@ public interface TokenMatcher {
 	 * @return the token matcher
 	 */
 	static TokenMatcher of(String str) {
-		return (input, startOfLine) -> {
-			if (input.startsWith(str)) return str.length();
-			return 0;
+		return (input, offset, startOfLine) -> {
+			if (input.length() - offset < str.length())
+				return 0;
+
+			for (int i = 0; i < str.length(); i++) {
+				if (input.charAt(offset + i) != str.charAt(i))
+					return 0;
+			}
+
+			return str.length();
 		};
 	}
 
 	/**
 	 * Returns a pattern-based token matcher.
+	 * <p>
+	 * The pattern is matched from the offset, without requiring the rest of the input to match.
 	 *
 	 * @param pattern the pattern to match against
 	 * @return the token matcher
 	 */
 	static TokenMatcher of(Pattern pattern) {
-		return (input, startOfLine) -> {
-			var matcher = pattern.matcher(input);
-			if (matcher.matches()) return matcher.end();
+		return (input, offset, startOfLine) -> {
+			var matcher = pattern.matcher(input).region(offset, input.length());
+			if (matcher.lookingAt()) return matcher.end() - offset;
 			else return 0;
 		};
 	}
 
-	TokenMatcher CHAR = (input, startOfLine) -> {
-		if (StringUtil.getCharAt(input, 0) != '\'')
+	TokenMatcher CHAR = (input, offset, startOfLine) -> {
+		if (StringUtil.getCharAt(input, offset) != '\'')
 			return 0;
 
 		int i;
 		boolean foundEnd = false;
 		int shouldEnd = 0;
-		for (i = 1; i < input.length() && !foundEnd; i++) {
-			switch (input.charAt(i)) {
+		for (i = 1; offset + i < input.length() && !foundEnd; i++) {
+			switch (input.charAt(offset + i)) {
 				case '\\' -> i++;
 				case '\'' -> foundEnd = true;
 				default -> shouldEnd = i + 1;
@@ -114,14 +125,14 @@ public interface TokenMatcher {
 
 		return i;
 	};
-	TokenMatcher STRING = (input, startOfLine) -> {
-		if (StringUtil.getCharAt(input, 0) != '"')
+	TokenMatcher STRING = (input, offset, startOfLine) -> {
+		if (StringUtil.getCharAt(input, offset) != '"')
 			return 0;
 
 		int i;
 		boolean foundEnd = false;
-		for (i = 1; i < input.length() && !foundEnd; i++) {
-			switch (input.charAt(i)) {
+		for (i = 1; offset + i < input.length() && !foundEnd; i++) {
+			switch (input.charAt(offset + i)) {
 				case '\\' -> i++;
 				case '"' -> foundEnd = true;
 			}
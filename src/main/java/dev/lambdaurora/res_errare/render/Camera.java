@@ -44,6 +44,15 @@ public class Camera {
 		this.updateCameraVectors();
 	}
 
+	/**
+	 * Creates a copy of the given camera.
+	 *
+	 * @param other the camera to copy
+	 */
+	public Camera(Camera other) {
+		this(new Vector3f(other.position), new Vector3f(other.worldUp), other.yaw, other.pitch);
+	}
+
 	public void setPosition(float x, float y, float z) {
 		this.position.x = x;
 		this.position.y = y;
@@ -98,8 +107,30 @@ public class Camera {
 		this.updateCameraVectors();
 	}
 
+	/**
+	 * Interpolates between this camera and the given camera.
+	 *
+	 * @param other the camera to interpolate to
+	 * @param alpha the interpolation factor, {@code 0} returns a copy of this camera and {@code 1} a copy of {@code other}
+	 * @return the interpolated camera
+	 */
+	public Camera lerp(Camera other, float alpha) {
+		return new Camera(this.position.lerp(other.position, alpha, new Vector3f()), new Vector3f(this.worldUp),
+				this.yaw + (other.yaw - this.yaw) * alpha, this.pitch + (other.pitch - this.pitch) * alpha);
+	}
+
 	public Matrix4f getViewMatrix() {
-		return this.viewMatrix.setLookAt(
+		return this.getViewMatrix(this.viewMatrix);
+	}
+
+	/**
+	 * Computes the view matrix of this camera into the given matrix, leaving this camera untouched.
+	 *
+	 * @param dest the matrix to store the view matrix in
+	 * @return {@code dest}
+	 */
+	public Matrix4f getViewMatrix(Matrix4f dest) {
+		return dest.setLookAt(
 				this.position.x(), this.position.y(), this.position.z(),
 				this.position.x() + this.front.x(), this.position.y() + this.front.y(), this.position.z() + this.front.z(),
 				this.up.x(), this.up.y(), this.up.z()
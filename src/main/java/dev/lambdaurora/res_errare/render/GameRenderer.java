@@ -21,55 +21,101 @@ import dev.lambdaurora.res_errare.render.buffer.BufferLayout;
 import dev.lambdaurora.res_errare.render.buffer.BufferTarget;
 import dev.lambdaurora.res_errare.render.buffer.BufferUsage;
 import dev.lambdaurora.res_errare.render.buffer.GraphicsBuffer;
+import dev.lambdaurora.res_errare.render.buffer.ShadowBuffer;
+import dev.lambdaurora.res_errare.render.buffer.StreamingBuffer;
+import dev.lambdaurora.res_errare.render.buffer.range.Matrix4fBufferRange;
 import dev.lambdaurora.res_errare.system.GL;
+import dev.lambdaurora.res_errare.util.NativeSizes;
+import org.jetbrains.annotations.Nullable;
 import org.joml.Matrix4f;
 
+import java.util.List;
+
 public class GameRenderer implements AutoCloseable {
 	private static final float NEAR = .1f;
 	private static final float FAR = 100.f;
+	private static final int UBO_FRAMES = 3;
+
+	private static final Matrix4fBufferRange PROJECTION_RANGE = new Matrix4fBufferRange(0);
+	private static final Matrix4fBufferRange VIEW_RANGE = new Matrix4fBufferRange(NativeSizes.MATRIX4F_SIZE);
+	private static final Matrix4fBufferRange ORTHO_RANGE = new Matrix4fBufferRange(2 * NativeSizes.MATRIX4F_SIZE);
+	private static final BufferLayout MATRICES_LAYOUT = new BufferLayout(List.of(PROJECTION_RANGE, VIEW_RANGE, ORTHO_RANGE));
 
-	private final GraphicsBuffer ubo = GraphicsBuffer.of(BufferTarget.UNIFORM, BufferUsage.STREAM_DRAW, BufferLayout.builder()
-			.addMatrix4fRange() // Projection
-			.addMatrix4fRange() // View
-			.addMatrix4fRange() // Ortho
-			.build()
-	);
+	private final @Nullable StreamingBuffer streamingUbo;
+	private final @Nullable GraphicsBuffer ubo;
+	private final @Nullable ShadowBuffer uboShadow;
 	private Matrix4f projection = new Matrix4f().identity();
 	private Matrix4f ortho = new Matrix4f().identity();
 
 	public GameRenderer() {
+		if (StreamingBuffer.isSupported()) {
+			this.streamingUbo = StreamingBuffer.of(BufferTarget.UNIFORM, MATRICES_LAYOUT, UBO_FRAMES);
+			this.ubo = null;
+			this.uboShadow = null;
+		} else {
+			this.streamingUbo = null;
+			this.ubo = GraphicsBuffer.of(BufferTarget.UNIFORM, BufferUsage.STREAM_DRAW, MATRICES_LAYOUT);
+			this.uboShadow = new ShadowBuffer(this.ubo);
+		}
+
 		this.init();
 	}
 
 	private void init() {
-		this.ubo.reset();
-		this.ubo.unbind();
-		// Define the range of the buffer that links to a uniform binding point.
-		GL.get().bindBufferRange(this.ubo.target(), 0, this.ubo.id(), 0, this.ubo.layout().size());
+		if (this.ubo != null) {
+			this.ubo.reset();
+			this.ubo.unbind();
+			// Define the range of the buffer that links to a uniform binding point.
+			GL.get().bindBufferRange(this.ubo.target(), 0, this.ubo.id(), 0, this.ubo.layout().size());
+		}
 	}
 
 	private void updatePerspective(int width, int height) {
 		this.projection = projection.setPerspective((float) Math.toRadians(75), (float) width / height, NEAR, FAR);
-		this.ubo.layout().<Matrix4f>get(0).set(this.ubo, this.projection);
 	}
 
 	public void setupProjection(int width, int height) {
 		GL.get().viewport(0, 0, width, height);
-		this.ubo.bind();
 		this.updatePerspective(width, height);
 		this.ortho = this.ortho.ortho(0.f, width, height, 0.f, 0.f, 1.f);
-		this.ubo.layout().<Matrix4f>get(2).set(this.ubo, this.ortho);
-		this.ubo.unbind();
+
+		if (this.uboShadow != null) {
+			// Uploaded along with the view matrix.
+			this.uboShadow.set(PROJECTION_RANGE, this.projection);
+			this.uboShadow.set(ORTHO_RANGE, this.ortho);
+		}
 	}
 
 	public void updateView(Matrix4f view) {
-		this.ubo.bind();
-		this.ubo.layout().<Matrix4f>get(1).set(this.ubo, view);
-		this.ubo.unbind();
+		if (this.streamingUbo != null) {
+			// Every slot of the ring needs the full set of matrices as the projection might have changed since it was last written.
+			var slot = this.streamingUbo.beginFrame();
+			PROJECTION_RANGE.write(slot, this.projection);
+			VIEW_RANGE.write(slot, view);
+			ORTHO_RANGE.write(slot, this.ortho);
+			this.streamingUbo.bindRange(0);
+		} else if (this.uboShadow != null) {
+			this.uboShadow.set(VIEW_RANGE, view);
+			this.uboShadow.flush();
+			this.uboShadow.buffer().unbind();
+		}
+	}
+
+	/**
+	 * Ends the current frame, must be called once all the draw calls of the frame have been submitted.
+	 */
+	public void endFrame() {
+		if (this.streamingUbo != null)
+			this.streamingUbo.endFrame();
 	}
 
 	@Override
 	public void close() {
-		this.ubo.close();
+		if (this.streamingUbo != null)
+			this.streamingUbo.close();
+		if (this.uboShadow != null)
+			this.uboShadow.close();
+		if (this.ubo != null)
+			this.ubo.close();
 	}
 }
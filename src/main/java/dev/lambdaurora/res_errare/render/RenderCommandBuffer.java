@@ -0,0 +1,468 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render;
+
+import dev.lambdaurora.res_errare.render.buffer.BufferTarget;
+import dev.lambdaurora.res_errare.render.buffer.range.Matrix4fBufferRange;
+import dev.lambdaurora.res_errare.render.shader.Uniform;
+import dev.lambdaurora.res_errare.render.texture.Texture;
+import dev.lambdaurora.res_errare.render.texture.TextureType;
+import dev.lambdaurora.res_errare.system.GL;
+import dev.lambdaurora.res_errare.util.NativeSizes;
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+import org.joml.Matrix4f;
+
+/**
+ * Represents a list of rendering commands recorded into native memory, to be replayed later on the thread owning the context.
+ * <p>
+ * Each command is stored as an {@code int} opcode followed by its operands, recording does not allocate
+ * unless the command buffer needs to grow. A command buffer may be recorded on any thread but must not be
+ * recorded and replayed concurrently, it is meant to be handed off to the render thread once recorded.
+ * <p>
+ * Usage:
+ * <pre>{@code
+ * var commands = new RenderCommandBuffer();
+ * commands.useProgram(program.id())
+ *         .bindVertexArray(vao.id())
+ *         .drawArrays(GeometricPrimitive.TRIANGLES, 0, 36);
+ * // On the render thread:
+ * commands.replay();
+ * }</pre>
+ */
+public final class RenderCommandBuffer implements AutoCloseable {
+	public static final long DEFAULT_CAPACITY = 4096;
+
+	private static final BufferTarget[] BUFFER_TARGETS = BufferTarget.values();
+	private static final TextureType[] TEXTURE_TYPES = TextureType.values();
+	private static final GeometricPrimitive[] PRIMITIVES = GeometricPrimitive.values();
+	private static final GL.Access[] ACCESSES = GL.Access.values();
+	private static final Texture.InternalFormat[] INTERNAL_FORMATS = Texture.InternalFormat.values();
+
+	/* Opcodes */
+	private static final int CLEAR = 1;
+	private static final int CLEAR_COLOR = 2;
+	private static final int VIEWPORT = 3;
+	private static final int ENABLE = 4;
+	private static final int DISABLE = 5;
+	private static final int DEPTH_FUNC = 6;
+	private static final int DEPTH_MASK = 7;
+	private static final int USE_PROGRAM = 8;
+	private static final int BIND_VERTEX_ARRAY = 9;
+	private static final int BIND_BUFFER = 10;
+	private static final int BIND_BUFFER_RANGE = 11;
+	private static final int ACTIVE_TEXTURE = 12;
+	private static final int BIND_TEXTURE = 13;
+	private static final int BIND_IMAGE_TEXTURE = 14;
+	private static final int UNIFORM_1I = 15;
+	private static final int UNIFORM_1F = 16;
+	private static final int UNIFORM_3F = 17;
+	private static final int UNIFORM_MATRIX_4FV = 18;
+	private static final int DRAW_ARRAYS = 19;
+	private static final int DISPATCH_COMPUTE = 20;
+	private static final int MEMORY_BARRIER = 21;
+
+	private static final long INT = NativeSizes.INT_SIZE;
+	private static final long FLOAT = NativeSizes.FLOAT_SIZE;
+	private static final long LONG = NativeSizes.LONG_SIZE;
+
+	private ResourceScope scope;
+	private MemorySegment segment;
+	private long position = 0;
+	private int commandCount = 0;
+
+	public RenderCommandBuffer() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new command buffer.
+	 *
+	 * @param capacity the initial capacity in bytes, the command buffer grows as needed
+	 */
+	public RenderCommandBuffer(long capacity) {
+		// Shared so the commands can be recorded and replayed on different threads.
+		this.scope = ResourceScope.newSharedScope();
+		this.segment = MemorySegment.allocateNative(Math.max(capacity, 64), 8, this.scope);
+	}
+
+	/**
+	 * {@return the size of the recorded commands in bytes}
+	 */
+	public long size() {
+		return this.position;
+	}
+
+	/**
+	 * {@return the number of recorded commands}
+	 */
+	public int commandCount() {
+		return this.commandCount;
+	}
+
+	/**
+	 * {@return {@code true} if no commands have been recorded, else {@code false}}
+	 */
+	public boolean isEmpty() {
+		return this.commandCount == 0;
+	}
+
+	/**
+	 * Discards every recorded command, the memory is kept for the next recording.
+	 *
+	 * @return this command buffer
+	 */
+	public RenderCommandBuffer reset() {
+		this.position = 0;
+		this.commandCount = 0;
+		return this;
+	}
+
+	/* Recording */
+
+	public RenderCommandBuffer clear(int mask) {
+		long offset = this.begin(CLEAR, INT);
+		MemoryAccess.setIntAtOffset(this.segment, offset, mask);
+		return this;
+	}
+
+	public RenderCommandBuffer clearColor(float red, float green, float blue, float alpha) {
+		long offset = this.begin(CLEAR_COLOR, 4 * FLOAT);
+		MemoryAccess.setFloatAtOffset(this.segment, offset, red);
+		MemoryAccess.setFloatAtOffset(this.segment, offset + FLOAT, green);
+		MemoryAccess.setFloatAtOffset(this.segment, offset + 2 * FLOAT, blue);
+		MemoryAccess.setFloatAtOffset(this.segment, offset + 3 * FLOAT, alpha);
+		return this;
+	}
+
+	public RenderCommandBuffer viewport(int x, int y, int width, int height) {
+		long offset = this.begin(VIEWPORT, 4 * INT);
+		MemoryAccess.setIntAtOffset(this.segment, offset, x);
+		MemoryAccess.setIntAtOffset(this.segment, offset + INT, y);
+		MemoryAccess.setIntAtOffset(this.segment, offset + 2 * INT, width);
+		MemoryAccess.setIntAtOffset(this.segment, offset + 3 * INT, height);
+		return this;
+	}
+
+	public RenderCommandBuffer enable(int capability) {
+		return this.intCommand(ENABLE, capability);
+	}
+
+	public RenderCommandBuffer disable(int capability) {
+		return this.intCommand(DISABLE, capability);
+	}
+
+	public RenderCommandBuffer depthFunc(int func) {
+		return this.intCommand(DEPTH_FUNC, func);
+	}
+
+	public RenderCommandBuffer depthMask(boolean mask) {
+		return this.intCommand(DEPTH_MASK, mask ? 1 : 0);
+	}
+
+	public RenderCommandBuffer useProgram(int program) {
+		return this.intCommand(USE_PROGRAM, program);
+	}
+
+	public RenderCommandBuffer bindVertexArray(int vao) {
+		return this.intCommand(BIND_VERTEX_ARRAY, vao);
+	}
+
+	public RenderCommandBuffer bindBuffer(BufferTarget target, int buffer) {
+		long offset = this.begin(BIND_BUFFER, 2 * INT);
+		MemoryAccess.setIntAtOffset(this.segment, offset, target.ordinal());
+		MemoryAccess.setIntAtOffset(this.segment, offset + INT, buffer);
+		return this;
+	}
+
+	public RenderCommandBuffer bindBufferRange(BufferTarget target, int index, int buffer, long rangeOffset, long size) {
+		long offset = this.begin(BIND_BUFFER_RANGE, 3 * INT + 2 * LONG);
+		MemoryAccess.setIntAtOffset(this.segment, offset, target.ordinal());
+		MemoryAccess.setIntAtOffset(this.segment, offset + INT, index);
+		MemoryAccess.setIntAtOffset(this.segment, offset + 2 * INT, buffer);
+		MemoryAccess.setLongAtOffset(this.segment, offset + 3 * INT, rangeOffset);
+		MemoryAccess.setLongAtOffset(this.segment, offset + 3 * INT + LONG, size);
+		return this;
+	}
+
+	public RenderCommandBuffer activeTexture(int texture) {
+		return this.intCommand(ACTIVE_TEXTURE, texture);
+	}
+
+	public RenderCommandBuffer bindTexture(TextureType type, int texture) {
+		long offset = this.begin(BIND_TEXTURE, 2 * INT);
+		MemoryAccess.setIntAtOffset(this.segment, offset, type.ordinal());
+		MemoryAccess.setIntAtOffset(this.segment, offset + INT, texture);
+		return this;
+	}
+
+	public RenderCommandBuffer bindImageTexture(int unit, int texture, int level, boolean layered, int layer,
+	                                            GL.Access access, Texture.InternalFormat format) {
+		long offset = this.begin(BIND_IMAGE_TEXTURE, 7 * INT);
+		MemoryAccess.setIntAtOffset(this.segment, offset, unit);
+		MemoryAccess.setIntAtOffset(this.segment, offset + INT, texture);
+		MemoryAccess.setIntAtOffset(this.segment, offset + 2 * INT, level);
+		MemoryAccess.setIntAtOffset(this.segment, offset + 3 * INT, layered ? 1 : 0);
+		MemoryAccess.setIntAtOffset(this.segment, offset + 4 * INT, layer);
+		MemoryAccess.setIntAtOffset(this.segment, offset + 5 * INT, access.ordinal());
+		MemoryAccess.setIntAtOffset(this.segment, offset + 6 * INT, format.ordinal());
+		return this;
+	}
+
+	public RenderCommandBuffer uniform1i(int location, int value) {
+		long offset = this.begin(UNIFORM_1I, 2 * INT);
+		MemoryAccess.setIntAtOffset(this.segment, offset, location);
+		MemoryAccess.setIntAtOffset(this.segment, offset + INT, value);
+		return this;
+	}
+
+	public RenderCommandBuffer uniform1i(Uniform uniform, int value) {
+		return this.uniform1i(uniform.location(), value);
+	}
+
+	public RenderCommandBuffer uniform1f(int location, float value) {
+		long offset = this.begin(UNIFORM_1F, INT + FLOAT);
+		MemoryAccess.setIntAtOffset(this.segment, offset, location);
+		MemoryAccess.setFloatAtOffset(this.segment, offset + INT, value);
+		return this;
+	}
+
+	public RenderCommandBuffer uniform1f(Uniform uniform, float value) {
+		return this.uniform1f(uniform.location(), value);
+	}
+
+	public RenderCommandBuffer uniform3f(int location, float x, float y, float z) {
+		long offset = this.begin(UNIFORM_3F, INT + 3 * FLOAT);
+		MemoryAccess.setIntAtOffset(this.segment, offset, location);
+		MemoryAccess.setFloatAtOffset(this.segment, offset + INT, x);
+		MemoryAccess.setFloatAtOffset(this.segment, offset + INT + FLOAT, y);
+		MemoryAccess.setFloatAtOffset(this.segment, offset + INT + 2 * FLOAT, z);
+		return this;
+	}
+
+	public RenderCommandBuffer uniform3f(Uniform uniform, float x, float y, float z) {
+		return this.uniform3f(uniform.location(), x, y, z);
+	}
+
+	/**
+	 * Records a matrix uniform update, the matrix is copied into the command buffer.
+	 *
+	 * @param location the location of the uniform
+	 * @param transpose {@code true} if the matrix should be transposed, else {@code false}
+	 * @param value the matrix
+	 * @return this command buffer
+	 */
+	public RenderCommandBuffer uniformMatrix4fv(int location, boolean transpose, Matrix4f value) {
+		long offset = this.begin(UNIFORM_MATRIX_4FV, 2 * INT + NativeSizes.MATRIX4F_SIZE);
+		MemoryAccess.setIntAtOffset(this.segment, offset, location);
+		MemoryAccess.setIntAtOffset(this.segment, offset + INT, transpose ? 1 : 0);
+		Matrix4fBufferRange.NO_OFFSET.write(this.segment.asSlice(offset + 2 * INT, NativeSizes.MATRIX4F_SIZE), value);
+		return this;
+	}
+
+	public RenderCommandBuffer uniformMatrix4fv(Uniform uniform, boolean transpose, Matrix4f value) {
+		return this.uniformMatrix4fv(uniform.location(), transpose, value);
+	}
+
+	public RenderCommandBuffer drawArrays(GeometricPrimitive mode, int first, int count) {
+		long offset = this.begin(DRAW_ARRAYS, 3 * INT);
+		MemoryAccess.setIntAtOffset(this.segment, offset, mode.ordinal());
+		MemoryAccess.setIntAtOffset(this.segment, offset + INT, first);
+		MemoryAccess.setIntAtOffset(this.segment, offset + 2 * INT, count);
+		return this;
+	}
+
+	public RenderCommandBuffer dispatchCompute(int numGroupsX, int numGroupsY, int numGroupsZ) {
+		long offset = this.begin(DISPATCH_COMPUTE, 3 * INT);
+		MemoryAccess.setIntAtOffset(this.segment, offset, numGroupsX);
+		MemoryAccess.setIntAtOffset(this.segment, offset + INT, numGroupsY);
+		MemoryAccess.setIntAtOffset(this.segment, offset + 2 * INT, numGroupsZ);
+		return this;
+	}
+
+	public RenderCommandBuffer memoryBarrier(int barriers) {
+		return this.intCommand(MEMORY_BARRIER, barriers);
+	}
+
+	/* Replay */
+
+	/**
+	 * Replays the recorded commands on the OpenGL bindings returned by {@link GL#get()}.
+	 */
+	public void replay() {
+		this.replay(GL.get());
+	}
+
+	/**
+	 * Replays the recorded commands on the given OpenGL bindings, the commands are kept and can be replayed again.
+	 *
+	 * @param gl the OpenGL bindings
+	 */
+	public void replay(GL gl) {
+		var segment = this.segment;
+		long offset = 0;
+
+		while (offset < this.position) {
+			int opcode = MemoryAccess.getIntAtOffset(segment, offset);
+			long o = offset + INT;
+
+			offset = o + switch (opcode) {
+				case CLEAR -> {
+					gl.clear(MemoryAccess.getIntAtOffset(segment, o));
+					yield INT;
+				}
+				case CLEAR_COLOR -> {
+					gl.clearColor(MemoryAccess.getFloatAtOffset(segment, o), MemoryAccess.getFloatAtOffset(segment, o + FLOAT),
+							MemoryAccess.getFloatAtOffset(segment, o + 2 * FLOAT), MemoryAccess.getFloatAtOffset(segment, o + 3 * FLOAT));
+					yield 4 * FLOAT;
+				}
+				case VIEWPORT -> {
+					gl.viewport(MemoryAccess.getIntAtOffset(segment, o), MemoryAccess.getIntAtOffset(segment, o + INT),
+							MemoryAccess.getIntAtOffset(segment, o + 2 * INT), MemoryAccess.getIntAtOffset(segment, o + 3 * INT));
+					yield 4 * INT;
+				}
+				case ENABLE -> {
+					gl.enable(MemoryAccess.getIntAtOffset(segment, o));
+					yield INT;
+				}
+				case DISABLE -> {
+					gl.disable(MemoryAccess.getIntAtOffset(segment, o));
+					yield INT;
+				}
+				case DEPTH_FUNC -> {
+					gl.depthFunc(MemoryAccess.getIntAtOffset(segment, o));
+					yield INT;
+				}
+				case DEPTH_MASK -> {
+					gl.depthMask(MemoryAccess.getIntAtOffset(segment, o) != 0);
+					yield INT;
+				}
+				case USE_PROGRAM -> {
+					gl.useProgram(MemoryAccess.getIntAtOffset(segment, o));
+					yield INT;
+				}
+				case BIND_VERTEX_ARRAY -> {
+					gl.bindVertexArray(MemoryAccess.getIntAtOffset(segment, o));
+					yield INT;
+				}
+				case BIND_BUFFER -> {
+					gl.bindBuffer(BUFFER_TARGETS[MemoryAccess.getIntAtOffset(segment, o)], MemoryAccess.getIntAtOffset(segment, o + INT));
+					yield 2 * INT;
+				}
+				case BIND_BUFFER_RANGE -> {
+					gl.bindBufferRange(BUFFER_TARGETS[MemoryAccess.getIntAtOffset(segment, o)],
+							MemoryAccess.getIntAtOffset(segment, o + INT), MemoryAccess.getIntAtOffset(segment, o + 2 * INT),
+							MemoryAccess.getLongAtOffset(segment, o + 3 * INT), MemoryAccess.getLongAtOffset(segment, o + 3 * INT + LONG));
+					yield 3 * INT + 2 * LONG;
+				}
+				case ACTIVE_TEXTURE -> {
+					gl.activeTexture(MemoryAccess.getIntAtOffset(segment, o));
+					yield INT;
+				}
+				case BIND_TEXTURE -> {
+					gl.bindTexture(TEXTURE_TYPES[MemoryAccess.getIntAtOffset(segment, o)], MemoryAccess.getIntAtOffset(segment, o + INT));
+					yield 2 * INT;
+				}
+				case BIND_IMAGE_TEXTURE -> {
+					gl.bindImageTexture(MemoryAccess.getIntAtOffset(segment, o), MemoryAccess.getIntAtOffset(segment, o + INT),
+							MemoryAccess.getIntAtOffset(segment, o + 2 * INT), MemoryAccess.getIntAtOffset(segment, o + 3 * INT) != 0,
+							MemoryAccess.getIntAtOffset(segment, o + 4 * INT), ACCESSES[MemoryAccess.getIntAtOffset(segment, o + 5 * INT)],
+							INTERNAL_FORMATS[MemoryAccess.getIntAtOffset(segment, o + 6 * INT)]);
+					yield 7 * INT;
+				}
+				case UNIFORM_1I -> {
+					gl.uniform1i(MemoryAccess.getIntAtOffset(segment, o), MemoryAccess.getIntAtOffset(segment, o + INT));
+					yield 2 * INT;
+				}
+				case UNIFORM_1F -> {
+					gl.uniform1f(MemoryAccess.getIntAtOffset(segment, o), MemoryAccess.getFloatAtOffset(segment, o + INT));
+					yield INT + FLOAT;
+				}
+				case UNIFORM_3F -> {
+					gl.uniform3f(MemoryAccess.getIntAtOffset(segment, o), MemoryAccess.getFloatAtOffset(segment, o + INT),
+							MemoryAccess.getFloatAtOffset(segment, o + INT + FLOAT), MemoryAccess.getFloatAtOffset(segment, o + INT + 2 * FLOAT));
+					yield INT + 3 * FLOAT;
+				}
+				case UNIFORM_MATRIX_4FV -> {
+					// The matrix is read straight from the command buffer.
+					gl.uniformMatrix4fv(MemoryAccess.getIntAtOffset(segment, o), MemoryAccess.getIntAtOffset(segment, o + INT) != 0,
+							segment.address().addOffset(o + 2 * INT));
+					yield 2 * INT + NativeSizes.MATRIX4F_SIZE;
+				}
+				case DRAW_ARRAYS -> {
+					gl.drawArrays(PRIMITIVES[MemoryAccess.getIntAtOffset(segment, o)], MemoryAccess.getIntAtOffset(segment, o + INT),
+							MemoryAccess.getIntAtOffset(segment, o + 2 * INT));
+					yield 3 * INT;
+				}
+				case DISPATCH_COMPUTE -> {
+					gl.dispatchCompute(MemoryAccess.getIntAtOffset(segment, o), MemoryAccess.getIntAtOffset(segment, o + INT),
+							MemoryAccess.getIntAtOffset(segment, o + 2 * INT));
+					yield 3 * INT;
+				}
+				case MEMORY_BARRIER -> {
+					gl.memoryBarrier(MemoryAccess.getIntAtOffset(segment, o));
+					yield INT;
+				}
+				default -> throw new IllegalStateException("Unknown opcode " + opcode + " at offset " + offset + ".");
+			};
+		}
+	}
+
+	@Override
+	public void close() {
+		this.scope.close();
+	}
+
+	private RenderCommandBuffer intCommand(int opcode, int operand) {
+		long offset = this.begin(opcode, INT);
+		MemoryAccess.setIntAtOffset(this.segment, offset, operand);
+		return this;
+	}
+
+	/**
+	 * Begins a new command by writing its opcode, growing the command buffer if needed.
+	 *
+	 * @param opcode the opcode of the command
+	 * @param operandsSize the size of the operands of the command
+	 * @return the offset of the operands
+	 */
+	private long begin(int opcode, long operandsSize) {
+		long size = INT + operandsSize;
+
+		if (this.position + size > this.segment.byteSize())
+			this.grow(this.position + size);
+
+		MemoryAccess.setIntAtOffset(this.segment, this.position, opcode);
+		long operands = this.position + INT;
+		this.position += size;
+		this.commandCount++;
+		return operands;
+	}
+
+	private void grow(long minCapacity) {
+		long capacity = Math.max(minCapacity, this.segment.byteSize() * 2);
+		var scope = ResourceScope.newSharedScope();
+		var segment = MemorySegment.allocateNative(capacity, 8, scope);
+		segment.copyFrom(this.segment.asSlice(0, this.position));
+
+		this.scope.close();
+		this.scope = scope;
+		this.segment = segment;
+	}
+}
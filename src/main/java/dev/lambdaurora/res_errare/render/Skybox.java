@@ -22,15 +22,18 @@ import dev.lambdaurora.res_errare.render.array.VertexArray;
 import dev.lambdaurora.res_errare.render.array.VertexLayout;
 import dev.lambdaurora.res_errare.render.buffer.BufferTarget;
 import dev.lambdaurora.res_errare.render.buffer.GraphicsBuffer;
-import dev.lambdaurora.res_errare.render.shader.Shader;
+import dev.lambdaurora.res_errare.render.shader.ProgramCache;
 import dev.lambdaurora.res_errare.render.shader.ShaderProgram;
 import dev.lambdaurora.res_errare.render.shader.ShaderType;
 import dev.lambdaurora.res_errare.render.texture.CubeMapTexture;
+import dev.lambdaurora.res_errare.resource.AssetLoader;
 import dev.lambdaurora.res_errare.system.GL;
 import dev.lambdaurora.res_errare.util.Identifier;
 import dev.lambdaurora.res_errare.util.Result;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 /**
  * Represents a skybox.
@@ -43,25 +46,49 @@ public class Skybox implements AutoCloseable {
 
 	private final CubeMapTexture texture;
 	private final ShaderProgram shader;
+	private final boolean ownsShader;
 
 	public Skybox(CubeMapTexture texture, ShaderProgram shader) {
+		this(texture, shader, true);
+	}
+
+	/**
+	 * Creates a new skybox.
+	 *
+	 * @param texture the cube map texture, closed with the skybox
+	 * @param shader the shader program
+	 * @param ownsShader {@code true} if the shader program is closed with the skybox, else {@code false}
+	 */
+	private Skybox(CubeMapTexture texture, ShaderProgram shader, boolean ownsShader) {
 		this.texture = texture;
 		this.shader = shader;
+		this.ownsShader = ownsShader;
 
 		this.shader.use();
 		this.shader.setInt("skybox", 0);
 		this.scale(1.f);
 	}
 
-	public static Result<Skybox, ShaderProgram.LinkageError> of(CubeMapTexture texture) {
-		return ShaderProgram.builder()
-				.shader(Shader.compile(ShaderType.FRAGMENT, SHADER_ID))
-				.shader(Shader.compile(ShaderType.VERTEX, SHADER_ID))
-				.withCleanup()
-				.build()
+	public static Result<Skybox, RuntimeException> of(CubeMapTexture texture) {
+		return ProgramCache.getDefault().load(Map.of(ShaderType.FRAGMENT, SHADER_ID, ShaderType.VERTEX, SHADER_ID))
 				.then(shader -> Result.ok(new Skybox(texture, shader)));
 	}
 
+	/**
+	 * Loads a skybox asynchronously, its shaders are preprocessed while the texture is loading.
+	 * <p>
+	 * The shader program is owned by the {@linkplain AssetLoader#shaderVariants() shader variants} of the loader.
+	 *
+	 * @param loader the asset loader
+	 * @param texture the future cube map texture
+	 * @return the future skybox, completed once the texture is uploaded and the shader linked
+	 */
+	public static CompletableFuture<Skybox> load(AssetLoader loader, CompletableFuture<CubeMapTexture> texture) {
+		var program = loader.program(Map.of(ShaderType.FRAGMENT, SHADER_ID, ShaderType.VERTEX, SHADER_ID));
+
+		return loader.upload(CompletableFuture.allOf(texture, program), ignored -> new Skybox(texture.join(), program.join(), false));
+	}
+
 	/**
 	 * Scales the skybox.
 	 *
@@ -89,7 +116,8 @@ public class Skybox implements AutoCloseable {
 
 	@Override
 	public void close() {
-		this.shader.close();
+		if (this.ownsShader)
+			this.shader.close();
 		this.texture.close();
 	}
 
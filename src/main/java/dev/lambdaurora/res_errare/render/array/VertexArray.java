@@ -47,7 +47,7 @@ public class VertexArray implements AutoCloseable {
 	 */
 	public void bind() {
 		if (!this.isValid()) {
-			this.id = GL.get().genVertexArrays(1)[0];
+			this.id = GL.get().genVertexArray();
 
 			if (!this.isValid())
 				throw new InvalidRenderingObjectException("Could not generate a new vertex array object.");
@@ -76,7 +76,7 @@ public class VertexArray implements AutoCloseable {
 	@Override
 	public void close() {
 		if (this.isValid()) {
-			GL.get().deleteVertexArrays(this.id);
+			GL.get().deleteVertexArray(this.id);
 			this.id = 0;
 		}
 	}
@@ -17,21 +17,58 @@
 
 package dev.lambdaurora.res_errare.render.buffer;
 
-import dev.lambdaurora.res_errare.render.buffer.range.BufferRange;
-import dev.lambdaurora.res_errare.render.buffer.range.FloatArrayBufferRange;
-import dev.lambdaurora.res_errare.render.buffer.range.Matrix4fBufferRange;
+import dev.lambdaurora.res_errare.render.buffer.range.*;
+import dev.lambdaurora.res_errare.render.shader.UniformType;
+import dev.lambdaurora.res_errare.system.memory.BufferPacking;
+import org.jetbrains.annotations.Nullable;
 
-import java.util.ArrayList;
-import java.util.List;
+import java.util.*;
+import java.util.function.LongFunction;
 
+/**
+ * Represents the layout of a buffer as a list of ranges.
+ * <p>
+ * Layouts created with {@link #builder(BufferPacking)} follow the std140 or std430 rules of GLSL blocks,
+ * members are padded automatically and can be looked up by name. Members of structures are named
+ * like OpenGL names the members of blocks, e.g. {@code lights[1].color}.
+ * <p>
+ * Usage:
+ * <pre>{@code
+ * var light = BufferLayout.builder(BufferPacking.STD140)
+ *         .add("color", UniformType.VEC3F)
+ *         .add("intensity", UniformType.FLOAT)
+ *         .build();
+ * var layout = BufferLayout.builder(BufferPacking.STD140)
+ *         .add("view", UniformType.MAT4F)
+ *         .addStructArray("lights", light, 4)
+ *         .build();
+ * }</pre>
+ */
 public final class BufferLayout {
 	private static final BufferLayout EMPTY = new BufferLayout(List.of());
+	private final BufferPacking packing;
 	private final List<BufferRange<?>> ranges;
+	private final List<@Nullable String> names;
+	private final Map<String, BufferRange<?>> rangesByName = new HashMap<>();
 	private final long size;
+	private final long alignment;
 
 	public BufferLayout(List<BufferRange<?>> ranges) {
+		this(BufferPacking.STD430, ranges, Collections.nCopies(ranges.size(), null), endOf(ranges), BufferPacking.VEC4_ALIGNMENT);
+	}
+
+	private BufferLayout(BufferPacking packing, List<BufferRange<?>> ranges, List<@Nullable String> names, long size, long alignment) {
+		this.packing = packing;
 		this.ranges = ranges;
-		this.size = totalSize(ranges);
+		this.names = names;
+		this.size = size;
+		this.alignment = alignment;
+
+		for (int i = 0; i < ranges.size(); i++) {
+			var name = names.get(i);
+			if (name != null)
+				this.rangesByName.put(name, ranges.get(i));
+		}
 	}
 
 	public <V> BufferRange<V> get(int index) {
@@ -39,6 +76,37 @@ public final class BufferLayout {
 		return (BufferRange<V>) this.ranges.get(index);
 	}
 
+	/**
+	 * Gets the range of the given name.
+	 *
+	 * @param name the name of the range
+	 * @return the range if found, else {@code null}
+	 */
+	public @Nullable BufferRange<?> get(String name) {
+		return this.rangesByName.get(name);
+	}
+
+	/**
+	 * Gets the range of the given name and kind.
+	 *
+	 * @param name the name of the range
+	 * @param kind the expected class of the range
+	 * @param <R> the type of the range
+	 * @return the range
+	 * @throws IllegalArgumentException if no range has the given name or if the range is of another kind
+	 */
+	public <R extends BufferRange<?>> R get(String name, Class<R> kind) {
+		var range = this.get(name);
+
+		if (range == null)
+			throw new IllegalArgumentException("No range named \"" + name + "\" in layout.");
+		else if (!kind.isInstance(range))
+			throw new IllegalArgumentException("Range \"" + name + "\" is a " + range.getClass().getSimpleName()
+					+ ", expected a " + kind.getSimpleName() + ".");
+
+		return kind.cast(range);
+	}
+
 	public <V> BufferRange<V> getFirstOf(Class<V> type) {
 		for (var range : this.ranges) {
 			if (type.isAssignableFrom(range.type()))
@@ -49,6 +117,27 @@ public final class BufferLayout {
 		return null;
 	}
 
+	/**
+	 * {@return the ranges of this layout}
+	 */
+	public List<BufferRange<?>> ranges() {
+		return Collections.unmodifiableList(this.ranges);
+	}
+
+	/**
+	 * {@return the packing rules of this layout}
+	 */
+	public BufferPacking packing() {
+		return this.packing;
+	}
+
+	/**
+	 * {@return the largest base alignment of the members of this layout}
+	 */
+	public long alignment() {
+		return this.alignment;
+	}
+
 	public long size() {
 		return this.size;
 	}
@@ -57,41 +146,193 @@ public final class BufferLayout {
 		return EMPTY;
 	}
 
+	/**
+	 * {@return a new layout builder following the std430 rules, which tightly packs scalars and scalar arrays}
+	 */
 	public static Builder builder() {
-		return new Builder();
+		return builder(BufferPacking.STD430);
+	}
+
+	/**
+	 * {@return a new layout builder following the given packing rules}
+	 *
+	 * @param packing the packing rules
+	 */
+	public static Builder builder(BufferPacking packing) {
+		return new Builder(packing);
 	}
 
-	private static long totalSize(List<BufferRange<?>> ranges) {
+	private static long endOf(List<BufferRange<?>> ranges) {
 		long size = 0;
 
 		for (var range : ranges) {
-			size += range.size();
+			size = Math.max(size, range.offset() + range.size());
 		}
 
 		return size;
 	}
 
 	public static class Builder {
+		private final BufferPacking packing;
 		private final List<BufferRange<?>> ranges = new ArrayList<>();
-		private int offset;
+		private final List<String> names = new ArrayList<>();
+		private long offset;
+		private long alignment = 1;
+
+		private Builder(BufferPacking packing) {
+			this.packing = packing;
+		}
 
-		private void addRange(BufferRange<?> range) {
+		private void addRange(@Nullable String name, long alignment, LongFunction<BufferRange<?>> factory) {
+			this.offset = BufferPacking.align(this.offset, alignment);
+			this.alignment = Math.max(this.alignment, alignment);
+
+			var range = factory.apply(this.offset);
 			this.ranges.add(range);
+			this.names.add(name);
 			this.offset += range.size();
 		}
 
+		/**
+		 * Adds a member of the given type.
+		 *
+		 * @param name the name of the member
+		 * @param type the type of the member
+		 * @return this builder
+		 */
+		public Builder add(String name, UniformType type) {
+			this.addRange(name, type.alignment(this.packing), offset -> createRange(type, offset));
+			return this;
+		}
+
+		/**
+		 * Adds an array member of the given element type.
+		 * <p>
+		 * A {@code float} array is mapped to a {@link FloatArrayBufferRange}, other types to an {@link ArrayBufferRange}.
+		 *
+		 * @param name the name of the member
+		 * @param type the type of the elements
+		 * @param length the number of elements
+		 * @return this builder
+		 */
+		public Builder addArray(String name, UniformType type, int length) {
+			long alignment = this.packing.aggregateAlignment(type.alignment(this.packing));
+			long stride = this.packing.arrayStride(type.size(this.packing), type.alignment(this.packing));
+
+			if (type == UniformType.FLOAT)
+				this.addRange(name, alignment, offset -> new FloatArrayBufferRange(offset, length, stride));
+			else
+				this.addRange(name, alignment, offset -> new ArrayBufferRange<>(offset, createRange(type, 0), length, stride));
+			return this;
+		}
+
+		/**
+		 * Adds a structure member, the members of the structure are added to this layout as {@code name.member}.
+		 *
+		 * @param name the name of the member
+		 * @param struct the layout of the structure, must follow the same packing rules as this builder
+		 * @return this builder
+		 */
+		public Builder addStruct(String name, BufferLayout struct) {
+			return this.addStructArray(name, struct, -1);
+		}
+
+		/**
+		 * Adds an array of structures, the members of the structures are added to this layout as {@code name[index].member}.
+		 *
+		 * @param name the name of the member
+		 * @param struct the layout of the structure, must follow the same packing rules as this builder
+		 * @param length the number of elements
+		 * @return this builder
+		 */
+		public Builder addStructArray(String name, BufferLayout struct, int length) {
+			if (struct.packing() != this.packing)
+				throw new IllegalArgumentException("Cannot add a " + struct.packing() + " structure to a " + this.packing + " layout.");
+
+			long alignment = this.packing.aggregateAlignment(struct.alignment());
+			long stride = this.packing.arrayStride(struct.size(), struct.alignment());
+			this.offset = BufferPacking.align(this.offset, alignment);
+			this.alignment = Math.max(this.alignment, alignment);
+
+			for (int element = 0; element < Math.max(length, 1); element++) {
+				var prefix = length < 0 ? name : name + '[' + element + ']';
+
+				for (int i = 0; i < struct.ranges.size(); i++) {
+					var range = struct.ranges.get(i);
+					var memberName = struct.names.get(i);
+
+					this.ranges.add(range.withOffset(this.offset + range.offset()));
+					this.names.add(memberName == null ? null : prefix + '.' + memberName);
+				}
+
+				this.offset += stride;
+			}
+
+			return this;
+		}
+
+		/**
+		 * Adds a structure member mapped from a record, see {@link RecordBufferRange}.
+		 *
+		 * @param name the name of the member
+		 * @param type the record class
+		 * @param <R> the record type
+		 * @return this builder
+		 */
+		public <R extends Record> Builder addRecord(String name, Class<R> type) {
+			var record = RecordBufferRange.of(type, this.packing);
+			this.addRange(name, record.alignment(), record::withOffset);
+			return this;
+		}
+
+		/**
+		 * Adds an array of structures mapped from a record, see {@link RecordBufferRange}.
+		 *
+		 * @param name the name of the member
+		 * @param type the record class
+		 * @param length the number of elements
+		 * @param <R> the record type
+		 * @return this builder
+		 */
+		public <R extends Record> Builder addRecordArray(String name, Class<R> type, int length) {
+			var record = RecordBufferRange.of(type, this.packing);
+			long stride = this.packing.arrayStride(record.size(), record.alignment());
+			this.addRange(name, record.alignment(), offset -> new ArrayBufferRange<>(offset, record, length, stride));
+			return this;
+		}
+
 		public Builder addFloatArrayRange(long length) {
-			this.addRange(new FloatArrayBufferRange(this.offset, length));
+			long stride = this.packing.arrayStride(UniformType.FLOAT.size(this.packing), UniformType.FLOAT.alignment(this.packing));
+			this.addRange(null, this.packing.aggregateAlignment(UniformType.FLOAT.alignment(this.packing)),
+					offset -> new FloatArrayBufferRange(offset, length, stride));
 			return this;
 		}
 
 		public Builder addMatrix4fRange() {
-			this.addRange(new Matrix4fBufferRange(this.offset));
+			this.addRange(null, UniformType.MAT4F.alignment(this.packing), Matrix4fBufferRange::new);
 			return this;
 		}
 
 		public BufferLayout build() {
-			return new BufferLayout(this.ranges);
+			// Blocks and structures are padded to a multiple of their alignment.
+			long size = BufferPacking.align(this.offset, this.packing.aggregateAlignment(this.alignment));
+			return new BufferLayout(this.packing, new ArrayList<>(this.ranges), new ArrayList<>(this.names), size, this.alignment);
+		}
+
+		private static BufferRange<?> createRange(UniformType type, long offset) {
+			return switch (type) {
+				case FLOAT -> new FloatBufferRange(offset);
+				case INT, UINT, BOOL -> new IntBufferRange(offset);
+				case VEC2F -> new Vector2fBufferRange(offset);
+				case VEC3F -> new Vector3fBufferRange(offset);
+				case VEC4F -> new Vector4fBufferRange(offset);
+				case IVEC2 -> new Vector2iBufferRange(offset);
+				case IVEC3 -> new Vector3iBufferRange(offset);
+				case IVEC4 -> new Vector4iBufferRange(offset);
+				case MAT3F -> new Matrix3fBufferRange(offset);
+				case MAT4F -> new Matrix4fBufferRange(offset);
+				default -> throw new IllegalArgumentException("Type " + type + " is not supported in buffer layouts.");
+			};
 		}
 	}
 }
@@ -24,6 +24,7 @@ import dev.lambdaurora.res_errare.system.OpenGLIdProvider;
  */
 public enum BufferTarget implements OpenGLIdProvider {
 	ARRAY(0x8892),
+	PIXEL_UNPACK(0x88ec),
 	UNIFORM(0x8a11);
 
 	private final int glId;
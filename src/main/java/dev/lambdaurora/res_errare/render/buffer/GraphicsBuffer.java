@@ -62,13 +62,26 @@ public final class GraphicsBuffer implements AutoCloseable {
 		GL.get().bufferData(this.target, this.layout.size(), MemoryAddress.NULL, this.usage);
 	}
 
+	/**
+	 * Allocates immutable storage for this buffer.
+	 * <p>
+	 * Unlike {@link #reset()}, the storage cannot be reallocated afterwards but can be persistently mapped.
+	 *
+	 * @param size the size of the storage in bytes
+	 * @param flags the storage flags
+	 */
+	public void allocateStorage(long size, int flags) {
+		this.bind();
+		GL.get().bufferStorage(this.target, size, MemoryAddress.NULL, flags);
+	}
+
 	@Override
 	public void close() {
-		GL.get().deleteBuffers(this.id);
+		GL.get().deleteBuffer(this.id);
 	}
 
 	public static GraphicsBuffer of(BufferTarget target, BufferUsage usage, BufferLayout layout) {
-		int id = GL.get().genBuffers(1)[0];
+		int id = GL.get().genBuffer();
 		return new GraphicsBuffer(target, usage, layout, id);
 	}
 
@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.buffer;
+
+import dev.lambdaurora.res_errare.render.buffer.range.BufferRange;
+import dev.lambdaurora.res_errare.render.buffer.range.FloatBufferRange;
+import dev.lambdaurora.res_errare.render.buffer.range.IntBufferRange;
+import dev.lambdaurora.res_errare.system.GL;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+import java.util.BitSet;
+
+/**
+ * Represents a CPU-side copy of a buffer which tracks the modified parts of the buffer.
+ * <p>
+ * Values are written into the copy following the layout of the buffer, {@link #flush()} then uploads
+ * only the modified parts with as few {@code glBufferSubData} calls as possible.
+ * <p>
+ * Usage:
+ * <pre>{@code
+ * shadow.set(VIEW_RANGE, view);
+ * shadow.set(TIME_RANGE, time);
+ * shadow.flush();
+ * }</pre>
+ */
+public final class ShadowBuffer implements AutoCloseable {
+	private static final int BLOCK_SHIFT = 4; // 16 bytes
+	/**
+	 * The amount of clean blocks allowed between two dirty runs before they are uploaded separately,
+	 * re-uploading a few clean bytes is cheaper than an additional call.
+	 */
+	private static final int MERGE_GAP = 4;
+
+	private final GraphicsBuffer buffer;
+	private final ResourceScope scope;
+	private final MemorySegment segment;
+	private final BitSet dirtyBlocks;
+
+	public ShadowBuffer(GraphicsBuffer buffer) {
+		this.buffer = buffer;
+		this.scope = ResourceScope.newConfinedScope();
+		this.segment = MemorySegment.allocateNative(buffer.layout().size(), 16, this.scope);
+		this.dirtyBlocks = new BitSet(blockOf(this.segment.byteSize() + (1 << BLOCK_SHIFT) - 1));
+	}
+
+	public GraphicsBuffer buffer() {
+		return this.buffer;
+	}
+
+	/**
+	 * {@return the CPU-side copy of the buffer, writes to it must be followed by {@link #markDirty(long, long)}}
+	 */
+	public MemorySegment segment() {
+		return this.segment;
+	}
+
+	/**
+	 * Writes the given value into the range and marks the range as dirty.
+	 *
+	 * @param range the range to write
+	 * @param value the value to write
+	 * @param <V> the type of the value
+	 */
+	public <V> void set(BufferRange<V> range, V value) {
+		range.write(this.segment, value);
+		this.markDirty(range.offset(), range.size());
+	}
+
+	/**
+	 * Writes the given float into the range and marks the range as dirty.
+	 *
+	 * @param range the range to write
+	 * @param value the value to write
+	 */
+	public void set(FloatBufferRange range, float value) {
+		range.write(this.segment, value);
+		this.markDirty(range.offset(), range.size());
+	}
+
+	/**
+	 * Writes the given integer into the range and marks the range as dirty.
+	 *
+	 * @param range the range to write
+	 * @param value the value to write
+	 */
+	public void set(IntBufferRange range, int value) {
+		range.write(this.segment, value);
+		this.markDirty(range.offset(), range.size());
+	}
+
+	/**
+	 * Marks the given part of the buffer as dirty, it will be uploaded on the next {@link #flush()}.
+	 *
+	 * @param offset the offset of the modified part in bytes
+	 * @param size the size of the modified part in bytes
+	 */
+	public void markDirty(long offset, long size) {
+		if (size <= 0)
+			return;
+
+		this.dirtyBlocks.set(blockOf(offset), blockOf(offset + size - 1) + 1);
+	}
+
+	/**
+	 * {@return {@code true} if parts of the buffer have been modified since the last flush, else {@code false}}
+	 */
+	public boolean isDirty() {
+		return !this.dirtyBlocks.isEmpty();
+	}
+
+	/**
+	 * Uploads the dirty parts of the buffer, the buffer is left bound.
+	 *
+	 * @return the number of upload calls which have been made
+	 */
+	public int flush() {
+		if (!this.isDirty())
+			return 0;
+
+		this.buffer.bind();
+
+		int calls = 0;
+		int start = this.dirtyBlocks.nextSetBit(0);
+		while (start >= 0) {
+			int end = this.dirtyBlocks.nextClearBit(start);
+			int next = this.dirtyBlocks.nextSetBit(end);
+
+			// Merge runs which are close enough.
+			while (next >= 0 && next - end <= MERGE_GAP) {
+				end = this.dirtyBlocks.nextClearBit(next);
+				next = this.dirtyBlocks.nextSetBit(end);
+			}
+
+			long offset = (long) start << BLOCK_SHIFT;
+			long size = Math.min((long) end << BLOCK_SHIFT, this.segment.byteSize()) - offset;
+			GL.get().bufferSubData(this.buffer.target(), offset, size, this.segment.address().addOffset(offset));
+			calls++;
+
+			start = next;
+		}
+
+		this.dirtyBlocks.clear();
+		return calls;
+	}
+
+	@Override
+	public void close() {
+		this.scope.close();
+	}
+
+	private static int blockOf(long offset) {
+		return (int) (offset >>> BLOCK_SHIFT);
+	}
+}
@@ -0,0 +1,173 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.buffer;
+
+import dev.lambdaurora.res_errare.system.GL;
+import jdk.incubator.foreign.MemoryAddress;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+/**
+ * Represents a persistently mapped buffer split into a ring of frame slots.
+ * <p>
+ * Each slot holds one frame worth of data described by the buffer layout.
+ * The CPU writes directly into the mapped memory of the current slot while the GPU may still read the previous ones,
+ * a fence is placed at the end of each frame so a slot is only rewritten once the GPU is done with it.
+ * <p>
+ * Usage:
+ * <pre>{@code
+ * var slot = buffer.beginFrame();
+ * // write into slot
+ * buffer.bindRange(0);
+ * // draw
+ * buffer.endFrame();
+ * }</pre>
+ */
+public final class StreamingBuffer implements AutoCloseable {
+	private static final int STORAGE_FLAGS = GL.GL30.MAP_WRITE_BIT | GL.GL44.MAP_PERSISTENT_BIT | GL.GL44.MAP_COHERENT_BIT;
+	private static final long FENCE_WAIT_TIMEOUT = 1_000_000L; // 1ms
+
+	private final GraphicsBuffer buffer;
+	private final long slotSize;
+	private final ResourceScope scope;
+	private final MemorySegment[] slots;
+	private final MemoryAddress[] fences;
+	private int slot = 0;
+
+	private StreamingBuffer(GraphicsBuffer buffer, long slotSize, int slotCount) {
+		this.buffer = buffer;
+		this.slotSize = slotSize;
+		this.scope = ResourceScope.newSharedScope();
+		this.slots = new MemorySegment[slotCount];
+		this.fences = new MemoryAddress[slotCount];
+
+		long totalSize = slotSize * slotCount;
+		this.buffer.allocateStorage(totalSize, STORAGE_FLAGS);
+		var mapping = GL.get().mapBufferRange(this.buffer.target(), 0, totalSize, STORAGE_FLAGS)
+				.asSegment(totalSize, this.scope);
+
+		for (int i = 0; i < slotCount; i++) {
+			this.slots[i] = mapping.asSlice(i * slotSize, this.buffer.layout().size());
+		}
+	}
+
+	public GraphicsBuffer buffer() {
+		return this.buffer;
+	}
+
+	/**
+	 * {@return the number of frame slots of this buffer}
+	 */
+	public int slotCount() {
+		return this.slots.length;
+	}
+
+	/**
+	 * {@return the offset in bytes of the current slot in the buffer}
+	 */
+	public long slotOffset() {
+		return this.slot * this.slotSize;
+	}
+
+	/**
+	 * Begins a new frame, waits for the GPU to finish reading the current slot if needed.
+	 *
+	 * @return the mapped memory of the current slot
+	 */
+	public MemorySegment beginFrame() {
+		var fence = this.fences[this.slot];
+
+		if (fence != null) {
+			waitFor(fence);
+			GL.get().deleteSync(fence);
+			this.fences[this.slot] = null;
+		}
+
+		return this.slots[this.slot];
+	}
+
+	/**
+	 * Binds the current slot to the given binding point.
+	 *
+	 * @param index the binding point index
+	 */
+	public void bindRange(int index) {
+		GL.get().bindBufferRange(this.buffer.target(), index, this.buffer.id(), this.slotOffset(), this.buffer.layout().size());
+	}
+
+	/**
+	 * Ends the current frame, fences the current slot and moves to the next one.
+	 */
+	public void endFrame() {
+		this.fences[this.slot] = GL.get().fenceSync(GL.GL32.SYNC_GPU_COMMANDS_COMPLETE, 0);
+		this.slot = (this.slot + 1) % this.slots.length;
+	}
+
+	@Override
+	public void close() {
+		for (int i = 0; i < this.fences.length; i++) {
+			if (this.fences[i] != null) {
+				GL.get().deleteSync(this.fences[i]);
+				this.fences[i] = null;
+			}
+		}
+
+		this.scope.close();
+		this.buffer.bind();
+		GL.get().unmapBuffer(this.buffer.target());
+		this.buffer.close();
+	}
+
+	/**
+	 * {@return {@code true} if the current context supports persistently mapped buffers, else {@code false}}
+	 */
+	public static boolean isSupported() {
+		return GL.get().isAvailable("glBufferStorage");
+	}
+
+	/**
+	 * Creates a new streaming buffer.
+	 *
+	 * @param target the buffer target
+	 * @param layout the layout of a single frame slot
+	 * @param slotCount the number of frame slots, usually 3
+	 * @return the streaming buffer
+	 */
+	public static StreamingBuffer of(BufferTarget target, BufferLayout layout, int slotCount) {
+		long alignment = 16;
+		if (target == BufferTarget.UNIFORM)
+			alignment = Math.max(alignment, GL.get().getIntegerv(GL.GL31.UNIFORM_BUFFER_OFFSET_ALIGNMENT));
+
+		long slotSize = (layout.size() + alignment - 1) / alignment * alignment;
+
+		return new StreamingBuffer(GraphicsBuffer.of(target, BufferUsage.STREAM_DRAW, layout), slotSize, slotCount);
+	}
+
+	private static void waitFor(MemoryAddress fence) {
+		while (true) {
+			int result = GL.get().clientWaitSync(fence, GL.GL32.SYNC_FLUSH_COMMANDS_BIT, FENCE_WAIT_TIMEOUT);
+
+			switch (result) {
+				case GL.GL32.ALREADY_SIGNALED, GL.GL32.CONDITION_SATISFIED -> {
+					return;
+				}
+				case GL.GL32.WAIT_FAILED -> throw new IllegalStateException("Could not wait for streaming buffer fence.");
+			}
+		}
+	}
+}
@@ -0,0 +1,97 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.buffer.range;
+
+import jdk.incubator.foreign.MemorySegment;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents a range holding an array of values, each element being described by its own range.
+ *
+ * @param <V> the type of the elements
+ */
+public class ArrayBufferRange<V> extends BufferRange<V[]> {
+	private final BufferRange<V> element;
+	private final List<BufferRange<V>> elements;
+	private final long stride;
+
+	/**
+	 * Creates a new array range.
+	 *
+	 * @param offset the offset of the range
+	 * @param element the range of a single element, its offset is ignored
+	 * @param length the number of elements
+	 * @param stride the stride between two elements in bytes
+	 */
+	public ArrayBufferRange(long offset, BufferRange<V> element, int length, long stride) {
+		super(offset, length * stride);
+		this.element = element;
+		this.stride = stride;
+		this.elements = new ArrayList<>(length);
+
+		for (int i = 0; i < length; i++) {
+			this.elements.add(element.withOffset(offset + i * stride));
+		}
+	}
+
+	@SuppressWarnings("unchecked")
+	@Override
+	public Class<V[]> type() {
+		return (Class<V[]>) this.element.type().arrayType();
+	}
+
+	@Override
+	public ArrayBufferRange<V> withOffset(long offset) {
+		return new ArrayBufferRange<>(offset, this.element, this.elements.size(), this.stride);
+	}
+
+	/**
+	 * {@return the number of elements in this range}
+	 */
+	public int length() {
+		return this.elements.size();
+	}
+
+	/**
+	 * {@return the stride between two elements in bytes}
+	 */
+	public long stride() {
+		return this.stride;
+	}
+
+	/**
+	 * {@return the range of the element at the given index}
+	 *
+	 * @param index the index of the element
+	 */
+	public BufferRange<V> element(int index) {
+		return this.elements.get(index);
+	}
+
+	@Override
+	protected void write(MemorySegment dst, long offset, V[] value) {
+		if (value.length > this.elements.size())
+			throw new IndexOutOfBoundsException("Cannot write " + value.length + " elements into a range of " + this.elements.size() + " elements.");
+
+		for (int i = 0; i < value.length; i++) {
+			this.elements.get(i).write(dst, offset + i * this.stride, value[i]);
+		}
+	}
+}
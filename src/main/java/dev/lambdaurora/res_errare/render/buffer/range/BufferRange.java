@@ -19,8 +19,10 @@ package dev.lambdaurora.res_errare.render.buffer.range;
 
 import dev.lambdaurora.res_errare.render.buffer.GraphicsBuffer;
 import dev.lambdaurora.res_errare.system.GL;
+import dev.lambdaurora.res_errare.system.memory.NativeStack;
+import dev.lambdaurora.res_errare.util.NativeSizes;
+import jdk.incubator.foreign.MemoryAddress;
 import jdk.incubator.foreign.MemorySegment;
-import jdk.incubator.foreign.ResourceScope;
 import jdk.incubator.foreign.SegmentAllocator;
 
 public abstract class BufferRange<V> {
@@ -42,15 +44,65 @@ public abstract class BufferRange<V> {
 		return this.size;
 	}
 
-	public void set(GraphicsBuffer buffer, V value) {
-		try (var scope = ResourceScope.newConfinedScope()) {
-			var allocator = SegmentAllocator.ofScope(scope);
+	/**
+	 * {@return a copy of this range at the given offset}
+	 *
+	 * @param offset the offset of the new range
+	 */
+	public abstract BufferRange<V> withOffset(long offset);
 
-			var segment = this.createSegment(allocator, value);
+	public void set(GraphicsBuffer buffer, V value) {
+		try (var stack = NativeStack.stackPush()) {
+			long address = this.writeToStack(stack, value);
 
-			GL.get().bufferSubData(buffer.target(), this.offset(), this.size(), segment.address());
+			GL.get().bufferSubData(buffer.target(), this.offset(), this.size(), MemoryAddress.ofLong(address));
 		}
 	}
 
-	protected abstract MemorySegment createSegment(SegmentAllocator allocator, V value);
+	/**
+	 * Writes the given value directly into the given memory at the offset of this range.
+	 *
+	 * @param dst the destination memory, usually the mapped memory of a buffer
+	 * @param value the value to write
+	 */
+	public void write(MemorySegment dst, V value) {
+		this.write(dst, this.offset(), value);
+	}
+
+	/**
+	 * Allocates a segment of the size of this range and writes the given value at its start.
+	 *
+	 * @param allocator the allocator
+	 * @param value the value to write
+	 * @return the allocated segment
+	 */
+	public MemorySegment createSegment(SegmentAllocator allocator, V value) {
+		var segment = allocator.allocate(this.size(), NativeSizes.FLOAT_SIZE);
+		this.write(segment, 0, value);
+		return segment;
+	}
+
+	/**
+	 * Allocates memory on the given native stack and writes the given value into it.
+	 * <p>
+	 * No segment is created, so nothing is allocated on the heap even if the JIT does not inline this method.
+	 *
+	 * @param stack the native stack
+	 * @param value the value to write
+	 * @return the raw address of the written value
+	 */
+	public long writeToStack(NativeStack stack, V value) {
+		long offset = stack.allocateOffset(this.size(), NativeSizes.FLOAT_SIZE);
+		this.write(stack.segment(), offset, value);
+		return stack.address(offset);
+	}
+
+	/**
+	 * Writes the given value into the given memory at the given offset.
+	 *
+	 * @param dst the destination memory
+	 * @param offset the offset in bytes in the destination memory
+	 * @param value the value to write
+	 */
+	protected abstract void write(MemorySegment dst, long offset, V value);
 }
@@ -18,11 +18,29 @@
 package dev.lambdaurora.res_errare.render.buffer.range;
 
 import dev.lambdaurora.res_errare.util.NativeSizes;
-import jdk.incubator.foreign.*;
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
 
 public class FloatArrayBufferRange extends BufferRange<float[]> {
+	private final long length;
+	private final long stride;
+
 	public FloatArrayBufferRange(long offset, long length) {
-		super(offset, length * NativeSizes.FLOAT_SIZE);
+		this(offset, length, NativeSizes.FLOAT_SIZE);
+	}
+
+	/**
+	 * Creates a new float array range whose elements are spaced by the given stride,
+	 * like a std140 {@code float[]} whose elements are padded to 16 bytes.
+	 *
+	 * @param offset the offset of the range
+	 * @param length the number of floats
+	 * @param stride the stride between two floats in bytes
+	 */
+	public FloatArrayBufferRange(long offset, long length, long stride) {
+		super(offset, length * stride);
+		this.length = length;
+		this.stride = stride;
 	}
 
 	@Override
@@ -31,7 +49,31 @@ public class FloatArrayBufferRange extends BufferRange<float[]> {
 	}
 
 	@Override
-	protected MemorySegment createSegment(SegmentAllocator allocator, float[] value) {
-		return allocator.allocateArray(CLinker.C_FLOAT, value);
+	public FloatArrayBufferRange withOffset(long offset) {
+		return new FloatArrayBufferRange(offset, this.length, this.stride);
+	}
+
+	/**
+	 * {@return the number of floats in this range}
+	 */
+	public long length() {
+		return this.length;
+	}
+
+	/**
+	 * {@return the stride between two floats in bytes}
+	 */
+	public long stride() {
+		return this.stride;
+	}
+
+	@Override
+	protected void write(MemorySegment dst, long offset, float[] value) {
+		if (value.length > this.length())
+			throw new IndexOutOfBoundsException("Cannot write " + value.length + " floats into a range of " + this.length() + " floats.");
+
+		for (int i = 0; i < value.length; i++) {
+			MemoryAccess.setFloatAtOffset(dst, offset + i * this.stride, value[i]);
+		}
 	}
 }
@@ -0,0 +1,57 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.buffer.range;
+
+import dev.lambdaurora.res_errare.util.NativeSizes;
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+
+public class FloatBufferRange extends BufferRange<Float> {
+	public FloatBufferRange(long offset) {
+		super(offset, NativeSizes.FLOAT_SIZE);
+	}
+
+	@Override
+	public Class<Float> type() {
+		return Float.class;
+	}
+
+	@Override
+	public FloatBufferRange withOffset(long offset) {
+		return new FloatBufferRange(offset);
+	}
+
+	/**
+	 * Writes the given float directly into the given memory at the offset of this range, without boxing.
+	 *
+	 * @param dst the destination memory
+	 * @param value the float to write
+	 */
+	public void write(MemorySegment dst, float value) {
+		MemoryAccess.setFloatAtOffset(dst, this.offset(), value);
+	}
+
+	@Override
+	protected void write(MemorySegment dst, long offset, Float value) {
+		this.write(dst, offset, value.floatValue());
+	}
+
+	protected void write(MemorySegment dst, long offset, float value) {
+		MemoryAccess.setFloatAtOffset(dst, offset, value);
+	}
+}
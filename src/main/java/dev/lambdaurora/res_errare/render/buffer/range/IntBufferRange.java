@@ -0,0 +1,70 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.buffer.range;
+
+import dev.lambdaurora.res_errare.util.NativeSizes;
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+
+/**
+ * Represents a range holding a GLSL {@code int}, {@code uint} or {@code bool}.
+ */
+public class IntBufferRange extends BufferRange<Integer> {
+	public IntBufferRange(long offset) {
+		super(offset, NativeSizes.INT_SIZE);
+	}
+
+	@Override
+	public Class<Integer> type() {
+		return Integer.class;
+	}
+
+	@Override
+	public IntBufferRange withOffset(long offset) {
+		return new IntBufferRange(offset);
+	}
+
+	/**
+	 * Writes the given integer directly into the given memory at the offset of this range, without boxing.
+	 *
+	 * @param dst the destination memory
+	 * @param value the integer to write
+	 */
+	public void write(MemorySegment dst, int value) {
+		MemoryAccess.setIntAtOffset(dst, this.offset(), value);
+	}
+
+	/**
+	 * Writes the given boolean directly into the given memory at the offset of this range.
+	 *
+	 * @param dst the destination memory
+	 * @param value the boolean to write
+	 */
+	public void write(MemorySegment dst, boolean value) {
+		this.write(dst, value ? 1 : 0);
+	}
+
+	@Override
+	protected void write(MemorySegment dst, long offset, Integer value) {
+		this.write(dst, offset, value.intValue());
+	}
+
+	protected void write(MemorySegment dst, long offset, int value) {
+		MemoryAccess.setIntAtOffset(dst, offset, value);
+	}
+}
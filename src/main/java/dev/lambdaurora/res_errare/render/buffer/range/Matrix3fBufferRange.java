@@ -0,0 +1,59 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.buffer.range;
+
+import dev.lambdaurora.res_errare.util.NativeSizes;
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+import org.joml.Matrix3f;
+
+/**
+ * Represents a range holding a {@code mat3}.
+ * <p>
+ * Each column is aligned as a {@code vec4} in both std140 and std430, so the matrix takes three {@code vec4}.
+ */
+public class Matrix3fBufferRange extends BufferRange<Matrix3f> {
+	public static final long COLUMN_STRIDE = NativeSizes.VEC4F_SIZE;
+
+	public Matrix3fBufferRange(long offset) {
+		super(offset, 3 * COLUMN_STRIDE);
+	}
+
+	@Override
+	public Class<Matrix3f> type() {
+		return Matrix3f.class;
+	}
+
+	@Override
+	public Matrix3fBufferRange withOffset(long offset) {
+		return new Matrix3fBufferRange(offset);
+	}
+
+	@Override
+	protected void write(MemorySegment dst, long offset, Matrix3f value) {
+		MemoryAccess.setFloatAtOffset(dst, offset, value.m00());
+		MemoryAccess.setFloatAtOffset(dst, offset + 4, value.m01());
+		MemoryAccess.setFloatAtOffset(dst, offset + 8, value.m02());
+		MemoryAccess.setFloatAtOffset(dst, offset + 16, value.m10());
+		MemoryAccess.setFloatAtOffset(dst, offset + 20, value.m11());
+		MemoryAccess.setFloatAtOffset(dst, offset + 24, value.m12());
+		MemoryAccess.setFloatAtOffset(dst, offset + 32, value.m20());
+		MemoryAccess.setFloatAtOffset(dst, offset + 36, value.m21());
+		MemoryAccess.setFloatAtOffset(dst, offset + 40, value.m22());
+	}
+}
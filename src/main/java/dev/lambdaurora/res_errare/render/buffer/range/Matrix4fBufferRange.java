@@ -17,16 +17,21 @@
 
 package dev.lambdaurora.res_errare.render.buffer.range;
 
-import dev.lambdaurora.res_errare.system.memory.SegmentOutput;
 import dev.lambdaurora.res_errare.util.NativeSizes;
+import jdk.incubator.foreign.MemoryHandles;
 import jdk.incubator.foreign.MemorySegment;
-import jdk.incubator.foreign.SegmentAllocator;
 import org.joml.Matrix4f;
 
-import java.io.IOException;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
 
 public class Matrix4fBufferRange extends BufferRange<Matrix4f> {
 	public static final Matrix4fBufferRange NO_OFFSET = new Matrix4fBufferRange(0);
+	/**
+	 * Own handle rather than {@link jdk.incubator.foreign.MemoryAccess}, whose shared type profile gets polluted by heap segments
+	 * elsewhere and then boxes every float written by {@link dev.lambdaurora.res_errare.system.GL#uniformMatrix4fv(int, boolean, Matrix4f)}.
+	 */
+	private static final VarHandle FLOAT = MemoryHandles.varHandle(float.class, 1, ByteOrder.nativeOrder());
 
 	public Matrix4fBufferRange(long offset) {
 		super(offset, NativeSizes.MATRIX4F_SIZE);
@@ -38,13 +43,34 @@ public class Matrix4fBufferRange extends BufferRange<Matrix4f> {
 	}
 
 	@Override
-	public MemorySegment createSegment(SegmentAllocator allocator, Matrix4f value) {
-		var segment = allocator.allocate(this.size());
-		try {
-			value.writeExternal(new SegmentOutput(segment));
-		} catch (IOException e) {
-			throw new RuntimeException(e);
-		}
-		return segment;
+	public Matrix4fBufferRange withOffset(long offset) {
+		return new Matrix4fBufferRange(offset);
+	}
+
+	/**
+	 * Writes the given matrix into the given memory at the given offset, in column-major order.
+	 *
+	 * @param dst the destination memory
+	 * @param offset the offset in bytes in the destination memory
+	 * @param value the matrix to write
+	 */
+	@Override
+	protected void write(MemorySegment dst, long offset, Matrix4f value) {
+		FLOAT.set(dst, offset, value.m00());
+		FLOAT.set(dst, offset + 4, value.m01());
+		FLOAT.set(dst, offset + 8, value.m02());
+		FLOAT.set(dst, offset + 12, value.m03());
+		FLOAT.set(dst, offset + 16, value.m10());
+		FLOAT.set(dst, offset + 20, value.m11());
+		FLOAT.set(dst, offset + 24, value.m12());
+		FLOAT.set(dst, offset + 28, value.m13());
+		FLOAT.set(dst, offset + 32, value.m20());
+		FLOAT.set(dst, offset + 36, value.m21());
+		FLOAT.set(dst, offset + 40, value.m22());
+		FLOAT.set(dst, offset + 44, value.m23());
+		FLOAT.set(dst, offset + 48, value.m30());
+		FLOAT.set(dst, offset + 52, value.m31());
+		FLOAT.set(dst, offset + 56, value.m32());
+		FLOAT.set(dst, offset + 60, value.m33());
 	}
 }
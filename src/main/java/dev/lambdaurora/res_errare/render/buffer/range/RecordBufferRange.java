@@ -0,0 +1,191 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.buffer.range;
+
+import dev.lambdaurora.res_errare.render.buffer.BufferLayout;
+import dev.lambdaurora.res_errare.render.shader.UniformType;
+import dev.lambdaurora.res_errare.system.memory.BufferPacking;
+import jdk.incubator.foreign.MemorySegment;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.lang.reflect.RecordComponent;
+
+/**
+ * Represents a range holding a GLSL structure mapped from a record.
+ * <p>
+ * Each record component becomes a member of the structure, in declaration order.
+ * Supported component types are {@code float}, {@code int}, {@code boolean}, the JOML vectors and matrices
+ * supported by {@link UniformType#byJavaType(Class)}, nested records and arrays of those annotated with {@link ArrayLength}.
+ * <p>
+ * The record components are read through method handles resolved once, primitive components are never boxed.
+ *
+ * @param <R> the record type
+ */
+public final class RecordBufferRange<R extends Record> extends BufferRange<R> {
+	private final Class<R> type;
+	private final BufferLayout layout;
+	private final ComponentEncoder[] encoders;
+
+	private RecordBufferRange(long offset, Class<R> type, BufferLayout layout, ComponentEncoder[] encoders) {
+		super(offset, layout.size());
+		this.type = type;
+		this.layout = layout;
+		this.encoders = encoders;
+	}
+
+	@Override
+	public Class<R> type() {
+		return this.type;
+	}
+
+	@Override
+	public RecordBufferRange<R> withOffset(long offset) {
+		return new RecordBufferRange<>(offset, this.type, this.layout, this.encoders);
+	}
+
+	/**
+	 * {@return the layout of the structure, offsets are relative to the start of this range}
+	 */
+	public BufferLayout layout() {
+		return this.layout;
+	}
+
+	/**
+	 * {@return the alignment of the structure}
+	 */
+	public long alignment() {
+		return this.layout.packing().aggregateAlignment(this.layout.alignment());
+	}
+
+	@Override
+	protected void write(MemorySegment dst, long offset, R value) {
+		try {
+			for (var encoder : this.encoders) {
+				encoder.encode(dst, offset, value);
+			}
+		} catch (RuntimeException e) {
+			throw e;
+		} catch (Throwable e) {
+			throw new IllegalStateException("Could not read the components of " + value + ".", e);
+		}
+	}
+
+	/**
+	 * Maps the given record to a structure.
+	 *
+	 * @param type the record class
+	 * @param packing the packing rules of the structure
+	 * @param <R> the record type
+	 * @return the structure range, at offset {@code 0}
+	 * @throws IllegalArgumentException if a component cannot be mapped
+	 */
+	public static <R extends Record> RecordBufferRange<R> of(Class<R> type, BufferPacking packing) {
+		var components = type.getRecordComponents();
+		var builder = BufferLayout.builder(packing);
+
+		for (var component : components) {
+			addComponent(builder, type, component);
+		}
+
+		var layout = builder.build();
+		var encoders = new ComponentEncoder[components.length];
+
+		for (int i = 0; i < components.length; i++) {
+			encoders[i] = createEncoder(components[i], layout.get(components[i].getName()));
+		}
+
+		return new RecordBufferRange<>(0, type, layout, encoders);
+	}
+
+	private static void addComponent(BufferLayout.Builder builder, Class<?> recordType, RecordComponent component) {
+		var name = component.getName();
+		var type = component.getType();
+
+		if (type.isArray()) {
+			var length = component.getAnnotation(ArrayLength.class);
+			if (length == null)
+				throw new IllegalArgumentException("Array component " + recordType.getSimpleName() + "." + name
+						+ " is missing an @ArrayLength annotation.");
+
+			var elementType = type.getComponentType();
+			if (elementType.isRecord())
+				builder.addRecordArray(name, elementType.asSubclass(Record.class), length.value());
+			else if (elementType == float.class)
+				builder.addArray(name, UniformType.FLOAT, length.value());
+			else if (!elementType.isPrimitive())
+				builder.addArray(name, uniformType(recordType, component, elementType), length.value());
+			else
+				throw new IllegalArgumentException("Unsupported array component type " + type.getSimpleName()
+						+ " for " + recordType.getSimpleName() + "." + name + ".");
+		} else if (type.isRecord()) {
+			builder.addRecord(name, type.asSubclass(Record.class));
+		} else {
+			builder.add(name, uniformType(recordType, component, type));
+		}
+	}
+
+	private static UniformType uniformType(Class<?> recordType, RecordComponent component, Class<?> type) {
+		var uniformType = UniformType.byJavaType(type);
+
+		if (uniformType == UniformType.UNKNOWN)
+			throw new IllegalArgumentException("Unsupported component type " + type.getSimpleName()
+					+ " for " + recordType.getSimpleName() + "." + component.getName() + ".");
+
+		return uniformType;
+	}
+
+	private static ComponentEncoder createEncoder(RecordComponent component, BufferRange<?> range) {
+		MethodHandle getter;
+		try {
+			var accessor = component.getAccessor();
+			accessor.trySetAccessible();
+			getter = MethodHandles.lookup().unreflect(accessor);
+		} catch (IllegalAccessException e) {
+			throw new IllegalArgumentException("Cannot access record component " + component.getName() + ".", e);
+		}
+
+		long relativeOffset = range.offset();
+		var type = component.getType();
+
+		if (type == float.class) {
+			var floatRange = (FloatBufferRange) range;
+			var handle = getter.asType(MethodType.methodType(float.class, Record.class));
+			return (dst, offset, value) -> floatRange.write(dst, offset + relativeOffset, (float) handle.invokeExact(value));
+		} else if (type == int.class) {
+			var intRange = (IntBufferRange) range;
+			var handle = getter.asType(MethodType.methodType(int.class, Record.class));
+			return (dst, offset, value) -> intRange.write(dst, offset + relativeOffset, (int) handle.invokeExact(value));
+		} else if (type == boolean.class) {
+			var intRange = (IntBufferRange) range;
+			var handle = getter.asType(MethodType.methodType(boolean.class, Record.class));
+			return (dst, offset, value) -> intRange.write(dst, offset + relativeOffset, (boolean) handle.invokeExact(value) ? 1 : 0);
+		} else {
+			@SuppressWarnings("unchecked")
+			var objectRange = (BufferRange<Object>) range;
+			var handle = getter.asType(MethodType.methodType(Object.class, Record.class));
+			return (dst, offset, value) -> objectRange.write(dst, offset + relativeOffset, (Object) handle.invokeExact(value));
+		}
+	}
+
+	@FunctionalInterface
+	private interface ComponentEncoder {
+		void encode(MemorySegment dst, long offset, Record value) throws Throwable;
+	}
+}
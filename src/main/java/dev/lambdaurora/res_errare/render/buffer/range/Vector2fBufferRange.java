@@ -0,0 +1,45 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.buffer.range;
+
+import dev.lambdaurora.res_errare.util.NativeSizes;
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+import org.joml.Vector2f;
+
+public class Vector2fBufferRange extends BufferRange<Vector2f> {
+	public Vector2fBufferRange(long offset) {
+		super(offset, NativeSizes.VEC2F_SIZE);
+	}
+
+	@Override
+	public Class<Vector2f> type() {
+		return Vector2f.class;
+	}
+
+	@Override
+	public Vector2fBufferRange withOffset(long offset) {
+		return new Vector2fBufferRange(offset);
+	}
+
+	@Override
+	protected void write(MemorySegment dst, long offset, Vector2f value) {
+		MemoryAccess.setFloatAtOffset(dst, offset, value.x());
+		MemoryAccess.setFloatAtOffset(dst, offset + 4, value.y());
+	}
+}
@@ -23,14 +23,16 @@ import dev.lambdaurora.res_errare.render.array.VertexArray;
 import dev.lambdaurora.res_errare.render.array.VertexLayout;
 import dev.lambdaurora.res_errare.render.buffer.BufferTarget;
 import dev.lambdaurora.res_errare.render.buffer.GraphicsBuffer;
-import dev.lambdaurora.res_errare.render.shader.Shader;
 import dev.lambdaurora.res_errare.render.shader.ShaderProgram;
 import dev.lambdaurora.res_errare.render.shader.ShaderType;
 import dev.lambdaurora.res_errare.render.texture.Texture;
+import dev.lambdaurora.res_errare.resource.AssetLoader;
 import dev.lambdaurora.res_errare.system.GL;
 import dev.lambdaurora.res_errare.util.Identifier;
 
 import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
 
 public class Graphics2D {
 	private static Graphics2D self = null;
@@ -42,21 +44,43 @@ public class Graphics2D {
 		this.screenQuadVao = screenQuadVao;
 	}
 
+	/**
+	 * {@return the 2D graphics}
+	 *
+	 * @throws IllegalStateException if the 2D graphics have not been {@linkplain #load(AssetLoader) loaded}
+	 */
 	public static Graphics2D get() {
-		if (self == null) {
+		if (self == null)
+			throw new IllegalStateException("The 2D graphics have not been loaded.");
+
+		return self;
+	}
+
+	/**
+	 * Loads the 2D graphics, the framebuffer program is submitted to the program compiler of the given asset loader.
+	 *
+	 * @param loader the asset loader
+	 * @return the future 2D graphics
+	 */
+	public static CompletableFuture<Graphics2D> load(AssetLoader loader) {
+		if (self != null)
+			return CompletableFuture.completedFuture(self);
+
+		var program = loader.program(Map.of(
+				ShaderType.FRAGMENT, FRAMEBUFFER_SHADER_ID,
+				ShaderType.VERTEX, FRAMEBUFFER_SHADER_ID
+		));
+
+		return loader.upload(program, framebufferShader -> {
 			var screenQuadVao = new VertexArray();
 			screenQuadVao.bind();
 			var screenQuadVbo = GraphicsBuffer.ofStatic(BufferTarget.ARRAY, SCREEN_QUAD_VERTICES);
 			screenQuadVao.useLayout(new VertexLayout(List.of(VertexLayout.VEC2F_ELEMENT, VertexLayout.VEC2F_ELEMENT)));
 			screenQuadVbo.unbind();
 
-			self = new Graphics2D(ShaderProgram.builder()
-					.shader(Shader.compile(ShaderType.FRAGMENT, FRAMEBUFFER_SHADER_ID))
-					.shader(Shader.compile(ShaderType.VERTEX, FRAMEBUFFER_SHADER_ID))
-					.build().getOrThrow(), screenQuadVao);
-		}
-
-		return self;
+			self = new Graphics2D(framebufferShader, screenQuadVao);
+			return self;
+		});
 	}
 
 	public void drawScreenWith(Texture<?> texture, ShaderProgram program) {
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.shader;
+
+import dev.lambdaurora.res_errare.util.Identifier;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.List;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Represents a preprocessed shader source.
+ * <p>
+ * The source holds {@code #line} directives giving the line and the source string number of the original file of each part,
+ * the source string number {@code n} is the {@code n}-th file of {@link #files()}.
+ *
+ * @param source the preprocessed source
+ * @param files the files making up the source, by source string number, the file of a source given directly is {@code null}
+ */
+public record PreprocessedShader(String source, List<@Nullable Identifier> files) {
+	/**
+	 * Matches the locations of the compilation logs of the common drivers: {@code 0(12)} and {@code 0:12(5)}.
+	 */
+	private static final Pattern LOG_LOCATION = Pattern.compile("(?m)^(?:ERROR: |WARNING: )?(\\d+)(?:\\((\\d+)\\)|:(\\d+))");
+
+	/**
+	 * {@return a copy of this preprocessed shader with the given source}
+	 *
+	 * @param source the new source
+	 */
+	public PreprocessedShader withSource(String source) {
+		return new PreprocessedShader(source, this.files);
+	}
+
+	/**
+	 * Replaces the source string numbers of the locations in the given compilation log with the identifiers of the files.
+	 *
+	 * @param log the compilation log
+	 * @return the compilation log with the locations mapped to the original files
+	 */
+	public String mapLog(String log) {
+		return LOG_LOCATION.matcher(log).replaceAll(result -> {
+			int file = Integer.parseInt(result.group(1));
+			var line = result.group(2) != null ? result.group(2) : result.group(3);
+
+			if (file >= this.files.size() || this.files.get(file) == null)
+				return Matcher.quoteReplacement(result.group());
+
+			var prefix = result.group().substring(0, result.start(1) - result.start());
+			return Matcher.quoteReplacement(prefix + this.files.get(file) + ':' + line);
+		});
+	}
+}
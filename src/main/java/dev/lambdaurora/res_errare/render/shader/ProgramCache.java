@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.shader;
+
+import dev.lambdaurora.res_errare.system.GL;
+import dev.lambdaurora.res_errare.util.Identifier;
+import dev.lambdaurora.res_errare.util.Result;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.*;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.EnumMap;
+import java.util.HexFormat;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Represents a persistent cache of linked program binaries, which skips the compilation of the shaders on later launches.
+ * <p>
+ * A program is keyed by the hash of its preprocessed sources and of the vendor, renderer and version of the driver,
+ * a driver update therefore misses the cache instead of feeding it binaries it may not understand.
+ * Binaries missing or rejected by the driver fall back to compiling the sources, the new binary then replaces the cached one.
+ * <p>
+ * Files are written to a temporary file then atomically moved in place, so parallel launches never read a partial binary.
+ * The cache must be used on the thread owning the context.
+ */
+public final class ProgramCache {
+	private static final int MAGIC = 0x50524742; // PRGB
+	private static final int FORMAT_VERSION = 1;
+	private static final String EXTENSION = ".bin";
+	private static ProgramCache defaultCache;
+
+	private final @Nullable Path directory;
+	private final ShaderLoader loader;
+	private String driver;
+	private Boolean supported;
+	private int hits = 0;
+	private int misses = 0;
+	private int rejected = 0;
+
+	/**
+	 * Creates a new program cache.
+	 *
+	 * @param directory the directory of the binaries, or {@code null} to disable the cache
+	 * @param loader the loader of the shader sources
+	 */
+	public ProgramCache(@Nullable Path directory, ShaderLoader loader) {
+		this.directory = directory;
+		this.loader = loader;
+	}
+
+	/**
+	 * {@return the default program cache}
+	 * <p>
+	 * The directory is given by the {@code res_errare.shaders.program_cache} system property, an empty value disables the cache.
+	 * By default, the binaries are stored in the user cache directory.
+	 */
+	public static synchronized ProgramCache getDefault() {
+		if (defaultCache == null) {
+			var property = System.getProperty("res_errare.shaders.program_cache");
+			Path directory;
+			if (property == null)
+				directory = defaultDirectory();
+			else if (property.isBlank())
+				directory = null;
+			else
+				directory = Path.of(property);
+
+			defaultCache = new ProgramCache(directory, ShaderLoader.DEFAULT_LOADER);
+		}
+
+		return defaultCache;
+	}
+
+	private static Path defaultDirectory() {
+		var cacheHome = System.getenv("XDG_CACHE_HOME");
+		var root = cacheHome != null && !cacheHome.isBlank() ? Path.of(cacheHome) : Path.of(System.getProperty("user.home"), ".cache");
+		return root.resolve("res_errare").resolve("programs");
+	}
+
+	/**
+	 * {@return the directory of the binaries, or {@code null} if the cache is disabled}
+	 */
+	public @Nullable Path directory() {
+		return this.directory;
+	}
+
+	/**
+	 * {@return {@code true} if binaries are cached, else {@code false}}
+	 * <p>
+	 * The cache needs a directory and a driver supporting at least one program binary format.
+	 */
+	public boolean isEnabled() {
+		if (this.directory == null)
+			return false;
+
+		if (this.supported == null) {
+			var gl = GL.get();
+			this.supported = gl.isAvailable("glGetProgramBinary") && gl.isAvailable("glProgramBinary")
+					&& gl.isAvailable("glProgramParameteri") && gl.getIntegerv(GL.GL41.NUM_PROGRAM_BINARY_FORMATS) > 0;
+		}
+
+		return this.supported;
+	}
+
+	/**
+	 * Loads the given program.
+	 *
+	 * @param shaders the identifiers of the shaders of the program, by type
+	 * @return the program if successful, else an error
+	 */
+	public Result<ShaderProgram, RuntimeException> load(Map<ShaderType, Identifier> shaders) {
+		return this.load(shaders, Map.of());
+	}
+
+	/**
+	 * Loads the given program with the given macros defined.
+	 *
+	 * @param shaders the identifiers of the shaders of the program, by type
+	 * @param defines the macros defined when preprocessing the shaders, by name
+	 * @return the program if successful, else an error
+	 */
+	public Result<ShaderProgram, RuntimeException> load(Map<ShaderType, Identifier> shaders, Map<String, String> defines) {
+		var sources = new EnumMap<ShaderType, PreprocessedShader>(ShaderType.class);
+
+		for (var entry : shaders.entrySet()) {
+			var source = this.loader.load(Shader.sourceId(entry.getKey(), entry.getValue()), defines, dependency -> {
+			});
+			if (source.hasError())
+				return Result.fail(source.getError());
+
+			sources.put(entry.getKey(), source.get());
+		}
+
+		return this.link(sources);
+	}
+
+	/**
+	 * Gets the program of the given sources from the cache, or compiles and links it if it is not cached.
+	 *
+	 * @param sources the preprocessed shaders, by type
+	 * @return the program if successful, else an error
+	 */
+	public Result<ShaderProgram, RuntimeException> link(Map<ShaderType, PreprocessedShader> sources) {
+		if (!this.isEnabled())
+			return ShaderProgram.link(sources, false);
+
+		var path = this.path(sources);
+		var program = this.lookup(path);
+		if (program != null)
+			return Result.ok(program);
+
+		return this.store(path, ShaderProgram.link(sources, true));
+	}
+
+	/**
+	 * Gets the program of the given sources from the cache, or submits it to the given compiler if it is not cached.
+	 *
+	 * @param sources the preprocessed shaders, by type
+	 * @param compiler the compiler of the programs which are not cached
+	 * @return the future program if successful, else an error
+	 */
+	public CompletableFuture<Result<ShaderProgram, RuntimeException>> link(Map<ShaderType, PreprocessedShader> sources,
+	                                                                       ProgramCompiler compiler) {
+		if (!this.isEnabled())
+			return compiler.submit(sources);
+
+		var path = this.path(sources);
+		var program = this.lookup(path);
+		if (program != null)
+			return CompletableFuture.completedFuture(Result.ok(program));
+
+		return compiler.submit(sources, true).thenApply(result -> this.store(path, result));
+	}
+
+	/**
+	 * Loads the program of the given binary file.
+	 *
+	 * @param path the path of the binary file
+	 * @return the program, or {@code null} if the binary is missing or rejected by the driver
+	 */
+	private @Nullable ShaderProgram lookup(Path path) {
+		var binary = read(path);
+		if (binary != null) {
+			var program = ShaderProgram.ofBinary(binary);
+			if (program.isPresent()) {
+				this.hits++;
+				return program.get();
+			}
+
+			this.rejected++;
+		}
+
+		this.misses++;
+		return null;
+	}
+
+	/**
+	 * Writes the binary of the given linked program.
+	 *
+	 * @param path the path of the binary file
+	 * @param program the program compiled from its sources
+	 * @return the program
+	 */
+	private Result<ShaderProgram, RuntimeException> store(Path path, Result<ShaderProgram, RuntimeException> program) {
+		if (program.hasError())
+			return program;
+
+		try {
+			write(path, program.get().getBinary());
+		} catch (IOException e) {
+			System.err.println("Could not write program binary " + path + ": " + e.getMessage());
+		}
+
+		return program;
+	}
+
+	/**
+	 * {@return the number of programs loaded from their cached binary}
+	 */
+	public int hits() {
+		return this.hits;
+	}
+
+	/**
+	 * {@return the number of programs compiled from their sources}
+	 */
+	public int misses() {
+		return this.misses;
+	}
+
+	/**
+	 * {@return the number of cached binaries rejected by the driver}
+	 */
+	public int rejected() {
+		return this.rejected;
+	}
+
+	private Path path(Map<ShaderType, PreprocessedShader> sources) {
+		return this.directory.resolve(this.key(sources) + EXTENSION);
+	}
+
+	/**
+	 * {@return the key of the given sources for the current driver}
+	 */
+	private String key(Map<ShaderType, PreprocessedShader> sources) {
+		if (this.driver == null) {
+			var gl = GL.get();
+			this.driver = gl.getString(GL.GL11.VENDOR) + '\n' + gl.getString(GL.GL11.RENDERER) + '\n' + gl.getString(GL.GL11.VERSION);
+		}
+
+		MessageDigest digest;
+		try {
+			digest = MessageDigest.getInstance("SHA-256");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-256 is not available.", e);
+		}
+
+		digest.update(this.driver.getBytes(StandardCharsets.UTF_8));
+		// Enum order, so the key does not depend on the iteration order of the map.
+		for (var type : ShaderType.values()) {
+			var source = sources.get(type);
+			if (source == null)
+				continue;
+
+			digest.update((byte) 0);
+			digest.update(type.name().getBytes(StandardCharsets.UTF_8));
+			digest.update((byte) 0);
+			digest.update(source.source().getBytes(StandardCharsets.UTF_8));
+		}
+
+		return HexFormat.of().formatHex(digest.digest());
+	}
+
+	/**
+	 * Reads the given binary file.
+	 *
+	 * @param path the path of the file
+	 * @return the binary, or {@code null} if the file does not exist or is not a valid binary file
+	 */
+	private static @Nullable GL.ProgramBinary read(Path path) {
+		if (!Files.isRegularFile(path))
+			return null;
+
+		try (var input = new DataInputStream(new BufferedInputStream(Files.newInputStream(path)))) {
+			if (input.readInt() != MAGIC || input.readInt() != FORMAT_VERSION)
+				return null;
+
+			int format = input.readInt();
+			int length = input.readInt();
+			if (length <= 0 || length != Files.size(path) - 4 * Integer.BYTES)
+				return null;
+
+			var binary = new byte[length];
+			input.readFully(binary);
+			return new GL.ProgramBinary(format, binary);
+		} catch (IOException e) {
+			return null;
+		}
+	}
+
+	private static void write(Path path, GL.ProgramBinary binary) throws IOException {
+		if (binary.binary().length == 0)
+			return;
+
+		Files.createDirectories(path.getParent());
+		var temporary = Files.createTempFile(path.getParent(), path.getFileName().toString(), ".tmp");
+
+		try {
+			try (var output = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temporary)))) {
+				output.writeInt(MAGIC);
+				output.writeInt(FORMAT_VERSION);
+				output.writeInt(binary.format());
+				output.writeInt(binary.binary().length);
+				output.write(binary.binary());
+			}
+
+			try {
+				Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			Files.deleteIfExists(temporary);
+		}
+	}
+}
@@ -0,0 +1,216 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.shader;
+
+import dev.lambdaurora.res_errare.system.GL;
+import dev.lambdaurora.res_errare.util.Result;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Represents a batch compiler of shader programs, which lets the driver compile and link programs in the background.
+ * <p>
+ * Querying the compilation or linkage status of a shader or program waits for the driver to finish, so submitting
+ * only compiles the shaders and links the program without querying anything.
+ * {@link #process(long)} is then called once per frame and completes the programs the driver is done with,
+ * which allows to keep presenting loading frames meanwhile.
+ * <p>
+ * With {@code GL_KHR_parallel_shader_compile}, the driver compiles on its own threads
+ * and {@link GL.KHRParallelShaderCompile#COMPLETION_STATUS} tells whether a program is done without waiting.
+ * Otherwise, the driver usually compiles when the status is queried, the programs are then finished one after another
+ * within the time budget.
+ * <p>
+ * The compiler must be used on the thread owning the context.
+ */
+public final class ProgramCompiler implements AutoCloseable {
+	private final List<Pending> pending = new ArrayList<>();
+	private Boolean parallel;
+
+	/**
+	 * {@return {@code true} if the driver compiles in the background, else {@code false}}
+	 */
+	public boolean isParallel() {
+		if (this.parallel == null) {
+			var gl = GL.get();
+			this.parallel = gl.hasExtension(GL.KHRParallelShaderCompile.NAME) && gl.isAvailable("glMaxShaderCompilerThreadsKHR");
+
+			if (this.parallel)
+				gl.maxShaderCompilerThreads(GL.KHRParallelShaderCompile.MAX_THREADS_IMPLEMENTATION_DEFINED);
+		}
+
+		return this.parallel;
+	}
+
+	/**
+	 * Submits the given program, its shaders are compiled and linked without waiting for the driver.
+	 *
+	 * @param sources the preprocessed shaders, by type
+	 * @return the future program, completed by {@link #process(long)} with the program if the compilation and linkage succeeded,
+	 * else an error
+	 */
+	public CompletableFuture<Result<ShaderProgram, RuntimeException>> submit(Map<ShaderType, PreprocessedShader> sources) {
+		return this.submit(sources, false);
+	}
+
+	/**
+	 * Submits the given program, its shaders are compiled and linked without waiting for the driver.
+	 *
+	 * @param sources the preprocessed shaders, by type
+	 * @param retrievableBinary {@code true} if the binary of the program will be retrieved, else {@code false}
+	 * @return the future program, completed by {@link #process(long)} with the program if the compilation and linkage succeeded,
+	 * else an error
+	 */
+	public CompletableFuture<Result<ShaderProgram, RuntimeException>> submit(Map<ShaderType, PreprocessedShader> sources,
+	                                                                         boolean retrievableBinary) {
+		// Sets up the compiler threads before the first compilation.
+		this.isParallel();
+
+		var shaders = new ArrayList<Shader>(sources.size());
+		for (var entry : sources.entrySet()) {
+			var shader = Shader.submit(entry.getKey(), entry.getValue().source());
+
+			if (shader.hasError()) {
+				shaders.forEach(Shader::close);
+				return CompletableFuture.completedFuture(Result.fail(shader.getError()));
+			}
+
+			shaders.add(shader.get());
+		}
+
+		var program = new ShaderProgram(GL.get().createProgram());
+		shaders.forEach(program::attachShader);
+		if (retrievableBinary)
+			GL.get().programParameteri(program.id(), GL.GL41.PROGRAM_BINARY_RETRIEVABLE_HINT, 1);
+		// The linkage is queued after the compilations, the driver waits for them itself.
+		GL.get().linkProgram(program.id());
+
+		var pending = new Pending(sources, shaders, program, new CompletableFuture<>());
+		this.pending.add(pending);
+		return pending.future();
+	}
+
+	/**
+	 * Completes the submitted programs which are done, must be called on the thread owning the context.
+	 * <p>
+	 * Without parallel compilation, at least one program is finished, so that programs longer to compile than the budget
+	 * still make progress.
+	 *
+	 * @param budgetNanos the time budget in nanoseconds, only used without parallel compilation
+	 * @return the number of completed programs
+	 */
+	public int process(long budgetNanos) {
+		if (this.pending.isEmpty())
+			return 0;
+
+		boolean parallel = this.isParallel();
+		long start = System.nanoTime();
+		int processed = 0;
+
+		var iterator = this.pending.iterator();
+		while (iterator.hasNext()) {
+			var pending = iterator.next();
+
+			if (parallel) {
+				if (!pending.isCompleted())
+					continue;
+			} else if (processed != 0 && System.nanoTime() - start >= budgetNanos) {
+				break;
+			}
+
+			iterator.remove();
+			pending.finish();
+			processed++;
+		}
+
+		return processed;
+	}
+
+	/**
+	 * {@return {@code true} if submitted programs are not completed yet, else {@code false}}
+	 */
+	public boolean hasPending() {
+		return !this.pending.isEmpty();
+	}
+
+	/**
+	 * {@return the number of submitted programs which are not completed yet}
+	 */
+	public int pendingCount() {
+		return this.pending.size();
+	}
+
+	/**
+	 * Deletes the programs which are not completed yet, their futures are cancelled.
+	 */
+	@Override
+	public void close() {
+		for (var pending : this.pending) {
+			pending.shaders().forEach(Shader::close);
+			pending.program().close();
+			pending.future().cancel(false);
+		}
+
+		this.pending.clear();
+	}
+
+	private record Pending(Map<ShaderType, PreprocessedShader> sources, List<Shader> shaders, ShaderProgram program,
+	                       CompletableFuture<Result<ShaderProgram, RuntimeException>> future) {
+		/**
+		 * {@return {@code true} if the driver is done compiling and linking the program, else {@code false}}
+		 */
+		boolean isCompleted() {
+			return GL.get().getProgramiv(this.program.id(), GL.KHRParallelShaderCompile.COMPLETION_STATUS) != 0;
+		}
+
+		/**
+		 * Checks the compilation and linkage status and completes the future.
+		 */
+		void finish() {
+			for (var shader : this.shaders) {
+				var log = shader.getCompilationLog();
+
+				if (log.isPresent()) {
+					this.shaders.forEach(Shader::close);
+					this.program.close();
+
+					var mappedLog = this.sources.get(shader.type()).mapLog(log.get());
+					this.future.complete(Result.fail(new Shader.CompilationError("Could not compile shader " + shader.type() + ".", mappedLog)));
+					return;
+				}
+			}
+
+			var log = this.program.finishLink();
+
+			this.shaders.forEach(shader -> {
+				this.program.detachShader(shader);
+				shader.close();
+			});
+
+			if (log.isPresent()) {
+				this.program.close();
+				this.future.complete(Result.fail(new ShaderProgram.LinkageError("Could not link shader program.", log.get())));
+				return;
+			}
+
+			this.future.complete(Result.ok(this.program));
+		}
+	}
+}
@@ -21,17 +21,82 @@ import dev.lambdaurora.res_errare.system.GL;
 import dev.lambdaurora.res_errare.util.Identifier;
 import dev.lambdaurora.res_errare.util.Result;
 
+import java.util.Map;
+import java.util.Optional;
+
 /**
  * Represents an OpenGL shader.
  */
 public record Shader(ShaderType type, int id) implements AutoCloseable {
 	public static Result<Shader, CreationException> compile(ShaderType type, Identifier shaderId) {
-		var resourceId = new Identifier(shaderId.namespace(), shaderId.path() + '.' + type.extension());
+		return compile(type, shaderId, Map.of());
+	}
+
+	/**
+	 * Compiles the given shader with the given macros defined.
+	 *
+	 * @param type the type of the shader
+	 * @param shaderId the identifier of the shader
+	 * @param defines the macros to define, by name
+	 * @return the shader if the compilation succeeded, else an error
+	 * @see ShaderVariants
+	 */
+	public static Result<Shader, CreationException> compile(ShaderType type, Identifier shaderId, Map<String, String> defines) {
+		return ShaderLoader.DEFAULT_LOADER.load(sourceId(type, shaderId), defines, dependency -> {
+		}).then(shader -> compile(type, shader));
+	}
 
-		return ShaderLoader.DEFAULT_LOADER.loadShaderSource(resourceId).then(source -> compile(type, source));
+	/**
+	 * Compiles the given preprocessed shader, the compilation logs refer to the original files of the shader.
+	 *
+	 * @param type the type of the shader
+	 * @param shader the preprocessed shader
+	 * @return the shader if the compilation succeeded, else an error
+	 */
+	public static Result<Shader, CreationException> compile(ShaderType type, PreprocessedShader shader) {
+		return compile(type, shader.source()).mapError(error -> {
+			if (error instanceof CompilationError compilationError) {
+				var log = shader.mapLog(compilationError.getLog());
+				return new CompilationError("Could not compile shader " + type + ".", log);
+			}
+			return error;
+		});
+	}
+
+	/**
+	 * {@return the identifier of the source of the given shader}
+	 *
+	 * @param type the type of the shader
+	 * @param shaderId the identifier of the shader
+	 */
+	public static Identifier sourceId(ShaderType type, Identifier shaderId) {
+		return new Identifier(shaderId.namespace(), shaderId.path() + '.' + type.extension());
 	}
 
 	public static Result<Shader, CreationException> compile(ShaderType type, String source) {
+		return submit(type, source).then(shader -> {
+			var log = shader.getCompilationLog();
+
+			if (log.isPresent()) {
+				shader.close();
+				return Result.fail(new CompilationError("Could not compile shader " + type + ".", log.get()));
+			}
+
+			return Result.ok(shader);
+		});
+	}
+
+	/**
+	 * Creates a shader and starts its compilation without waiting for the result.
+	 * <p>
+	 * The driver may compile in the background, the result is waited for by {@link #getCompilationLog()}.
+	 *
+	 * @param type the type of the shader
+	 * @param source the source of the shader
+	 * @return the shader if it could be created, else an error
+	 * @see ProgramCompiler
+	 */
+	static Result<Shader, CreationException> submit(ShaderType type, String source) {
 		int id = GL.get().createShader(type);
 
 		if (id == 0)
@@ -40,15 +105,21 @@ public record Shader(ShaderType type, int id) implements AutoCloseable {
 		GL.get().shaderSource(id, source);
 		GL.get().compileShader(id);
 
-		if (GL.get().getShaderiv(id, GL.GL20.COMPILE_STATUS) == 0) {
-			int length = GL.get().getShaderiv(id, GL.GL20.INFO_LOG_LENGTH);
-			var log = GL.get().getShaderInfoLog(id, length);
+		return Result.ok(new Shader(type, id));
+	}
 
-			GL.get().deleteShader(id);
-			return Result.fail(new CompilationError("Could not compile shader " + type + ".", log));
+	/**
+	 * Gets the compilation status of this shader, which waits for the compilation to finish.
+	 *
+	 * @return the error logs if the shader couldn't be compiled, otherwise empty
+	 */
+	Optional<String> getCompilationLog() {
+		if (GL.get().getShaderiv(this.id, GL.GL20.COMPILE_STATUS) == 0) {
+			int length = GL.get().getShaderiv(this.id, GL.GL20.INFO_LOG_LENGTH);
+			return Optional.of(GL.get().getShaderInfoLog(this.id, length));
 		}
 
-		return Result.ok(new Shader(type, id));
+		return Optional.empty();
 	}
 
 	@Override
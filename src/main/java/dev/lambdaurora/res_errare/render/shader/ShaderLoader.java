@@ -19,7 +19,11 @@ package dev.lambdaurora.res_errare.render.shader;
 
 import dev.lambdaurora.res_errare.parser.token.UnknownTokenException;
 import dev.lambdaurora.res_errare.render.shader.error.ShaderPreprocessError;
+import dev.lambdaurora.res_errare.render.shader.parser.PreprocessorExpression;
 import dev.lambdaurora.res_errare.render.shader.parser.ShaderLexer;
+import dev.lambdaurora.res_errare.render.shader.parser.ShaderMacro;
+import dev.lambdaurora.res_errare.render.shader.parser.ShaderToken;
+import dev.lambdaurora.res_errare.render.shader.parser.ShaderTokenType;
 import dev.lambdaurora.res_errare.resource.ResourceManager;
 import dev.lambdaurora.res_errare.resource.ResourceType;
 import dev.lambdaurora.res_errare.util.Identifier;
@@ -30,84 +34,442 @@ import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import org.jetbrains.annotations.Nullable;
 
 import java.io.IOException;
-import java.util.ArrayList;
-import java.util.Map;
-
-public record ShaderLoader(ResourceManager resourceManager) {
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+
+/**
+ * Represents a shader source loader, resolves the {@code #include} directives of the shader sources
+ * and evaluates their conditional directives.
+ * <p>
+ * Files are lexed once, their tokens are kept in a {@link SourceCache} as long as their content does not change.
+ * An included file is skipped if it has been included before and either uses {@code #pragma once}
+ * or is wrapped in an include guard whose macro has been defined. Include cycles are reported with the chain of includes.
+ * <p>
+ * The preprocessed source holds {@code #line} directives, so the compilation logs refer to the line of the original file,
+ * see {@link PreprocessedShader#mapLog(String)}.
+ *
+ * @param resourceManager the resource manager the sources are read from
+ * @param cache the cache of the lexed sources
+ */
+public record ShaderLoader(ResourceManager resourceManager, SourceCache cache) {
 	public static final ShaderLoader DEFAULT_LOADER = new ShaderLoader(ResourceManager.getDefault(ResourceType.ASSETS));
 	private static final String SHADER_BASE_PATH = "shaders";
 
+	public ShaderLoader(ResourceManager resourceManager) {
+		this(resourceManager, new SourceCache());
+	}
+
 	public String getRawShaderSource(Identifier shaderId) throws IOException {
 		return this.resourceManager.getStringFrom(shaderId.prepend(SHADER_BASE_PATH));
 	}
 
 	public Result<String, Shader.CreationException> loadShaderSource(Identifier shaderId) {
-		try {
-			var source = this.getRawShaderSource(shaderId);
+		return this.loadShaderSource(shaderId, dependency -> {
+		});
+	}
+
+	/**
+	 * Loads and preprocesses the source of the given shader.
+	 *
+	 * @param shaderId the identifier of the shader source, relative to the shaders directory
+	 * @param dependencies receives the resource identifier of the shader and of every file it includes, transitively
+	 * @return the preprocessed source if successful, else an error
+	 */
+	public Result<String, Shader.CreationException> loadShaderSource(Identifier shaderId, Consumer<Identifier> dependencies) {
+		return this.load(shaderId, dependencies).map(PreprocessedShader::source);
+	}
 
-			return this.preprocessSource(source).mapError(Shader.CreationException::new);
-		} catch (IOException e) {
-			return Result.fail(new Shader.CreationException("Could not loader shader " + shaderId + ".", e));
+	/**
+	 * Loads and preprocesses the source of the given shader.
+	 *
+	 * @param shaderId the identifier of the shader source, relative to the shaders directory
+	 * @param dependencies receives the resource identifier of the shader and of every file it includes, transitively
+	 * @return the preprocessed shader if successful, else an error
+	 */
+	public Result<PreprocessedShader, Shader.CreationException> load(Identifier shaderId, Consumer<Identifier> dependencies) {
+		return this.load(shaderId, Map.of(), dependencies);
+	}
+
+	/**
+	 * Loads and preprocesses the source of the given shader with the given macros defined.
+	 * <p>
+	 * The macros are defined right after the {@code #version} directive, the conditional directives are evaluated with them.
+	 *
+	 * @param shaderId the identifier of the shader source, relative to the shaders directory
+	 * @param defines the macros to define, by name
+	 * @param dependencies receives the resource identifier of the shader and of every file it includes, transitively
+	 * @return the preprocessed shader if successful, else an error
+	 */
+	public Result<PreprocessedShader, Shader.CreationException> load(Identifier shaderId, Map<String, String> defines,
+	                                                                 Consumer<Identifier> dependencies) {
+		Unit unit;
+		try {
+			unit = new Unit(defines, dependencies);
+		} catch (ShaderPreprocessError e) {
+			return Result.fail(e);
 		}
+
+		var result = unit.include(shaderId);
+		if (result.hasError())
+			return Result.fail(result.getError());
+
+		return Result.ok(unit.finish());
 	}
 
 	public Result<String, ShaderPreprocessError> preprocessSource(String source) {
-		var lexer = new ShaderLexer(source);
+		return this.preprocessSource(source, dependency -> {
+		});
+	}
 
-		var processedSource = new StringBuilder();
-		while (lexer.hasNext()) {
+	/**
+	 * Preprocesses the given shader source.
+	 *
+	 * @param source the shader source
+	 * @param dependencies receives the resource identifier of every file included, transitively
+	 * @return the preprocessed source if successful, else an error
+	 */
+	public Result<String, ShaderPreprocessError> preprocessSource(String source, Consumer<Identifier> dependencies) {
+		var unit = new Unit(Map.of(), dependencies);
+
+		try {
+			var result = unit.process(null, SourceCache.lex(source));
+			if (result.hasError())
+				return Result.fail(result.getError());
+		} catch (UnknownTokenException e) {
+			return Result.fail(new ShaderPreprocessError(e));
+		}
+
+		return Result.ok(unit.finish().source());
+	}
+
+	/**
+	 * Represents the preprocessing of a single shader.
+	 * <p>
+	 * The conditional directives are evaluated and removed, the code of the skipped blocks is replaced by its line breaks
+	 * so the line numbers are kept. The other directives are kept for the driver.
+	 */
+	private final class Unit {
+		private final Map<String, String> defines;
+		private final Consumer<Identifier> dependencies;
+		private final StringBuilder output = new StringBuilder();
+		private final List<@Nullable Identifier> files = new ArrayList<>();
+		private final Deque<Identifier> includeStack = new ArrayDeque<>();
+		private final Set<Identifier> included = new HashSet<>();
+		private final Set<Identifier> includedOnce = new HashSet<>();
+		private final Map<String, ShaderMacro> macros = new HashMap<>();
+		private boolean definesEmitted = false;
+		private int version = 0;
+		private boolean versionEs = false;
+
+		private Unit(Map<String, String> defines, Consumer<Identifier> dependencies) {
+			// Sorted so the same set of macros always gives the same source.
+			this.defines = new TreeMap<>(defines);
+			this.dependencies = dependencies;
+
+			this.defines.forEach((name, value) -> this.macros.put(name, ShaderMacro.of(name, value)));
+		}
+
+		private Result<Void, ShaderPreprocessError> include(Identifier shaderId) {
+			var resourceId = shaderId.prepend(SHADER_BASE_PATH);
+			this.dependencies.accept(resourceId);
+
+			SourceCache.Entry source;
 			try {
-				var token = lexer.next();
-
-				switch (token.type()) {
-					case CHAR, STRING -> processedSource.append(token.value());
-					case DIRECTIVE -> {
-						var result = readPreprocessorDirective(token.value());
-						if (result.hasError())
-							return Result.fail(result.getError());
-
-						if (result.get().directive() == DirectiveType.INCLUDE) {
-							var params = result.get().params();
-							if (params.length != 1)
-								return Result.fail(new ShaderPreprocessError("Malformed include directive \"" + token.value() + "\" at line "
-										+ token.line() + ": expected 1 parameter found " + params.length + "."));
-
-							try {
-								var id = new Identifier(params[0]);
-
-								var loadedShader = this.loadShaderSource(id);
-								if (loadedShader.hasError())
-									return loadedShader.mapError(ShaderPreprocessError::new);
-
-								processedSource.append('\n').append(loadedShader.get()).append('\n');
-							} catch (InvalidIdentifierException e) {
-								return Result.fail(new ShaderPreprocessError("Cannot include shader " + params[0] + " as the given identifier is invalid.", e));
+				source = ShaderLoader.this.cache.get(resourceId, ShaderLoader.this.getRawShaderSource(shaderId));
+			} catch (IOException e) {
+				return Result.fail(new ShaderPreprocessError("Could not load shader " + shaderId + ".", e));
+			} catch (UnknownTokenException e) {
+				return Result.fail(new ShaderPreprocessError("Could not lex shader " + shaderId + ".", e));
+			}
+
+			// A guarded file is skipped before checking for cycles, only unguarded re-entries are cycles.
+			if (this.included.contains(shaderId)
+					&& (this.includedOnce.contains(shaderId) || (source.guard() != null && this.macros.containsKey(source.guard()))))
+				return Result.ok(null);
+
+			if (this.includeStack.contains(shaderId)) {
+				var chain = new ArrayList<>(this.includeStack);
+				Collections.reverse(chain);
+				chain.add(shaderId);
+				return Result.fail(new ShaderPreprocessError("Include cycle: "
+						+ chain.stream().map(Identifier::toString).collect(Collectors.joining(" -> ")) + "."));
+			}
+
+			this.included.add(shaderId);
+			this.includeStack.push(shaderId);
+			var result = this.process(shaderId, source.tokens());
+			this.includeStack.pop();
+			return result;
+		}
+
+		private Result<Void, ShaderPreprocessError> process(@Nullable Identifier file, List<ShaderToken> tokens) {
+			int fileIndex = this.fileIndex(file);
+			var conditionals = new ArrayDeque<Conditional>();
+
+			for (var token : tokens) {
+				boolean active = conditionals.isEmpty() || conditionals.peek().active;
+
+				if (token.type() != ShaderTokenType.DIRECTIVE) {
+					if (active)
+						token.appendTo(this.output);
+					else
+						this.appendLineBreaks(token);
+					continue;
+				}
+
+				int line = token.line() + 1;
+				var result = readPreprocessorDirective(token.value());
+				if (result.hasError()) {
+					if (active)
+						return Result.fail(new ShaderPreprocessError(result.getError().getMessage() + " At line " + line + " of "
+								+ describe(file) + "."));
+
+					// Skipped blocks may hold anything.
+					this.appendLineBreaks(token);
+					continue;
+				}
+
+				var directive = result.get();
+				try {
+					switch (directive.directive()) {
+						case IF, IFDEF, IFNDEF -> {
+							boolean value = active && this.evaluate(directive, file, line);
+							conditionals.push(new Conditional(active, value, line));
+							this.appendLineBreaks(token);
+						}
+						case ELIF, ELSE -> {
+							var conditional = conditionals.peek();
+							if (conditional == null || conditional.hasElse)
+								throw error("Unexpected #" + directive.directive().getName() + ".", file, line);
+
+							if (directive.directive() == DirectiveType.ELSE) {
+								conditional.active = conditional.parentActive && !conditional.taken;
+								conditional.hasElse = true;
+							} else {
+								conditional.active = conditional.parentActive && !conditional.taken && this.evaluate(directive, file, line);
 							}
-						} else {
-							processedSource.append(result.get().raw());
+
+							conditional.taken |= conditional.active;
+							this.appendLineBreaks(token);
 						}
-					}
-					case RAW -> {
-						var lines = token.value().split("\n");
-
-						for (int i = 0; i < lines.length; i++) {
-							int line = token.line() + i;
-							lines[i] = lines[i].replace("__LINE__", String.valueOf(line));
-							processedSource.append(lines[i]);
-							if (i != lines.length - 1)
-								processedSource.append('\n');
+						case ENDIF -> {
+							if (conditionals.isEmpty())
+								throw error("Unexpected #endif.", file, line);
+
+							conditionals.pop();
+							this.appendLineBreaks(token);
+						}
+						default -> {
+							if (!active) {
+								this.appendLineBreaks(token);
+								continue;
+							}
+
+							var processed = this.processDirective(directive, token, file, fileIndex, line);
+							if (processed.hasError())
+								return processed;
 						}
 					}
+				} catch (ShaderPreprocessError e) {
+					return Result.fail(e);
 				}
-			} catch (UnknownTokenException e) {
-				return Result.fail(new ShaderPreprocessError(e));
+			}
+
+			if (!conditionals.isEmpty())
+				return Result.fail(error("Unterminated conditional directive.", file, conditionals.peek().line));
+
+			return Result.ok(null);
+		}
+
+		private Result<Void, ShaderPreprocessError> processDirective(PreProcessorDirective directive, ShaderToken token,
+		                                                             @Nullable Identifier file, int fileIndex, int line) {
+			switch (directive.directive()) {
+				case INCLUDE -> {
+					var params = directive.params();
+					if (params.length != 1)
+						return Result.fail(new ShaderPreprocessError("Malformed include directive \"" + token.value() + "\" at line "
+								+ line + " of " + describe(file) + ": expected 1 parameter found " + params.length + "."));
+
+					Identifier id;
+					try {
+						id = new Identifier(params[0]);
+					} catch (InvalidIdentifierException e) {
+						return Result.fail(new ShaderPreprocessError("Cannot include shader " + params[0] + " at line " + line
+								+ " of " + describe(file) + " as the given identifier is invalid.", e));
+					}
+
+					int start = this.output.length();
+					var included = this.include(id);
+					if (included.hasError())
+						return included;
+
+					// Skipped includes leave the line empty, the line numbers are unchanged.
+					if (this.output.length() != start) {
+						if (this.output.charAt(this.output.length() - 1) != '\n')
+							this.output.append('\n');
+						this.output.insert(start, this.lineDirective(1, this.fileIndex(id)) + '\n');
+						this.output.append(this.lineDirective(line + 1, fileIndex));
+					}
+				}
+				case PRAGMA -> {
+					if (directive.params().length >= 1 && directive.params()[0].equals("once")) {
+						if (file != null)
+							this.includedOnce.add(file);
+					} else {
+						this.output.append(directive.raw());
+					}
+				}
+				case VERSION -> {
+					this.output.append(directive.raw());
+					this.readVersion(directive.raw());
+
+					this.output.append('\n');
+					if (this.includeStack.size() <= 1) {
+						this.output.append(this.definitions());
+						this.definesEmitted = true;
+					}
+
+					// #version must come first, the line numbers are set right after it.
+					this.output.append(this.lineDirective(line + 1, fileIndex));
+				}
+				case DEFINE -> {
+					try {
+						var macro = ShaderMacro.parse(directiveArgument(directive));
+						this.macros.put(macro.name(), macro);
+					} catch (ShaderPreprocessError e) {
+						throw error(e.getMessage(), file, line);
+					}
+					this.output.append(directive.raw());
+				}
+				case UNDEF -> {
+					this.macros.remove(directiveArgument(directive));
+					this.output.append(directive.raw());
+				}
+				case ERROR -> throw error("#error " + directiveArgument(directive), file, line);
+				default -> this.output.append(directive.raw());
+			}
+
+			return Result.ok(null);
+		}
+
+		/**
+		 * Evaluates the condition of the given conditional directive.
+		 */
+		private boolean evaluate(PreProcessorDirective directive, @Nullable Identifier file, int line) {
+			var argument = directiveArgument(directive);
+
+			try {
+				return switch (directive.directive()) {
+					case IFDEF, IFNDEF -> {
+						if (!PreprocessorExpression.isIdentifier(argument))
+							throw new ShaderPreprocessError("Expected a macro name, found \"" + argument + "\".");
+
+						yield this.macros.containsKey(argument) == (directive.directive() == DirectiveType.IFDEF);
+					}
+					default -> PreprocessorExpression.evaluate(argument, this.macros) != 0;
+				};
+			} catch (ShaderPreprocessError e) {
+				throw error(e.getMessage(), file, line);
 			}
 		}
 
-		return Result.ok(processedSource.append('\n').toString());
+		private void appendLineBreaks(ShaderToken token) {
+			this.output.append("\n".repeat(token.lineBreaks()));
+		}
+
+		private int fileIndex(@Nullable Identifier file) {
+			int index = this.files.indexOf(file);
+			if (index == -1) {
+				index = this.files.size();
+				this.files.add(file);
+			}
+			return index;
+		}
+
+		private void readVersion(String raw) {
+			var params = raw.substring("#version".length()).trim().split("\\s+");
+
+			try {
+				this.version = Integer.parseInt(params[0]);
+				this.versionEs = params.length > 1 && params[1].equals("es");
+			} catch (NumberFormatException e) {
+				this.version = 0;
+			}
+
+			this.macros.put("__VERSION__", ShaderMacro.of("__VERSION__", String.valueOf(this.version)));
+			if (this.versionEs)
+				this.macros.put("GL_ES", ShaderMacro.of("GL_ES", "1"));
+			else if (this.version >= 150 && (params.length == 1 || params[1].equals("core")))
+				this.macros.put("GL_core_profile", ShaderMacro.of("GL_core_profile", "1"));
+		}
+
+		/**
+		 * {@return the definitions of the macros given to the preprocessing, each followed by a line break}
+		 */
+		private String definitions() {
+			var definitions = new StringBuilder();
+			this.defines.forEach((name, value) -> definitions.append("#define ").append(name).append(' ').append(value.strip()).append('\n'));
+			return definitions.toString();
+		}
+
+		/**
+		 * {@return the {@code #line} directive numbering the next line with the given line}
+		 * <p>
+		 * Before GLSL 4.20, the line given to {@code #line} is the number of the directive itself.
+		 */
+		private String lineDirective(int nextLine, int fileIndex) {
+			// Without a version directive, the shader is GLSL 1.10.
+			boolean legacy = this.version < 420 && !this.versionEs;
+			return "#line " + (legacy ? nextLine - 1 : nextLine) + ' ' + fileIndex;
+		}
+
+		private PreprocessedShader finish() {
+			if (!this.definesEmitted && !this.defines.isEmpty())
+				this.output.insert(0, this.definitions() + this.lineDirective(1, 0) + '\n');
+
+			return new PreprocessedShader(this.output.append('\n').toString(), Collections.unmodifiableList(this.files));
+		}
+	}
+
+	/**
+	 * Represents an {@code #if} block being preprocessed.
+	 */
+	private static final class Conditional {
+		private final boolean parentActive;
+		private final int line;
+		private boolean active;
+		private boolean taken;
+		private boolean hasElse = false;
+
+		private Conditional(boolean parentActive, boolean active, int line) {
+			this.parentActive = parentActive;
+			this.active = active;
+			this.taken = active;
+			this.line = line;
+		}
 	}
 
-	private Result<PreProcessorDirective, ShaderPreprocessError> readPreprocessorDirective(String line) {
+	private static ShaderPreprocessError error(String message, @Nullable Identifier file, int line) {
+		return new ShaderPreprocessError(message + " At line " + line + " of " + describe(file) + ".");
+	}
+
+	private static String describe(@Nullable Identifier file) {
+		return file == null ? "the source" : file.toString();
+	}
+
+	/**
+	 * {@return the argument of the given directive, without line continuations and comments}
+	 */
+	private static String directiveArgument(PreProcessorDirective directive) {
+		var text = directive.raw().replaceAll("\\\\\\r?\\n", " ").replaceAll("/\\*.*?\\*/|/\\*.*|//.*", " ");
+		int start = text.indexOf(directive.directive().getName()) + directive.directive().getName().length();
+		return text.substring(start).strip();
+	}
+
+	private static Result<PreProcessorDirective, ShaderPreprocessError> readPreprocessorDirective(String line) {
 		var directiveName = new StringBuilder();
 		boolean hasSeenNormalCharacter = false;
 		int i;
@@ -125,7 +487,7 @@ public record ShaderLoader(ResourceManager resourceManager) {
 
 		var type = DirectiveType.byName(directiveName.toString());
 		if (type == null)
-			return Result.fail(new ShaderPreprocessError("Could not find "));
+			return Result.fail(new ShaderPreprocessError("Could not find preprocessor directive \"" + directiveName + "\" in \"" + line + "\"."));
 
 		var params = new ArrayList<String>();
 		for (int j = i; j < line.length(); j++) {
@@ -146,16 +508,173 @@ public record ShaderLoader(ResourceManager resourceManager) {
 		return Result.ok(new PreProcessorDirective(type, line, params.toArray(String[]::new)));
 	}
 
+	/**
+	 * Represents a cache of lexed shader sources.
+	 * <p>
+	 * An entry is reused as long as the content of its file is unchanged, which allows to share the cache
+	 * between a loader and the hot reloading of shaders.
+	 */
+	public static final class SourceCache {
+		private final Map<Identifier, Entry> entries = new ConcurrentHashMap<>();
+		private final AtomicLong hits = new AtomicLong();
+		private final AtomicLong misses = new AtomicLong();
+
+		/**
+		 * Gets the lexed tokens of the given source, lexes the source if it is not cached or has changed.
+		 *
+		 * @param id the resource identifier of the source
+		 * @param source the current content of the source
+		 * @return the cache entry of the source
+		 * @throws UnknownTokenException if the source cannot be lexed
+		 */
+		public Entry get(Identifier id, String source) {
+			var entry = this.entries.get(id);
+
+			if (entry != null && entry.hash() == source.hashCode() && entry.source().equals(source)) {
+				this.hits.incrementAndGet();
+				return entry;
+			}
+
+			this.misses.incrementAndGet();
+			var tokens = lex(source);
+			entry = new Entry(source, source.hashCode(), tokens, findIncludeGuard(tokens));
+			this.entries.put(id, entry);
+			return entry;
+		}
+
+		/**
+		 * Removes the given source from this cache.
+		 *
+		 * @param id the resource identifier of the source
+		 */
+		public void invalidate(Identifier id) {
+			this.entries.remove(id);
+		}
+
+		/**
+		 * Removes every source from this cache.
+		 */
+		public void clear() {
+			this.entries.clear();
+		}
+
+		/**
+		 * {@return the number of sources in this cache}
+		 */
+		public int size() {
+			return this.entries.size();
+		}
+
+		/**
+		 * {@return the number of lookups which reused a cached source}
+		 */
+		public long hits() {
+			return this.hits.get();
+		}
+
+		/**
+		 * {@return the number of lookups which lexed a source}
+		 */
+		public long misses() {
+			return this.misses.get();
+		}
+
+		private static List<ShaderToken> lex(String source) {
+			var lexer = new ShaderLexer(source);
+			var tokens = new ArrayList<ShaderToken>();
+
+			while (lexer.hasNext()) {
+				tokens.add(lexer.next());
+			}
+
+			return List.copyOf(tokens);
+		}
+
+		/**
+		 * Finds the include guard of the given tokens.
+		 * <p>
+		 * A source is guarded if its first directive is {@code #ifndef X} directly followed by {@code #define X},
+		 * and if its last directive is the matching {@code #endif} with only whitespaces after it.
+		 *
+		 * @param tokens the tokens of the source
+		 * @return the guard macro if the source is guarded, else {@code null}
+		 */
+		private static @Nullable String findIncludeGuard(List<ShaderToken> tokens) {
+			var directives = new ArrayList<PreProcessorDirective>();
+			int last = -1;
+
+			for (int i = 0; i < tokens.size(); i++) {
+				var token = tokens.get(i);
+
+				if (token.type() == ShaderTokenType.DIRECTIVE) {
+					var directive = readPreprocessorDirective(token.value());
+					if (directive.hasError())
+						return null;
+					directives.add(directive.get());
+					last = i;
+				} else if (directives.isEmpty() && !token.isBlank()) {
+					// Code before the guard.
+					return null;
+				}
+			}
+
+			if (directives.size() < 3)
+				return null;
+
+			for (int i = last + 1; i < tokens.size(); i++) {
+				if (!tokens.get(i).isBlank())
+					return null;
+			}
+
+			var ifndef = directives.get(0);
+			var define = directives.get(1);
+			if (ifndef.directive() != DirectiveType.IFNDEF || define.directive() != DirectiveType.DEFINE
+					|| directives.get(directives.size() - 1).directive() != DirectiveType.ENDIF
+					|| ifndef.params().length == 0 || define.params().length == 0
+					|| !ifndef.params()[0].equals(define.params()[0]))
+				return null;
+
+			// The first #ifndef must be closed by the last #endif.
+			int depth = 0;
+			for (int i = 0; i < directives.size() - 1; i++) {
+				switch (directives.get(i).directive()) {
+					case IF, IFDEF, IFNDEF -> depth++;
+					case ENDIF -> depth--;
+					default -> {
+					}
+				}
+
+				if (depth == 0)
+					return null;
+			}
+
+			return ifndef.params()[0];
+		}
+
+		/**
+		 * Represents a cached source.
+		 *
+		 * @param source the content of the source
+		 * @param hash the hash of the content
+		 * @param tokens the lexed tokens of the source
+		 * @param guard the include guard macro of the source, or {@code null} if the source is not guarded
+		 */
+		public record Entry(String source, int hash, List<ShaderToken> tokens, @Nullable String guard) {
+		}
+	}
+
 	public enum DirectiveType {
 		DEFINE("define", -1),
 		ELIF("elif", -1),
 		ELSE("else", 0),
 		ENDIF("endif", 0),
 		ERROR("error", -1),
+		EXTENSION("extension", -1),
 		IF("if", -1),
 		IFDEF("ifdef", 1),
 		IFNDEF("ifndef", 1),
 		INCLUDE("include", 1),
+		LINE("line", -1),
 		PRAGMA("pragma", -1),
 		UNDEF("undef", 1),
 		VERSION("version", 1);
@@ -19,20 +19,106 @@ package dev.lambdaurora.res_errare.render.shader;
 
 import dev.lambdaurora.res_errare.system.GL;
 import dev.lambdaurora.res_errare.util.Result;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import org.jetbrains.annotations.Nullable;
 import org.joml.Matrix4f;
 import org.joml.Vector3f;
 
 import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 
-public record ShaderProgram(int id) implements AutoCloseable {
+public final class ShaderProgram implements AutoCloseable {
+	private static final Uniform[] NO_UNIFORMS = new Uniform[0];
+	private final int id;
+	private final Map<String, Uniform> uniformsByName = new Object2ObjectOpenHashMap<>();
+	private Uniform[] uniforms = NO_UNIFORMS;
+
+	public ShaderProgram(int id) {
+		this.id = id;
+	}
+
+	/**
+	 * {@return the OpenGL identifier of this program}
+	 */
+	public int id() {
+		return this.id;
+	}
+
 	public void use() {
 		GL.get().useProgram(this.id);
 	}
 
-	private int getUniformLocation(String name) {
-		return GL.get().getUniformLocation(this.id, name);
+	/**
+	 * {@return the active uniforms of this program, queried once the program is linked}
+	 */
+	public List<Uniform> uniforms() {
+		return List.of(this.uniforms);
+	}
+
+	/**
+	 * {@return the uniform at the given index, the index being the one of {@link #getUniformIndex(String)}}
+	 *
+	 * @param index the index of the uniform
+	 */
+	public Uniform getUniform(int index) {
+		return this.uniforms[index];
+	}
+
+	/**
+	 * {@return the index of the given uniform, or {@code -1} if the uniform is not active in this program}
+	 *
+	 * @param name the name of the uniform
+	 */
+	public int getUniformIndex(String name) {
+		var uniform = this.uniformsByName.get(name);
+
+		if (uniform == null)
+			return -1;
+
+		for (int i = 0; i < this.uniforms.length; i++) {
+			if (this.uniforms[i] == uniform)
+				return i;
+		}
+
+		return -1;
+	}
+
+	/**
+	 * {@return the uniform of the given name, or {@code null} if the uniform is not active in this program}
+	 *
+	 * @param name the name of the uniform
+	 */
+	public @Nullable Uniform getUniform(String name) {
+		return this.uniformsByName.get(name);
+	}
+
+	/**
+	 * Gets the uniform of the given name and checks that it can be set with values of the given type.
+	 *
+	 * @param name the name of the uniform
+	 * @param valueType the type of the values which will be set
+	 * @return the uniform, or {@code null} if the uniform is not active in this program
+	 * @throws IllegalArgumentException if the uniform type doesn't accept the given value type
+	 */
+	public @Nullable Uniform getUniform(String name, UniformType valueType) {
+		var uniform = this.uniformsByName.get(name);
+
+		if (uniform != null)
+			uniform.checkType(valueType);
+
+		return uniform;
+	}
+
+	/**
+	 * {@return the location of the given uniform, or {@code -1} if the uniform is not active in this program}
+	 *
+	 * @param name the name of the uniform
+	 */
+	public int getUniformLocation(String name) {
+		var uniform = this.uniformsByName.get(name);
+		return uniform == null ? -1 : uniform.location();
 	}
 
 	public void setBool(String name, boolean value) {
@@ -40,15 +126,27 @@ public record ShaderProgram(int id) implements AutoCloseable {
 	}
 
 	public void setInt(String name, int value) {
-		GL.get().uniform1i(this.getUniformLocation(name), value);
+		this.setInt(this.getUniformLocation(name, UniformType.INT), value);
+	}
+
+	public void setInt(int location, int value) {
+		GL.get().uniform1i(location, value);
 	}
 
 	public void setFloat(String name, float value) {
-		GL.get().uniform1f(this.getUniformLocation(name), value);
+		this.setFloat(this.getUniformLocation(name, UniformType.FLOAT), value);
+	}
+
+	public void setFloat(int location, float value) {
+		GL.get().uniform1f(location, value);
 	}
 
 	public void setVec3f(String name, Vector3f value) {
-		GL.get().uniform3f(this.getUniformLocation(name), value.x(), value.y(), value.z());
+		this.setVec3f(this.getUniformLocation(name, UniformType.VEC3F), value);
+	}
+
+	public void setVec3f(int location, Vector3f value) {
+		GL.get().uniform3f(location, value.x(), value.y(), value.z());
 	}
 
 	public void setMatrix4f(String name, Matrix4f value) {
@@ -56,7 +154,54 @@ public record ShaderProgram(int id) implements AutoCloseable {
 	}
 
 	public void setMatrix4f(String name, Matrix4f value, boolean transpose) {
-		GL.get().uniformMatrix4fv(this.getUniformLocation(name), transpose, value);
+		this.setMatrix4f(this.getUniformLocation(name, UniformType.MAT4F), value, transpose);
+	}
+
+	public void setMatrix4f(int location, Matrix4f value, boolean transpose) {
+		GL.get().uniformMatrix4fv(location, transpose, value);
+	}
+
+	private int getUniformLocation(String name, UniformType valueType) {
+		var uniform = this.getUniform(name, valueType);
+		return uniform == null ? -1 : uniform.location();
+	}
+
+	/**
+	 * Queries every active uniform of this program and caches them.
+	 */
+	private void queryUniforms() {
+		this.uniformsByName.clear();
+
+		int count = GL.get().getProgramiv(this.id, GL.GL20.ACTIVE_UNIFORMS);
+		if (count == 0) {
+			this.uniforms = NO_UNIFORMS;
+			return;
+		}
+
+		int maxNameLength = GL.get().getProgramiv(this.id, GL.GL20.ACTIVE_UNIFORM_MAX_LENGTH);
+		var uniforms = new ArrayList<Uniform>(count);
+
+		for (int i = 0; i < count; i++) {
+			var activeUniform = GL.get().getActiveUniform(this.id, i, maxNameLength);
+			int location = GL.get().getUniformLocation(this.id, activeUniform.name());
+
+			// Members of uniform blocks don't have a location.
+			if (location == -1)
+				continue;
+
+			var name = activeUniform.name();
+			// Arrays are reported with their first element, they are accessible with their base name too.
+			if (name.endsWith("[0]"))
+				name = name.substring(0, name.length() - 3);
+
+			var uniform = new Uniform(name, location, UniformType.byId(activeUniform.type()), activeUniform.size());
+			uniforms.add(uniform);
+			this.uniformsByName.put(name, uniform);
+			if (!name.equals(activeUniform.name()))
+				this.uniformsByName.put(activeUniform.name(), uniform);
+		}
+
+		this.uniforms = uniforms.toArray(Uniform[]::new);
 	}
 
 	/**
@@ -88,7 +233,16 @@ public record ShaderProgram(int id) implements AutoCloseable {
 	 */
 	public Optional<String> link() {
 		GL.get().linkProgram(this.id());
+		return this.finishLink();
+	}
 
+	/**
+	 * Gets the linkage status of this program, which waits for the linkage to finish, and queries its uniforms if linked.
+	 *
+	 * @return the error logs if the program couldn't be linked, otherwise empty
+	 * @see ProgramCompiler
+	 */
+	Optional<String> finishLink() {
 		if (GL.get().getProgramiv(this.id(), GL.GL20.LINK_STATUS) == 0) {
 			int length = GL.get().getProgramiv(this.id(), GL.GL20.INFO_LOG_LENGTH);
 			var log = GL.get().getProgramInfoLog(this.id(), length);
@@ -96,9 +250,68 @@ public record ShaderProgram(int id) implements AutoCloseable {
 			return Optional.of(log);
 		}
 
+		this.queryUniforms();
 		return Optional.empty();
 	}
 
+	/**
+	 * {@return the binary of this linked program}
+	 * <p>
+	 * The program should have been built with {@link Builder#retrievableBinary()} for the driver to keep the binary around.
+	 */
+	public GL.ProgramBinary getBinary() {
+		int length = GL.get().getProgramiv(this.id, GL.GL41.PROGRAM_BINARY_LENGTH);
+		return GL.get().getProgramBinary(this.id, length);
+	}
+
+	/**
+	 * Creates a program from the binary of a previously linked program.
+	 *
+	 * @param binary the binary of the program
+	 * @return the program, or empty if the driver rejected the binary
+	 */
+	public static Optional<ShaderProgram> ofBinary(GL.ProgramBinary binary) {
+		var program = new ShaderProgram(GL.get().createProgram());
+		GL.get().programBinary(program.id(), binary);
+
+		// The driver rejects binaries of other drivers or driver versions.
+		if (GL.get().getProgramiv(program.id(), GL.GL20.LINK_STATUS) == 0) {
+			program.close();
+			return Optional.empty();
+		}
+
+		program.queryUniforms();
+		return Optional.of(program);
+	}
+
+	/**
+	 * Compiles the given shaders and links them into a program.
+	 *
+	 * @param sources the preprocessed shaders, by type
+	 * @param retrievableBinary {@code true} if the binary of the program will be retrieved, else {@code false}
+	 * @return the program if the compilation and linkage succeeded, else an error
+	 */
+	static Result<ShaderProgram, RuntimeException> link(Map<ShaderType, PreprocessedShader> sources, boolean retrievableBinary) {
+		var compiled = new ArrayList<Shader>();
+
+		for (var entry : sources.entrySet()) {
+			var shader = Shader.compile(entry.getKey(), entry.getValue());
+
+			if (shader.hasError()) {
+				compiled.forEach(Shader::close);
+				return Result.fail(shader.getError());
+			}
+
+			compiled.add(shader.get());
+		}
+
+		var builder = builder().withCleanup();
+		if (retrievableBinary)
+			builder.retrievableBinary();
+		compiled.forEach(builder::shader);
+		return builder.build().mapError(error -> error);
+	}
+
 	public void dispatchCompute(int numGroupsX, int numGroupsY, int numGroupsZ) {
 		GL.get().dispatchCompute(numGroupsX, numGroupsY, numGroupsZ);
 	}
@@ -119,6 +332,7 @@ public record ShaderProgram(int id) implements AutoCloseable {
 	public static class Builder {
 		private final List<Shader> shaders = new ArrayList<>();
 		private boolean cleanup = false;
+		private boolean retrievableBinary = false;
 
 		public Builder() {
 		}
@@ -137,10 +351,22 @@ public record ShaderProgram(int id) implements AutoCloseable {
 			return this;
 		}
 
+		/**
+		 * Hints the driver that the binary of the program will be retrieved, see {@link ShaderProgram#getBinary()}.
+		 *
+		 * @return this builder
+		 */
+		public Builder retrievableBinary() {
+			this.retrievableBinary = true;
+			return this;
+		}
+
 		public Result<ShaderProgram, LinkageError> build() {
 			var program = new ShaderProgram(GL.get().createProgram());
 
 			this.shaders.forEach(program::attachShader);
+			if (this.retrievableBinary)
+				GL.get().programParameteri(program.id(), GL.GL41.PROGRAM_BINARY_RETRIEVABLE_HINT, 1);
 
 			var linkageResult = program.link();
 
@@ -0,0 +1,380 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.shader;
+
+import dev.lambdaurora.res_errare.resource.ResourceManager;
+import dev.lambdaurora.res_errare.resource.ResourceType;
+import dev.lambdaurora.res_errare.util.Identifier;
+import dev.lambdaurora.res_errare.util.InvalidIdentifierException;
+import dev.lambdaurora.res_errare.util.Result;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Consumer;
+
+/**
+ * Represents a service reloading shader programs when their sources change on disk.
+ * <p>
+ * The directories of the watchable layers of the resource manager are watched on a background thread.
+ * The service keeps the dependency graph of the watched programs, from every source file to the programs
+ * including it directly or transitively, so that a change only rebuilds the affected programs.
+ * <p>
+ * The sources of the affected programs are preprocessed on the background thread,
+ * the programs are then compiled and swapped in on the thread owning the context by {@link #processReloads()}, between frames.
+ * If a program does not compile or link, the previous program is kept and the error is kept in {@link Program#lastError()},
+ * it is also printed in debug mode ({@code res_errare.debug} system property).
+ * <p>
+ * Only shader sources are watched, textures are not reloaded: the heightmap and colormap feed derived data
+ * (the height pyramid and the CPU terrain) which would have to be rebuilt as well.
+ */
+public final class ShaderReloader implements AutoCloseable {
+	/**
+	 * Editors often write a file in several steps, changes are collected until none happened for this long.
+	 */
+	private static final long DEBOUNCE_MILLIS = 100;
+	private static final boolean DEBUG = Boolean.getBoolean("res_errare.debug");
+
+	private final ResourceManager resourceManager;
+	private final ShaderLoader loader;
+	private final WatchService watchService;
+	private final Map<WatchKey, WatchedDirectory> watchedDirectories = new ConcurrentHashMap<>();
+	private final Map<Identifier, Set<Program>> dependents = new HashMap<>();
+	private final Queue<PendingReload> pendingReloads = new ConcurrentLinkedQueue<>();
+	private final Thread thread;
+
+	/**
+	 * Creates a new shader reloader and starts watching the layers of the given resource manager.
+	 *
+	 * @param resourceManager the resource manager of the assets
+	 * @throws IOException if the directories cannot be watched
+	 */
+	public ShaderReloader(ResourceManager resourceManager) throws IOException {
+		this.resourceManager = resourceManager;
+		this.loader = new ShaderLoader(resourceManager);
+		this.watchService = FileSystems.getDefault().newWatchService();
+
+		for (var layer : resourceManager.layers()) {
+			var root = layer.watchRoot();
+			var assets = root == null ? null : root.resolve(ResourceType.ASSETS.directory());
+
+			if (assets != null && Files.isDirectory(assets))
+				this.registerAll(root, assets);
+		}
+
+		this.thread = new Thread(this::watch, "res_errare-shader-reloader");
+		this.thread.setDaemon(true);
+		this.thread.start();
+	}
+
+	/**
+	 * {@return {@code true} if hot reloading is enabled with the {@code res_errare.shaders.hot_reload} system property, else {@code false}}
+	 */
+	public static boolean isEnabled() {
+		return Boolean.getBoolean("res_errare.shaders.hot_reload");
+	}
+
+	/**
+	 * Watches the given program for changes.
+	 *
+	 * @param program the current program
+	 * @param shaders the identifiers of the shaders of the program, by type
+	 * @param defines the macros defined when preprocessing the shaders, by name
+	 * @param onReload called on the thread owning the context with the new program, the previous program is closed right after
+	 * @return the watched program
+	 */
+	public Program watch(ShaderProgram program, Map<ShaderType, Identifier> shaders, Map<String, String> defines,
+	                     Consumer<ShaderProgram> onReload) {
+		var watched = new Program(program, Map.copyOf(shaders), Map.copyOf(defines), onReload);
+
+		var dependencies = new HashSet<Identifier>();
+		shaders.forEach((type, shaderId) -> this.loader.load(Shader.sourceId(type, shaderId), defines, dependencies::add));
+		this.updateDependencies(watched, dependencies);
+
+		return watched;
+	}
+
+	/**
+	 * Watches the given program for changes.
+	 *
+	 * @param program the current program
+	 * @param shaders the identifiers of the shaders of the program, by type
+	 * @param onReload called on the thread owning the context with the new program, the previous program is closed right after
+	 * @return the watched program
+	 */
+	public Program watch(ShaderProgram program, Map<ShaderType, Identifier> shaders, Consumer<ShaderProgram> onReload) {
+		return this.watch(program, shaders, Map.of(), onReload);
+	}
+
+	/**
+	 * Compiles the programs whose sources changed and swaps them in, must be called on the thread owning the context.
+	 *
+	 * @return the number of programs swapped
+	 */
+	public int processReloads() {
+		int swapped = 0;
+
+		PendingReload reload;
+		while ((reload = this.pendingReloads.poll()) != null) {
+			var program = reload.compile();
+
+			if (program.hasError()) {
+				reload.program().lastError = program.getError();
+				if (DEBUG)
+					System.err.println("Could not reload shader program " + reload.program() + ", keeping the previous one: "
+							+ program.getError().getMessage());
+			} else {
+				reload.program().swap(program.get());
+				swapped++;
+				if (DEBUG)
+					System.out.println("Reloaded shader program " + reload.program() + ".");
+			}
+		}
+
+		return swapped;
+	}
+
+	@Override
+	public void close() {
+		try {
+			this.watchService.close();
+		} catch (IOException e) {
+			if (DEBUG) {
+				System.err.println("Could not close the shader reloader watch service.");
+				e.printStackTrace();
+			}
+		}
+
+		try {
+			this.thread.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void registerAll(Path root, Path start) throws IOException {
+		try (var directories = Files.walk(start)) {
+			for (var directory : (Iterable<Path>) directories.filter(Files::isDirectory)::iterator) {
+				var key = directory.register(this.watchService,
+						StandardWatchEventKinds.ENTRY_CREATE, StandardWatchEventKinds.ENTRY_MODIFY, StandardWatchEventKinds.ENTRY_DELETE);
+				this.watchedDirectories.put(key, new WatchedDirectory(root, directory));
+			}
+		}
+	}
+
+	private void watch() {
+		try {
+			while (true) {
+				var changed = new HashSet<Identifier>();
+
+				this.collect(this.watchService.take(), changed);
+				WatchKey key;
+				while ((key = this.watchService.poll(DEBOUNCE_MILLIS, TimeUnit.MILLISECONDS)) != null) {
+					this.collect(key, changed);
+				}
+
+				if (!changed.isEmpty()) {
+					this.resourceManager.refresh();
+					this.schedule(changed);
+				}
+			}
+		} catch (ClosedWatchServiceException | InterruptedException e) {
+			// The reloader is closed.
+		}
+	}
+
+	private void collect(WatchKey key, Set<Identifier> changed) {
+		var watched = this.watchedDirectories.get(key);
+
+		for (var event : key.pollEvents()) {
+			if (watched == null || !(event.context() instanceof Path name))
+				continue;
+
+			var path = watched.directory().resolve(name);
+			if (event.kind() == StandardWatchEventKinds.ENTRY_CREATE && Files.isDirectory(path)) {
+				try {
+					this.registerAll(watched.root(), path);
+				} catch (IOException e) {
+					if (DEBUG)
+						System.err.println("Could not watch directory " + path + ".");
+				}
+			}
+
+			var resourceId = toResourceId(watched.root(), path);
+			if (resourceId != null)
+				changed.add(resourceId);
+		}
+
+		if (!key.reset())
+			this.watchedDirectories.remove(key);
+	}
+
+	private void schedule(Set<Identifier> changed) {
+		var affected = new LinkedHashSet<Program>();
+		synchronized (this.dependents) {
+			for (var resourceId : changed) {
+				affected.addAll(this.dependents.getOrDefault(resourceId, Set.of()));
+			}
+		}
+
+		for (var program : affected) {
+			var dependencies = new HashSet<Identifier>();
+			var sources = new EnumMap<ShaderType, PreprocessedShader>(ShaderType.class);
+			Shader.CreationException error = null;
+
+			for (var entry : program.shaders().entrySet()) {
+				var source = this.loader.load(Shader.sourceId(entry.getKey(), entry.getValue()), program.defines(), dependencies::add);
+				if (source.hasError()) {
+					error = source.getError();
+					break;
+				}
+
+				sources.put(entry.getKey(), source.get());
+			}
+
+			// The includes may have changed even if the program does not compile anymore.
+			this.updateDependencies(program, dependencies);
+
+			if (error != null) {
+				program.lastError = error;
+				if (DEBUG)
+					System.err.println("Could not reload shader program " + program + ", keeping the previous one: " + error.getMessage());
+			} else {
+				this.pendingReloads.add(new PendingReload(program, sources));
+			}
+		}
+	}
+
+	private void updateDependencies(Program program, Set<Identifier> dependencies) {
+		synchronized (this.dependents) {
+			for (var dependency : program.dependencies) {
+				var programs = this.dependents.get(dependency);
+				if (programs != null && programs.remove(program) && programs.isEmpty())
+					this.dependents.remove(dependency);
+			}
+
+			program.dependencies = Set.copyOf(dependencies);
+			for (var dependency : dependencies) {
+				this.dependents.computeIfAbsent(dependency, id -> new HashSet<>()).add(program);
+			}
+		}
+	}
+
+	/**
+	 * {@return the identifier of the asset at the given path of a layer, or {@code null} if the path is not an asset}
+	 */
+	private static @Nullable Identifier toResourceId(Path root, Path path) {
+		var relative = root.relativize(path);
+		// assets/<namespace>/<path>
+		if (relative.getNameCount() < 3 || !relative.getName(0).toString().equals(ResourceType.ASSETS.directory()))
+			return null;
+
+		try {
+			return new Identifier(relative.getName(1).toString(),
+					relative.subpath(2, relative.getNameCount()).toString().replace(path.getFileSystem().getSeparator(), "/"));
+		} catch (InvalidIdentifierException e) {
+			return null;
+		}
+	}
+
+	/**
+	 * Represents a program watched for changes.
+	 */
+	public static final class Program {
+		private final Map<ShaderType, Identifier> shaders;
+		private final Map<String, String> defines;
+		private final Consumer<ShaderProgram> onReload;
+		private ShaderProgram program;
+		private Set<Identifier> dependencies = Set.of();
+		private volatile @Nullable RuntimeException lastError;
+
+		private Program(ShaderProgram program, Map<ShaderType, Identifier> shaders, Map<String, String> defines,
+		                Consumer<ShaderProgram> onReload) {
+			this.program = program;
+			this.shaders = shaders;
+			this.defines = defines;
+			this.onReload = onReload;
+		}
+
+		/**
+		 * {@return the current program}
+		 */
+		public ShaderProgram program() {
+			return this.program;
+		}
+
+		/**
+		 * {@return the identifiers of the shaders of this program, by type}
+		 */
+		public Map<ShaderType, Identifier> shaders() {
+			return this.shaders;
+		}
+
+		/**
+		 * {@return the macros defined when preprocessing the shaders of this program}
+		 */
+		public Map<String, String> defines() {
+			return this.defines;
+		}
+
+		/**
+		 * {@return the resource identifiers of the sources of this program, including the included files}
+		 */
+		public Set<Identifier> dependencies() {
+			return this.dependencies;
+		}
+
+		/**
+		 * {@return the error of the latest failed reload, or {@code null} if the latest reload succeeded}
+		 * <p>
+		 * Compilation and linkage errors hold the log of the driver.
+		 */
+		public @Nullable RuntimeException lastError() {
+			return this.lastError;
+		}
+
+		private void swap(ShaderProgram program) {
+			var previous = this.program;
+			this.program = program;
+			this.lastError = null;
+			this.onReload.accept(program);
+			previous.close();
+		}
+
+		@Override
+		public String toString() {
+			return this.shaders.values().toString();
+		}
+	}
+
+	private record WatchedDirectory(Path root, Path directory) {
+	}
+
+	private record PendingReload(Program program, Map<ShaderType, PreprocessedShader> sources) {
+		/**
+		 * Compiles the shaders and links the program.
+		 */
+		Result<ShaderProgram, RuntimeException> compile() {
+			return ShaderProgram.link(this.sources, false);
+		}
+	}
+}
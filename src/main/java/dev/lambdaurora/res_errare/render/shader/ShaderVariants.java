@@ -0,0 +1,235 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.shader;
+
+import dev.lambdaurora.res_errare.util.Identifier;
+import dev.lambdaurora.res_errare.util.Result;
+
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+/**
+ * Represents a cache of shader program variants, each variant being a set of shaders compiled with a set of macros.
+ * <p>
+ * A variant is compiled the first time it is requested, switching between already compiled variants is a lookup.
+ * The cache owns the programs it holds, they are closed with the cache.
+ * The cache must be used on the thread owning the context.
+ */
+public final class ShaderVariants implements AutoCloseable {
+	private final ShaderLoader loader;
+	private final ProgramCache programCache;
+	private final Map<Variant, ShaderProgram> programs = new HashMap<>();
+	private final Map<Variant, CompletableFuture<ShaderProgram>> pending = new HashMap<>();
+
+	public ShaderVariants() {
+		this(ShaderLoader.DEFAULT_LOADER, ProgramCache.getDefault());
+	}
+
+	/**
+	 * Creates a new cache of shader program variants.
+	 *
+	 * @param loader the loader of the shader sources
+	 * @param programCache the persistent cache of the linked programs
+	 */
+	public ShaderVariants(ShaderLoader loader, ProgramCache programCache) {
+		this.loader = loader;
+		this.programCache = programCache;
+	}
+
+	/**
+	 * Gets the program of the given variant, compiles it if it is not compiled yet.
+	 * <p>
+	 * Failed compilations are not cached.
+	 *
+	 * @param variant the variant
+	 * @return the program if the compilation succeeded, else an error
+	 */
+	public Result<ShaderProgram, RuntimeException> get(Variant variant) {
+		var program = this.programs.get(variant);
+		if (program != null)
+			return Result.ok(program);
+
+		var sources = new EnumMap<ShaderType, PreprocessedShader>(ShaderType.class);
+		for (var entry : variant.shaders().entrySet()) {
+			var source = this.loader.load(Shader.sourceId(entry.getKey(), entry.getValue()), variant.defines(), dependency -> {
+			});
+			if (source.hasError())
+				return Result.fail(source.getError());
+
+			sources.put(entry.getKey(), source.get());
+		}
+
+		var result = this.programCache.link(sources);
+		if (result.hasError())
+			return result;
+
+		this.programs.put(variant, result.get());
+		return result;
+	}
+
+	/**
+	 * Gets the program of the given variant, compiles it if it is not compiled yet.
+	 *
+	 * @param shaders the identifiers of the shaders of the program, by type
+	 * @param defines the macros defined when compiling the shaders, by name
+	 * @return the program if the compilation succeeded, else an error
+	 */
+	public Result<ShaderProgram, RuntimeException> get(Map<ShaderType, Identifier> shaders, Map<String, String> defines) {
+		return this.get(new Variant(shaders, defines));
+	}
+
+	/**
+	 * Gets the program of the given variant, compiles it asynchronously if it is not compiled yet.
+	 * <p>
+	 * Requests of a variant being compiled share the same future. Failed compilations are not cached.
+	 *
+	 * @param variant the variant
+	 * @param compiler the asynchronous compiler of the variant
+	 * @param executor the executor running tasks on the thread owning the context, the program is cached from there
+	 * @return the future program, completed right away if the variant is compiled
+	 */
+	public CompletableFuture<ShaderProgram> get(Variant variant, Function<Variant, CompletableFuture<ShaderProgram>> compiler,
+	                                            Executor executor) {
+		var program = this.programs.get(variant);
+		if (program != null)
+			return CompletableFuture.completedFuture(program);
+
+		var future = this.pending.get(variant);
+		if (future != null)
+			return future;
+
+		// Registered before compiling, the compiler may complete its future right away.
+		var result = new CompletableFuture<ShaderProgram>();
+		this.pending.put(variant, result);
+
+		compiler.apply(variant).whenCompleteAsync((compiled, error) -> {
+			this.pending.remove(variant);
+
+			if (error != null) {
+				result.completeExceptionally(error);
+			} else {
+				this.programs.put(variant, compiled);
+				result.complete(compiled);
+			}
+		}, executor);
+
+		return result;
+	}
+
+	/**
+	 * Watches the program of the given variant for changes, the reloaded program replaces the previous one in this cache.
+	 *
+	 * @param reloader the shader reloader
+	 * @param variant the compiled variant
+	 * @param onReload called on the thread owning the context with the new program
+	 * @return the watched program
+	 * @throws IllegalStateException if the variant is not compiled
+	 */
+	public ShaderReloader.Program watch(ShaderReloader reloader, Variant variant, Consumer<ShaderProgram> onReload) {
+		var program = this.programs.get(variant);
+		if (program == null)
+			throw new IllegalStateException("The variant " + variant + " is not compiled.");
+
+		return reloader.watch(program, variant.shaders(), variant.defines(), reloaded -> {
+			this.programs.put(variant, reloaded);
+			onReload.accept(reloaded);
+		});
+	}
+
+	/**
+	 * {@return {@code true} if the given variant is compiled, else {@code false}}
+	 *
+	 * @param variant the variant
+	 */
+	public boolean contains(Variant variant) {
+		return this.programs.containsKey(variant);
+	}
+
+	/**
+	 * {@return the number of compiled variants}
+	 */
+	public int size() {
+		return this.programs.size();
+	}
+
+	/**
+	 * Closes the program of the given variant and removes it from this cache.
+	 *
+	 * @param variant the variant
+	 */
+	public void remove(Variant variant) {
+		var program = this.programs.remove(variant);
+		if (program != null)
+			program.close();
+	}
+
+	/**
+	 * Closes every compiled program and clears this cache, the variants are compiled again when requested.
+	 */
+	public void clear() {
+		this.programs.values().forEach(ShaderProgram::close);
+		this.programs.clear();
+		this.pending.clear();
+	}
+
+	@Override
+	public void close() {
+		this.clear();
+	}
+
+	/**
+	 * Represents a variant of a shader program.
+	 *
+	 * @param shaders the identifiers of the shaders of the program, by type
+	 * @param defines the macros defined when compiling the shaders, by name
+	 */
+	public record Variant(Map<ShaderType, Identifier> shaders, Map<String, String> defines) {
+		public Variant {
+			shaders = Map.copyOf(shaders);
+			defines = Map.copyOf(defines);
+		}
+
+		/**
+		 * {@return a copy of this variant with the given macro defined}
+		 *
+		 * @param name the name of the macro
+		 * @param value the value of the macro
+		 */
+		public Variant define(String name, String value) {
+			var defines = new HashMap<>(this.defines);
+			defines.put(name, value);
+			return new Variant(this.shaders, defines);
+		}
+
+		/**
+		 * {@return a copy of this variant without the given macro}
+		 *
+		 * @param name the name of the macro
+		 */
+		public Variant undefine(String name) {
+			var defines = new HashMap<>(this.defines);
+			defines.remove(name);
+			return new Variant(this.shaders, defines);
+		}
+	}
+}
@@ -0,0 +1,84 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.shader;
+
+import dev.lambdaurora.res_errare.system.GL;
+import org.joml.Matrix4f;
+import org.joml.Vector3f;
+
+/**
+ * Represents a handle to an active uniform of a {@link ShaderProgram}.
+ * <p>
+ * Handles are queried once after the program is linked, setting a value through a handle doesn't query the driver
+ * for the uniform location.
+ * The program owning the uniform must be in use when setting its value.
+ * <p>
+ * With assertions enabled, setting a value checks that the type of the uniform accepts it,
+ * the check is skipped otherwise as it would be done on every call.
+ *
+ * @param name the name of the uniform
+ * @param location the location of the uniform
+ * @param type the type of the uniform
+ * @param size the array size of the uniform, {@code 1} if the uniform is not an array
+ */
+public record Uniform(String name, int location, UniformType type, int size) {
+	public void set(boolean value) {
+		this.set(value ? 1 : 0);
+	}
+
+	public void set(int value) {
+		assert this.type.accepts(UniformType.INT) : this.typeMismatch(UniformType.INT);
+		GL.get().uniform1i(this.location, value);
+	}
+
+	public void set(float value) {
+		assert this.type.accepts(UniformType.FLOAT) : this.typeMismatch(UniformType.FLOAT);
+		GL.get().uniform1f(this.location, value);
+	}
+
+	public void set(Vector3f value) {
+		assert this.type.accepts(UniformType.VEC3F) : this.typeMismatch(UniformType.VEC3F);
+		GL.get().uniform3f(this.location, value.x(), value.y(), value.z());
+	}
+
+	public void set(Matrix4f value) {
+		this.set(value, false);
+	}
+
+	public void set(Matrix4f value, boolean transpose) {
+		assert this.type.accepts(UniformType.MAT4F) : this.typeMismatch(UniformType.MAT4F);
+		GL.get().uniformMatrix4fv(this.location, transpose, value);
+	}
+
+	/**
+	 * Checks whether this uniform can be set with a value of the given type.
+	 *
+	 * @param valueType the type of the value
+	 * @return this uniform
+	 * @throws IllegalArgumentException if the type of this uniform doesn't accept the given value type
+	 */
+	public Uniform checkType(UniformType valueType) {
+		if (!this.type.accepts(valueType))
+			throw new IllegalArgumentException(this.typeMismatch(valueType));
+		return this;
+	}
+
+	private String typeMismatch(UniformType valueType) {
+		return "Uniform \"" + this.name + "\" of type " + this.type + " cannot be set with a value of type " + valueType + ".";
+	}
+}
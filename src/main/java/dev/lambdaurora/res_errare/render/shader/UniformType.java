@@ -0,0 +1,207 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.shader;
+
+import dev.lambdaurora.res_errare.system.OpenGLIdProvider;
+import dev.lambdaurora.res_errare.system.memory.BufferPacking;
+import dev.lambdaurora.res_errare.util.NativeSizes;
+import org.joml.*;
+
+/**
+ * Represents the type of a uniform as reported by OpenGL.
+ */
+public enum UniformType implements OpenGLIdProvider {
+	FLOAT(0x1406),
+	VEC2F(0x8b50),
+	VEC3F(0x8b51),
+	VEC4F(0x8b52),
+	INT(0x1404),
+	IVEC2(0x8b53),
+	IVEC3(0x8b54),
+	IVEC4(0x8b55),
+	UINT(0x1405),
+	BOOL(0x8b56),
+	MAT2F(0x8b5a),
+	MAT3F(0x8b5b),
+	MAT4F(0x8b5c),
+	SAMPLER_1D(0x8b5d, true),
+	SAMPLER_2D(0x8b5e, true),
+	SAMPLER_3D(0x8b5f, true),
+	SAMPLER_CUBE(0x8b60, true),
+	SAMPLER_2D_SHADOW(0x8b62, true),
+	SAMPLER_2D_ARRAY(0x8dc1, true),
+	IMAGE_2D(0x904d, true),
+	IMAGE_3D(0x904e, true),
+	IMAGE_CUBE(0x9050, true),
+	IMAGE_2D_ARRAY(0x9053, true),
+	INT_IMAGE_2D(0x9058, true),
+	UINT_IMAGE_2D(0x9063, true),
+	/**
+	 * Represents a type which is not known by the engine, no type checking is done on such uniforms.
+	 */
+	UNKNOWN(-1);
+
+	private static final UniformType[] VALUES = values();
+	private final int glId;
+	private final boolean opaque;
+
+	UniformType(int glId) {
+		this(glId, false);
+	}
+
+	UniformType(int glId, boolean opaque) {
+		this.glId = glId;
+		this.opaque = opaque;
+	}
+
+	@Override
+	public int glId() {
+		return this.glId;
+	}
+
+	/**
+	 * {@return {@code true} if this type is an opaque type like a sampler or an image, else {@code false}}
+	 */
+	public boolean isOpaque() {
+		return this.opaque;
+	}
+
+	/**
+	 * {@return {@code true} if a uniform of this type can be set with {@code glUniform1i}, else {@code false}}
+	 */
+	public boolean acceptsInt() {
+		return this == INT || this == BOOL || this == UNKNOWN || this.opaque;
+	}
+
+	/**
+	 * {@return {@code true} if a uniform of this type can be set with a value of the given type, else {@code false}}
+	 *
+	 * @param type the type of the value
+	 */
+	public boolean accepts(UniformType type) {
+		if (this == UNKNOWN || this == type)
+			return true;
+		else if (type == INT)
+			return this.acceptsInt();
+		return false;
+	}
+
+	/**
+	 * {@return the number of columns of this type, {@code 1} for scalars and vectors}
+	 */
+	public int columns() {
+		return switch (this) {
+			case MAT2F -> 2;
+			case MAT3F -> 3;
+			case MAT4F -> 4;
+			default -> 1;
+		};
+	}
+
+	/**
+	 * {@return the number of components of a column of this type, or {@code 0} if this type cannot be stored in a buffer}
+	 */
+	public int rows() {
+		return switch (this) {
+			case FLOAT, INT, UINT, BOOL -> 1;
+			case VEC2F, IVEC2, MAT2F -> 2;
+			case VEC3F, IVEC3, MAT3F -> 3;
+			case VEC4F, IVEC4, MAT4F -> 4;
+			default -> 0;
+		};
+	}
+
+	/**
+	 * {@return the base alignment of this type inside a buffer block laid out with the given packing rules}
+	 *
+	 * @param packing the packing rules
+	 */
+	public long alignment(BufferPacking packing) {
+		long columnAlignment = this.columnAlignment();
+
+		if (this.columns() == 1)
+			return columnAlignment;
+		return packing.aggregateAlignment(columnAlignment);
+	}
+
+	/**
+	 * {@return the size of this type inside a buffer block laid out with the given packing rules}
+	 * <p>
+	 * Matrices are stored as arrays of column vectors.
+	 *
+	 * @param packing the packing rules
+	 */
+	public long size(BufferPacking packing) {
+		long columnSize = this.rows() * NativeSizes.FLOAT_SIZE;
+
+		if (this.columns() == 1)
+			return columnSize;
+		return this.columns() * packing.arrayStride(columnSize, this.columnAlignment());
+	}
+
+	private long columnAlignment() {
+		int rows = this.rows();
+
+		if (rows == 0)
+			throw new IllegalStateException("Type " + this + " cannot be stored in a buffer.");
+
+		// Three-component vectors are aligned as four-component vectors.
+		return (rows == 3 ? 4 : rows) * NativeSizes.FLOAT_SIZE;
+	}
+
+	/**
+	 * {@return the type matching the given Java type, or {@link #UNKNOWN} if there is none}
+	 *
+	 * @param type the Java type
+	 */
+	public static UniformType byJavaType(Class<?> type) {
+		if (type == float.class || type == Float.class)
+			return FLOAT;
+		else if (type == int.class || type == Integer.class)
+			return INT;
+		else if (type == boolean.class || type == Boolean.class)
+			return BOOL;
+		else if (Vector2f.class.isAssignableFrom(type))
+			return VEC2F;
+		else if (Vector3f.class.isAssignableFrom(type))
+			return VEC3F;
+		else if (Vector4f.class.isAssignableFrom(type))
+			return VEC4F;
+		else if (Vector2i.class.isAssignableFrom(type))
+			return IVEC2;
+		else if (Vector3i.class.isAssignableFrom(type))
+			return IVEC3;
+		else if (Vector4i.class.isAssignableFrom(type))
+			return IVEC4;
+		else if (Matrix3f.class.isAssignableFrom(type))
+			return MAT3F;
+		else if (Matrix4f.class.isAssignableFrom(type))
+			return MAT4F;
+
+		return UNKNOWN;
+	}
+
+	public static UniformType byId(int glId) {
+		for (var type : VALUES) {
+			if (type.glId() == glId)
+				return type;
+		}
+
+		return UNKNOWN;
+	}
+}
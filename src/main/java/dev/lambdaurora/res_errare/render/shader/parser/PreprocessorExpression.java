@@ -0,0 +1,412 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.shader.parser;
+
+import dev.lambdaurora.res_errare.render.shader.error.ShaderPreprocessError;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.LongSupplier;
+
+/**
+ * Represents the evaluation of the constant expressions of the {@code #if} and {@code #elif} directives.
+ * <p>
+ * The {@code defined} operator is resolved first, the macros are then expanded and the remaining identifiers evaluate to {@code 0}.
+ * The operators and their precedence are the ones of the C preprocessor. Like in C, {@code &&}, {@code ||} and {@code ?:}
+ * short-circuit: the operands which do not decide the value are still parsed but not evaluated,
+ * so {@code defined(N) && 100 / N > 1} is valid when {@code N} is not defined.
+ */
+public final class PreprocessorExpression {
+	private static final String[] OPERATORS = {
+			"&&", "||", "==", "!=", "<=", ">=", "<<", ">>",
+			"(", ")", ",", "!", "~", "+", "-", "*", "/", "%", "<", ">", "&", "^", "|", "?", ":", "#"
+	};
+
+	private final List<String> tokens;
+	private final String expression;
+	private int index = 0;
+	/**
+	 * The number of enclosing operands which are parsed without being evaluated, their value is discarded.
+	 */
+	private int skipped = 0;
+
+	private PreprocessorExpression(List<String> tokens, String expression) {
+		this.tokens = tokens;
+		this.expression = expression;
+	}
+
+	/**
+	 * Evaluates the given expression.
+	 *
+	 * @param expression the expression, without line continuations
+	 * @param macros the defined macros
+	 * @return the value of the expression
+	 * @throws ShaderPreprocessError if the expression is malformed
+	 */
+	public static long evaluate(String expression, Map<String, ShaderMacro> macros) {
+		var tokens = expand(resolveDefined(tokenize(expression), macros), macros, new HashSet<>());
+		// Macros may expand to the defined operator.
+		tokens = resolveDefined(tokens, macros);
+
+		if (tokens.isEmpty())
+			throw new ShaderPreprocessError("Empty expression \"" + expression + "\".");
+
+		var parser = new PreprocessorExpression(tokens, expression);
+		long value = parser.parseTernary();
+
+		if (parser.index != tokens.size())
+			throw parser.error("unexpected \"" + tokens.get(parser.index) + "\"");
+
+		return value;
+	}
+
+	/**
+	 * Splits the given text into preprocessing tokens, the whitespaces are discarded.
+	 *
+	 * @param text the text to split
+	 * @return the tokens
+	 */
+	public static List<String> tokenize(String text) {
+		var tokens = new ArrayList<String>();
+
+		int i = 0;
+		main:
+		while (i < text.length()) {
+			char c = text.charAt(i);
+
+			if (Character.isWhitespace(c)) {
+				i++;
+			} else if (isIdentifierPart(c)) {
+				// Identifiers and numbers, numbers may have suffixes.
+				int start = i;
+				while (i < text.length() && (isIdentifierPart(text.charAt(i)) || text.charAt(i) == '.')) {
+					i++;
+				}
+				tokens.add(text.substring(start, i));
+			} else {
+				for (var operator : OPERATORS) {
+					if (text.startsWith(operator, i)) {
+						tokens.add(operator);
+						i += operator.length();
+						continue main;
+					}
+				}
+
+				// Any other punctuation may appear in macro bodies, it is rejected by the evaluation.
+				tokens.add(String.valueOf(c));
+				i++;
+			}
+		}
+
+		return tokens;
+	}
+
+	/**
+	 * {@return {@code true} if the given name is a valid identifier, else {@code false}}
+	 *
+	 * @param name the name
+	 */
+	public static boolean isIdentifier(String name) {
+		if (name.isEmpty() || Character.isDigit(name.charAt(0)))
+			return false;
+
+		for (int i = 0; i < name.length(); i++) {
+			if (!isIdentifierPart(name.charAt(i)))
+				return false;
+		}
+
+		return true;
+	}
+
+	static boolean isIdentifierPart(char c) {
+		return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9') || c == '_';
+	}
+
+	private static List<String> resolveDefined(List<String> tokens, Map<String, ShaderMacro> macros) {
+		if (!tokens.contains("defined"))
+			return tokens;
+
+		var result = new ArrayList<String>(tokens.size());
+		for (int i = 0; i < tokens.size(); i++) {
+			var token = tokens.get(i);
+
+			if (!token.equals("defined")) {
+				result.add(token);
+				continue;
+			}
+
+			boolean parenthesized = i + 1 < tokens.size() && tokens.get(i + 1).equals("(");
+			int nameIndex = parenthesized ? i + 2 : i + 1;
+
+			if (nameIndex >= tokens.size() || !isIdentifier(tokens.get(nameIndex))
+					|| (parenthesized && (nameIndex + 1 >= tokens.size() || !tokens.get(nameIndex + 1).equals(")"))))
+				throw new ShaderPreprocessError("Malformed defined operator in \"" + String.join(" ", tokens) + "\".");
+
+			result.add(macros.containsKey(tokens.get(nameIndex)) ? "1" : "0");
+			i = parenthesized ? nameIndex + 1 : nameIndex;
+		}
+
+		return result;
+	}
+
+	/**
+	 * Expands the macros of the given tokens.
+	 *
+	 * @param tokens the tokens
+	 * @param macros the defined macros
+	 * @param expanding the macros being expanded, which are not expanded again to prevent infinite recursion
+	 * @return the expanded tokens
+	 */
+	private static List<String> expand(List<String> tokens, Map<String, ShaderMacro> macros, Set<String> expanding) {
+		var result = new ArrayList<String>(tokens.size());
+
+		for (int i = 0; i < tokens.size(); i++) {
+			var token = tokens.get(i);
+			var macro = macros.get(token);
+
+			if (macro == null || expanding.contains(token)) {
+				result.add(token);
+				continue;
+			}
+
+			List<String> replacement;
+			if (macro.isFunctionLike()) {
+				if (i + 1 >= tokens.size() || !tokens.get(i + 1).equals("(")) {
+					// A function-like macro name not followed by arguments is not expanded.
+					result.add(token);
+					continue;
+				}
+
+				var arguments = new ArrayList<List<String>>();
+				var argument = new ArrayList<String>();
+				int depth = 0;
+				int j;
+				for (j = i + 2; j < tokens.size(); j++) {
+					var current = tokens.get(j);
+
+					if (current.equals("(")) {
+						depth++;
+					} else if (current.equals(")")) {
+						if (depth == 0)
+							break;
+						depth--;
+					} else if (current.equals(",") && depth == 0) {
+						arguments.add(argument);
+						argument = new ArrayList<>();
+						continue;
+					}
+
+					argument.add(current);
+				}
+
+				if (j == tokens.size())
+					throw new ShaderPreprocessError("Unterminated arguments of macro " + macro.name() + ".");
+
+				if (!argument.isEmpty() || !arguments.isEmpty())
+					arguments.add(argument);
+
+				var parameters = macro.parameters();
+				if (arguments.size() != parameters.size())
+					throw new ShaderPreprocessError("Macro " + macro.name() + " expects " + parameters.size() + " arguments, got "
+							+ arguments.size() + ".");
+
+				replacement = new ArrayList<>();
+				for (var bodyToken : macro.body()) {
+					int parameter = parameters.indexOf(bodyToken);
+
+					if (parameter == -1)
+						replacement.add(bodyToken);
+					else
+						replacement.addAll(expand(arguments.get(parameter), macros, expanding));
+				}
+
+				i = j;
+			} else {
+				replacement = macro.body();
+			}
+
+			expanding.add(macro.name());
+			result.addAll(expand(replacement, macros, expanding));
+			expanding.remove(macro.name());
+		}
+
+		return result;
+	}
+
+	private long parseTernary() {
+		long condition = this.parseBinary(0);
+
+		if (this.accept("?")) {
+			long whenTrue = this.parseSkippedIf(condition == 0, this::parseTernary);
+			this.expect(":");
+			long whenFalse = this.parseSkippedIf(condition != 0, this::parseTernary);
+			return condition != 0 ? whenTrue : whenFalse;
+		}
+
+		return condition;
+	}
+
+	private long parseBinary(int minPrecedence) {
+		long left = this.parseUnary();
+
+		while (this.index < this.tokens.size()) {
+			var operator = this.tokens.get(this.index);
+			int precedence = precedence(operator);
+			if (precedence < minPrecedence || precedence == -1)
+				break;
+
+			this.index++;
+			// The right operand of && and || is not evaluated if the left operand decides the value.
+			boolean decided = (operator.equals("&&") && left == 0) || (operator.equals("||") && left != 0);
+			long right = this.parseSkippedIf(decided, () -> this.parseBinary(precedence + 1));
+			left = this.apply(operator, left, right);
+		}
+
+		return left;
+	}
+
+	/**
+	 * Parses an operand, without evaluating it if {@code skip} is {@code true}.
+	 *
+	 * @param skip {@code true} if the value of the operand is discarded, else {@code false}
+	 * @param parser the parser of the operand
+	 * @return the value of the operand, meaningless if skipped
+	 */
+	private long parseSkippedIf(boolean skip, LongSupplier parser) {
+		if (skip)
+			this.skipped++;
+
+		try {
+			return parser.getAsLong();
+		} finally {
+			if (skip)
+				this.skipped--;
+		}
+	}
+
+	private long parseUnary() {
+		if (this.accept("!"))
+			return this.parseUnary() == 0 ? 1 : 0;
+		else if (this.accept("~"))
+			return ~this.parseUnary();
+		else if (this.accept("-"))
+			return -this.parseUnary();
+		else if (this.accept("+"))
+			return this.parseUnary();
+		else if (this.accept("(")) {
+			long value = this.parseTernary();
+			this.expect(")");
+			return value;
+		}
+
+		if (this.index == this.tokens.size())
+			throw this.error("unexpected end of expression");
+
+		var token = this.tokens.get(this.index++);
+		if (Character.isDigit(token.charAt(0)))
+			return this.parseNumber(token);
+		else if (isIdentifier(token))
+			return 0; // Undefined identifiers evaluate to 0.
+
+		throw this.error("unexpected \"" + token + "\"");
+	}
+
+	private long parseNumber(String token) {
+		var digits = token;
+		if (digits.endsWith("u") || digits.endsWith("U"))
+			digits = digits.substring(0, digits.length() - 1);
+
+		try {
+			if (digits.startsWith("0x") || digits.startsWith("0X"))
+				return Long.parseLong(digits.substring(2), 16);
+			else if (digits.length() > 1 && digits.charAt(0) == '0')
+				return Long.parseLong(digits.substring(1), 8);
+			else
+				return Long.parseLong(digits);
+		} catch (NumberFormatException e) {
+			throw this.error("invalid integer \"" + token + "\"");
+		}
+	}
+
+	private long apply(String operator, long left, long right) {
+		return switch (operator) {
+			case "||" -> left != 0 || right != 0 ? 1 : 0;
+			case "&&" -> left != 0 && right != 0 ? 1 : 0;
+			case "|" -> left | right;
+			case "^" -> left ^ right;
+			case "&" -> left & right;
+			case "==" -> left == right ? 1 : 0;
+			case "!=" -> left != right ? 1 : 0;
+			case "<" -> left < right ? 1 : 0;
+			case ">" -> left > right ? 1 : 0;
+			case "<=" -> left <= right ? 1 : 0;
+			case ">=" -> left >= right ? 1 : 0;
+			case "<<" -> left << right;
+			case ">>" -> left >> right;
+			case "+" -> left + right;
+			case "-" -> left - right;
+			case "*" -> left * right;
+			case "/", "%" -> {
+				if (right == 0) {
+					if (this.skipped > 0)
+						yield 0;
+					throw this.error("division by zero");
+				}
+				yield operator.equals("/") ? left / right : left % right;
+			}
+			default -> throw this.error("unknown operator \"" + operator + "\"");
+		};
+	}
+
+	private static int precedence(String operator) {
+		return switch (operator) {
+			case "||" -> 1;
+			case "&&" -> 2;
+			case "|" -> 3;
+			case "^" -> 4;
+			case "&" -> 5;
+			case "==", "!=" -> 6;
+			case "<", ">", "<=", ">=" -> 7;
+			case "<<", ">>" -> 8;
+			case "+", "-" -> 9;
+			case "*", "/", "%" -> 10;
+			default -> -1;
+		};
+	}
+
+	private boolean accept(String token) {
+		if (this.index < this.tokens.size() && this.tokens.get(this.index).equals(token)) {
+			this.index++;
+			return true;
+		}
+
+		return false;
+	}
+
+	private void expect(String token) {
+		if (!this.accept(token))
+			throw this.error("expected \"" + token + "\"");
+	}
+
+	private ShaderPreprocessError error(String message) {
+		return new ShaderPreprocessError("Invalid expression \"" + this.expression + "\": " + message + ".");
+	}
+}
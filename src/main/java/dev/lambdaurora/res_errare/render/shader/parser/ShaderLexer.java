@@ -22,22 +22,23 @@ import dev.lambdaurora.res_errare.parser.token.UnknownTokenException;
 import java.util.Iterator;
 
 /**
- * Represents the lexer of the calculator.
+ * Represents the lexer of the shader sources.
  * <p>
- * Takes a string and splits it into a series of {@linkplain ShaderToken}.
+ * Takes a character sequence and splits it into a series of {@linkplain ShaderToken}.
+ * The tokens are spans of the sequence and the matchers work in place, lexing is linear in the length of the source.
  */
 public class ShaderLexer implements Iterator<ShaderToken> {
 	// Cache the token types array to not rebuild it for each call.
 	private static final ShaderTokenType[] TOKEN_TYPES = ShaderTokenType.values();
 
-	private final String text;
+	private final CharSequence text;
 	private int index;
 	private int line = 0;
 	private boolean startOfLine = true;
 
 	private ShaderToken current;
 
-	public ShaderLexer(String text) {
+	public ShaderLexer(CharSequence text) {
 		this.text = text;
 		this.index = 0;
 
@@ -58,43 +59,41 @@ public class ShaderLexer implements Iterator<ShaderToken> {
 
 	private void pickNext() {
 		while (this.index < this.text.length()) {
-			var part = this.text.substring(this.index);
-
 			for (var type : TOKEN_TYPES) {
-				var i = type.matcher().match(part, this.startOfLine);
-
-				if (i > 0) {
-					part = part.substring(0, i);
-					this.current = new ShaderToken(type, part, this.line, this.index);
-					this.index += i;
+				var length = type.matcher().match(this.text, this.index, this.startOfLine);
 
-					for (int j = 0; j < part.length(); j++) {
-						char c = part.charAt(j);
+				if (length > 0) {
+					this.current = new ShaderToken(type, this.text, this.line, this.index, length);
+					this.index += length;
 
-						if (c == '\n')
+					for (int j = this.current.offset(); j < this.index; j++) {
+						if (this.text.charAt(j) == '\n')
 							this.line++;
-						if (j == part.length() - 1) {
-							this.startOfLine = c == '\n';
-						}
 					}
+					this.startOfLine = this.text.charAt(this.index - 1) == '\n';
 					return;
-				} else if (i == -1) {
+				} else if (length == -1) {
 					throw new UnknownTokenException("Could not match token " + type + " since the token is incomplete.", this.index);
 				}
 			}
 
-			if (!Character.isWhitespace(part.charAt(0))) {
-				throw new UnknownTokenException("Unknown token start character \"" + part.charAt(0) + "\".", this.index);
+			char c = this.text.charAt(this.index);
+			if (!Character.isWhitespace(c)) {
+				throw new UnknownTokenException("Unknown token start character \"" + c + "\".", this.index);
 			}
 
+			if (c == '\n') {
+				this.line++;
+				this.startOfLine = true;
+			}
 			this.index++;
 		}
 
-		this.current = new ShaderToken(ShaderTokenType.EOF, "", this.line, this.text.length());
+		this.current = new ShaderToken(ShaderTokenType.EOF, this.text, this.line, this.text.length(), 0);
 	}
 
 	@Override
 	public void remove() {
 		throw new UnsupportedOperationException();
 	}
-}
\ No newline at end of file
+}
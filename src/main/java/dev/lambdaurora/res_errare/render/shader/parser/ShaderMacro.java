@@ -0,0 +1,98 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.shader.parser;
+
+import dev.lambdaurora.res_errare.render.shader.error.ShaderPreprocessError;
+import org.jetbrains.annotations.Nullable;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Represents a preprocessor macro.
+ *
+ * @param name the name of the macro
+ * @param parameters the parameters of a function-like macro, or {@code null} if the macro is object-like
+ * @param body the tokens of the replacement of the macro
+ */
+public record ShaderMacro(String name, @Nullable List<String> parameters, List<String> body) {
+	/**
+	 * Creates an object-like macro.
+	 *
+	 * @param name the name of the macro
+	 * @param value the replacement of the macro
+	 * @return the macro
+	 */
+	public static ShaderMacro of(String name, String value) {
+		if (!PreprocessorExpression.isIdentifier(name))
+			throw new ShaderPreprocessError("Invalid macro name \"" + name + "\".");
+
+		return new ShaderMacro(name, null, PreprocessorExpression.tokenize(value));
+	}
+
+	/**
+	 * Parses a macro definition.
+	 *
+	 * @param definition the definition following the {@code #define} directive, without line continuations
+	 * @return the macro
+	 * @throws ShaderPreprocessError if the definition is malformed
+	 */
+	public static ShaderMacro parse(String definition) {
+		definition = definition.strip();
+
+		int nameEnd = 0;
+		while (nameEnd < definition.length() && PreprocessorExpression.isIdentifierPart(definition.charAt(nameEnd))) {
+			nameEnd++;
+		}
+
+		var name = definition.substring(0, nameEnd);
+		if (!PreprocessorExpression.isIdentifier(name))
+			throw new ShaderPreprocessError("Invalid macro definition \"" + definition + "\".");
+
+		// A function-like macro has its parameter list right after its name, without any whitespace.
+		if (nameEnd < definition.length() && definition.charAt(nameEnd) == '(') {
+			int end = definition.indexOf(')', nameEnd);
+			if (end == -1)
+				throw new ShaderPreprocessError("Unterminated parameter list in macro definition \"" + definition + "\".");
+
+			var parameters = new ArrayList<String>();
+			var list = definition.substring(nameEnd + 1, end).strip();
+			if (!list.isEmpty()) {
+				for (var parameter : list.split(",")) {
+					parameter = parameter.strip();
+
+					if (!PreprocessorExpression.isIdentifier(parameter) || parameters.contains(parameter))
+						throw new ShaderPreprocessError("Invalid parameter \"" + parameter + "\" in macro definition \"" + definition + "\".");
+
+					parameters.add(parameter);
+				}
+			}
+
+			return new ShaderMacro(name, List.copyOf(parameters), PreprocessorExpression.tokenize(definition.substring(end + 1)));
+		}
+
+		return new ShaderMacro(name, null, PreprocessorExpression.tokenize(definition.substring(nameEnd)));
+	}
+
+	/**
+	 * {@return {@code true} if this macro takes arguments, else {@code false}}
+	 */
+	public boolean isFunctionLike() {
+		return this.parameters != null;
+	}
+}
@@ -19,6 +19,77 @@ package dev.lambdaurora.res_errare.render.shader.parser;
 
 /**
  * Represents the token of lexed shader code.
+ * <p>
+ * A token is a span of the lexed source, its value is only copied when requested.
+ *
+ * @param type the type of the token
+ * @param source the lexed source
+ * @param line the line of the start of the token, starting at {@code 0}
+ * @param offset the offset of the start of the token in the source
+ * @param length the length of the token
  */
-public record ShaderToken(ShaderTokenType type, String value, int line, int offset) {
+public record ShaderToken(ShaderTokenType type, CharSequence source, int line, int offset, int length) {
+	/**
+	 * {@return the offset right after the end of this token in the source}
+	 */
+	public int end() {
+		return this.offset + this.length;
+	}
+
+	/**
+	 * {@return the text of this token}
+	 */
+	public String value() {
+		return this.source.subSequence(this.offset, this.end()).toString();
+	}
+
+	/**
+	 * {@return the character at the given index of this token}
+	 *
+	 * @param index the index in this token
+	 */
+	public char charAt(int index) {
+		return this.source.charAt(this.offset + index);
+	}
+
+	/**
+	 * Appends the text of this token to the given builder without copying it first.
+	 *
+	 * @param builder the builder
+	 * @return the builder
+	 */
+	public StringBuilder appendTo(StringBuilder builder) {
+		return builder.append(this.source, this.offset, this.end());
+	}
+
+	/**
+	 * {@return the number of line breaks in this token}
+	 */
+	public int lineBreaks() {
+		int count = 0;
+
+		for (int i = this.offset; i < this.end(); i++) {
+			if (this.source.charAt(i) == '\n')
+				count++;
+		}
+
+		return count;
+	}
+
+	/**
+	 * {@return {@code true} if this token only holds whitespaces, else {@code false}}
+	 */
+	public boolean isBlank() {
+		for (int i = this.offset; i < this.end(); i++) {
+			if (!Character.isWhitespace(this.source.charAt(i)))
+				return false;
+		}
+
+		return true;
+	}
+
+	@Override
+	public String toString() {
+		return "ShaderToken[type=" + this.type + ", value=" + this.value() + ", line=" + this.line + ", offset=" + this.offset + ']';
+	}
 }
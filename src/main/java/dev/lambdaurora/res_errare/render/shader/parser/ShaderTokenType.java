@@ -21,12 +21,12 @@ import dev.lambdaurora.res_errare.parser.token.TokenMatcher;
 import dev.lambdaurora.res_errare.util.StringUtil;
 
 public enum ShaderTokenType {
-	DIRECTIVE((input, startOfLine) -> {
-		if (!startOfLine || StringUtil.getCharAt(input, 0) != '#')
+	DIRECTIVE((input, offset, startOfLine) -> {
+		if (!startOfLine || StringUtil.getCharAt(input, offset) != '#')
 			return 0;
 
 		int i;
-		for (i = 1; i < input.length(); i++) {
+		for (i = offset + 1; i < input.length(); i++) {
 			char c = input.charAt(i);
 
 			if (c == '\\') {
@@ -35,15 +35,15 @@ public enum ShaderTokenType {
 				break;
 		}
 
-		return i;
+		return Math.min(i, input.length()) - offset;
 	}),
 	CHAR(TokenMatcher.CHAR),
 	STRING(TokenMatcher.STRING),
 	EOF(TokenMatcher.of('\0')),
-	RAW((input, startOfLine) -> {
+	RAW((input, offset, startOfLine) -> {
 		int i;
 
-		for (i = 0; i < input.length(); i++) {
+		for (i = offset; i < input.length(); i++) {
 			char c = input.charAt(i);
 			if (c == '"' || c == '\'')
 				break;
@@ -54,7 +54,7 @@ public enum ShaderTokenType {
 			}
 		}
 
-		return i;
+		return i - offset;
 	});
 
 	private final TokenMatcher matcher;
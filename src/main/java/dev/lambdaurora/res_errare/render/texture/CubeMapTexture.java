@@ -23,6 +23,7 @@ import dev.lambdaurora.res_errare.util.Identifier;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 
 import java.io.IOException;
+import java.util.Collections;
 import java.util.EnumMap;
 import java.util.Map;
 
@@ -30,6 +31,18 @@ import java.util.Map;
  * Represents a cube map texture.
  */
 public final class CubeMapTexture implements Texture<CubeMapTexture.CubeMapTextureTarget> {
+	/**
+	 * The file names of the faces of a cube map stored in a directory, without extension.
+	 */
+	public static final Map<CubeMapTextureTarget, String> FACE_NAMES = Collections.unmodifiableMap(new EnumMap<>(Map.of(
+			CubeMapTextureTarget.POSITIVE_X, "right",
+			CubeMapTextureTarget.NEGATIVE_X, "left",
+			CubeMapTextureTarget.POSITIVE_Y, "top",
+			CubeMapTextureTarget.NEGATIVE_Y, "bottom",
+			CubeMapTextureTarget.POSITIVE_Z, "front",
+			CubeMapTextureTarget.NEGATIVE_Z, "back"
+	)));
+
 	private final int id;
 
 	private CubeMapTexture(int id) {
@@ -100,12 +113,10 @@ public final class CubeMapTexture implements Texture<CubeMapTexture.CubeMapTextu
 		}
 
 		public Builder facesFromDirectory(Identifier directory, String extension) throws IOException {
-			return this.face(CubeMapTextureTarget.POSITIVE_X, directory.sub("right." + extension))
-					.face(CubeMapTextureTarget.NEGATIVE_X, directory.sub("left." + extension))
-					.face(CubeMapTextureTarget.POSITIVE_Y, directory.sub("top." + extension))
-					.face(CubeMapTextureTarget.NEGATIVE_Y, directory.sub("bottom." + extension))
-					.face(CubeMapTextureTarget.POSITIVE_Z, directory.sub("front." + extension))
-					.face(CubeMapTextureTarget.NEGATIVE_Z, directory.sub("back." + extension));
+			for (var entry : FACE_NAMES.entrySet()) {
+				this.face(entry.getKey(), directory.sub(entry.getValue() + '.' + extension));
+			}
+			return this;
 		}
 
 		public <V> Builder parameter(TextureParameter<V> parameter, V value) {
@@ -123,7 +134,7 @@ public final class CubeMapTexture implements Texture<CubeMapTexture.CubeMapTextu
 				throw new IllegalArgumentException("Cannot build cube map texture with an incomplete set of images.");
 			}
 
-			var texture = new CubeMapTexture(GL.get().genTextures(1)[0]);
+			var texture = new CubeMapTexture(GL.get().genTexture());
 			texture.bind();
 
 			for (var entry : this.faces.entrySet()) {
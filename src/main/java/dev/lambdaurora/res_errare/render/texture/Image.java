@@ -17,6 +17,7 @@
 
 package dev.lambdaurora.res_errare.render.texture;
 
+import dev.lambdaurora.res_errare.system.GL;
 import jdk.incubator.foreign.MemoryAddress;
 import jdk.incubator.foreign.ResourceScope;
 import org.jetbrains.annotations.Nullable;
@@ -33,10 +34,18 @@ public interface Image extends AutoCloseable {
 
 	@Nullable MemoryAddress getImageAddress(ResourceScope scope);
 
+	/**
+	 * {@return the OpenGL type of each channel of a texel of this image}
+	 */
+	default int texelType() {
+		return GL.GL11.UNSIGNED_BYTE;
+	}
+
 	enum Format {
-		RED(1, 0x1903, Texture.InternalFormat.R32F),
-		RGB(3, 0x1907, Texture.InternalFormat.RGB32F),
-		ARGB(4, 0x1908, Texture.InternalFormat.RGBA32F);
+		RED(1, 0x1903, Texture.InternalFormat.R8),
+		RG(2, 0x8227, Texture.InternalFormat.RG8),
+		RGB(3, 0x1907, Texture.InternalFormat.RGB8),
+		ARGB(4, 0x1908, Texture.InternalFormat.RGBA8);
 
 		private final int channelCount;
 		private final int glFormatId;
@@ -56,8 +65,25 @@ public interface Image extends AutoCloseable {
 			return this.glFormatId;
 		}
 
+		/**
+		 * {@return the default internal format of images in this format, the channels are stored as normalized bytes}
+		 */
 		public Texture.InternalFormat internalFormat() {
 			return this.internalFormat;
 		}
+
+		/**
+		 * {@return the format with the given number of channels}
+		 *
+		 * @param channelCount the number of channels
+		 */
+		public static Format byChannelCount(int channelCount) {
+			for (var format : values()) {
+				if (format.channelCount == channelCount)
+					return format;
+			}
+
+			throw new IllegalArgumentException("No image format has " + channelCount + " channels.");
+		}
 	}
 }
@@ -0,0 +1,228 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.texture;
+
+import dev.lambdaurora.res_errare.system.GL;
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+/**
+ * Represents a mip pyramid of a scalar field, each texel of a level stores the mean, the minimum and the maximum
+ * of the texels it covers in the base level.
+ * <p>
+ * Level sizes follow the OpenGL mipmap chain ({@code max(1, floor(size / 2))}),
+ * on odd sizes the last texel of a row or column also covers the texel dropped by the rounding so that the extrema stay conservative.
+ * <p>
+ * Once uploaded the texture holds the mean in the red channel, the minimum in the green channel and the maximum in the blue channel.
+ * Normalized byte formats keep the extrema of 8-bit sources exact, only the means are rounded.
+ */
+public final class MinMaxPyramid {
+	private final int[] widths;
+	private final int[] heights;
+	private final float[][] means;
+	private final float[][] mins;
+	private final float[][] maxs;
+
+	private MinMaxPyramid(int width, int height, float[] values) {
+		int levels = levelCount(width, height);
+		this.widths = new int[levels];
+		this.heights = new int[levels];
+		this.means = new float[levels][];
+		this.mins = new float[levels][];
+		this.maxs = new float[levels][];
+
+		this.widths[0] = width;
+		this.heights[0] = height;
+		this.means[0] = values;
+		this.mins[0] = values;
+		this.maxs[0] = values;
+
+		for (int level = 1; level < levels; level++) {
+			this.reduce(level);
+		}
+	}
+
+	/**
+	 * Creates a pyramid from the given values.
+	 *
+	 * @param width the width of the base level
+	 * @param height the height of the base level
+	 * @param values the values of the base level, row by row
+	 * @return the pyramid
+	 */
+	public static MinMaxPyramid of(int width, int height, float[] values) {
+		if (width <= 0 || height <= 0)
+			throw new IllegalArgumentException("Invalid pyramid size " + width + "x" + height + ".");
+		if (values.length != width * height)
+			throw new IllegalArgumentException("Expected " + width * height + " values, got " + values.length + ".");
+
+		return new MinMaxPyramid(width, height, values);
+	}
+
+	/**
+	 * Creates a pyramid from the first channel of the given image, normalized to {@code [0, 1]}.
+	 *
+	 * @param image the image
+	 * @return the pyramid
+	 */
+	public static MinMaxPyramid of(Image image) {
+		int area = image.width() * image.height();
+		int channels = image.format().channelCount();
+		var values = new float[area];
+
+		try (var scope = ResourceScope.newConfinedScope()) {
+			var pixels = image.getImageAddress(scope).asSegment((long) area * channels, scope);
+			for (int i = 0; i < area; i++) {
+				values[i] = (MemoryAccess.getByteAtOffset(pixels, (long) i * channels) & 0xff) / 255.f;
+			}
+		}
+
+		return of(image.width(), image.height(), values);
+	}
+
+	/**
+	 * {@return the number of levels of a complete mipmap chain for the given size}
+	 *
+	 * @param width the width of the base level
+	 * @param height the height of the base level
+	 */
+	public static int levelCount(int width, int height) {
+		return 32 - Integer.numberOfLeadingZeros(Math.max(width, height));
+	}
+
+	/**
+	 * {@return the number of levels of this pyramid}
+	 */
+	public int levelCount() {
+		return this.widths.length;
+	}
+
+	public int width(int level) {
+		return this.widths[level];
+	}
+
+	public int height(int level) {
+		return this.heights[level];
+	}
+
+	public float mean(int level, int x, int y) {
+		return this.means[level][y * this.widths[level] + x];
+	}
+
+	public float min(int level, int x, int y) {
+		return this.mins[level][y * this.widths[level] + x];
+	}
+
+	public float max(int level, int x, int y) {
+		return this.maxs[level][y * this.widths[level] + x];
+	}
+
+	/**
+	 * Uploads every level of this pyramid to the bound texture.
+	 *
+	 * @param target the texture target
+	 * @param internalFormat the internal format, must have at least 3 channels stored as normalized bytes or floats
+	 */
+	public void upload(Texture2D.Target target, Texture.InternalFormat internalFormat) {
+		int channels = internalFormat.channelCount();
+		boolean bytes = internalFormat.typeId() == GL.GL11.UNSIGNED_BYTE;
+		if (channels < 3 || !(bytes || internalFormat.typeId() == GL.GL11.FLOAT))
+			throw new IllegalArgumentException("Cannot upload a min/max pyramid as " + internalFormat + ".");
+		// Keep rows 4-byte aligned to match the default unpack alignment.
+		if (bytes && channels != 4)
+			throw new IllegalArgumentException("Byte min/max pyramids must have 4 channels, got " + internalFormat + ".");
+
+		var format = Image.Format.byChannelCount(channels);
+		int texelSize = channels * (bytes ? 1 : Float.BYTES);
+
+		try (var scope = ResourceScope.newConfinedScope()) {
+			var buffer = MemorySegment.allocateNative((long) this.widths[0] * this.heights[0] * texelSize, scope);
+
+			for (int level = 0; level < this.levelCount(); level++) {
+				int area = this.widths[level] * this.heights[level];
+				for (int i = 0; i < area; i++) {
+					long offset = (long) i * texelSize;
+					if (bytes) {
+						MemoryAccess.setByteAtOffset(buffer, offset, unorm(this.means[level][i]));
+						MemoryAccess.setByteAtOffset(buffer, offset + 1, unorm(this.mins[level][i]));
+						MemoryAccess.setByteAtOffset(buffer, offset + 2, unorm(this.maxs[level][i]));
+					} else {
+						MemoryAccess.setFloatAtOffset(buffer, offset, this.means[level][i]);
+						MemoryAccess.setFloatAtOffset(buffer, offset + 4, this.mins[level][i]);
+						MemoryAccess.setFloatAtOffset(buffer, offset + 8, this.maxs[level][i]);
+					}
+				}
+
+				GL.get().texImage2D(target, level, internalFormat, this.widths[level], this.heights[level],
+						format, internalFormat.typeId(), buffer.address());
+			}
+		}
+	}
+
+	private static byte unorm(float value) {
+		return (byte) Math.round(Math.max(0.f, Math.min(1.f, value)) * 255.f);
+	}
+
+	private void reduce(int level) {
+		int childWidth = this.widths[level - 1];
+		int childHeight = this.heights[level - 1];
+		int width = Math.max(1, childWidth / 2);
+		int height = Math.max(1, childHeight / 2);
+		var childMeans = this.means[level - 1];
+		var childMins = this.mins[level - 1];
+		var childMaxs = this.maxs[level - 1];
+		var means = new float[width * height];
+		var mins = new float[width * height];
+		var maxs = new float[width * height];
+
+		for (int y = 0; y < height; y++) {
+			int y0 = Math.min(y * 2, childHeight - 1);
+			// The last row also covers the row dropped on odd sizes.
+			int y1 = y == height - 1 ? childHeight - 1 : y * 2 + 1;
+
+			for (int x = 0; x < width; x++) {
+				int x0 = Math.min(x * 2, childWidth - 1);
+				int x1 = x == width - 1 ? childWidth - 1 : x * 2 + 1;
+
+				float sum = 0.f;
+				float min = Float.POSITIVE_INFINITY;
+				float max = Float.NEGATIVE_INFINITY;
+				for (int childY = y0; childY <= y1; childY++) {
+					for (int childX = x0; childX <= x1; childX++) {
+						int child = childY * childWidth + childX;
+						sum += childMeans[child];
+						min = Math.min(min, childMins[child]);
+						max = Math.max(max, childMaxs[child]);
+					}
+				}
+
+				int i = y * width + x;
+				means[i] = sum / ((y1 - y0 + 1) * (x1 - x0 + 1));
+				mins[i] = min;
+				maxs[i] = max;
+			}
+		}
+
+		this.widths[level] = width;
+		this.heights[level] = height;
+		this.means[level] = means;
+		this.mins[level] = mins;
+		this.maxs[level] = maxs;
+	}
+}
@@ -45,7 +45,8 @@ public final class NativeImage implements Image {
 	}
 
 	public static NativeImage load(Identifier resourceId, Format format) throws IOException {
-		return load(ResourceManager.getDefault(ResourceType.ASSETS).open(resourceId), format);
+		// Packed resources are decoded straight from the mapped pack.
+		return load(ResourceManager.getDefault(ResourceType.ASSETS).getBuffer(resourceId), format);
 	}
 
 	public static NativeImage load(InputStream stream, Format format) throws IOException {
@@ -59,7 +59,8 @@ public interface Texture<T extends OpenGLIdProvider> extends AutoCloseable {
 	 */
 	default void initEmpty(T target, int level, InternalFormat internalFormat, int width, int height) {
 		this.bind();
-		GL.get().texImage2D(target, level, internalFormat, width, height, Image.Format.ARGB, internalFormat.typeId(), MemoryAddress.NULL);
+		GL.get().texImage2D(target, level, internalFormat, width, height, Image.Format.byChannelCount(internalFormat.channelCount()),
+				internalFormat.typeId(), MemoryAddress.NULL);
 	}
 
 	/**
@@ -111,7 +112,7 @@ public interface Texture<T extends OpenGLIdProvider> extends AutoCloseable {
 	 */
 	@Override
 	default void close() {
-		GL.get().deleteTextures(this.id());
+		GL.get().deleteTexture(this.id());
 	}
 
 	static void unbind(TextureType type) {
@@ -119,19 +120,30 @@ public interface Texture<T extends OpenGLIdProvider> extends AutoCloseable {
 	}
 
 	enum InternalFormat implements OpenGLIdProvider {
-		R8UI(0x8232, GL.GL11.UNSIGNED_BYTE),
-		R32F(0x822e, GL.GL11.FLOAT),
-		RGB8UI(0x8d7d, GL.GL11.UNSIGNED_BYTE),
-		RGB32F(0x8815, GL.GL11.FLOAT),
-		RGBA8UI(0x8d7c, GL.GL11.UNSIGNED_BYTE),
-		RGBA32F(0x8814, GL.GL11.FLOAT);
+		R8(0x8229, GL.GL11.UNSIGNED_BYTE, 1, 1),
+		R8UI(0x8232, GL.GL11.UNSIGNED_BYTE, 1, 1),
+		R16F(0x822d, GL.GL30.HALF_FLOAT, 1, 2),
+		R32F(0x822e, GL.GL11.FLOAT, 1, 4),
+		RG8(0x822b, GL.GL11.UNSIGNED_BYTE, 2, 2),
+		RGB8(0x8051, GL.GL11.UNSIGNED_BYTE, 3, 3),
+		RGB8UI(0x8d7d, GL.GL11.UNSIGNED_BYTE, 3, 3),
+		R11G11B10F(0x8c3a, GL.GL30.UNSIGNED_INT_10F_11F_11F_REV, 3, 4),
+		RGB32F(0x8815, GL.GL11.FLOAT, 3, 12),
+		RGBA8(0x8058, GL.GL11.UNSIGNED_BYTE, 4, 4),
+		RGBA8UI(0x8d7c, GL.GL11.UNSIGNED_BYTE, 4, 4),
+		RGBA16F(0x881a, GL.GL30.HALF_FLOAT, 4, 8),
+		RGBA32F(0x8814, GL.GL11.FLOAT, 4, 16);
 
 		private final int glId;
 		private final int typeId;
+		private final int channelCount;
+		private final int texelSize;
 
-		InternalFormat(int glId, int typeId) {
+		InternalFormat(int glId, int typeId, int channelCount, int texelSize) {
 			this.glId = glId;
 			this.typeId = typeId;
+			this.channelCount = channelCount;
+			this.texelSize = texelSize;
 		}
 
 		@Override
@@ -139,8 +151,22 @@ public interface Texture<T extends OpenGLIdProvider> extends AutoCloseable {
 			return this.glId;
 		}
 
+		/**
+		 * {@return the OpenGL type of the texel data matching this format}
+		 */
 		public int typeId() {
 			return this.typeId;
 		}
+
+		public int channelCount() {
+			return this.channelCount;
+		}
+
+		/**
+		 * {@return the nominal size in bytes of a texel in this format}
+		 */
+		public int texelSize() {
+			return this.texelSize;
+		}
 	}
 }
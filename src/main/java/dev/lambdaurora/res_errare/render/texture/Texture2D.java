@@ -53,7 +53,18 @@ public final class Texture2D implements Texture<Texture2D.Target> {
 	 * @param image the image to upload
 	 */
 	public void upload(int level, Image image) {
-		GL.get().texImage2D(this.type(), level, image.format().internalFormat(), image);
+		this.upload(level, image.format().internalFormat(), image);
+	}
+
+	/**
+	 * Uploads the given image to the texture.
+	 *
+	 * @param level the level
+	 * @param internalFormat the internal format used by OpenGL for this texture
+	 * @param image the image to upload
+	 */
+	public void upload(int level, InternalFormat internalFormat, Image image) {
+		GL.get().texImage2D(this.type(), level, internalFormat, image);
 	}
 
 	public static Texture2D of(int width, int height, InternalFormat format) {
@@ -68,7 +79,17 @@ public final class Texture2D implements Texture<Texture2D.Target> {
 	 * @param imageId the resource identifier of the image
 	 */
 	public static Builder builder(Identifier imageId) throws IOException {
-		return builder(NativeImage.load(imageId, Image.Format.ARGB))
+		return builder(imageId, Image.Format.ARGB);
+	}
+
+	/**
+	 * {@return a new 2D texture builder}
+	 *
+	 * @param imageId the resource identifier of the image
+	 * @param format the format the image is decoded to, which also gives the default internal format
+	 */
+	public static Builder builder(Identifier imageId, Image.Format format) throws IOException {
+		return builder(NativeImage.load(imageId, format))
 				.withCleanup();
 	}
 
@@ -100,6 +121,10 @@ public final class Texture2D implements Texture<Texture2D.Target> {
 		private final Map<TextureParameter<?>, Object> parameters = new Object2ObjectOpenHashMap<>();
 		private Image image;
 		private boolean cleanup = false;
+		private boolean mipmaps = false;
+		private boolean minMaxPyramid = false;
+		private @Nullable InternalFormat internalFormat;
+		private @Nullable TextureUploader uploader;
 
 		private Builder(@Nullable Image image) {
 			this.image(image)
@@ -119,6 +144,28 @@ public final class Texture2D implements Texture<Texture2D.Target> {
 			return this;
 		}
 
+		/**
+		 * Sets the internal format of the texture, defaults to the internal format of the image format.
+		 *
+		 * @param internalFormat the internal format
+		 * @return this builder
+		 */
+		public Builder internalFormat(InternalFormat internalFormat) {
+			this.internalFormat = internalFormat;
+			return this;
+		}
+
+		/**
+		 * Streams the image through the given uploader instead of uploading it synchronously from client memory.
+		 *
+		 * @param uploader the texture uploader
+		 * @return this builder
+		 */
+		public Builder uploader(@Nullable TextureUploader uploader) {
+			this.uploader = uploader;
+			return this;
+		}
+
 		public <V> Builder parameter(TextureParameter<V> parameter, V value) {
 			this.parameters.put(parameter, value);
 			return this;
@@ -129,12 +176,53 @@ public final class Texture2D implements Texture<Texture2D.Target> {
 			return this;
 		}
 
+		/**
+		 * Generates the mipmaps of the texture once the image is uploaded.
+		 *
+		 * @return this builder
+		 */
+		public Builder mipmaps() {
+			this.mipmaps = true;
+			return this;
+		}
+
+		/**
+		 * Uploads the first channel of the image as a {@link MinMaxPyramid} instead of the image itself.
+		 * <p>
+		 * The pyramid is meant to be read with {@code texelFetch}, the filters are set to the nearest mipmap.
+		 * Unless set, the internal format is {@link InternalFormat#RGBA8}.
+		 *
+		 * @return this builder
+		 */
+		public Builder minMaxPyramid() {
+			this.minMaxPyramid = true;
+			return this.parameter(TextureParameters.MIN_FILTER, TextureParameters.FilterValue.NEAREST_MIPMAP_NEAREST)
+					.parameter(TextureParameters.MAG_FILTER, TextureParameters.FilterValue.NEAREST);
+		}
+
 		public Texture2D build() {
-			var texture = new Texture2D(GL.get().genTextures(1)[0]);
+			var texture = new Texture2D(GL.get().genTexture());
 			texture.bind();
 
 			if (this.image != null) {
-				texture.upload(0, this.image);
+				if (this.minMaxPyramid) {
+					// The pyramid already provides every level.
+					MinMaxPyramid.of(this.image).upload(Target.TEXTURE_2D,
+							this.internalFormat == null ? InternalFormat.RGBA8 : this.internalFormat);
+				} else {
+					var internalFormat = this.internalFormat == null ? this.image.format().internalFormat() : this.internalFormat;
+
+					if (this.uploader != null) {
+						texture.initEmpty(Target.TEXTURE_2D, 0, internalFormat, this.image.width(), this.image.height());
+						this.uploader.upload(texture, 0, 0, 0, this.image);
+						texture.bind();
+					} else {
+						texture.upload(0, internalFormat, this.image);
+					}
+
+					if (this.mipmaps)
+						texture.generateMipmap();
+				}
 
 				if (this.cleanup) {
 					try {
@@ -58,7 +58,11 @@ public enum TextureParameters {
 
 	public enum FilterValue implements OpenGLIdProvider {
 		LINEAR(0x2601),
-		NEAREST(0x2600);
+		NEAREST(0x2600),
+		NEAREST_MIPMAP_NEAREST(0x2700),
+		LINEAR_MIPMAP_NEAREST(0x2701),
+		NEAREST_MIPMAP_LINEAR(0x2702),
+		LINEAR_MIPMAP_LINEAR(0x2703);
 
 		private final int glId;
 
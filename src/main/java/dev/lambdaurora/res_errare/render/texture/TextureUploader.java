@@ -0,0 +1,288 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.texture;
+
+import dev.lambdaurora.res_errare.render.buffer.BufferLayout;
+import dev.lambdaurora.res_errare.render.buffer.BufferTarget;
+import dev.lambdaurora.res_errare.render.buffer.BufferUsage;
+import dev.lambdaurora.res_errare.render.buffer.GraphicsBuffer;
+import dev.lambdaurora.res_errare.render.buffer.StreamingBuffer;
+import dev.lambdaurora.res_errare.system.GL;
+import jdk.incubator.foreign.MemoryAddress;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+
+/**
+ * Represents a texture uploader streaming texels through a persistently mapped pixel unpack buffer.
+ * <p>
+ * The buffer is split into a ring of staging slots. An upload is split into bands of rows fitting in a slot,
+ * each band is written into the mapped memory of a slot and copied to the texture by {@code glTexSubImage2D},
+ * the copy is then done by the GPU asynchronously. A fence is placed after each band so a slot is only rewritten
+ * once the GPU is done reading it.
+ * <p>
+ * Usage:
+ * <pre>{@code
+ * uploader.upload(texture, 0, x, y, width, height, Image.Format.RED, GL.GL11.UNSIGNED_BYTE, (staging, firstRow, rowCount) -> {
+ *     // write rowCount rows starting at firstRow into staging
+ * });
+ * }</pre>
+ */
+public final class TextureUploader implements AutoCloseable {
+	public static final long DEFAULT_SLOT_SIZE = 4 * 1024 * 1024;
+	public static final int DEFAULT_SLOT_COUNT = 3;
+	private static final int STORAGE_FLAGS = GL.GL30.MAP_WRITE_BIT | GL.GL44.MAP_PERSISTENT_BIT | GL.GL44.MAP_COHERENT_BIT;
+	private static final long SLOT_ALIGNMENT = 16;
+	private static final long FENCE_WAIT_TIMEOUT = 1_000_000L; // 1ms
+
+	private final GraphicsBuffer buffer;
+	private final long slotSize;
+	private final ResourceScope scope;
+	private final MemorySegment[] slots;
+	private final MemoryAddress[] fences;
+	private int slot = 0;
+
+	private long uploadedBytes = 0;
+	private int stalls = 0;
+
+	private TextureUploader(GraphicsBuffer buffer, long slotSize, int slotCount) {
+		this.buffer = buffer;
+		this.slotSize = slotSize;
+		this.scope = ResourceScope.newSharedScope();
+		this.slots = new MemorySegment[slotCount];
+		this.fences = new MemoryAddress[slotCount];
+
+		long totalSize = slotSize * slotCount;
+		this.buffer.allocateStorage(totalSize, STORAGE_FLAGS);
+		var mapping = GL.get().mapBufferRange(this.buffer.target(), 0, totalSize, STORAGE_FLAGS)
+				.asSegment(totalSize, this.scope);
+		this.buffer.unbind();
+
+		for (int i = 0; i < slotCount; i++) {
+			this.slots[i] = mapping.asSlice(i * slotSize, slotSize);
+		}
+	}
+
+	/**
+	 * {@return the size in bytes of a staging slot}
+	 */
+	public long slotSize() {
+		return this.slotSize;
+	}
+
+	/**
+	 * {@return the number of staging slots}
+	 */
+	public int slotCount() {
+		return this.slots.length;
+	}
+
+	/**
+	 * {@return the number of bytes uploaded so far}
+	 */
+	public long uploadedBytes() {
+		return this.uploadedBytes;
+	}
+
+	/**
+	 * {@return the number of times a slot was still read by the GPU when it was needed again}
+	 */
+	public int stalls() {
+		return this.stalls;
+	}
+
+	/**
+	 * Uploads the given image to a region of the texture.
+	 *
+	 * @param texture the texture
+	 * @param level the level
+	 * @param x the horizontal offset of the region
+	 * @param y the vertical offset of the region
+	 * @param image the image to upload
+	 */
+	public void upload(Texture2D texture, int level, int x, int y, Image image) {
+		long rowSize = rowSize(image.width(), image.format(), image.texelType());
+
+		try (var imageScope = ResourceScope.newConfinedScope()) {
+			var texels = image.getImageAddress(imageScope).asSegment(rowSize * image.height(), imageScope);
+
+			this.upload(texture, level, x, y, image.width(), image.height(), image.format(), image.texelType(),
+					(staging, firstRow, rowCount) -> staging.copyFrom(texels.asSlice(firstRow * rowSize, rowCount * rowSize)));
+		}
+	}
+
+	/**
+	 * Uploads texels to a region of the texture, the texels are written by the given writer directly into the staging memory.
+	 *
+	 * @param texture the texture
+	 * @param level the level
+	 * @param x the horizontal offset of the region
+	 * @param y the vertical offset of the region
+	 * @param width the width of the region
+	 * @param height the height of the region
+	 * @param format the format of the texels
+	 * @param type the type of the channels of the texels
+	 * @param writer the writer of the texels
+	 */
+	public void upload(Texture2D texture, int level, int x, int y, int width, int height, Image.Format format, int type,
+	                   RowWriter writer) {
+		long rowSize = rowSize(width, format, type);
+		int rowsPerBand = (int) Math.min(height, this.slotSize / rowSize);
+		if (rowsPerBand == 0)
+			throw new IllegalArgumentException("Cannot upload rows of " + rowSize + " bytes through staging slots of "
+					+ this.slotSize + " bytes.");
+
+		texture.bind();
+		this.buffer.bind();
+
+		// Tightly packed rows are not always aligned as the current unpack alignment expects,
+		// e.g. single channel images of odd widths, the previous alignment is restored afterwards.
+		int alignment = GL.get().unpackAlignment();
+		boolean unaligned = rowSize % alignment != 0;
+		if (unaligned)
+			GL.get().pixelStorei(GL.GL11.UNPACK_ALIGNMENT, 1);
+
+		try {
+			for (int firstRow = 0; firstRow < height; firstRow += rowsPerBand) {
+				int rowCount = Math.min(rowsPerBand, height - firstRow);
+				var staging = this.acquireSlot();
+
+				writer.write(staging.asSlice(0, rowCount * rowSize), firstRow, rowCount);
+				GL.get().texSubImage2D(texture.type(), level, x, y + firstRow, width, rowCount, format, type,
+						MemoryAddress.ofLong(this.slot * this.slotSize));
+
+				this.releaseSlot();
+				this.uploadedBytes += rowCount * rowSize;
+			}
+		} finally {
+			if (unaligned)
+				GL.get().pixelStorei(GL.GL11.UNPACK_ALIGNMENT, alignment);
+
+			// Client memory uploads would otherwise be read as offsets into the staging buffer.
+			this.buffer.unbind();
+			texture.unbind();
+		}
+	}
+
+	private MemorySegment acquireSlot() {
+		var fence = this.fences[this.slot];
+
+		if (fence != null) {
+			if (waitFor(fence))
+				this.stalls++;
+			GL.get().deleteSync(fence);
+			this.fences[this.slot] = null;
+		}
+
+		return this.slots[this.slot];
+	}
+
+	private void releaseSlot() {
+		this.fences[this.slot] = GL.get().fenceSync(GL.GL32.SYNC_GPU_COMMANDS_COMPLETE, 0);
+		this.slot = (this.slot + 1) % this.slots.length;
+	}
+
+	@Override
+	public void close() {
+		for (int i = 0; i < this.fences.length; i++) {
+			if (this.fences[i] != null) {
+				GL.get().deleteSync(this.fences[i]);
+				this.fences[i] = null;
+			}
+		}
+
+		this.scope.close();
+		this.buffer.bind();
+		GL.get().unmapBuffer(this.buffer.target());
+		this.buffer.unbind();
+		this.buffer.close();
+	}
+
+	/**
+	 * {@return {@code true} if the current context supports persistently mapped buffers, else {@code false}}
+	 */
+	public static boolean isSupported() {
+		return StreamingBuffer.isSupported();
+	}
+
+	/**
+	 * Creates a new texture uploader.
+	 *
+	 * @param slotSize the size in bytes of a staging slot, bounds the size of the bands of rows
+	 * @param slotCount the number of staging slots
+	 * @return the texture uploader
+	 */
+	public static TextureUploader of(long slotSize, int slotCount) {
+		long alignedSlotSize = (slotSize + SLOT_ALIGNMENT - 1) / SLOT_ALIGNMENT * SLOT_ALIGNMENT;
+		return new TextureUploader(GraphicsBuffer.of(BufferTarget.PIXEL_UNPACK, BufferUsage.STREAM_DRAW, BufferLayout.empty()),
+				alignedSlotSize, slotCount);
+	}
+
+	/**
+	 * {@return a new texture uploader with the default slot size and count}
+	 */
+	public static TextureUploader of() {
+		return of(DEFAULT_SLOT_SIZE, DEFAULT_SLOT_COUNT);
+	}
+
+	private static long rowSize(int width, Image.Format format, int type) {
+		int channelSize = switch (type) {
+			case GL.GL11.UNSIGNED_BYTE -> 1;
+			case GL.GL30.HALF_FLOAT -> 2;
+			case GL.GL11.FLOAT -> 4;
+			default -> throw new IllegalArgumentException("Unsupported texel type " + type + ".");
+		};
+		return (long) width * format.channelCount() * channelSize;
+	}
+
+	/**
+	 * Waits for the given fence.
+	 *
+	 * @return {@code true} if the fence was not signaled yet, else {@code false}
+	 */
+	private static boolean waitFor(MemoryAddress fence) {
+		boolean stalled = false;
+
+		while (true) {
+			int result = GL.get().clientWaitSync(fence, GL.GL32.SYNC_FLUSH_COMMANDS_BIT, stalled ? FENCE_WAIT_TIMEOUT : 0);
+
+			switch (result) {
+				case GL.GL32.ALREADY_SIGNALED, GL.GL32.CONDITION_SATISFIED -> {
+					return stalled;
+				}
+				case GL.GL32.WAIT_FAILED -> throw new IllegalStateException("Could not wait for texture uploader fence.");
+			}
+
+			stalled = true;
+		}
+	}
+
+	/**
+	 * Represents a writer of texels into staging memory.
+	 */
+	@FunctionalInterface
+	public interface RowWriter {
+		/**
+		 * Writes tightly packed rows of texels.
+		 *
+		 * @param destination the staging memory, exactly {@code rowCount} rows large
+		 * @param firstRow the index of the first row to write, relative to the uploaded region
+		 * @param rowCount the number of rows to write
+		 */
+		void write(MemorySegment destination, int firstRow, int rowCount);
+	}
+}
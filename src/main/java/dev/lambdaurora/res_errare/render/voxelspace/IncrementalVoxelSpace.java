@@ -0,0 +1,250 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.voxelspace;
+
+import dev.lambdaurora.res_errare.render.texture.Texture2D;
+import dev.lambdaurora.res_errare.render.texture.TextureType;
+import dev.lambdaurora.res_errare.system.GL;
+import org.joml.Vector3f;
+
+/**
+ * Represents the output of the voxel space pass, re-rendered incrementally from one frame to the next.
+ * <p>
+ * Each frame the requested view is compared to the view held by the output and the difference is classified as a {@link Change}:
+ * <ul>
+ *     <li>{@link Change#NONE}: the output is reused as is,</li>
+ *     <li>{@link Change#VERTICAL_SHIFT}: only the pitch changed, which offsets every height on screen by the same amount,
+ *     the previous output is copied shifted by whole rows and only the newly exposed rows are rendered,</li>
+ *     <li>{@link Change#ROTATION}, {@link Change#TRANSLATION} and {@link Change#RESET}: the output is fully re-rendered.</li>
+ * </ul>
+ * Rotations cannot reuse columns: the march steps along the depth of the view direction,
+ * so rotating changes the depth of every sample of a column and with it every height on screen.
+ */
+public final class IncrementalVoxelSpace implements AutoCloseable {
+	/**
+	 * Below this distance the position and the yaw are considered unchanged.
+	 */
+	private static final float EPSILON = 1e-5f;
+
+	private final VoxelSpacePass pass;
+	private Texture2D front;
+	private Texture2D back;
+	private int width;
+	private int height;
+
+	private boolean valid = false;
+	private final Vector3f renderedPosition = new Vector3f();
+	private float renderedYaw;
+	private float renderedPitch;
+
+	private int recomputedColumns;
+	private int recomputedRows;
+	private double totalRecomputedRatio;
+	private long frames;
+
+	public IncrementalVoxelSpace(VoxelSpacePass pass, int width, int height) {
+		this.pass = pass;
+		this.width = width;
+		this.height = height;
+		this.front = Texture2D.of(width, height, VoxelSpacePass.OUTPUT_FORMAT);
+		this.back = Texture2D.of(width, height, VoxelSpacePass.OUTPUT_FORMAT);
+		this.back.unbind();
+	}
+
+	/**
+	 * {@return the texture holding the latest output}
+	 */
+	public Texture2D output() {
+		return this.front;
+	}
+
+	/**
+	 * Resizes the output, the next frame is fully re-rendered.
+	 *
+	 * @param width the new width
+	 * @param height the new height
+	 */
+	public void resize(int width, int height) {
+		this.width = width;
+		this.height = height;
+		this.front.initEmpty(Texture2D.Target.TEXTURE_2D, 0, VoxelSpacePass.OUTPUT_FORMAT, width, height);
+		this.back.initEmpty(Texture2D.Target.TEXTURE_2D, 0, VoxelSpacePass.OUTPUT_FORMAT, width, height);
+		this.back.unbind();
+		this.invalidate();
+	}
+
+	/**
+	 * Invalidates the output, the next frame is fully re-rendered.
+	 */
+	public void invalidate() {
+		this.valid = false;
+	}
+
+	/**
+	 * Classifies the change between the view held by the output and the given view.
+	 *
+	 * @param position the position of the camera
+	 * @param yaw the yaw in radians
+	 * @param pitch the horizon offset in pixels
+	 * @return the change
+	 */
+	public Change classify(Vector3f position, float yaw, float pitch) {
+		if (!this.valid)
+			return Change.RESET;
+		if (position.distanceSquared(this.renderedPosition) > EPSILON * EPSILON)
+			return Change.TRANSLATION;
+		if (Math.abs(yaw - this.renderedYaw) > EPSILON)
+			return Change.ROTATION;
+		// Shifts are done by whole rows, the remainder is kept for the next frames.
+		if (Math.round(pitch - this.renderedPitch) != 0)
+			return Change.VERTICAL_SHIFT;
+		return Change.NONE;
+	}
+
+	/**
+	 * Updates the output to the given view, re-rendering as little as possible.
+	 *
+	 * @param heightPyramid the height pyramid texture
+	 * @param colormap the colormap texture
+	 * @param position the position of the camera
+	 * @param yaw the yaw in radians
+	 * @param pitch the horizon offset in pixels
+	 * @return the change that was applied
+	 */
+	public Change render(Texture2D heightPyramid, Texture2D colormap, Vector3f position, float yaw, float pitch) {
+		var change = this.classify(position, yaw, pitch);
+
+		switch (change) {
+			case NONE -> {
+				this.recomputedColumns = 0;
+				this.recomputedRows = 0;
+			}
+			case VERTICAL_SHIFT -> {
+				int shift = Math.round(pitch - this.renderedPitch);
+
+				if (Math.abs(shift) < this.height)
+					this.renderShifted(heightPyramid, colormap, shift);
+				else
+					this.renderFull(heightPyramid, colormap, position, yaw, pitch);
+			}
+			default -> this.renderFull(heightPyramid, colormap, position, yaw, pitch);
+		}
+
+		if (this.height > 0)
+			this.totalRecomputedRatio += (double) this.recomputedRows / this.height;
+		this.frames++;
+		return change;
+	}
+
+	private void renderFull(Texture2D heightPyramid, Texture2D colormap, Vector3f position, float yaw, float pitch) {
+		this.pass.dispatch(this.front, heightPyramid, colormap, this.width, this.height, position, yaw, pitch);
+
+		this.valid = true;
+		this.renderedPosition.set(position);
+		this.renderedYaw = yaw;
+		this.renderedPitch = pitch;
+		this.recomputedColumns = this.width;
+		this.recomputedRows = this.height;
+	}
+
+	/**
+	 * Reuses the previous output shifted by the given number of rows and renders the exposed rows.
+	 * <p>
+	 * Raising the pitch by {@code shift} pixels lowers every row by {@code shift}:
+	 * the new row {@code r} is the previous row {@code r + shift}.
+	 */
+	private void renderShifted(Texture2D heightPyramid, Texture2D colormap, int shift) {
+		int copiedRows = this.height - Math.abs(shift);
+		int sourceRow = Math.max(shift, 0);
+		int destinationRow = Math.max(-shift, 0);
+
+		GL.get().copyImageSubData(this.front.id(), TextureType.TEXTURE_2D, 0, 0, sourceRow, 0,
+				this.back.id(), TextureType.TEXTURE_2D, 0, 0, destinationRow, 0,
+				this.width, copiedRows, 1);
+
+		int rowStart = shift > 0 ? copiedRows : 0;
+		int rowEnd = shift > 0 ? this.height : -shift;
+		// The content is rendered for the rendered view, the pitch is only moved by whole rows.
+		float pitch = this.renderedPitch + shift;
+		this.pass.dispatch(this.back, heightPyramid, colormap, this.width, rowStart, rowEnd,
+				this.renderedPosition, this.renderedYaw, pitch);
+
+		var previous = this.front;
+		this.front = this.back;
+		this.back = previous;
+
+		this.renderedPitch = pitch;
+		this.recomputedColumns = this.width;
+		this.recomputedRows = rowEnd - rowStart;
+	}
+
+	/**
+	 * {@return the number of columns marched in the last frame}
+	 * <p>
+	 * A vertical shift still marches every column, only the rows it writes are saved, see {@link #recomputedRows()}.
+	 */
+	public int recomputedColumns() {
+		return this.recomputedColumns;
+	}
+
+	/**
+	 * {@return the number of rows written by the march in the last frame}
+	 */
+	public int recomputedRows() {
+		return this.recomputedRows;
+	}
+
+	/**
+	 * {@return the average ratio of the output re-rendered per frame, between {@code 0} and {@code 1}}
+	 */
+	public double averageRecomputedRatio() {
+		return this.frames == 0 ? 0 : this.totalRecomputedRatio / this.frames;
+	}
+
+	@Override
+	public void close() {
+		this.front.close();
+		this.back.close();
+	}
+
+	/**
+	 * Represents the kind of change between two voxel space views.
+	 */
+	public enum Change {
+		/**
+		 * The view did not change.
+		 */
+		NONE,
+		/**
+		 * Only the pitch changed, by at least half a row.
+		 */
+		VERTICAL_SHIFT,
+		/**
+		 * The yaw changed, the position did not.
+		 */
+		ROTATION,
+		/**
+		 * The position changed.
+		 */
+		TRANSLATION,
+		/**
+		 * The output holds nothing reusable.
+		 */
+		RESET
+	}
+}
@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.voxelspace;
+
+import dev.lambdaurora.res_errare.render.texture.Image;
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.ResourceScope;
+
+/**
+ * Represents the terrain sampled by the voxel space renderers, stored as planar normalized channels.
+ * <p>
+ * Channels are normalized to {@code [0, 1]} like the textures sampled by the compute shader,
+ * the heights are the red channel of the heightmap.
+ *
+ * @param width the width of the terrain
+ * @param height the height of the terrain
+ * @param heights the normalized heights
+ * @param red the red channel of the colormap
+ * @param green the green channel of the colormap
+ * @param blue the blue channel of the colormap
+ * @param alpha the alpha channel of the colormap
+ */
+public record Terrain(int width, int height, float[] heights, float[] red, float[] green, float[] blue, float[] alpha) {
+	public Terrain {
+		int area = width * height;
+		if (heights.length != area || red.length != area || green.length != area || blue.length != area || alpha.length != area)
+			throw new IllegalArgumentException("Terrain channels must have " + area + " elements.");
+	}
+
+	/**
+	 * Creates a terrain from the given heightmap and colormap images.
+	 *
+	 * @param heightmap the heightmap, only the first channel is read
+	 * @param colormap the colormap
+	 * @return the terrain
+	 */
+	public static Terrain of(Image heightmap, Image colormap) {
+		if (heightmap.width() != colormap.width() || heightmap.height() != colormap.height())
+			throw new IllegalArgumentException("The heightmap and the colormap must have the same dimensions, got "
+					+ heightmap.width() + "x" + heightmap.height() + " and " + colormap.width() + "x" + colormap.height() + ".");
+
+		int width = heightmap.width();
+		int height = heightmap.height();
+		int area = width * height;
+		var heights = new float[area];
+		var red = new float[area];
+		var green = new float[area];
+		var blue = new float[area];
+		var alpha = new float[area];
+
+		try (var scope = ResourceScope.newConfinedScope()) {
+			int channels = heightmap.format().channelCount();
+			var pixels = heightmap.getImageAddress(scope).asSegment((long) area * channels, scope);
+			for (int i = 0; i < area; i++) {
+				heights[i] = unorm(MemoryAccess.getByteAtOffset(pixels, (long) i * channels));
+			}
+
+			channels = colormap.format().channelCount();
+			pixels = colormap.getImageAddress(scope).asSegment((long) area * channels, scope);
+			for (int i = 0; i < area; i++) {
+				long offset = (long) i * channels;
+				red[i] = unorm(MemoryAccess.getByteAtOffset(pixels, offset));
+				// Missing channels are filled the same way OpenGL does: green and blue with 0, alpha with 1.
+				green[i] = channels > 1 ? unorm(MemoryAccess.getByteAtOffset(pixels, offset + 1)) : 0.f;
+				blue[i] = channels > 2 ? unorm(MemoryAccess.getByteAtOffset(pixels, offset + 2)) : 0.f;
+				alpha[i] = channels > 3 ? unorm(MemoryAccess.getByteAtOffset(pixels, offset + 3)) : 1.f;
+			}
+		}
+
+		return new Terrain(width, height, heights, red, green, blue, alpha);
+	}
+
+	/**
+	 * {@return the index of the given texel, or {@code -1} if the texel is out of bounds}
+	 *
+	 * @param x the x-coordinate of the texel
+	 * @param y the y-coordinate of the texel
+	 */
+	public int indexOf(int x, int y) {
+		if (x < 0 || y < 0 || x >= this.width || y >= this.height)
+			return -1;
+		return y * this.width + x;
+	}
+
+	private static float unorm(byte value) {
+		return (value & 0xff) / 255.f;
+	}
+}
@@ -0,0 +1,276 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.voxelspace;
+
+import dev.lambdaurora.res_errare.render.shader.*;
+import dev.lambdaurora.res_errare.render.texture.MinMaxPyramid;
+import dev.lambdaurora.res_errare.render.texture.Texture;
+import dev.lambdaurora.res_errare.render.texture.Texture2D;
+import dev.lambdaurora.res_errare.resource.AssetLoader;
+import dev.lambdaurora.res_errare.system.GL;
+import dev.lambdaurora.res_errare.util.Identifier;
+import org.joml.Vector3f;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Represents the voxel space compute pass, owns its image bindings and the dispatch sizing.
+ * <p>
+ * The compute shader is a variant of the {@linkplain AssetLoader#shaderVariants() shader variants} of the asset loader, which owns it.
+ * <p>
+ * Each invocation renders one screen column, invocations are grouped by {@link #localSize()} columns per workgroup.
+ * <p>
+ * The heightmap is read from a {@link MinMaxPyramid} of the terrain size:
+ * distant samples are taken from coarser levels, and the maximum heights are used to skip the cells hidden below the occlusion line.
+ */
+public final class VoxelSpacePass {
+	public static final Identifier SHADER_ID = new Identifier("voxelspace/shader");
+	public static final int DEFAULT_LOCAL_SIZE = 64;
+	/**
+	 * The maximum local size, the minimum value of {@code GL_MAX_COMPUTE_WORK_GROUP_INVOCATIONS} guaranteed by OpenGL.
+	 */
+	public static final int MAX_LOCAL_SIZE = 1024;
+	/**
+	 * The default coarsest level sampled, distant steps have a footprint of about 8 texels at the render distance.
+	 */
+	public static final int DEFAULT_MAX_LOD = 3;
+	/**
+	 * The number of levels of the pyramid the shader can skip with, set by {@code MAX_LEVELS} in the shader.
+	 */
+	public static final int MAX_SKIP_LEVEL = 10;
+	/**
+	 * The format of the output image, must match the format qualifier of {@code img_output} in the shader.
+	 */
+	public static final Texture.InternalFormat OUTPUT_FORMAT = Texture.InternalFormat.RGBA8;
+	public static final int OUTPUT_UNIT = 0;
+	public static final int HEIGHT_PYRAMID_UNIT = 1;
+	public static final int COLORMAP_UNIT = 2;
+
+	private final ShaderVariants variants;
+	private final ShaderVariants.Variant variant;
+	private final int localSize;
+	private final int terrainSize;
+	private ShaderProgram program;
+	private Uniform posUniform;
+	private Uniform yawUniform;
+	private Uniform pitchUniform;
+	private Uniform rowStartUniform;
+	private Uniform rowEndUniform;
+	private int maxLod = Integer.getInteger("res_errare.voxelspace.max_lod", DEFAULT_MAX_LOD);
+	private boolean emptySpaceSkipping = true;
+
+	private VoxelSpacePass(ShaderVariants variants, ShaderProgram program, int localSize, int terrainSize) {
+		this.variants = variants;
+		this.variant = variant(localSize);
+		this.localSize = localSize;
+		this.terrainSize = terrainSize;
+		this.maxLod = this.clampLod(this.maxLod);
+		this.setProgram(program);
+	}
+
+	/**
+	 * Sets the program of this pass, its constant uniforms are set and its uniform locations fetched.
+	 */
+	private void setProgram(ShaderProgram program) {
+		this.program = program;
+
+		this.program.use();
+		this.program.setInt("height_pyramid", HEIGHT_PYRAMID_UNIT);
+		this.program.setInt("colormap", COLORMAP_UNIT);
+		this.program.setInt("size", this.terrainSize);
+		this.program.setInt("max_lod", this.maxLod);
+		this.program.setInt("max_skip_level", this.emptySpaceSkipping ? this.maxSkipLevel() : 0);
+		this.posUniform = this.program.getUniform("pos", UniformType.VEC3F);
+		this.yawUniform = this.program.getUniform("yaw", UniformType.FLOAT);
+		this.pitchUniform = this.program.getUniform("pitch", UniformType.FLOAT);
+		this.rowStartUniform = this.program.getUniform("row_start", UniformType.INT);
+		this.rowEndUniform = this.program.getUniform("row_end", UniformType.INT);
+		ShaderProgram.useNone();
+	}
+
+	/**
+	 * Watches the compute shader of this pass for changes, the pass switches to the reloaded program between frames.
+	 *
+	 * @param reloader the shader reloader
+	 * @return the watched program
+	 */
+	public ShaderReloader.Program watch(ShaderReloader reloader) {
+		return this.variants.watch(reloader, this.variant, this::setProgram);
+	}
+
+	/**
+	 * Loads the voxel space pass, its compute shader is compiled as a variant of the shader variants of the given asset loader.
+	 *
+	 * @param loader the asset loader
+	 * @param localSize the number of columns per workgroup
+	 * @param terrainSize the size after which the terrain tiles
+	 * @return the future pass
+	 */
+	public static CompletableFuture<VoxelSpacePass> load(AssetLoader loader, int localSize, int terrainSize) {
+		if (localSize <= 0 || localSize > MAX_LOCAL_SIZE)
+			throw new IllegalArgumentException("The local size must be in [1, " + MAX_LOCAL_SIZE + "], got " + localSize + ".");
+
+		var variant = variant(localSize);
+		var program = loader.program(variant.shaders(), variant.defines());
+		return loader.upload(program, result -> new VoxelSpacePass(loader.shaderVariants(), result, localSize, terrainSize));
+	}
+
+	/**
+	 * Loads the voxel space pass with the local size from the {@code res_errare.voxelspace.local_size} system property.
+	 *
+	 * @param loader the asset loader
+	 * @param terrainSize the size after which the terrain tiles
+	 * @return the future pass
+	 */
+	public static CompletableFuture<VoxelSpacePass> load(AssetLoader loader, int terrainSize) {
+		return load(loader, Integer.getInteger("res_errare.voxelspace.local_size", DEFAULT_LOCAL_SIZE), terrainSize);
+	}
+
+	/**
+	 * {@return the number of columns per workgroup}
+	 */
+	public int localSize() {
+		return this.localSize;
+	}
+
+	/**
+	 * {@return the coarsest level sampled for distant terrain}
+	 */
+	public int maxLod() {
+		return this.maxLod;
+	}
+
+	/**
+	 * Sets the coarsest level sampled for distant terrain.
+	 * <p>
+	 * The level is clamped to the levels of the height pyramid, a coarser level would sample outside of it.
+	 *
+	 * @param maxLod the coarsest level, {@code 0} always samples the full resolution like {@link VoxelSpaceRenderer}
+	 */
+	public void setMaxLod(int maxLod) {
+		this.maxLod = this.clampLod(maxLod);
+		this.program.use();
+		this.program.setInt("max_lod", this.maxLod);
+		ShaderProgram.useNone();
+	}
+
+	/**
+	 * Enables or disables the skipping of the terrain hidden below the occlusion line.
+	 *
+	 * @param enabled {@code true} to skip the hidden terrain, else {@code false}
+	 */
+	public void setEmptySpaceSkipping(boolean enabled) {
+		this.emptySpaceSkipping = enabled;
+		this.program.use();
+		this.program.setInt("max_skip_level", enabled ? this.maxSkipLevel() : 0);
+		ShaderProgram.useNone();
+	}
+
+	/**
+	 * {@return the given level clamped to the levels of the height pyramid of the terrain}
+	 */
+	private int clampLod(int level) {
+		return Math.max(0, Math.min(level, MinMaxPyramid.levelCount(this.terrainSize, this.terrainSize) - 1));
+	}
+
+	/**
+	 * {@return the coarsest level used for skipping}
+	 * <p>
+	 * A cell must not straddle the tiling boundary, so its size has to divide the tiling size.
+	 */
+	private int maxSkipLevel() {
+		return Math.min(MAX_SKIP_LEVEL, Integer.numberOfTrailingZeros(this.terrainSize));
+	}
+
+	/**
+	 * {@return the number of workgroups needed to cover the given screen width}
+	 *
+	 * @param width the width of the screen
+	 */
+	public int groupCount(int width) {
+		return (width + this.localSize - 1) / this.localSize;
+	}
+
+	/**
+	 * Renders the terrain into the output texture.
+	 *
+	 * @param output the output texture, in {@link #OUTPUT_FORMAT}
+	 * @param heightPyramid the height pyramid texture, built with {@link Texture2D.Builder#minMaxPyramid()}
+	 * @param colormap the colormap texture, with mipmaps
+	 * @param width the width of the output texture
+	 * @param height the height of the output texture
+	 * @param position the position of the camera
+	 * @param yaw the yaw in radians
+	 * @param pitch the horizon offset in pixels
+	 */
+	public void dispatch(Texture2D output, Texture2D heightPyramid, Texture2D colormap, int width, int height,
+	                     Vector3f position, float yaw, float pitch) {
+		this.dispatch(output, heightPyramid, colormap, width, 0, height, position, yaw, pitch);
+	}
+
+	/**
+	 * Renders the terrain into the given rows of the output texture, the other rows are left untouched.
+	 * <p>
+	 * Every column is still marched, but the march stops as soon as the rows are final.
+	 *
+	 * @param output the output texture, in {@link #OUTPUT_FORMAT}
+	 * @param heightPyramid the height pyramid texture, built with {@link Texture2D.Builder#minMaxPyramid()}
+	 * @param colormap the colormap texture, with mipmaps
+	 * @param width the width of the output texture
+	 * @param rowStart the first row to render, rows start at the bottom of the screen
+	 * @param rowEnd the row after the last row to render
+	 * @param position the position of the camera
+	 * @param yaw the yaw in radians
+	 * @param pitch the horizon offset in pixels
+	 */
+	public void dispatch(Texture2D output, Texture2D heightPyramid, Texture2D colormap, int width, int rowStart, int rowEnd,
+	                     Vector3f position, float yaw, float pitch) {
+		this.program.use();
+		this.posUniform.set(position);
+		this.yawUniform.set(yaw);
+		this.pitchUniform.set(pitch);
+		this.rowStartUniform.set(rowStart);
+		this.rowEndUniform.set(rowEnd);
+
+		GL.get().activeTexture(GL.GL13.TEXTURE0 + HEIGHT_PYRAMID_UNIT);
+		heightPyramid.bind();
+		GL.get().activeTexture(GL.GL13.TEXTURE0 + COLORMAP_UNIT);
+		colormap.bind();
+
+		try (var boundOutput = output.bindImageTexture(OUTPUT_UNIT, 0, GL.Access.WRITE_ONLY, OUTPUT_FORMAT)) {
+			this.program.dispatchCompute(this.groupCount(width), 1, 1);
+			// The output may be sampled or copied by the next incremental frame.
+			GL.get().memoryBarrier(GL.GL42.SHADER_IMAGE_ACCESS_BARRIER_BIT | GL.GL42.TEXTURE_FETCH_BARRIER_BIT
+					| GL.GL42.TEXTURE_UPDATE_BARRIER_BIT);
+		}
+
+		colormap.unbind();
+		GL.get().activeTexture(GL.GL13.TEXTURE0 + HEIGHT_PYRAMID_UNIT);
+		heightPyramid.unbind();
+		GL.get().activeTexture(GL.GL13.TEXTURE0);
+		ShaderProgram.useNone();
+	}
+
+	/**
+	 * {@return the variant of the compute shader with the given local size}
+	 */
+	private static ShaderVariants.Variant variant(int localSize) {
+		return new ShaderVariants.Variant(Map.of(ShaderType.COMPUTE, SHADER_ID), Map.of("LOCAL_SIZE_X", String.valueOf(localSize)));
+	}
+}
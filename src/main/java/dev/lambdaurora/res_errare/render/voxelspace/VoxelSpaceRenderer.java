@@ -0,0 +1,300 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.voxelspace;
+
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorMask;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+import org.joml.Vector3f;
+
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+/**
+ * Represents the CPU implementation of the voxel space compute shader ({@code voxelspace/shader.csh}).
+ * <p>
+ * Screen columns are split in blocks rendered in parallel on a fork-join pool, inside a block the ray-march
+ * of adjacent columns is done together with the vector API since every column shares the same depth steps.
+ * The march of a group of columns stops as soon as all of them are fully occluded.
+ * <p>
+ * The output is written as 4 floats per pixel with the first row at the bottom, matching the row order of the
+ * output texture of the compute shader so it can be uploaded directly as {@code GL_FLOAT} data.
+ * <p>
+ * The terrain is always sampled at full resolution, so this renderer is only a reference for the shader with {@code max_lod}
+ * set to {@code 0} (see {@link VoxelSpacePass#setMaxLod(int)}). With the default {@link VoxelSpacePass#DEFAULT_MAX_LOD},
+ * distant steps sample coarser levels of the height pyramid and the images differ.
+ */
+public final class VoxelSpaceRenderer {
+	public static final float RENDER_DISTANCE = 2000.f;
+	public static final float FOG_DISTANCE = 850.f;
+	public static final float SCALE_HEIGHT = 240.f;
+	public static final int PIXEL_SIZE = 4 * Float.BYTES;
+	private static final float FOG_LENGTH = RENDER_DISTANCE - FOG_DISTANCE;
+	private static final float[] SKY_COLOR = {.1f, .3f, 1.f, 0.f};
+
+	private static final VectorSpecies<Float> FLOATS = FloatVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Integer> INTS = IntVector.SPECIES_PREFERRED;
+	private static final int LANES = FLOATS.length();
+	private static final FloatVector LANE_OFFSETS = FloatVector.fromArray(FLOATS, laneOffsets(), 0);
+	/**
+	 * The number of columns under which a block is no longer split.
+	 */
+	private static final int COLUMNS_PER_TASK = Math.max(32, LANES * 4);
+
+	private final ForkJoinPool pool;
+
+	public VoxelSpaceRenderer(ForkJoinPool pool) {
+		this.pool = pool;
+	}
+
+	public VoxelSpaceRenderer() {
+		this(ForkJoinPool.commonPool());
+	}
+
+	/**
+	 * Allocates an output segment fitting the given screen dimensions.
+	 *
+	 * @param width the width of the screen
+	 * @param height the height of the screen
+	 * @param scope the scope of the segment
+	 * @return the output segment
+	 */
+	public static MemorySegment allocateOutput(int width, int height, ResourceScope scope) {
+		return MemorySegment.allocateNative((long) width * height * PIXEL_SIZE, 16, scope);
+	}
+
+	/**
+	 * Renders the terrain into the given output.
+	 *
+	 * @param terrain the terrain
+	 * @param view the view
+	 * @param output the output segment, of at least {@code width * height * 16} bytes
+	 * @param width the width of the screen
+	 * @param height the height of the screen
+	 */
+	public void render(Terrain terrain, View view, MemorySegment output, int width, int height) {
+		if (output.byteSize() < (long) width * height * PIXEL_SIZE)
+			throw new IllegalArgumentException("Output of " + output.byteSize() + " bytes is too small for "
+					+ width + "x" + height + " pixels.");
+		if (width <= 0 || height <= 0)
+			return;
+
+		this.pool.invoke(new ColumnTask(new Frame(terrain, view, output, width, height), 0, width));
+	}
+
+	private static void renderColumns(Frame frame, int from, int to) {
+		var lanes = new Lanes();
+		for (int x = from; x < to; x += LANES) {
+			rayMarch(frame, lanes, x, to);
+
+			int count = Math.min(LANES, to - x);
+			for (int lane = 0; lane < count; lane++) {
+				// Only the rows above the terrain are filled with the sky.
+				fillColumn(frame, x + lane, lanes.filledRows[lane], frame.height - 1,
+						SKY_COLOR[0], SKY_COLOR[1], SKY_COLOR[2], SKY_COLOR[3]);
+			}
+		}
+	}
+
+	/**
+	 * Ray-marches up to {@link #LANES} adjacent columns starting at {@code x0}.
+	 */
+	private static void rayMarch(Frame frame, Lanes lanes, int x0, int to) {
+		var view = frame.view;
+		var terrain = frame.terrain;
+		int count = Math.min(LANES, to - x0);
+		var activeLanes = INTS.indexInRange(x0, to);
+
+		float posX = view.position().z();
+		float posZ = -view.position().x();
+		float posY = view.position().y();
+		float sinYaw = (float) Math.sin(view.yaw());
+		float cosYaw = (float) Math.cos(view.yaw());
+		var columns = LANE_OFFSETS.add(x0);
+		var size = IntVector.broadcast(INTS, view.size());
+
+		for (int lane = 0; lane < count; lane++) {
+			lanes.yBuffer[lane] = frame.height;
+			lanes.filledRows[lane] = 0;
+		}
+		int occludedLanes = 0;
+
+		float z = 1.f, dz = 1.f;
+		while (z < RENDER_DISTANCE && occludedLanes < count) {
+			// Same operation order as the shader so both implementations round the same way.
+			float leftX = -cosYaw * z - sinYaw * z;
+			float leftY = sinYaw * z - cosYaw * z;
+			float rightX = cosYaw * z - sinYaw * z;
+			float rightY = -sinYaw * z - cosYaw * z;
+
+			float dX = (rightX - leftX) / frame.width;
+			float dY = (rightY - leftY) / frame.width;
+
+			var pointX = columns.mul(dX).add(posX).add(leftX);
+			var pointY = columns.mul(dY).add(posZ).add(leftY);
+
+			var texelX = (IntVector) pointX.convert(VectorOperators.F2I, 0);
+			var texelY = (IntVector) pointY.convert(VectorOperators.F2I, 0);
+			// Truncated remainder like GLSL's %, negative coordinates end up out of bounds and load zeroes.
+			texelX = texelX.sub(texelX.div(size).mul(size));
+			texelY = texelY.sub(texelY.div(size).mul(size));
+
+			VectorMask<Integer> inBounds = texelX.compare(VectorOperators.GE, 0)
+					.and(texelX.compare(VectorOperators.LT, terrain.width()))
+					.and(texelY.compare(VectorOperators.GE, 0))
+					.and(texelY.compare(VectorOperators.LT, terrain.height()))
+					.and(activeLanes);
+			texelY.mul(terrain.width()).add(texelX)
+					.blend(0, inBounds.not())
+					.intoArray(lanes.indices, 0);
+			var loadMask = inBounds.cast(FLOATS);
+
+			var heights = FloatVector.fromArray(FLOATS, terrain.heights(), 0, lanes.indices, 0, loadMask);
+			heights.neg().mul(255.f).add(posY).div(z).mul(SCALE_HEIGHT).add(view.pitch())
+					.intoArray(lanes.heightsOnScreen, 0);
+
+			var distanceX = pointX.sub(posX);
+			var distanceY = pointY.sub(posZ);
+			var distance = distanceX.mul(distanceX).add(distanceY.mul(distanceY)).sqrt();
+			var alpha = FloatVector.fromArray(FLOATS, terrain.alpha(), 0, lanes.indices, 0, loadMask);
+			alpha = alpha.blend(distance.sub(FOG_DISTANCE).div(FOG_LENGTH).min(.9f), distance.compare(VectorOperators.GT, FOG_DISTANCE));
+
+			FloatVector.fromArray(FLOATS, terrain.red(), 0, lanes.indices, 0, loadMask).intoArray(lanes.red, 0);
+			FloatVector.fromArray(FLOATS, terrain.green(), 0, lanes.indices, 0, loadMask).intoArray(lanes.green, 0);
+			FloatVector.fromArray(FLOATS, terrain.blue(), 0, lanes.indices, 0, loadMask).intoArray(lanes.blue, 0);
+			alpha.intoArray(lanes.alpha, 0);
+
+			for (int lane = 0; lane < count; lane++) {
+				int yBuffer = lanes.yBuffer[lane];
+				if (yBuffer <= 0)
+					continue;
+
+				float heightOnScreen = lanes.heightsOnScreen[lane];
+				int top = (int) heightOnScreen;
+				int spanEnd = frame.height - top;
+
+				fillColumn(frame, x0 + lane, frame.height - yBuffer, spanEnd,
+						lanes.red[lane], lanes.green[lane], lanes.blue[lane], lanes.alpha[lane]);
+
+				if (spanEnd >= frame.height - yBuffer)
+					lanes.filledRows[lane] = Math.max(lanes.filledRows[lane], Math.min(spanEnd + 1, frame.height));
+
+				if (heightOnScreen < yBuffer) {
+					lanes.yBuffer[lane] = top;
+
+					// The column is fully occluded, nothing further away can be drawn.
+					if (top <= 0)
+						occludedLanes++;
+				}
+			}
+
+			// Go to next line and increase step size when you are far away.
+			dz *= 1.006f;
+			dz += 0.0001f;
+			z += dz;
+		}
+	}
+
+	/**
+	 * Fills the rows {@code [from, to]} of the given column, rows out of the screen are ignored like out of bounds image stores.
+	 */
+	private static void fillColumn(Frame frame, int x, int from, int to, float red, float green, float blue, float alpha) {
+		from = Math.max(from, 0);
+		to = Math.min(to, frame.height - 1);
+
+		long rowStride = (long) frame.width * PIXEL_SIZE;
+		long offset = from * rowStride + (long) x * PIXEL_SIZE;
+		for (int y = from; y <= to; y++, offset += rowStride) {
+			MemoryAccess.setFloatAtOffset(frame.output, offset, red);
+			MemoryAccess.setFloatAtOffset(frame.output, offset + 4, green);
+			MemoryAccess.setFloatAtOffset(frame.output, offset + 8, blue);
+			MemoryAccess.setFloatAtOffset(frame.output, offset + 12, alpha);
+		}
+	}
+
+	private static float[] laneOffsets() {
+		var offsets = new float[LANES];
+		for (int i = 0; i < LANES; i++) {
+			offsets[i] = i;
+		}
+		return offsets;
+	}
+
+	/**
+	 * Represents the view from which the terrain is rendered, mirrors the uniforms of the compute shader.
+	 *
+	 * @param position the position of the camera
+	 * @param yaw the yaw in radians
+	 * @param pitch the horizon offset in pixels
+	 * @param size the size after which the terrain tiles
+	 */
+	public record View(Vector3f position, float yaw, float pitch, int size) {
+		public View {
+			if (size <= 0)
+				throw new IllegalArgumentException("The tiling size must be positive, got " + size + ".");
+		}
+	}
+
+	private record Frame(Terrain terrain, View view, MemorySegment output, int width, int height) {
+	}
+
+	/**
+	 * Per-task scratch arrays used to move data between vector and scalar code.
+	 */
+	private static final class Lanes {
+		private final int[] indices = new int[LANES];
+		private final int[] yBuffer = new int[LANES];
+		private final int[] filledRows = new int[LANES];
+		private final float[] heightsOnScreen = new float[LANES];
+		private final float[] red = new float[LANES];
+		private final float[] green = new float[LANES];
+		private final float[] blue = new float[LANES];
+		private final float[] alpha = new float[LANES];
+	}
+
+	private static final class ColumnTask extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+
+		private final transient Frame frame;
+		private final int from;
+		private final int to;
+
+		private ColumnTask(Frame frame, int from, int to) {
+			this.frame = frame;
+			this.from = from;
+			this.to = to;
+		}
+
+		@Override
+		protected void compute() {
+			if (this.to - this.from <= COLUMNS_PER_TASK) {
+				renderColumns(this.frame, this.from, this.to);
+				return;
+			}
+
+			// Split on a lane boundary so that only the last block has a partial vector.
+			int middle = this.from + ((this.to - this.from) / 2 / LANES) * LANES;
+			invokeAll(new ColumnTask(this.frame, this.from, middle), new ColumnTask(this.frame, middle, this.to));
+		}
+	}
+}
@@ -0,0 +1,340 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.resource;
+
+import dev.lambdaurora.res_errare.render.shader.PreprocessedShader;
+import dev.lambdaurora.res_errare.render.shader.ProgramCache;
+import dev.lambdaurora.res_errare.render.shader.ProgramCompiler;
+import dev.lambdaurora.res_errare.render.shader.Shader;
+import dev.lambdaurora.res_errare.render.shader.ShaderLoader;
+import dev.lambdaurora.res_errare.render.shader.ShaderProgram;
+import dev.lambdaurora.res_errare.render.shader.ShaderType;
+import dev.lambdaurora.res_errare.render.shader.ShaderVariants;
+import dev.lambdaurora.res_errare.render.texture.CubeMapTexture;
+import dev.lambdaurora.res_errare.render.texture.Image;
+import dev.lambdaurora.res_errare.render.texture.NativeImage;
+import dev.lambdaurora.res_errare.render.texture.Texture2D;
+import dev.lambdaurora.res_errare.util.Identifier;
+import dev.lambdaurora.res_errare.util.Result;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+import java.util.function.UnaryOperator;
+
+/**
+ * Represents an asynchronous asset loader.
+ * <p>
+ * Images are decoded and shader sources are preprocessed on a pool of worker threads,
+ * the results are then handed to an upload queue which is drained on the thread owning the context
+ * by {@link #processUploads(long)}, usually once per frame with a time budget.
+ * <p>
+ * Every asset is represented by a {@link CompletableFuture}, assets depending on other assets are chained from their futures:
+ * a cube map texture is uploaded only once its six faces are decoded.
+ */
+public final class AssetLoader implements AutoCloseable {
+	private static final AtomicInteger THREAD_COUNTER = new AtomicInteger();
+
+	private final ExecutorService workers;
+	private final Queue<Runnable> uploads = new ConcurrentLinkedQueue<>();
+	private final Executor uploadExecutor = this.uploads::add;
+	private final ProgramCompiler programCompiler = new ProgramCompiler();
+	private final ShaderVariants shaderVariants = new ShaderVariants();
+	private int uploadCount = 0;
+	private long uploadNanos = 0;
+
+	/**
+	 * Creates a new asset loader and starts its worker threads.
+	 *
+	 * @param threadCount the number of worker threads
+	 */
+	public AssetLoader(int threadCount) {
+		if (threadCount < 1)
+			throw new IllegalArgumentException("Invalid asset loader thread count " + threadCount + ", expected at least 1.");
+
+		this.workers = Executors.newFixedThreadPool(threadCount, task -> {
+			var thread = new Thread(task, "res_errare-asset-loader-" + THREAD_COUNTER.getAndIncrement());
+			thread.setDaemon(true);
+			return thread;
+		});
+	}
+
+	/**
+	 * {@return the default number of worker threads, which can be overridden with the {@code res_errare.assets.threads} system property}
+	 */
+	public static int defaultThreadCount() {
+		return Integer.getInteger("res_errare.assets.threads", Math.max(1, Runtime.getRuntime().availableProcessors() - 1));
+	}
+
+	/**
+	 * {@return the default upload time budget per frame in nanoseconds,
+	 * which can be overridden in milliseconds with the {@code res_errare.assets.upload_budget} system property}
+	 */
+	public static long defaultUploadBudget() {
+		return Long.getLong("res_errare.assets.upload_budget", 4) * 1_000_000L;
+	}
+
+	/**
+	 * {@return the executor running tasks on the thread owning the context, as part of {@link #processUploads(long)}}
+	 */
+	public Executor uploadExecutor() {
+		return this.uploadExecutor;
+	}
+
+	/**
+	 * Runs the given task on a worker thread.
+	 *
+	 * @param task the task
+	 * @param <T> the type of the result
+	 * @return the future result of the task, completed exceptionally if the task throws
+	 */
+	public <T> CompletableFuture<T> supply(Callable<T> task) {
+		var future = new CompletableFuture<T>();
+		this.workers.execute(() -> {
+			try {
+				future.complete(task.call());
+			} catch (Throwable e) {
+				future.completeExceptionally(e);
+			}
+		});
+		return future;
+	}
+
+	/**
+	 * Uploads the given value once available, the upload runs on the thread owning the context.
+	 *
+	 * @param value the future value
+	 * @param upload the upload function
+	 * @param <T> the type of the value
+	 * @param <R> the type of the uploaded object
+	 * @return the future uploaded object
+	 */
+	public <T, R> CompletableFuture<R> upload(CompletableFuture<T> value, Function<T, R> upload) {
+		return value.thenApplyAsync(upload, this.uploadExecutor);
+	}
+
+	/**
+	 * Decodes the given image on a worker thread.
+	 *
+	 * @param imageId the resource identifier of the image
+	 * @param format the format the image is decoded to
+	 * @return the future decoded image
+	 */
+	public CompletableFuture<NativeImage> image(Identifier imageId, Image.Format format) {
+		return this.supply(() -> NativeImage.load(imageId, format));
+	}
+
+	/**
+	 * Loads the given 2D texture, the image is decoded on a worker thread.
+	 *
+	 * @param imageId the resource identifier of the image
+	 * @param format the format the image is decoded to
+	 * @param configurator configures the texture builder before the texture is built, on the thread owning the context
+	 * @return the future texture
+	 */
+	public CompletableFuture<Texture2D> texture(Identifier imageId, Image.Format format, UnaryOperator<Texture2D.Builder> configurator) {
+		return this.upload(this.image(imageId, format),
+				image -> configurator.apply(Texture2D.builder(image).withCleanup()).build());
+	}
+
+	/**
+	 * Loads a cube map texture from the faces in the given directory, the faces are decoded in parallel on the worker threads.
+	 *
+	 * @param directory the directory of the faces
+	 * @param extension the extension of the faces
+	 * @return the future cube map texture, completed once every face is uploaded
+	 * @see CubeMapTexture.Builder#facesFromDirectory(Identifier, String)
+	 */
+	public CompletableFuture<CubeMapTexture> cubeMap(Identifier directory, String extension) {
+		var faces = new EnumMap<CubeMapTexture.CubeMapTextureTarget, CompletableFuture<NativeImage>>(CubeMapTexture.CubeMapTextureTarget.class);
+		CubeMapTexture.FACE_NAMES.forEach((target, name) ->
+				faces.put(target, this.image(directory.sub(name + '.' + extension), Image.Format.ARGB)));
+
+		var decoded = CompletableFuture.allOf(faces.values().toArray(CompletableFuture[]::new))
+				.whenComplete((ignored, error) -> {
+					if (error != null)
+						closeDecoded(faces);
+				});
+
+		return this.upload(decoded, ignored -> {
+			var builder = CubeMapTexture.builder().withCleanup();
+			faces.forEach((target, face) -> builder.face(target, face.join()));
+			return builder.build();
+		});
+	}
+
+	/**
+	 * Preprocesses the source of the given shader on a worker thread.
+	 *
+	 * @param type the type of the shader
+	 * @param shaderId the identifier of the shader
+	 * @return the future preprocessed source
+	 */
+	public CompletableFuture<String> shaderSource(ShaderType type, Identifier shaderId) {
+		return this.supply(() -> ShaderLoader.DEFAULT_LOADER.loadShaderSource(Shader.sourceId(type, shaderId)).getOrThrow());
+	}
+
+	/**
+	 * Loads the given shader, its source is preprocessed on a worker thread.
+	 *
+	 * @param type the type of the shader
+	 * @param shaderId the identifier of the shader
+	 * @return the future compiled shader
+	 */
+	public CompletableFuture<Shader> shader(ShaderType type, Identifier shaderId) {
+		return this.upload(this.shaderSource(type, shaderId), source -> Shader.compile(type, source).getOrThrow());
+	}
+
+	/**
+	 * Loads the given program, its sources are preprocessed on a worker thread.
+	 * <p>
+	 * Programs are kept in the {@linkplain #shaderVariants() shader variants} of this loader, which own them:
+	 * loading a program again is a lookup.
+	 * Otherwise, the program is loaded from the {@linkplain ProgramCache#getDefault() default program cache} if possible,
+	 * or its shaders are submitted to the {@linkplain #programCompiler() program compiler}.
+	 * <p>
+	 * This method must be called on the thread owning the context.
+	 *
+	 * @param shaders the identifiers of the shaders of the program, by type
+	 * @return the future linked program
+	 */
+	public CompletableFuture<ShaderProgram> program(Map<ShaderType, Identifier> shaders) {
+		return this.program(shaders, Map.of());
+	}
+
+	/**
+	 * Loads the given program with the given macros defined, its sources are preprocessed on a worker thread.
+	 *
+	 * @param shaders the identifiers of the shaders of the program, by type
+	 * @param defines the macros defined when preprocessing the shaders, by name
+	 * @return the future linked program
+	 * @see #program(Map)
+	 */
+	public CompletableFuture<ShaderProgram> program(Map<ShaderType, Identifier> shaders, Map<String, String> defines) {
+		return this.shaderVariants.get(new ShaderVariants.Variant(shaders, defines), this::compile, this.uploadExecutor);
+	}
+
+	private CompletableFuture<ShaderProgram> compile(ShaderVariants.Variant variant) {
+		var sources = this.supply(() -> {
+			var result = new EnumMap<ShaderType, PreprocessedShader>(ShaderType.class);
+			variant.shaders().forEach((type, shaderId) -> result.put(type, ShaderLoader.DEFAULT_LOADER.load(Shader.sourceId(type, shaderId),
+					variant.defines(), dependency -> {
+					}).getOrThrow()));
+			return result;
+		});
+
+		return this.upload(sources, result -> ProgramCache.getDefault().link(result, this.programCompiler))
+				.thenCompose(Function.identity())
+				.thenApply(Result::getOrThrow);
+	}
+
+	/**
+	 * {@return the cache of the programs loaded by this asset loader, by shaders and macros}
+	 */
+	public ShaderVariants shaderVariants() {
+		return this.shaderVariants;
+	}
+
+	/**
+	 * {@return the compiler of the programs loaded by this asset loader, whose completed programs are processed along the uploads}
+	 */
+	public ProgramCompiler programCompiler() {
+		return this.programCompiler;
+	}
+
+	/**
+	 * Runs the queued uploads until the given time budget is exceeded, must be called on the thread owning the context.
+	 * <p>
+	 * At least one upload is run, so that uploads larger than the budget still make progress.
+	 * The programs of the {@linkplain #programCompiler() program compiler} are then processed with the remaining budget.
+	 *
+	 * @param budgetNanos the time budget in nanoseconds
+	 * @return the number of uploads run and programs completed
+	 */
+	public int processUploads(long budgetNanos) {
+		long start = System.nanoTime();
+		int processed = 0;
+
+		Runnable upload;
+		while ((upload = this.uploads.poll()) != null) {
+			upload.run();
+			processed++;
+
+			if (System.nanoTime() - start >= budgetNanos)
+				break;
+		}
+
+		// Programs are completed once the driver is done with them, including the ones just submitted by the uploads.
+		processed += this.programCompiler.process(Math.max(0, budgetNanos - (System.nanoTime() - start)));
+
+		if (processed != 0) {
+			this.uploadCount += processed;
+			this.uploadNanos += System.nanoTime() - start;
+		}
+		return processed;
+	}
+
+	/**
+	 * {@return {@code true} if uploads are waiting in the queue or programs are being compiled, else {@code false}}
+	 */
+	public boolean hasPendingUploads() {
+		return !this.uploads.isEmpty() || this.programCompiler.hasPending();
+	}
+
+	/**
+	 * {@return the number of uploads run so far}
+	 */
+	public int uploadCount() {
+		return this.uploadCount;
+	}
+
+	/**
+	 * {@return the time spent running uploads so far in milliseconds}
+	 */
+	public double uploadMillis() {
+		return this.uploadNanos / 1_000_000.;
+	}
+
+	/**
+	 * Stops the worker threads, the queued uploads are dropped and the programs being compiled are deleted.
+	 * <p>
+	 * The loaded programs are closed along their {@linkplain #shaderVariants() shader variants}.
+	 */
+	@Override
+	public void close() {
+		this.workers.shutdownNow();
+		this.uploads.clear();
+		this.programCompiler.close();
+		this.shaderVariants.close();
+	}
+
+	private static void closeDecoded(Map<?, CompletableFuture<NativeImage>> images) {
+		for (var image : images.values()) {
+			if (image.isDone() && !image.isCompletedExceptionally())
+				image.join().close();
+		}
+	}
+}
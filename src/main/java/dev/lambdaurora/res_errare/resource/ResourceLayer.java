@@ -0,0 +1,217 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.resource;
+
+import dev.lambdaurora.res_errare.util.ResourceUtil;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.FileSystems;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * Represents a layer of a {@link ResourceManager}, a source of resources such as a directory, a jar or a resource pack.
+ * <p>
+ * Resources are addressed by their path relative to the root of the layer, e.g. {@code assets/res_errare/shaders/math.glsl}.
+ */
+public interface ResourceLayer {
+	/**
+	 * {@return the name of this layer, for display purposes}
+	 */
+	String name();
+
+	/**
+	 * {@return the directory of this layer on the default file system which can be watched for changes,
+	 * or {@code null} if the resources of this layer do not change}
+	 */
+	default @Nullable Path watchRoot() {
+		return null;
+	}
+
+	/**
+	 * Calls the given consumer with the path and the size of every resource of this layer in the given directory.
+	 *
+	 * @param directory the directory, relative to the root of the layer
+	 * @param consumer the consumer
+	 * @throws IOException if the resources cannot be listed
+	 */
+	void list(String directory, ObjLongConsumer<String> consumer) throws IOException;
+
+	/**
+	 * Gets the given resource as a direct buffer.
+	 *
+	 * @param path the path of the resource
+	 * @return the direct buffer of the resource
+	 * @throws IOException if the resource cannot be found or read
+	 */
+	ByteBuffer getBuffer(String path) throws IOException;
+
+	/**
+	 * Opens the given resource.
+	 *
+	 * @param path the path of the resource
+	 * @return the stream of the resource
+	 * @throws IOException if the resource cannot be found or opened
+	 */
+	default InputStream open(String path) throws IOException {
+		return ResourceUtil.newInputStream(this.getBuffer(path));
+	}
+
+	/**
+	 * Reads the given resource as an UTF-8 string.
+	 *
+	 * @param path the path of the resource
+	 * @return the content of the resource
+	 * @throws IOException if the resource cannot be found or read
+	 */
+	default String getString(String path) throws IOException {
+		return StandardCharsets.UTF_8.decode(this.getBuffer(path)).toString();
+	}
+
+	/**
+	 * Creates a layer from the given path: a directory, a jar or zip file, or a {@link ResourcePack resource pack}.
+	 *
+	 * @param path the path
+	 * @return the layer
+	 * @throws IOException if the layer cannot be opened
+	 */
+	static ResourceLayer of(Path path) throws IOException {
+		if (Files.isDirectory(path))
+			return directory(path);
+
+		var fileName = path.getFileName().toString();
+		if (fileName.endsWith(".jar") || fileName.endsWith(".zip"))
+			return directory(FileSystems.newFileSystem(path).getRootDirectories().iterator().next(), fileName);
+
+		return pack(ResourcePack.open(path));
+	}
+
+	/**
+	 * {@return a layer reading resources from the given directory}
+	 *
+	 * @param root the root directory
+	 */
+	static ResourceLayer directory(Path root) {
+		return directory(root, root.toString());
+	}
+
+	private static ResourceLayer directory(Path root, String name) {
+		return new ResourceLayer() {
+			private final String separator = root.getFileSystem().getSeparator();
+
+			@Override
+			public String name() {
+				return name;
+			}
+
+			@Override
+			public @Nullable Path watchRoot() {
+				return root.getFileSystem() == FileSystems.getDefault() ? root : null;
+			}
+
+			private Path getPath(String path) {
+				return root.resolve(path.replace("/", this.separator)).toAbsolutePath().normalize();
+			}
+
+			@Override
+			public void list(String directory, ObjLongConsumer<String> consumer) throws IOException {
+				var start = this.getPath(directory);
+				if (!Files.isDirectory(start))
+					return;
+
+				try (var files = Files.walk(start)) {
+					for (var file : (Iterable<Path>) files.filter(Files::isRegularFile)::iterator) {
+						consumer.accept(root.relativize(file).toString().replace(this.separator, "/"), Files.size(file));
+					}
+				}
+			}
+
+			@Override
+			public ByteBuffer getBuffer(String path) throws IOException {
+				try (var channel = Files.newByteChannel(this.getPath(path))) {
+					var buffer = ByteBuffer.allocateDirect((int) channel.size());
+
+					while (buffer.hasRemaining()) {
+						if (channel.read(buffer) == -1)
+							break;
+					}
+
+					return buffer.flip();
+				} catch (NoSuchFileException e) {
+					throw new FileNotFoundException("Could not find " + path + " in " + name + ".");
+				}
+			}
+
+			@Override
+			public InputStream open(String path) throws IOException {
+				try {
+					return Files.newInputStream(this.getPath(path));
+				} catch (NoSuchFileException e) {
+					throw new FileNotFoundException("Could not find " + path + " in " + name + ".");
+				}
+			}
+
+			@Override
+			public String getString(String path) throws IOException {
+				try {
+					return Files.readString(this.getPath(path));
+				} catch (NoSuchFileException e) {
+					throw new FileNotFoundException("Could not find " + path + " in " + name + ".");
+				}
+			}
+		};
+	}
+
+	/**
+	 * {@return a layer reading resources from the given resource pack}
+	 *
+	 * @param pack the resource pack
+	 */
+	static ResourceLayer pack(ResourcePack pack) {
+		return new ResourceLayer() {
+			@Override
+			public String name() {
+				return pack.path().toString();
+			}
+
+			@Override
+			public void list(String directory, ObjLongConsumer<String> consumer) {
+				var prefix = directory.endsWith("/") ? directory : directory + '/';
+				pack.forEach((path, size) -> {
+					if (path.startsWith(prefix))
+						consumer.accept(path, size);
+				});
+			}
+
+			@Override
+			public ByteBuffer getBuffer(String path) throws IOException {
+				var buffer = pack.getBuffer(path);
+				if (buffer == null)
+					throw new FileNotFoundException("Could not find " + path + " in " + pack.path() + ".");
+				return buffer;
+			}
+		};
+	}
+}
@@ -19,74 +19,278 @@ package dev.lambdaurora.res_errare.resource;
 
 import dev.lambdaurora.res_errare.Constants;
 import dev.lambdaurora.res_errare.util.Identifier;
+import dev.lambdaurora.res_errare.util.InvalidIdentifierException;
+import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import org.jetbrains.annotations.Nullable;
 
+import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
 import java.net.URISyntaxException;
+import java.nio.ByteBuffer;
 import java.nio.file.FileSystems;
 import java.nio.file.Files;
 import java.nio.file.Path;
 import java.nio.file.Paths;
-import java.util.EnumMap;
-import java.util.Map;
-import java.util.Objects;
+import java.util.*;
 
+/**
+ * Represents a layered resource manager.
+ * <p>
+ * The resources of a type are looked up in an ordered stack of {@link ResourceLayer layers},
+ * a resource of a layer overrides the resources of the same identifier in the layers after it.
+ * <p>
+ * Every layer is indexed once when the manager is created or {@link #refresh() refreshed}:
+ * lookups, including the ones of missing resources, are then hash lookups in the index and never touch the file system.
+ */
 public class ResourceManager {
+	/**
+	 * The file name of the default resource pack, looked up next to the application jar.
+	 */
+	public static final String DEFAULT_PACK_FILE_NAME = "assets.respack";
+	private static final boolean DEBUG = Boolean.getBoolean("res_errare.debug");
 	private static final Map<ResourceType, ResourceManager> RESOURCE_MANAGERS = new EnumMap<>(ResourceType.class);
+	private static @Nullable List<ResourceLayer> defaultOverrides;
+	private static @Nullable ResourcePack defaultPack;
+	private static boolean defaultPackLoaded = false;
 	private final ResourceType type;
-	private final Path root;
-	private final String separator;
+	private final List<ResourceLayer> layers;
+	private volatile Map<String, IndexedResource> index = Map.of();
 
 	public ResourceManager(ResourceType type, Path root) {
+		this(type, List.of(ResourceLayer.directory(root)));
+	}
+
+	/**
+	 * Creates a new resource manager and indexes its layers.
+	 *
+	 * @param type the type of resources managed
+	 * @param layers the layers, from the highest priority to the lowest
+	 */
+	public ResourceManager(ResourceType type, List<ResourceLayer> layers) {
 		this.type = type;
-		this.root = root;
-		this.separator = this.root.getFileSystem().getSeparator();
+		this.layers = List.copyOf(layers);
+		this.refresh();
+	}
+
+	/**
+	 * {@return the layers of this manager, from the highest priority to the lowest}
+	 */
+	public List<ResourceLayer> layers() {
+		return this.layers;
+	}
+
+	/**
+	 * Indexes the layers of this manager again, picking up resources added or removed since the last index.
+	 */
+	public void refresh() {
+		var index = new Object2ObjectOpenHashMap<String, IndexedResource>();
+		int prefixLength = this.type.directory().length() + 1;
+
+		// The lowest priority layer is indexed first so that the higher priority layers override it.
+		for (int i = this.layers.size() - 1; i >= 0; i--) {
+			var layer = this.layers.get(i);
+
+			try {
+				layer.list(this.type.directory(), (path, size) ->
+						index.put(path.substring(prefixLength), new IndexedResource(layer, path, size)));
+			} catch (IOException e) {
+				System.err.println("Could not index resource layer " + layer.name() + ".");
+				e.printStackTrace();
+			}
+		}
+
+		this.index = index;
 	}
 
-	private Path getPath(String path) {
-		return this.root.resolve(path.replace("/", this.separator))
-				.toAbsolutePath().normalize();
+	private @Nullable IndexedResource find(Identifier resourceId) {
+		return this.index.get(resourceId.namespace() + '/' + resourceId.path());
 	}
 
-	private Path getPath(Identifier resourceId) {
-		return this.getPath(type.directory() + '/' + resourceId.namespace() + '/' + resourceId.path());
+	private IndexedResource get(Identifier resourceId) throws FileNotFoundException {
+		var resource = this.find(resourceId);
+		if (resource == null)
+			throw new FileNotFoundException("Could not find " + resourceId + " of resource type " + this.type + ".");
+		return resource;
 	}
 
 	public boolean contains(Identifier resourceId) {
-		return Files.exists(this.getPath(resourceId));
+		return this.find(resourceId) != null;
+	}
+
+	/**
+	 * {@return the size in bytes of the given resource, or empty if the resource does not exist}
+	 *
+	 * @param resourceId the identifier of the resource
+	 */
+	public OptionalLong getSize(Identifier resourceId) {
+		var resource = this.find(resourceId);
+		return resource == null ? OptionalLong.empty() : OptionalLong.of(resource.size());
 	}
 
 	public String getStringFrom(Identifier resourceId) throws IOException {
-		try {
-			return Files.readString(this.getPath(resourceId));
-		} catch (IOException e) {
-			if (e instanceof FileNotFoundException)
-				throw new FileNotFoundException("Could not find " + resourceId + " of resource type " + this.type + ".");
-			throw e;
-		}
+		var resource = this.get(resourceId);
+		return resource.layer().getString(resource.path());
+	}
+
+	/**
+	 * Gets the given resource as a direct buffer.
+	 * <p>
+	 * Resources stored in a resource pack are read-only views of the mapped pack, other resources are read into a new buffer.
+	 *
+	 * @param resourceId the identifier of the resource
+	 * @return the direct buffer of the resource
+	 * @throws IOException if the resource cannot be found or read
+	 */
+	public ByteBuffer getBuffer(Identifier resourceId) throws IOException {
+		var resource = this.get(resourceId);
+		return resource.layer().getBuffer(resource.path());
 	}
 
 	public InputStream open(Identifier resourceId) throws IOException {
-		try {
-			return Files.newInputStream(this.getPath(resourceId));
-		} catch (IOException e) {
-			if (e instanceof FileNotFoundException)
-				throw new FileNotFoundException("Could not find " + resourceId + " of resource type " + this.type + ".");
-			throw e;
+		var resource = this.get(resourceId);
+		return resource.layer().open(resource.path());
+	}
+
+	/**
+	 * {@return the namespaces which have at least one resource}
+	 */
+	public Set<String> namespaces() {
+		var namespaces = new TreeSet<String>();
+		for (var path : this.index.keySet()) {
+			namespaces.add(path.substring(0, path.indexOf('/')));
+		}
+		return namespaces;
+	}
+
+	/**
+	 * Lists the resources of every namespace in the given directory which match the given glob.
+	 *
+	 * @param directory the directory, e.g. {@code textures/skybox}
+	 * @param glob the glob matched against the path relative to the directory, e.g. {@code *.jpg} or {@code **}{@code /*.png}
+	 * @return the identifiers of the matching resources, sorted
+	 * @see java.nio.file.FileSystem#getPathMatcher(String)
+	 */
+	public List<Identifier> listResources(String directory, String glob) {
+		return this.listResources(null, directory, glob);
+	}
+
+	/**
+	 * Lists the resources in the given directory which match the given glob.
+	 *
+	 * @param namespace the namespace, or {@code null} to list every namespace
+	 * @param directory the directory, e.g. {@code textures/skybox}
+	 * @param glob the glob matched against the path relative to the directory, e.g. {@code *.jpg} or {@code **}{@code /*.png}
+	 * @return the identifiers of the matching resources, sorted
+	 * @see java.nio.file.FileSystem#getPathMatcher(String)
+	 */
+	public List<Identifier> listResources(@Nullable String namespace, String directory, String glob) {
+		var matcher = FileSystems.getDefault().getPathMatcher("glob:" + glob);
+		var prefix = directory.isEmpty() || directory.endsWith("/") ? directory : directory + '/';
+		var resources = new ArrayList<Identifier>();
+
+		for (var path : this.index.keySet()) {
+			int separator = path.indexOf('/');
+			var resourceNamespace = path.substring(0, separator);
+			var resourcePath = path.substring(separator + 1);
+
+			if ((namespace != null && !namespace.equals(resourceNamespace)) || !resourcePath.startsWith(prefix))
+				continue;
+
+			var relativePath = resourcePath.substring(prefix.length());
+			if (!matcher.matches(Paths.get(relativePath.replace("/", File.separator))))
+				continue;
+
+			try {
+				resources.add(new Identifier(resourceNamespace, resourcePath));
+			} catch (InvalidIdentifierException e) {
+				// Files which cannot be identified cannot be loaded either.
+			}
 		}
+
+		resources.sort(Comparator.comparing(Identifier::namespace).thenComparing(Identifier::path));
+		return resources;
 	}
 
-	public static ResourceManager getDefault(ResourceType type) {
+	/**
+	 * {@return the default resource manager of the given resource type}
+	 * <p>
+	 * Its layers are, by priority: the override layers given by the {@code res_errare.resources.overrides} system property
+	 * as a list of paths, the default resource pack, then the resources of the application.
+	 * When shader hot reloading is enabled, the resources of the application are put above the pack if they can be watched,
+	 * so that the reloaded sources are the ones which changed.
+	 *
+	 * @param type the resource type
+	 */
+	public static synchronized ResourceManager getDefault(ResourceType type) {
 		return RESOURCE_MANAGERS.computeIfAbsent(type, t -> {
 			try {
-				return new ResourceManager(type, getSelfRoot());
+				var layers = new ArrayList<>(getDefaultOverrides());
+				var self = ResourceLayer.directory(getSelfRoot());
+				boolean watched = Boolean.getBoolean("res_errare.shaders.hot_reload") && self.watchRoot() != null;
+
+				if (watched)
+					layers.add(self);
+
+				var pack = getDefaultPack();
+				if (pack != null)
+					layers.add(ResourceLayer.pack(pack));
+
+				if (!watched)
+					layers.add(self);
+				return new ResourceManager(type, layers);
 			} catch (URISyntaxException | IOException e) {
 				throw new RuntimeException("Could not create default resource manager.", e);
 			}
 		});
 	}
 
+	private static List<ResourceLayer> getDefaultOverrides() throws IOException {
+		if (defaultOverrides == null) {
+			var layers = new ArrayList<ResourceLayer>();
+
+			var property = System.getProperty("res_errare.resources.overrides");
+			if (property != null) {
+				for (var path : property.split(File.pathSeparator)) {
+					if (!path.isBlank())
+						layers.add(ResourceLayer.of(Paths.get(path)));
+				}
+			}
+
+			defaultOverrides = List.copyOf(layers);
+		}
+
+		return defaultOverrides;
+	}
+
+	/**
+	 * {@return the default resource pack, given by the {@code res_errare.resources.pack} system property
+	 * or found next to the application jar, or {@code null} if there is none}
+	 */
+	private static @Nullable ResourcePack getDefaultPack() throws URISyntaxException, IOException {
+		if (!defaultPackLoaded) {
+			defaultPackLoaded = true;
+
+			var property = System.getProperty("res_errare.resources.pack");
+			Path path;
+			if (property != null) {
+				path = Paths.get(property);
+			} else {
+				path = Paths.get(ResourceManager.class.getProtectionDomain().getCodeSource().getLocation().toURI())
+						.resolveSibling(DEFAULT_PACK_FILE_NAME);
+			}
+
+			if (property != null || Files.isRegularFile(path)) {
+				defaultPack = ResourcePack.open(path);
+				if (DEBUG)
+					System.out.println("Using resource pack " + path + " (" + defaultPack.size() + " resources).");
+			}
+		}
+
+		return defaultPack;
+	}
+
 	private static Path getSelfRoot() throws URISyntaxException, IOException {
 		var uri = Objects.requireNonNull(ResourceManager.class.getResource('/' + Constants.RESOURCES_ROOT_FILE_NAME)).toURI();
 
@@ -98,4 +302,7 @@ public class ResourceManager {
 			return Paths.get(uri).getParent().toAbsolutePath().normalize();
 		}
 	}
+
+	private record IndexedResource(ResourceLayer layer, String path, long size) {
+	}
 }
@@ -0,0 +1,331 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.resource;
+
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+import org.jetbrains.annotations.Nullable;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.function.ObjLongConsumer;
+import java.util.zip.DataFormatException;
+import java.util.zip.Inflater;
+
+/**
+ * Represents a read-only resource pack, a single file holding many resources behind an index.
+ * <p>
+ * The pack is mapped in memory once when opened with {@link FileChannel#map}. Resources are looked up by a binary search
+ * on the hash of their path and stored resources are handed out as views of the mapping, without any copy.
+ * <p>
+ * Layout, little endian:
+ * <ul>
+ *     <li>header: the {@link #MAGIC} ({@code int}), the {@link #VERSION} ({@code int}), the entry count ({@code int})
+ *     and the size of the name table ({@code int});</li>
+ *     <li>index: one {@value #ENTRY_SIZE} bytes entry per resource, sorted by hash;</li>
+ *     <li>name table: the UTF-8 paths of the resources, used to tell apart resources with the same hash;</li>
+ *     <li>data: the resources, each aligned to {@value #DATA_ALIGNMENT} bytes.</li>
+ * </ul>
+ * An entry is made of the hash of the path ({@code long}), the offset of the data ({@code long}),
+ * the stored size ({@code int}), the size ({@code int}), the offset of the path in the name table ({@code int}),
+ * the length of the path ({@code short}), the {@link Compression} ({@code byte}) and a reserved {@code byte}.
+ *
+ * @see ResourcePackWriter
+ */
+public final class ResourcePack implements AutoCloseable {
+	static final int MAGIC = 0x50534552; // "RESP"
+	static final int VERSION = 1;
+	static final int HEADER_SIZE = 16;
+	static final int ENTRY_SIZE = 32;
+	static final int DATA_ALIGNMENT = 16;
+	static final ByteOrder BYTE_ORDER = ByteOrder.LITTLE_ENDIAN;
+
+	private final Path path;
+	private final MemorySegment segment;
+	private final int entryCount;
+	private final long namesOffset;
+	private final int namesSize;
+
+	private ResourcePack(Path path, MemorySegment segment) throws IOException {
+		this.path = path;
+		this.segment = segment;
+
+		if (segment.byteSize() < HEADER_SIZE || MemoryAccess.getIntAtOffset(segment, 0, BYTE_ORDER) != MAGIC)
+			throw new IOException("Invalid resource pack " + path + ".");
+
+		int version = MemoryAccess.getIntAtOffset(segment, 4, BYTE_ORDER);
+		if (version != VERSION)
+			throw new IOException("Unsupported resource pack version " + version + " in " + path + ", expected " + VERSION + ".");
+
+		this.entryCount = MemoryAccess.getIntAtOffset(segment, 8, BYTE_ORDER);
+		this.namesSize = MemoryAccess.getIntAtOffset(segment, 12, BYTE_ORDER);
+		this.namesOffset = HEADER_SIZE + (long) this.entryCount * ENTRY_SIZE;
+
+		if (this.entryCount < 0 || this.namesSize < 0 || this.namesOffset + this.namesSize > segment.byteSize())
+			throw new IOException("Invalid resource pack " + path + ", the index of " + this.entryCount + " entries and "
+					+ this.namesSize + " bytes of names does not fit in " + segment.byteSize() + " bytes.");
+
+		for (int i = 0; i < this.entryCount; i++) {
+			this.validateEntry(i);
+		}
+	}
+
+	/**
+	 * Checks that the given entry only points inside the pack, so that lookups never read out of the mapping.
+	 *
+	 * @param index the index of the entry
+	 * @throws IOException if the entry is invalid
+	 */
+	private void validateEntry(int index) throws IOException {
+		long entry = entryOffset(index);
+		long offset = MemoryAccess.getLongAtOffset(this.segment, entry + 8, BYTE_ORDER);
+		int storedSize = MemoryAccess.getIntAtOffset(this.segment, entry + 16, BYTE_ORDER);
+		int size = MemoryAccess.getIntAtOffset(this.segment, entry + 20, BYTE_ORDER);
+		int nameOffset = MemoryAccess.getIntAtOffset(this.segment, entry + 24, BYTE_ORDER);
+		int nameLength = Short.toUnsignedInt(MemoryAccess.getShortAtOffset(this.segment, entry + 28, BYTE_ORDER));
+		byte compression = MemoryAccess.getByteAtOffset(this.segment, entry + 30);
+
+		long dataOffset = this.namesOffset + this.namesSize;
+		// The aligned offset of an empty resource may be past the end of the pack, it is never read.
+		if (storedSize != 0 && (offset < dataOffset || storedSize < 0 || offset > this.segment.byteSize() - storedSize))
+			throw new IOException("Invalid resource pack " + this.path + ", entry " + index + " stores " + storedSize
+					+ " bytes at offset " + offset + " outside of the data.");
+		if (size < 0)
+			throw new IOException("Invalid resource pack " + this.path + ", entry " + index + " has a negative size.");
+		if (nameOffset < 0 || (long) nameOffset + nameLength > this.namesSize)
+			throw new IOException("Invalid resource pack " + this.path + ", the path of entry " + index
+					+ " is outside of the name table.");
+		if (compression < 0 || compression >= Compression.VALUES.length)
+			throw new IOException("Invalid resource pack " + this.path + ", entry " + index
+					+ " has an unknown compression " + compression + ".");
+	}
+
+	/**
+	 * Opens the given resource pack.
+	 *
+	 * @param path the path of the resource pack
+	 * @return the opened resource pack
+	 * @throws IOException if the file cannot be mapped or is not a valid resource pack
+	 */
+	public static ResourcePack open(Path path) throws IOException {
+		try (var channel = FileChannel.open(path)) {
+			// Buffers of segments from shared scopes have no usable address for the JDK, the mapping is unmapped once unreachable.
+			return new ResourcePack(path, MemorySegment.ofByteBuffer(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())));
+		}
+	}
+
+	/**
+	 * {@return the path of this resource pack}
+	 */
+	public Path path() {
+		return this.path;
+	}
+
+	/**
+	 * {@return the number of resources in this pack}
+	 */
+	public int size() {
+		return this.entryCount;
+	}
+
+	/**
+	 * Calls the given consumer with the path and the size of every resource of this pack.
+	 *
+	 * @param consumer the consumer
+	 */
+	public void forEach(ObjLongConsumer<String> consumer) {
+		for (int i = 0; i < this.entryCount; i++) {
+			long entry = entryOffset(i);
+			int nameOffset = MemoryAccess.getIntAtOffset(this.segment, entry + 24, BYTE_ORDER);
+			int nameLength = Short.toUnsignedInt(MemoryAccess.getShortAtOffset(this.segment, entry + 28, BYTE_ORDER));
+			var name = this.segment.asSlice(this.namesOffset + nameOffset, nameLength).toByteArray();
+
+			consumer.accept(new String(name, StandardCharsets.UTF_8), MemoryAccess.getIntAtOffset(this.segment, entry + 20, BYTE_ORDER));
+		}
+	}
+
+	/**
+	 * {@return {@code true} if this pack contains the given resource, else {@code false}}
+	 *
+	 * @param path the path of the resource
+	 */
+	public boolean contains(String path) {
+		return this.find(path) != -1;
+	}
+
+	/**
+	 * Gets the given resource.
+	 * <p>
+	 * Stored resources are read-only views of the mapped pack, the mapping is released once neither the pack
+	 * nor any view is reachable, so views stay valid after the pack is closed. Compressed resources are inflated into a new buffer.
+	 *
+	 * @param path the path of the resource
+	 * @return the direct buffer of the resource, or {@code null} if this pack does not contain the resource
+	 * @throws IOException if the resource cannot be inflated
+	 */
+	public @Nullable ByteBuffer getBuffer(String path) throws IOException {
+		var segment = this.getSegment(path);
+		return segment == null ? null : segment.asByteBuffer().asReadOnlyBuffer();
+	}
+
+	/**
+	 * Gets the given resource.
+	 *
+	 * @param path the path of the resource
+	 * @return the memory segment of the resource, or {@code null} if this pack does not contain the resource
+	 * @throws IOException if the resource cannot be inflated
+	 * @see #getBuffer(String)
+	 */
+	public @Nullable MemorySegment getSegment(String path) throws IOException {
+		long entry = this.find(path);
+		if (entry == -1)
+			return null;
+
+		long offset = MemoryAccess.getLongAtOffset(this.segment, entry + 8, BYTE_ORDER);
+		int storedSize = MemoryAccess.getIntAtOffset(this.segment, entry + 16, BYTE_ORDER);
+		int size = MemoryAccess.getIntAtOffset(this.segment, entry + 20, BYTE_ORDER);
+		var compression = Compression.byId(MemoryAccess.getByteAtOffset(this.segment, entry + 30));
+		var stored = storedSize == 0 ? this.segment.asSlice(0, 0) : this.segment.asSlice(offset, storedSize);
+
+		return switch (compression) {
+			case NONE -> stored;
+			case DEFLATE -> inflate(stored, size, path);
+		};
+	}
+
+	/**
+	 * Finds the entry of the given resource.
+	 *
+	 * @param path the path of the resource
+	 * @return the offset of the entry in the pack, or {@code -1} if this pack does not contain the resource
+	 */
+	private long find(String path) {
+		var name = path.getBytes(StandardCharsets.UTF_8);
+		long hash = hash(name);
+
+		int low = 0;
+		int high = this.entryCount - 1;
+		while (low <= high) {
+			int middle = (low + high) >>> 1;
+			long middleHash = this.hashAt(middle);
+
+			if (middleHash < hash) {
+				low = middle + 1;
+			} else if (middleHash > hash) {
+				high = middle - 1;
+			} else {
+				// Entries sharing the hash are next to each other, rewinds to the first of them.
+				while (middle > 0 && this.hashAt(middle - 1) == hash)
+					middle--;
+
+				for (; middle < this.entryCount && this.hashAt(middle) == hash; middle++) {
+					long entry = entryOffset(middle);
+					if (this.nameEquals(entry, name))
+						return entry;
+				}
+
+				return -1;
+			}
+		}
+
+		return -1;
+	}
+
+	private long hashAt(int index) {
+		return MemoryAccess.getLongAtOffset(this.segment, entryOffset(index), BYTE_ORDER);
+	}
+
+	private boolean nameEquals(long entry, byte[] name) {
+		int nameOffset = MemoryAccess.getIntAtOffset(this.segment, entry + 24, BYTE_ORDER);
+		int nameLength = Short.toUnsignedInt(MemoryAccess.getShortAtOffset(this.segment, entry + 28, BYTE_ORDER));
+
+		return nameLength == name.length
+				&& this.segment.asSlice(this.namesOffset + nameOffset, nameLength).mismatch(MemorySegment.ofArray(name)) == -1;
+	}
+
+	/**
+	 * Closes this pack, the views handed out stay valid as the mapping is released once no longer reachable.
+	 */
+	@Override
+	public void close() {
+	}
+
+	private static long entryOffset(int index) {
+		return HEADER_SIZE + (long) index * ENTRY_SIZE;
+	}
+
+	private static MemorySegment inflate(MemorySegment stored, int size, String path) throws IOException {
+		var inflater = new Inflater();
+		try {
+			inflater.setInput(stored.asByteBuffer());
+			var output = ByteBuffer.allocateDirect(size);
+
+			while (output.hasRemaining() && !inflater.finished()) {
+				if (inflater.inflate(output) == 0 && inflater.needsInput())
+					break;
+			}
+
+			if (output.hasRemaining())
+				throw new IOException("Truncated resource " + path + " in resource pack.");
+
+			return MemorySegment.ofByteBuffer(output.flip());
+		} catch (DataFormatException e) {
+			throw new IOException("Could not inflate resource " + path + ".", e);
+		} finally {
+			inflater.end();
+		}
+	}
+
+	/**
+	 * {@return the 64-bit FNV-1a hash of the given resource path}
+	 *
+	 * @param name the UTF-8 path of the resource
+	 */
+	static long hash(byte[] name) {
+		long hash = 0xcbf29ce484222325L;
+		for (byte b : name) {
+			hash ^= b & 0xff;
+			hash *= 0x100000001b3L;
+		}
+		return hash;
+	}
+
+	/**
+	 * Represents the compression of a resource in a pack.
+	 */
+	public enum Compression {
+		NONE,
+		DEFLATE;
+
+		private static final Compression[] VALUES = values();
+
+		public byte id() {
+			return (byte) this.ordinal();
+		}
+
+		static Compression byId(byte id) {
+			if (id < 0 || id >= VALUES.length)
+				throw new IllegalStateException("Unknown resource pack compression " + id + ".");
+			return VALUES[id];
+		}
+	}
+}
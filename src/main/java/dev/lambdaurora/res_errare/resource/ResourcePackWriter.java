@@ -0,0 +1,196 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.resource;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.zip.Deflater;
+
+/**
+ * Represents a writer of {@link ResourcePack resource packs}.
+ * <p>
+ * Resources are deflated when it saves at least a tenth of their size,
+ * already compressed resources such as images are stored as is so they can be read without any copy.
+ * <p>
+ * Usage, from the command line:
+ * <pre>{@code
+ * ResourcePackWriter <resources root> <output> <directory>...
+ * }</pre>
+ * where each directory is relative to the resources root, e.g. {@code assets}.
+ */
+public final class ResourcePackWriter {
+	/**
+	 * The minimum size ratio a compressed resource must reach to be stored compressed.
+	 */
+	private static final double COMPRESSION_THRESHOLD = .9;
+
+	private final List<Entry> entries = new ArrayList<>();
+
+	/**
+	 * Adds a resource to the pack.
+	 *
+	 * @param path the path of the resource, e.g. {@code assets/res_errare/shaders/math.glsl}
+	 * @param data the resource
+	 * @return this writer
+	 */
+	public ResourcePackWriter add(String path, byte[] data) {
+		var name = path.getBytes(StandardCharsets.UTF_8);
+		if (name.length > 0xffff)
+			throw new IllegalArgumentException("Resource path " + path + " is too long.");
+
+		var compressed = deflate(data);
+		if (compressed.length < data.length * COMPRESSION_THRESHOLD)
+			this.entries.add(new Entry(name, ResourcePack.hash(name), compressed, data.length, ResourcePack.Compression.DEFLATE));
+		else
+			this.entries.add(new Entry(name, ResourcePack.hash(name), data, data.length, ResourcePack.Compression.NONE));
+
+		return this;
+	}
+
+	/**
+	 * Adds every file of the given directory to the pack.
+	 *
+	 * @param root the root the paths of the resources are relative to
+	 * @param directory the directory, relative to the root
+	 * @return this writer
+	 * @throws IOException if a file cannot be read
+	 */
+	public ResourcePackWriter addDirectory(Path root, String directory) throws IOException {
+		try (var files = Files.walk(root.resolve(directory))) {
+			for (var file : (Iterable<Path>) files.filter(Files::isRegularFile).sorted()::iterator) {
+				var path = root.relativize(file).toString().replace(file.getFileSystem().getSeparator(), "/");
+				this.add(path, Files.readAllBytes(file));
+			}
+		}
+
+		return this;
+	}
+
+	/**
+	 * Writes the pack to the given file, the file is replaced atomically.
+	 *
+	 * @param output the output file
+	 * @throws IOException if the pack cannot be written
+	 */
+	public void write(Path output) throws IOException {
+		this.entries.sort(Comparator.comparingLong(Entry::hash));
+
+		var names = new ByteArrayOutputStream();
+		for (var entry : this.entries) {
+			names.writeBytes(entry.name());
+		}
+
+		long namesOffset = ResourcePack.HEADER_SIZE + (long) this.entries.size() * ResourcePack.ENTRY_SIZE;
+		long dataOffset = align(namesOffset + names.size());
+
+		var header = ByteBuffer.allocate((int) (dataOffset)).order(ResourcePack.BYTE_ORDER);
+		header.putInt(ResourcePack.MAGIC)
+				.putInt(ResourcePack.VERSION)
+				.putInt(this.entries.size())
+				.putInt(names.size());
+
+		int nameOffset = 0;
+		long offset = dataOffset;
+		for (var entry : this.entries) {
+			header.putLong(entry.hash())
+					.putLong(offset)
+					.putInt(entry.data().length)
+					.putInt(entry.size())
+					.putInt(nameOffset)
+					.putShort((short) entry.name().length)
+					.put(entry.compression().id())
+					.put((byte) 0);
+
+			nameOffset += entry.name().length;
+			offset = align(offset + entry.data().length);
+		}
+		header.put(names.toByteArray());
+
+		Files.createDirectories(output.toAbsolutePath().getParent());
+		var temporary = output.resolveSibling(output.getFileName() + ".tmp");
+		try (var channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+				StandardOpenOption.TRUNCATE_EXISTING)) {
+			writeFully(channel, header.clear(), 0);
+
+			offset = dataOffset;
+			for (var entry : this.entries) {
+				writeFully(channel, ByteBuffer.wrap(entry.data()), offset);
+				offset = align(offset + entry.data().length);
+			}
+		}
+
+		Files.move(temporary, output, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.err.println("Usage: ResourcePackWriter <resources root> <output> <directory>...");
+			System.exit(1);
+		}
+
+		var root = Path.of(args[0]);
+		var writer = new ResourcePackWriter();
+		for (int i = 2; i < args.length; i++) {
+			writer.addDirectory(root, args[i]);
+		}
+
+		var output = Path.of(args[1]);
+		writer.write(output);
+		System.out.println("Packed " + writer.entries.size() + " resources into " + output + ".");
+	}
+
+	private static byte[] deflate(byte[] data) {
+		var deflater = new Deflater(Deflater.BEST_COMPRESSION);
+		try {
+			deflater.setInput(data);
+			deflater.finish();
+
+			var output = new ByteArrayOutputStream(data.length / 2 + 64);
+			var buffer = new byte[8192];
+			while (!deflater.finished()) {
+				output.write(buffer, 0, deflater.deflate(buffer));
+			}
+			return output.toByteArray();
+		} finally {
+			deflater.end();
+		}
+	}
+
+	private static void writeFully(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		while (buffer.hasRemaining()) {
+			position += channel.write(buffer, position);
+		}
+	}
+
+	private static long align(long offset) {
+		return (offset + ResourcePack.DATA_ALIGNMENT - 1) / ResourcePack.DATA_ALIGNMENT * ResourcePack.DATA_ALIGNMENT;
+	}
+
+	private record Entry(byte[] name, long hash, byte[] data, int size, ResourcePack.Compression compression) {
+	}
+}
@@ -25,24 +25,167 @@ import dev.lambdaurora.res_errare.render.shader.ShaderType;
 import dev.lambdaurora.res_errare.render.texture.Image;
 import dev.lambdaurora.res_errare.render.texture.Texture;
 import dev.lambdaurora.res_errare.render.texture.TextureType;
+import dev.lambdaurora.res_errare.system.memory.NativeStack;
 import dev.lambdaurora.res_errare.util.NativeSizes;
-import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
+import it.unimi.dsi.fastutil.objects.ObjectOpenHashSet;
 import jdk.incubator.foreign.*;
 import org.joml.Matrix4f;
 
 import java.lang.invoke.MethodHandle;
-import java.lang.invoke.MethodType;
-import java.util.HashMap;
-import java.util.Map;
-import java.util.function.Function;
-
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MutableCallSite;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Represents the OpenGL bindings of the current context.
+ * <p>
+ * Every entry point is a {@code static final} handle invoking a call site, which is bound once the bindings are created
+ * by {@link #get()} or {@link #init(FunctionFetcher)}. The JIT treats the target of such call site as a constant,
+ * so the native calls are inlined instead of being dispatched through a handle loaded from a field on every call.
+ */
 public final class GL {
+	private static final List<EntryPoint> ENTRY_POINTS = new ArrayList<>();
 	private static GL self;
-	private final Map<String, MethodHandle> functions = new Object2ObjectOpenHashMap<>();
-	private final FunctionFetcher functionFetcher;
 
+	/* GL 1.1 */
+	private static final MethodHandle glClear = function("glClear", void.class, int.class);
+	private static final MethodHandle glClearColor = function("glClearColor", void.class, float.class, float.class,
+			float.class, float.class);
+	private static final MethodHandle glDepthFunc = function("glDepthFunc", void.class, int.class);
+	private static final MethodHandle glDepthMask = function("glDepthMask", void.class, int.class);
+	private static final MethodHandle glDrawArrays = function("glDrawArrays", void.class, int.class, int.class, int.class);
+	private static final MethodHandle glEnable = function("glEnable", void.class, int.class);
+	private static final MethodHandle glDisable = function("glDisable", void.class, int.class);
+	private static final MethodHandle glGetString = function("glGetString", MemoryAddress.class, int.class);
+	private static final MethodHandle glGetIntegerv = function("glGetIntegerv", void.class, int.class, MemoryAddress.class);
+	private static final MethodHandle glPolygonMode = function("glPolygonMode", void.class, int.class, int.class);
+	private static final MethodHandle glViewport = function("glViewport", void.class, int.class, int.class, int.class,
+			int.class);
+	/* GL 1.3 */
+	private static final MethodHandle glActiveTexture = function("glActiveTexture", void.class, int.class);
+	/* GL 1.5 */
+	private static final MethodHandle glBindBuffer = function("glBindBuffer", void.class, int.class, int.class);
+	private static final MethodHandle glGenBuffers = function("glGenBuffers", void.class, int.class, MemoryAddress.class);
+	private static final MethodHandle glDeleteBuffers = function("glDeleteBuffers", void.class, int.class,
+			MemoryAddress.class);
+	private static final MethodHandle glBufferData = function("glBufferData", void.class, int.class, long.class,
+			MemoryAddress.class, int.class);
+	private static final MethodHandle glBufferSubData = function("glBufferSubData", void.class, int.class, long.class,
+			long.class, MemoryAddress.class);
+	/* GL 2.0 */
+	private static final MethodHandle glBindTexture = function("glBindTexture", void.class, int.class, int.class);
+	private static final MethodHandle glGenTextures = function("glGenTextures", void.class, int.class, MemoryAddress.class);
+	private static final MethodHandle glDeleteTextures = function("glDeleteTextures", void.class, int.class,
+			MemoryAddress.class);
+	private static final MethodHandle glTexImage2D = function("glTexImage2D", void.class, int.class, int.class,
+			int.class, int.class, int.class, int.class, int.class, int.class, MemoryAddress.class);
+	private static final MethodHandle glTexSubImage2D = function("glTexSubImage2D", void.class, int.class, int.class,
+			int.class, int.class, int.class, int.class, int.class, int.class, MemoryAddress.class);
+	private static final MethodHandle glTexParameteri = function("glTexParameteri", void.class, int.class, int.class,
+			int.class);
+	private static final MethodHandle glTexParameterf = function("glTexParameterf", void.class, int.class, int.class,
+			float.class);
+	private static final MethodHandle glPixelStorei = function("glPixelStorei", void.class, int.class, int.class);
+	private static final MethodHandle glCreateShader = function("glCreateShader", int.class, int.class);
+	private static final MethodHandle glDeleteShader = function("glDeleteShader", void.class, int.class);
+	private static final MethodHandle glShaderSource = function("glShaderSource", void.class, int.class, int.class,
+			MemoryAddress.class, MemoryAddress.class);
+	private static final MethodHandle glCompileShader = function("glCompileShader", void.class, int.class);
+	private static final MethodHandle glGetShaderiv = function("glGetShaderiv", void.class, int.class, int.class,
+			MemoryAddress.class);
+	private static final MethodHandle glGetShaderInfoLog = function("glGetShaderInfoLog", void.class, int.class,
+			int.class, MemoryAddress.class, MemoryAddress.class);
+	private static final MethodHandle glCreateProgram = function("glCreateProgram", int.class);
+	private static final MethodHandle glDeleteProgram = function("glDeleteProgram", void.class, int.class);
+	private static final MethodHandle glAttachShader = function("glAttachShader", void.class, int.class, int.class);
+	private static final MethodHandle glDetachShader = function("glDetachShader", void.class, int.class, int.class);
+	private static final MethodHandle glLinkProgram = function("glLinkProgram", void.class, int.class);
+	private static final MethodHandle glGetProgramiv = function("glGetProgramiv", void.class, int.class, int.class,
+			MemoryAddress.class);
+	private static final MethodHandle glGetProgramInfoLog = function("glGetProgramInfoLog", void.class, int.class,
+			int.class, MemoryAddress.class, MemoryAddress.class);
+	private static final MethodHandle glUseProgram = function("glUseProgram", void.class, int.class);
+	private static final MethodHandle glGetUniformLocation = function("glGetUniformLocation", int.class, int.class,
+			MemoryAddress.class);
+	private static final MethodHandle glGetActiveUniform = function("glGetActiveUniform", void.class, int.class,
+			int.class, int.class, MemoryAddress.class, MemoryAddress.class, MemoryAddress.class, MemoryAddress.class);
+	private static final MethodHandle glUniform1i = function("glUniform1i", void.class, int.class, int.class);
+	private static final MethodHandle glUniform1f = function("glUniform1f", void.class, int.class, float.class);
+	private static final MethodHandle glUniform3f = function("glUniform3f", void.class, int.class, float.class,
+			float.class, float.class);
+	private static final MethodHandle glUniformMatrix4fv = function("glUniformMatrix4fv", void.class, int.class,
+			int.class, int.class, MemoryAddress.class);
+	private static final MethodHandle glEnableVertexAttribArray = function("glEnableVertexAttribArray", void.class,
+			int.class);
+	private static final MethodHandle glVertexAttribPointer = function("glVertexAttribPointer", void.class, int.class,
+			int.class, int.class, int.class, int.class, MemoryAddress.class);
+	/* GL 3.0 */
+	private static final MethodHandle glBindVertexArray = function("glBindVertexArray", void.class, int.class);
+	private static final MethodHandle glGenVertexArrays = function("glGenVertexArrays", void.class, int.class,
+			MemoryAddress.class);
+	private static final MethodHandle glDeleteVertexArrays = function("glDeleteVertexArrays", void.class, int.class,
+			MemoryAddress.class);
+	private static final MethodHandle glBindBufferRange = function("glBindBufferRange", void.class, int.class,
+			int.class, int.class, long.class, long.class);
+	private static final MethodHandle glGenerateMipmap = function("glGenerateMipmap", void.class, int.class);
+	private static final MethodHandle glGetStringi = function("glGetStringi", MemoryAddress.class, int.class, int.class);
+	private static final MethodHandle glMapBufferRange = function("glMapBufferRange", MemoryAddress.class, int.class,
+			long.class, long.class, int.class);
+	private static final MethodHandle glUnmapBuffer = function("glUnmapBuffer", int.class, int.class);
+	/* GL 3.2 */
+	private static final MethodHandle glFenceSync = function("glFenceSync", MemoryAddress.class, int.class, int.class);
+	private static final MethodHandle glClientWaitSync = function("glClientWaitSync", int.class, MemoryAddress.class,
+			int.class, long.class);
+	private static final MethodHandle glDeleteSync = function("glDeleteSync", void.class, MemoryAddress.class);
+	/* GL 4.1 */
+	private static final MethodHandle glProgramParameteri = function("glProgramParameteri", void.class, int.class,
+			int.class, int.class);
+	private static final MethodHandle glGetProgramBinary = function("glGetProgramBinary", void.class, int.class,
+			int.class, MemoryAddress.class, MemoryAddress.class, MemoryAddress.class);
+	private static final MethodHandle glProgramBinary = function("glProgramBinary", void.class, int.class, int.class,
+			MemoryAddress.class, int.class);
+	/* GL 4.2 */
+	private static final MethodHandle glBindImageTexture = function("glBindImageTexture", void.class, int.class,
+			int.class, int.class, int.class, int.class, int.class, int.class);
+	private static final MethodHandle glDispatchCompute = function("glDispatchCompute", void.class, int.class,
+			int.class, int.class);
+	private static final MethodHandle glMemoryBarrier = function("glMemoryBarrier", void.class, int.class);
+	/* GL 4.3 */
+	private static final MethodHandle glCopyImageSubData = function("glCopyImageSubData", void.class, int.class,
+			int.class, int.class, int.class, int.class, int.class, int.class, int.class, int.class, int.class, int.class,
+			int.class, int.class, int.class, int.class);
+	/* GL 4.4 */
+	private static final MethodHandle glBufferStorage = function("glBufferStorage", void.class, int.class, long.class,
+			MemoryAddress.class, int.class);
+	/* KHR_parallel_shader_compile */
+	private static final MethodHandle glMaxShaderCompilerThreadsKHR = function("glMaxShaderCompilerThreadsKHR",
+			void.class, int.class);
+
+	private final FunctionFetcher functionFetcher;
+	private final Set<String> unavailableFunctions = new ObjectOpenHashSet<>();
+	private final GLStateCache stateCache = new GLStateCache();
+	private Set<String> extensions;
+
+	/**
+	 * Creates the OpenGL bindings, every entry point is resolved once using the given function fetcher.
+	 * <p>
+	 * An OpenGL context must be current when this is called.
+	 *
+	 * @param functionFetcher the function fetcher
+	 */
 	private GL(FunctionFetcher functionFetcher) {
 		this.functionFetcher = functionFetcher;
+
+		var sites = new MutableCallSite[ENTRY_POINTS.size()];
+		for (int i = 0; i < sites.length; i++) {
+			var entryPoint = ENTRY_POINTS.get(i);
+			sites[i] = entryPoint.site();
+			sites[i].setTarget(this.link(entryPoint.name(), entryPoint.returnType(), entryPoint.params()));
+		}
+		// Publishes the new targets to the other threads.
+		MutableCallSite.syncAll(sites);
 	}
 
 	public static GL get() {
@@ -53,15 +196,163 @@ public final class GL {
 		return self;
 	}
 
-	private MethodHandle getFunction(String functionName, Function<MemoryAddress, MethodHandle> functionFactory) {
-		return this.functions.computeIfAbsent(functionName, name -> functionFactory.apply(this.functionFetcher.fetch(name)));
+	/**
+	 * Initializes the OpenGL bindings returned by {@link #get()} with the given function fetcher.
+	 * <p>
+	 * This allows to run on another backend than the current GLFW context, like a {@link HeadlessFunctionFetcher}.
+	 *
+	 * @param functionFetcher the function fetcher
+	 * @return the OpenGL bindings
+	 * @throws IllegalStateException if the OpenGL bindings are already initialized
+	 */
+	public static GL init(FunctionFetcher functionFetcher) {
+		if (self != null)
+			throw new IllegalStateException("OpenGL bindings are already initialized.");
+
+		self = new GL(functionFetcher);
+		return self;
+	}
+
+	/**
+	 * {@return {@code true} if the given OpenGL function is exposed by the current context, else {@code false}}
+	 *
+	 * @param functionName the name of the OpenGL function
+	 */
+	public boolean isAvailable(String functionName) {
+		return !this.unavailableFunctions.contains(functionName);
 	}
 
-	private void voidCallInt(String functionName, int param) {
+	/**
+	 * {@return {@code true} if the given extension is supported by the current context, else {@code false}}
+	 *
+	 * @param extension the name of the extension, like {@code GL_KHR_parallel_shader_compile}
+	 */
+	public boolean hasExtension(String extension) {
+		if (this.extensions == null) {
+			var extensions = new ObjectOpenHashSet<String>();
+
+			if (this.isAvailable("glGetStringi")) {
+				int count = this.getIntegerv(GL30.NUM_EXTENSIONS);
+				for (int i = 0; i < count; i++)
+					extensions.add(this.getStringi(GL11.EXTENSIONS, i));
+			}
+
+			this.extensions = extensions;
+		}
+
+		return this.extensions.contains(extension);
+	}
+
+	/**
+	 * {@return the state cache used to drop redundant state changes}
+	 */
+	public GLStateCache stateCache() {
+		return this.stateCache;
+	}
+
+	/**
+	 * Resolves an OpenGL entry point into a downcall handle.
+	 * <p>
+	 * If the entry point is not exposed by the current context, the returned handle throws on invocation
+	 * instead of jumping to a null address.
+	 *
+	 * @param functionName the name of the OpenGL function
+	 * @param returnType the return type of the function
+	 * @param params the parameter types of the function
+	 * @return the method handle
+	 */
+	private MethodHandle link(String functionName, Class<?> returnType, Class<?>... params) {
+		var address = this.functionFetcher.fetch(functionName, returnType, params);
+
+		if (address == null || address.equals(MemoryAddress.NULL)) {
+			this.unavailableFunctions.add(functionName);
+
+			return throwing(new NativeFunctionInvocationException("OpenGL function " + functionName + " is not available."), returnType, params);
+		}
+
+		return LibraryLoader.getFunctionHandle(address, returnType, params);
+	}
+
+	/**
+	 * Declares an OpenGL entry point, its call site is bound when the OpenGL bindings are created.
+	 *
+	 * @param functionName the name of the OpenGL function
+	 * @param returnType the return type of the function
+	 * @param params the parameter types of the function
+	 * @return the invoker of the call site of the entry point
+	 */
+	private static MethodHandle function(String functionName, Class<?> returnType, Class<?>... params) {
+		var uninitialized = throwing(new NativeFunctionInvocationException("OpenGL bindings are not initialized."), returnType, params);
+		var site = new MutableCallSite(uninitialized);
+		ENTRY_POINTS.add(new EntryPoint(functionName, returnType, params, site));
+		return site.dynamicInvoker();
+	}
+
+	private static MethodHandle throwing(NativeFunctionInvocationException exception, Class<?> returnType, Class<?>... params) {
+		var thrower = MethodHandles.throwException(returnType, NativeFunctionInvocationException.class).bindTo(exception);
+		return MethodHandles.dropArguments(thrower, 0, params);
+	}
+
+	private static void voidCallInt(MethodHandle function, int param) {
 		try {
-			this.getFunction(functionName,
-					address -> LibraryLoader.getFunctionHandle(address, void.class, int.class)
-			).invokeExact(param);
+			function.invokeExact(param);
+		} catch (Throwable e) {
+			throw new NativeFunctionInvocationException(e);
+		}
+	}
+
+	private static int[] genObjects(MethodHandle function, int n) {
+		try (var stack = NativeStack.stackPush()) {
+			var cObjects = stack.allocateArray(CLinker.C_INT, n);
+
+			function.invokeExact(n, cObjects.address());
+
+			return cObjects.toIntArray();
+		} catch (Throwable e) {
+			throw new NativeFunctionInvocationException(e);
+		}
+	}
+
+	private static int genObject(MethodHandle function) {
+		try (var stack = NativeStack.stackPush()) {
+			var cObject = stack.allocate(CLinker.C_INT);
+
+			function.invokeExact(1, cObject.address());
+
+			return MemoryAccess.getInt(cObject);
+		} catch (Throwable e) {
+			throw new NativeFunctionInvocationException(e);
+		}
+	}
+
+	private static void deleteObjects(MethodHandle function, int... objects) {
+		try (var stack = NativeStack.stackPush()) {
+			var cObjects = stack.allocateArray(CLinker.C_INT, objects);
+
+			function.invokeExact(objects.length, cObjects.address());
+		} catch (Throwable e) {
+			throw new NativeFunctionInvocationException(e);
+		}
+	}
+
+	private static void deleteObject(MethodHandle function, int object) {
+		try (var stack = NativeStack.stackPush()) {
+			var cObject = stack.allocate(CLinker.C_INT);
+			MemoryAccess.setInt(cObject, object);
+
+			function.invokeExact(1, cObject.address());
+		} catch (Throwable e) {
+			throw new NativeFunctionInvocationException(e);
+		}
+	}
+
+	private static int getInteger(MethodHandle function, int object, int name) {
+		try (var stack = NativeStack.stackPush()) {
+			var resultPtr = stack.allocate(CLinker.C_INT);
+
+			function.invokeExact(object, name, resultPtr.address());
+
+			return MemoryAccess.getInt(resultPtr);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
@@ -70,50 +361,47 @@ public final class GL {
 	/* GL 1.1 */
 
 	public void clear(int mask) {
-		voidCallInt("glClear", mask);
+		voidCallInt(glClear, mask);
 	}
 
 	public void clearColor(float red, float green, float blue, float alpha) {
 		try {
-			this.getFunction("glClearColor", address -> CLinker.getInstance().downcallHandle(address,
-							MethodType.methodType(void.class, float.class, float.class, float.class, float.class),
-							FunctionDescriptor.ofVoid(CLinker.C_FLOAT, CLinker.C_FLOAT, CLinker.C_FLOAT, CLinker.C_FLOAT)))
-					.invokeExact(red, green, blue, alpha);
+			glClearColor.invokeExact(red, green, blue, alpha);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
 	}
 
 	public void depthFunc(int func) {
-		voidCallInt("glDepthFunc", func);
+		if (this.stateCache.depthFunc(func))
+			voidCallInt(glDepthFunc, func);
 	}
 
 	public void depthMask(boolean mask) {
-		voidCallInt("glDepthMask", mask ? 1 : 0);
+		voidCallInt(glDepthMask, mask ? 1 : 0);
 	}
 
 	public void drawArrays(GeometricPrimitive mode, int first, int count) {
 		try {
-			this.getFunction("glDrawArrays", address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class, int.class))
-					.invokeExact(mode.glId(), first, count);
+			glDrawArrays.invokeExact(mode.glId(), first, count);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
 	}
 
 	public void enable(int capability) {
-		voidCallInt("glEnable", capability);
+		if (this.stateCache.setCapability(capability, true))
+			voidCallInt(glEnable, capability);
 	}
 
 	public void disable(int capability) {
-		voidCallInt("glDisable", capability);
+		if (this.stateCache.setCapability(capability, false))
+			voidCallInt(glDisable, capability);
 	}
 
 	public String getString(int name) {
 		try {
-			var res = (MemoryAddress) this.getFunction("glGetString",
-							address -> LibraryLoader.getFunctionHandle(address, MemoryAddress.class, int.class))
-					.invokeExact(name);
+			var res = (MemoryAddress) glGetString.invokeExact(name);
 
 			return CLinker.toJavaString(res);
 		} catch (Throwable e) {
@@ -121,10 +409,21 @@ public final class GL {
 		}
 	}
 
+	public int getIntegerv(int name) {
+		try (var stack = NativeStack.stackPush()) {
+			var resultPtr = stack.allocate(CLinker.C_INT);
+
+			glGetIntegerv.invokeExact(name, resultPtr.address());
+
+			return MemoryAccess.getInt(resultPtr);
+		} catch (Throwable e) {
+			throw new NativeFunctionInvocationException(e);
+		}
+	}
+
 	public void polygonMode(int face, int mode) {
 		try {
-			this.getFunction("glPolygonMode", address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class))
-					.invokeExact(face, mode);
+			glPolygonMode.invokeExact(face, mode);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
@@ -132,8 +431,7 @@ public final class GL {
 
 	public void viewport(int x, int y, int width, int height) {
 		try {
-			this.getFunction("glViewport", address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class, int.class, int.class))
-					.invokeExact(x, y, width, height);
+			glViewport.invokeExact(x, y, width, height);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
@@ -142,86 +440,97 @@ public final class GL {
 	/* 1.3 */
 
 	public void activeTexture(int texture) {
-		voidCallInt("glActiveTexture", texture);
+		if (this.stateCache.activeTexture(texture))
+			voidCallInt(glActiveTexture, texture);
 	}
 
 	/* 1.5 */
 
 	public void bindBuffer(BufferTarget type, int vbo) {
+		if (!this.stateCache.bindBuffer(type, vbo))
+			return;
+
 		try {
-			this.getFunction("glBindBuffer",
-					address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class)
-			).invokeExact(type.glId(), vbo);
+			glBindBuffer.invokeExact(type.glId(), vbo);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
 	}
 
 	public int[] genBuffers(int n) {
-		try (var scope = ResourceScope.newConfinedScope()) {
-			var allocator = SegmentAllocator.ofScope(scope);
-
-			var cBuffers = allocator.allocateArray(CLinker.C_INT, n);
-
-			this.getFunction("glGenBuffers",
-					address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, MemoryAddress.class)
-			).invokeExact(n, cBuffers.address());
+		return genObjects(glGenBuffers, n);
+	}
 
-			return cBuffers.toIntArray();
-		} catch (Throwable e) {
-			throw new NativeFunctionInvocationException(e);
-		}
+	/**
+	 * Generates a single buffer object name.
+	 *
+	 * @return the buffer object name
+	 */
+	public int genBuffer() {
+		return genObject(glGenBuffers);
 	}
 
 	public void deleteBuffers(int... buffers) {
-		try (var scope = ResourceScope.newConfinedScope()) {
-			var allocator = SegmentAllocator.ofScope(scope);
+		deleteObjects(glDeleteBuffers, buffers);
 
-			var cBuffers = allocator.allocateArray(CLinker.C_INT, buffers);
+		for (int buffer : buffers)
+			this.stateCache.onBufferDeleted(buffer);
+	}
 
-			this.getFunction("glDeleteBuffers",
-					address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, MemoryAddress.class)
-			).invokeExact(buffers.length, cBuffers.address());
-		} catch (Throwable e) {
-			throw new NativeFunctionInvocationException(e);
-		}
+	public void deleteBuffer(int buffer) {
+		deleteObject(glDeleteBuffers, buffer);
+		this.stateCache.onBufferDeleted(buffer);
 	}
 
 	public void bufferData(BufferTarget type, float[] data, BufferUsage usage) {
+		long size = NativeSizes.sizeof(data);
+
+		try (var stack = NativeStack.stackPush()) {
+			if (stack.fits(size, CLinker.C_FLOAT.byteAlignment())) {
+				bufferData(type, size, stack.allocateArray(CLinker.C_FLOAT, data).address(), usage);
+				return;
+			}
+		}
+
 		try (var scope = ResourceScope.newConfinedScope()) {
 			var allocator = SegmentAllocator.ofScope(scope);
 
 			var cData = allocator.allocateArray(CLinker.C_FLOAT, data);
 
-			bufferData(type, NativeSizes.sizeof(data), cData.address(), usage);
+			bufferData(type, size, cData.address(), usage);
 		}
 	}
 
 	public void bufferData(BufferTarget type, long size, MemoryAddress dataAddress, BufferUsage usage) {
 		try {
-			this.getFunction("glBufferData",
-					address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, long.class, MemoryAddress.class, int.class)
-			).invokeExact(type.glId(), size, dataAddress, usage.glId());
+			glBufferData.invokeExact(type.glId(), size, dataAddress, usage.glId());
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
 	}
 
 	public void bufferSubData(BufferTarget type, long offset, float[] data) {
+		long size = NativeSizes.sizeof(data);
+
+		try (var stack = NativeStack.stackPush()) {
+			if (stack.fits(size, CLinker.C_FLOAT.byteAlignment())) {
+				bufferSubData(type, offset, size, stack.allocateArray(CLinker.C_FLOAT, data).address());
+				return;
+			}
+		}
+
 		try (var scope = ResourceScope.newConfinedScope()) {
 			var allocator = SegmentAllocator.ofScope(scope);
 
 			var cData = allocator.allocateArray(CLinker.C_FLOAT, data);
 
-			bufferSubData(type, offset, NativeSizes.sizeof(data), cData.address());
+			bufferSubData(type, offset, size, cData.address());
 		}
 	}
 
 	public void bufferSubData(BufferTarget type, long offset, long size, MemoryAddress dataAddress) {
 		try {
-			this.getFunction("glBufferSubData",
-					address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, long.class, long.class, MemoryAddress.class)
-			).invokeExact(type.glId(), offset, size, dataAddress);
+			glBufferSubData.invokeExact(type.glId(), offset, size, dataAddress);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
@@ -230,50 +539,58 @@ public final class GL {
 	/* GL 2.0 */
 
 	public void bindTexture(TextureType type, int texture) {
+		if (!this.stateCache.bindTexture(type, texture))
+			return;
+
 		try {
-			this.getFunction("glBindTexture",
-					address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class)
-			).invokeExact(type.glId(), texture);
+			glBindTexture.invokeExact(type.glId(), texture);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
 	}
 
 	public int[] genTextures(int n) {
-		try (var scope = ResourceScope.newConfinedScope()) {
-			var allocator = SegmentAllocator.ofScope(scope);
-
-			var cTextures = allocator.allocateArray(CLinker.C_INT, n);
-
-			this.getFunction("glGenTextures",
-					address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, MemoryAddress.class)
-			).invokeExact(n, cTextures.address());
+		return genObjects(glGenTextures, n);
+	}
 
-			return cTextures.toIntArray();
-		} catch (Throwable e) {
-			throw new NativeFunctionInvocationException(e);
-		}
+	/**
+	 * Generates a single texture name.
+	 *
+	 * @return the texture name
+	 */
+	public int genTexture() {
+		return genObject(glGenTextures);
 	}
 
 	public void deleteTextures(int... textures) {
-		try (var scope = ResourceScope.newConfinedScope()) {
-			var allocator = SegmentAllocator.ofScope(scope);
+		deleteObjects(glDeleteTextures, textures);
 
-			var cTextures = allocator.allocateArray(CLinker.C_INT, textures);
+		for (int texture : textures)
+			this.stateCache.onTextureDeleted(texture);
+	}
 
-			this.getFunction("glDeleteTextures",
-					address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, MemoryAddress.class)
-			).invokeExact(textures.length, cTextures.address());
-		} catch (Throwable e) {
-			throw new NativeFunctionInvocationException(e);
-		}
+	public void deleteTexture(int texture) {
+		deleteObject(glDeleteTextures, texture);
+		this.stateCache.onTextureDeleted(texture);
 	}
 
 	public void texImage2D(OpenGLIdProvider target, int level, Texture.InternalFormat internalFormat, Image image) {
 		try (var scope = ResourceScope.newConfinedScope()) {
 			var imgData = image.getImageAddress(scope);
 
-			this.texImage2D(target, level, internalFormat, image.width(), image.height(), image.format(), GL11.UNSIGNED_BYTE, imgData);
+			// Tightly packed byte rows are not always aligned as the current unpack alignment expects,
+			// e.g. single channel images of odd widths, the previous alignment is restored afterwards.
+			int alignment = image.texelType() == GL11.UNSIGNED_BYTE ? this.unpackAlignment() : 1;
+			boolean unaligned = (image.width() * image.format().channelCount()) % alignment != 0;
+			if (unaligned)
+				this.pixelStorei(GL11.UNPACK_ALIGNMENT, 1);
+
+			try {
+				this.texImage2D(target, level, internalFormat, image.width(), image.height(), image.format(), image.texelType(), imgData);
+			} finally {
+				if (unaligned)
+					this.pixelStorei(GL11.UNPACK_ALIGNMENT, alignment);
+			}
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
@@ -282,19 +599,56 @@ public final class GL {
 	public void texImage2D(OpenGLIdProvider target, int level, Texture.InternalFormat internalFormat,
 	                       int width, int height, Image.Format format, int type, MemoryAddress data) {
 		try {
-			this.getFunction("glTexImage2D",
-							address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class, int.class, int.class,
-									int.class, int.class, int.class, int.class, MemoryAddress.class))
-					.invokeExact(target.glId(), level, internalFormat.glId(), width, height, 0, format.glFormatId(), type, data);
+			glTexImage2D.invokeExact(target.glId(), level, internalFormat.glId(), width, height, 0, format.glFormatId(), type, data);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
 	}
 
+	/**
+	 * Updates a region of a texture.
+	 * <p>
+	 * If a buffer is bound to the pixel unpack target, {@code data} is an offset in that buffer.
+	 */
+	public void texSubImage2D(OpenGLIdProvider target, int level, int x, int y, int width, int height,
+	                          Image.Format format, int type, MemoryAddress data) {
+		try {
+			glTexSubImage2D.invokeExact(target.glId(), level, x, y, width, height, format.glFormatId(), type, data);
+		} catch (Throwable e) {
+			throw new NativeFunctionInvocationException(e);
+		}
+	}
+
+	public void pixelStorei(int paramName, int value) {
+		if (paramName == GL11.UNPACK_ALIGNMENT && !this.stateCache.unpackAlignment(value))
+			return;
+
+		try {
+			glPixelStorei.invokeExact(paramName, value);
+		} catch (Throwable e) {
+			throw new NativeFunctionInvocationException(e);
+		}
+	}
+
+	/**
+	 * {@return the current unpack alignment}
+	 * <p>
+	 * The alignment is tracked by the {@linkplain #stateCache() state cache}, the driver is only queried while it is unknown.
+	 */
+	public int unpackAlignment() {
+		int alignment = this.stateCache.unpackAlignment();
+
+		if (alignment == -1) {
+			alignment = this.getIntegerv(GL11.UNPACK_ALIGNMENT);
+			this.stateCache.onUnpackAlignmentQueried(alignment);
+		}
+
+		return alignment;
+	}
+
 	public void texParameteri(TextureType target, OpenGLIdProvider paramName, int value) {
 		try {
-			this.getFunction("glTexParameteri", address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class, int.class))
-					.invokeExact(target.glId(), paramName.glId(), value);
+			glTexParameteri.invokeExact(target.glId(), paramName.glId(), value);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
@@ -302,8 +656,7 @@ public final class GL {
 
 	public void texParameterf(TextureType target, OpenGLIdProvider paramName, float value) {
 		try {
-			this.getFunction("glTexParameterf", address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class, float.class))
-					.invokeExact(target.glId(), paramName.glId(), value);
+			glTexParameterf.invokeExact(target.glId(), paramName.glId(), value);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
@@ -311,23 +664,17 @@ public final class GL {
 
 	public int createShader(ShaderType type) {
 		try {
-			return (int) this.getFunction("glCreateShader", address -> CLinker.getInstance().downcallHandle(address,
-							MethodType.methodType(int.class, int.class), FunctionDescriptor.of(CLinker.C_INT, CLinker.C_INT)))
-					.invokeExact(type.glId());
+			return (int) glCreateShader.invokeExact(type.glId());
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
 	}
 
 	public void deleteShader(int shader) {
-		voidCallInt("glDeleteShader", shader);
+		voidCallInt(glDeleteShader, shader);
 	}
 
 	public void shaderSource(int shader, String... source) {
-		var function = this.getFunction("glShaderSource", address -> CLinker.getInstance().downcallHandle(address,
-				MethodType.methodType(void.class, int.class, int.class, MemoryAddress.class, MemoryAddress.class),
-				FunctionDescriptor.ofVoid(CLinker.C_INT, CLinker.C_INT, CLinker.C_POINTER, CLinker.C_POINTER)));
-
 		try (var scope = ResourceScope.newConfinedScope()) {
 			var allocator = SegmentAllocator.ofScope(scope);
 			var cSource = new MemorySegment[source.length];
@@ -336,59 +683,40 @@ public final class GL {
 				cSource[i] = CLinker.toCString(source[i], allocator);
 
 			var sourceArray = allocator.allocateArray(MemoryLayouts.ADDRESS, cSource);
-			function.invokeExact(shader, source.length, sourceArray.address(), MemoryAddress.NULL);
+			glShaderSource.invokeExact(shader, source.length, sourceArray.address(), MemoryAddress.NULL);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
 	}
 
 	public void compileShader(int shader) {
-		voidCallInt("glCompileShader", shader);
+		voidCallInt(glCompileShader, shader);
 	}
 
 	public int getShaderiv(int shader, int name) {
-		var function = this.getFunction("glGetShaderiv",
-				address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class, MemoryAddress.class)
-		);
-
-		try (var scope = ResourceScope.newConfinedScope()) {
-			var allocator = SegmentAllocator.ofScope(scope);
-
-			var resultPtr = allocator.allocate(MemoryLayouts.JAVA_INT);
-
-			function.invokeExact(shader, name, resultPtr.address());
-
-			return resultPtr.toIntArray()[0];
-		} catch (Throwable e) {
-			throw new NativeFunctionInvocationException(e);
-		}
+		return getInteger(glGetShaderiv, shader, name);
 	}
 
 	public String getShaderInfoLog(int shader, int maxLength) {
-		return this.getInfoLog(this.getFunction("glGetShaderInfoLog", address ->
-				LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class, MemoryAddress.class, MemoryAddress.class)
-		), shader, maxLength);
+		return this.getInfoLog(glGetShaderInfoLog, shader, maxLength);
 	}
 
 	public int createProgram() {
 		try {
-			return (int) this.getFunction("glCreateProgram",
-					address -> LibraryLoader.getFunctionHandle(address, int.class)
-			).invokeExact();
+			return (int) glCreateProgram.invokeExact();
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
 	}
 
 	public void deleteProgram(int program) {
-		voidCallInt("glDeleteProgram", program);
+		voidCallInt(glDeleteProgram, program);
+		this.stateCache.onProgramDeleted(program);
 	}
 
 	public void attachShader(int program, int shader) {
 		try {
-			this.getFunction("glAttachShader",
-					address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class)
-			).invokeExact(program, shader);
+			glAttachShader.invokeExact(program, shader);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
@@ -396,40 +724,22 @@ public final class GL {
 
 	public void detachShader(int program, int shader) {
 		try {
-			this.getFunction("glDetachShader",
-					address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class)
-			).invokeExact(program, shader);
+			glDetachShader.invokeExact(program, shader);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
 	}
 
 	public void linkProgram(int program) {
-		voidCallInt("glLinkProgram", program);
+		voidCallInt(glLinkProgram, program);
 	}
 
 	public int getProgramiv(int program, int name) {
-		var function = this.getFunction("glGetProgramiv",
-				address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class, MemoryAddress.class)
-		);
-
-		try (var scope = ResourceScope.newConfinedScope()) {
-			var allocator = SegmentAllocator.ofScope(scope);
-
-			var resultPtr = allocator.allocate(MemoryLayouts.JAVA_INT);
-
-			function.invokeExact(program, name, resultPtr.address());
-
-			return resultPtr.toIntArray()[0];
-		} catch (Throwable e) {
-			throw new NativeFunctionInvocationException(e);
-		}
+		return getInteger(glGetProgramiv, program, name);
 	}
 
 	public String getProgramInfoLog(int program, int maxLength) {
-		return this.getInfoLog(this.getFunction("glGetProgramInfoLog", address ->
-				LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class, MemoryAddress.class, MemoryAddress.class)
-		), program, maxLength);
+		return this.getInfoLog(glGetProgramInfoLog, program, maxLength);
 	}
 
 	private String getInfoLog(MethodHandle function, int id, int maxLength) {
@@ -448,14 +758,37 @@ public final class GL {
 	}
 
 	public void useProgram(int program) {
-		voidCallInt("glUseProgram", program);
+		if (this.stateCache.useProgram(program))
+			voidCallInt(glUseProgram, program);
 	}
 
 	public int getUniformLocation(int program, String name) {
-		try (var scope = ResourceScope.newConfinedScope()) {
-			return (int) this.getFunction("glGetUniformLocation",
-					address -> LibraryLoader.getFunctionHandle(address, int.class, int.class, MemoryAddress.class)
-			).invokeExact(program, CLinker.toCString(name, scope).address());
+		try (var stack = NativeStack.stackPush()) {
+			return (int) glGetUniformLocation.invokeExact(program, CLinker.toCString(name, stack).address());
+		} catch (Throwable e) {
+			throw new NativeFunctionInvocationException(e);
+		}
+	}
+
+	/**
+	 * Queries an active uniform of the given program.
+	 *
+	 * @param program the program
+	 * @param index the index of the active uniform, between {@code 0} and {@link GL20#ACTIVE_UNIFORMS} exclusive
+	 * @param maxNameLength the maximum length of the uniform name, see {@link GL20#ACTIVE_UNIFORM_MAX_LENGTH}
+	 * @return the active uniform
+	 */
+	public ActiveUniform getActiveUniform(int program, int index, int maxNameLength) {
+		try (var stack = NativeStack.stackPush()) {
+			var lengthSegment = stack.allocate(CLinker.C_INT);
+			var sizeSegment = stack.allocate(CLinker.C_INT);
+			var typeSegment = stack.allocate(CLinker.C_INT);
+			var nameSegment = stack.allocate(Math.max(maxNameLength, 1));
+
+			glGetActiveUniform.invokeExact(program, index, maxNameLength, lengthSegment.address(), sizeSegment.address(),
+					typeSegment.address(), nameSegment.address());
+
+			return new ActiveUniform(CLinker.toJavaString(nameSegment), MemoryAccess.getInt(sizeSegment), MemoryAccess.getInt(typeSegment));
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
@@ -463,9 +796,7 @@ public final class GL {
 
 	public void uniform1i(int location, int value) {
 		try {
-			this.getFunction("glUniform1i",
-					address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class)
-			).invokeExact(location, value);
+			glUniform1i.invokeExact(location, value);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
@@ -473,9 +804,7 @@ public final class GL {
 
 	public void uniform1f(int location, float value) {
 		try {
-			this.getFunction("glUniform1f",
-					address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, float.class)
-			).invokeExact(location, value);
+			glUniform1f.invokeExact(location, value);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
@@ -483,35 +812,36 @@ public final class GL {
 
 	public void uniform3f(int location, float x, float y, float z) {
 		try {
-			this.getFunction("glUniform3f",
-					address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, float.class, float.class, float.class)
-			).invokeExact(location, x, y, z);
+			glUniform3f.invokeExact(location, x, y, z);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
 	}
 
 	public void uniformMatrix4fv(int location, boolean transpose, Matrix4f value) {
-		try (var scope = ResourceScope.newConfinedScope()) {
-			var allocator = SegmentAllocator.ofScope(scope);
+		try (var stack = NativeStack.stackPush()) {
+			long address = Matrix4fBufferRange.NO_OFFSET.writeToStack(stack, value);
+			glUniformMatrix4fv.invokeExact(location, 1, transpose ? 1 : 0, MemoryAddress.ofLong(address));
+		} catch (Throwable e) {
+			throw new NativeFunctionInvocationException(e);
+		}
+	}
 
-			this.getFunction("glUniformMatrix4fv",
-					address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class, int.class, MemoryAddress.class)
-			).invokeExact(location, 1, transpose ? 1 : 0, Matrix4fBufferRange.NO_OFFSET.createSegment(allocator, value).address());
+	public void uniformMatrix4fv(int location, boolean transpose, MemoryAddress value) {
+		try {
+			glUniformMatrix4fv.invokeExact(location, 1, transpose ? 1 : 0, value);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
 	}
 
 	public void enableVertexAttribArray(int index) {
-		voidCallInt("glEnableVertexAttribArray", index);
+		voidCallInt(glEnableVertexAttribArray, index);
 	}
 
 	public void vertexAttribPointer(int index, int size, int type, boolean normalized, long stride, MemoryAddress pointer) {
 		try {
-			this.getFunction("glVertexAttribPointer",
-					address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class, int.class, int.class, int.class, MemoryAddress.class)
-			).invokeExact(index, size, type, normalized ? 1 : 0, (int) stride, pointer);
+			glVertexAttribPointer.invokeExact(index, size, type, normalized ? 1 : 0, (int) stride, pointer);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
@@ -520,60 +850,157 @@ public final class GL {
 	/* GL 3.0 */
 
 	public void bindVertexArray(int vao) {
-		voidCallInt("glBindVertexArray", vao);
+		if (this.stateCache.bindVertexArray(vao))
+			voidCallInt(glBindVertexArray, vao);
 	}
 
 	public int[] genVertexArrays(int n) {
-		try (var scope = ResourceScope.newConfinedScope()) {
-			var allocator = SegmentAllocator.ofScope(scope);
+		return genObjects(glGenVertexArrays, n);
+	}
+
+	/**
+	 * Generates a single vertex array object name.
+	 *
+	 * @return the vertex array object name
+	 */
+	public int genVertexArray() {
+		return genObject(glGenVertexArrays);
+	}
+
+	public void deleteVertexArrays(int... vertexArrays) {
+		deleteObjects(glDeleteVertexArrays, vertexArrays);
 
-			var cVertexArrays = allocator.allocateArray(CLinker.C_INT, n);
+		for (int vertexArray : vertexArrays)
+			this.stateCache.onVertexArrayDeleted(vertexArray);
+	}
 
-			this.getFunction("glGenVertexArrays",
-					address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, MemoryAddress.class)
-			).invokeExact(n, cVertexArrays.address());
+	public void deleteVertexArray(int vertexArray) {
+		deleteObject(glDeleteVertexArrays, vertexArray);
+		this.stateCache.onVertexArrayDeleted(vertexArray);
+	}
 
-			return cVertexArrays.toIntArray();
+	public void bindBufferRange(BufferTarget target, int index, int buffer, long offset, long size) {
+		try {
+			glBindBufferRange.invokeExact(target.glId(), index, buffer, offset, size);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
+
+		// Binding a buffer range also binds the buffer to the generic binding point of the target.
+		this.stateCache.onBufferRangeBound(target, buffer);
 	}
 
-	public void deleteVertexArrays(int... vertexArrays) {
-		try (var scope = ResourceScope.newConfinedScope()) {
-			var allocator = SegmentAllocator.ofScope(scope);
+	public void generateMipmap(TextureType type) {
+		voidCallInt(glGenerateMipmap, type.glId());
+	}
 
-			var cVertexArrays = allocator.allocateArray(CLinker.C_INT, vertexArrays);
+	public MemoryAddress mapBufferRange(BufferTarget target, long offset, long length, int access) {
+		try {
+			return (MemoryAddress) glMapBufferRange.invokeExact(target.glId(), offset, length, access);
+		} catch (Throwable e) {
+			throw new NativeFunctionInvocationException(e);
+		}
+	}
 
-			this.getFunction("glDeleteVertexArrays",
-					address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, MemoryAddress.class)
-			).invokeExact(vertexArrays.length, cVertexArrays.address());
+	public boolean unmapBuffer(BufferTarget target) {
+		try {
+			return (int) glUnmapBuffer.invokeExact(target.glId()) != 0;
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
 	}
 
-	public void bindBufferRange(BufferTarget target, int index, int buffer, long offset, long size) {
+	public String getStringi(int name, int index) {
 		try {
-			this.getFunction("glBindBufferRange",
-					address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class, int.class, long.class, long.class)
-			).invokeExact(target.glId(), index, buffer, offset, size);
+			var res = (MemoryAddress) glGetStringi.invokeExact(name, index);
+
+			return CLinker.toJavaString(res);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
 	}
 
-	public void generateMipmap(TextureType type) {
-		voidCallInt("glGenerateMipmap", type.glId());
+	/* GL 3.2 */
+
+	public MemoryAddress fenceSync(int condition, int flags) {
+		try {
+			return (MemoryAddress) glFenceSync.invokeExact(condition, flags);
+		} catch (Throwable e) {
+			throw new NativeFunctionInvocationException(e);
+		}
+	}
+
+	public int clientWaitSync(MemoryAddress sync, int flags, long timeout) {
+		try {
+			return (int) glClientWaitSync.invokeExact(sync, flags, timeout);
+		} catch (Throwable e) {
+			throw new NativeFunctionInvocationException(e);
+		}
+	}
+
+	public void deleteSync(MemoryAddress sync) {
+		try {
+			glDeleteSync.invokeExact(sync);
+		} catch (Throwable e) {
+			throw new NativeFunctionInvocationException(e);
+		}
+	}
+
+	/* GL 4.1 */
+
+	public void programParameteri(int program, int name, int value) {
+		try {
+			glProgramParameteri.invokeExact(program, name, value);
+		} catch (Throwable e) {
+			throw new NativeFunctionInvocationException(e);
+		}
+	}
+
+	/**
+	 * Gets the binary of the given linked program.
+	 *
+	 * @param program the program
+	 * @param length the length of the binary, see {@link GL41#PROGRAM_BINARY_LENGTH}
+	 * @return the binary and its format
+	 */
+	public ProgramBinary getProgramBinary(int program, int length) {
+		try (var scope = ResourceScope.newConfinedScope()) {
+			var allocator = SegmentAllocator.ofScope(scope);
+
+			var lengthSegment = allocator.allocate(CLinker.C_INT);
+			var formatSegment = allocator.allocate(CLinker.C_INT);
+			var binarySegment = allocator.allocate(Math.max(length, 1));
+
+			glGetProgramBinary.invokeExact(program, length, lengthSegment.address(), formatSegment.address(), binarySegment.address());
+
+			var binary = binarySegment.asSlice(0, MemoryAccess.getInt(lengthSegment)).toByteArray();
+			return new ProgramBinary(MemoryAccess.getInt(formatSegment), binary);
+		} catch (Throwable e) {
+			throw new NativeFunctionInvocationException(e);
+		}
+	}
+
+	/**
+	 * Loads the given binary into the given program, the result is reported by {@link GL20#LINK_STATUS}.
+	 *
+	 * @param program the program
+	 * @param binary the binary and its format
+	 */
+	public void programBinary(int program, ProgramBinary binary) {
+		try (var scope = ResourceScope.newConfinedScope()) {
+			var binarySegment = SegmentAllocator.ofScope(scope).allocateArray(CLinker.C_CHAR, binary.binary());
+
+			glProgramBinary.invokeExact(program, binary.format(), binarySegment.address(), binary.binary().length);
+		} catch (Throwable e) {
+			throw new NativeFunctionInvocationException(e);
+		}
 	}
 
 	/* GL 4.2 */
 
 	public void bindImageTexture(int unit, int texture, int level, boolean layered, int layer, Access access, Texture.InternalFormat format) {
 		try {
-			this.getFunction("glBindImageTexture",
-					address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class, int.class, int.class, int.class, int.class, int.class)
-			).invokeExact(unit, texture, level, layered ? 1 : 0, layer, access.glId(), format.glId());
+			glBindImageTexture.invokeExact(unit, texture, level, layered ? 1 : 0, layer, access.glId(), format.glId());
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
@@ -581,20 +1008,91 @@ public final class GL {
 
 	public void dispatchCompute(int numGroupsX, int numGroupsY, int numGroupsZ) {
 		try {
-			this.getFunction("glDispatchCompute", address -> LibraryLoader.getFunctionHandle(address, void.class, int.class, int.class, int.class))
-					.invokeExact(numGroupsX, numGroupsY, numGroupsZ);
+			glDispatchCompute.invokeExact(numGroupsX, numGroupsY, numGroupsZ);
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
 	}
 
 	public void memoryBarrier(int barriers) {
-		voidCallInt("glMemoryBarrier", barriers);
+		voidCallInt(glMemoryBarrier, barriers);
+	}
+
+	/* GL 4.3 */
+
+	/**
+	 * Copies a region of a texture level to another texture level, the regions must not overlap if both are the same texture.
+	 */
+	public void copyImageSubData(int srcName, TextureType srcTarget, int srcLevel, int srcX, int srcY, int srcZ,
+	                             int dstName, TextureType dstTarget, int dstLevel, int dstX, int dstY, int dstZ,
+	                             int width, int height, int depth) {
+		try {
+			glCopyImageSubData.invokeExact(srcName, srcTarget.glId(), srcLevel, srcX, srcY, srcZ,
+					dstName, dstTarget.glId(), dstLevel, dstX, dstY, dstZ, width, height, depth);
+		} catch (Throwable e) {
+			throw new NativeFunctionInvocationException(e);
+		}
+	}
+
+	/* GL 4.4 */
+
+	public void bufferStorage(BufferTarget target, long size, MemoryAddress data, int flags) {
+		try {
+			glBufferStorage.invokeExact(target.glId(), size, data, flags);
+		} catch (Throwable e) {
+			throw new NativeFunctionInvocationException(e);
+		}
+	}
+
+	/* KHR_parallel_shader_compile */
+
+	/**
+	 * Sets the number of threads the driver may use to compile shaders and link programs in the background.
+	 *
+	 * @param count the number of threads, {@code 0} to compile on the calling thread,
+	 * or {@link KHRParallelShaderCompile#MAX_THREADS_IMPLEMENTATION_DEFINED} to let the driver choose
+	 */
+	public void maxShaderCompilerThreads(int count) {
+		voidCallInt(glMaxShaderCompilerThreadsKHR, count);
+	}
+
+	private record EntryPoint(String name, Class<?> returnType, Class<?>[] params, MutableCallSite site) {
 	}
 
 	@FunctionalInterface
 	public interface FunctionFetcher {
 		MemoryAddress fetch(String name);
+
+		/**
+		 * Fetches the address of the given function, knowing its signature.
+		 *
+		 * @param name the name of the function
+		 * @param returnType the return type of the function
+		 * @param params the parameter types of the function
+		 * @return the address of the function, or {@link MemoryAddress#NULL} if the function is not available
+		 */
+		default MemoryAddress fetch(String name, Class<?> returnType, Class<?>... params) {
+			return this.fetch(name);
+		}
+	}
+
+	/**
+	 * Represents the description of an active uniform as returned by {@code glGetActiveUniform}.
+	 *
+	 * @param name the name of the uniform
+	 * @param size the array size of the uniform, {@code 1} if the uniform is not an array
+	 * @param type the OpenGL type identifier of the uniform
+	 */
+	public record ActiveUniform(String name, int size, int type) {
+	}
+
+	/**
+	 * Represents the binary of a linked program, as returned by the driver.
+	 *
+	 * @param format the driver-specific format of the binary
+	 * @param binary the binary
+	 */
+	public record ProgramBinary(int format, byte[] binary) {
 	}
 
 	public enum Access implements OpenGLIdProvider {
@@ -625,10 +1123,13 @@ public final class GL {
 		public static final int COLOR_BUFFER_BIT = 0x4000;
 		public static final int UNSIGNED_BYTE = 0x1401;
 		public static final int FLOAT = 0x1406;
+		public static final int UNPACK_ALIGNMENT = 0x0cf5;
 		public static final int LINE = 0x1b01;
 		public static final int FILL = 0x1b02;
 		public static final int VENDOR = 0x1f00;
 		public static final int RENDERER = 0x1f01;
+		public static final int VERSION = 0x1f02;
+		public static final int EXTENSIONS = 0x1f03;
 	}
 
 	public static final class GL13 {
@@ -640,9 +1141,56 @@ public final class GL {
 		public static final int COMPILE_STATUS = 0x8b81;
 		public static final int LINK_STATUS = 0x8b82;
 		public static final int INFO_LOG_LENGTH = 0x8b84;
+		public static final int ACTIVE_UNIFORMS = 0x8b86;
+		public static final int ACTIVE_UNIFORM_MAX_LENGTH = 0x8b87;
+	}
+
+	public static final class GL30 {
+		public static final int HALF_FLOAT = 0x140b;
+		public static final int UNSIGNED_INT_10F_11F_11F_REV = 0x8c3b;
+		public static final int MAP_WRITE_BIT = 0x0002;
+		public static final int MAP_INVALIDATE_BUFFER_BIT = 0x0008;
+		public static final int MAP_FLUSH_EXPLICIT_BIT = 0x0010;
+		public static final int MAP_UNSYNCHRONIZED_BIT = 0x0020;
+		public static final int NUM_EXTENSIONS = 0x821d;
+	}
+
+	public static final class GL31 {
+		public static final int UNIFORM_BUFFER_OFFSET_ALIGNMENT = 0x8a34;
+	}
+
+	public static final class GL32 {
+		public static final int SYNC_FLUSH_COMMANDS_BIT = 0x00000001;
+		public static final int SYNC_GPU_COMMANDS_COMPLETE = 0x9117;
+		public static final int ALREADY_SIGNALED = 0x911a;
+		public static final int TIMEOUT_EXPIRED = 0x911b;
+		public static final int CONDITION_SATISFIED = 0x911c;
+		public static final int WAIT_FAILED = 0x911d;
+	}
+
+	public static final class GL41 {
+		public static final int PROGRAM_BINARY_RETRIEVABLE_HINT = 0x8257;
+		public static final int PROGRAM_BINARY_LENGTH = 0x8741;
+		public static final int NUM_PROGRAM_BINARY_FORMATS = 0x87fe;
 	}
 
 	public static final class GL42 {
 		public static final int SHADER_IMAGE_ACCESS_BARRIER_BIT = 0x00000020;
+		public static final int TEXTURE_FETCH_BARRIER_BIT = 0x00000008;
+		public static final int TEXTURE_UPDATE_BARRIER_BIT = 0x00000100;
+	}
+
+	public static final class GL44 {
+		public static final int MAP_PERSISTENT_BIT = 0x0040;
+		public static final int MAP_COHERENT_BIT = 0x0080;
+		public static final int DYNAMIC_STORAGE_BIT = 0x0100;
+		public static final int CLIENT_STORAGE_BIT = 0x0200;
+	}
+
+	public static final class KHRParallelShaderCompile {
+		public static final String NAME = "GL_KHR_parallel_shader_compile";
+		public static final int MAX_THREADS_IMPLEMENTATION_DEFINED = 0xffffffff;
+		public static final int MAX_SHADER_COMPILER_THREADS = 0x91b0;
+		public static final int COMPLETION_STATUS = 0x91b1;
 	}
 }
@@ -19,6 +19,7 @@ package dev.lambdaurora.res_errare.system;
 
 import dev.lambdaurora.res_errare.input.ButtonAction;
 import dev.lambdaurora.res_errare.system.callback.GLFWFramebufferSizeCallback;
+import dev.lambdaurora.res_errare.system.memory.NativeStack;
 import dev.lambdaurora.res_errare.util.math.Dimensions2D;
 import it.unimi.dsi.fastutil.objects.Object2ObjectOpenHashMap;
 import jdk.incubator.foreign.*;
@@ -71,9 +72,12 @@ public final class GLFW {
 		return FUNCTIONS.computeIfAbsent(name, n -> linker.apply(LibraryLoader.lookupSymbol(n)));
 	}
 
-	public static float getTime() {
+	/**
+	 * {@return the time elapsed since GLFW was initialized in seconds, from a monotonic clock}
+	 */
+	public static double getTime() {
 		try {
-			return (float) getFunction("glfwGetTime", LibraryLoader.getNoArgFunctionProvider(float.class))
+			return (double) getFunction("glfwGetTime", LibraryLoader.getNoArgFunctionProvider(double.class))
 					.invokeExact();
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
@@ -83,10 +87,10 @@ public final class GLFW {
 	/* Context stuff */
 
 	public static MemoryAddress getProcAddress(String symbolName) {
-		try (var scope = ResourceScope.newConfinedScope()) {
+		try (var stack = NativeStack.stackPush()) {
 			return (MemoryAddress) getFunction("glfwGetProcAddress",
 					address -> LibraryLoader.getFunctionHandle(address, MemoryAddress.class, MemoryAddress.class)
-			).invokeExact(CLinker.toCString(symbolName, scope).address());
+			).invokeExact(CLinker.toCString(symbolName, stack).address());
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
@@ -119,8 +123,8 @@ public final class GLFW {
 				MemoryAddress.class, int.class, int.class, MemoryAddress.class, MemoryAddress.class, MemoryAddress.class)
 		);
 
-		try (var scope = ResourceScope.newConfinedScope()) {
-			var nativeTitle = CLinker.toCString(title, scope);
+		try (var stack = NativeStack.stackPush()) {
+			var nativeTitle = CLinker.toCString(title, stack);
 			return (MemoryAddress) function.invokeExact(width, height, nativeTitle.address(), monitor, share);
 		} catch (Throwable throwable) {
 			throw new NativeFunctionInvocationException("Could not invoke function glfwCreateWindow: ", throwable);
@@ -158,17 +162,15 @@ public final class GLFW {
 	}
 
 	public static Dimensions2D getFramebufferSize(MemoryAddress window) {
-		try (var scope = ResourceScope.newConfinedScope()) {
-			var allocator = SegmentAllocator.ofScope(scope);
-
-			var widthSegment = allocator.allocate(CLinker.C_INT);
-			var heightSegment = allocator.allocate(CLinker.C_INT);
+		try (var stack = NativeStack.stackPush()) {
+			var widthSegment = stack.allocate(CLinker.C_INT);
+			var heightSegment = stack.allocate(CLinker.C_INT);
 
 			getFunction("glfwGetFramebufferSize", address -> LibraryLoader.getFunctionHandle(address, void.class,
 					MemoryAddress.class, MemoryAddress.class, MemoryAddress.class)
 			).invokeExact(window, widthSegment.address(), heightSegment.address());
 
-			return new Dimensions2D(widthSegment.toIntArray()[0], heightSegment.toIntArray()[0]);
+			return new Dimensions2D(MemoryAccess.getInt(widthSegment), MemoryAccess.getInt(heightSegment));
 		} catch (Throwable e) {
 			throw new NativeFunctionInvocationException(e);
 		}
@@ -0,0 +1,274 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.system;
+
+import dev.lambdaurora.res_errare.render.buffer.BufferTarget;
+import dev.lambdaurora.res_errare.render.texture.TextureType;
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+
+import java.util.Arrays;
+
+/**
+ * Represents a shadow copy of the OpenGL binding state, used by {@link GL} to drop redundant state changes.
+ * <p>
+ * Tracks the current program, vertex array, buffer bindings per target, texture bindings per texture unit,
+ * the active texture unit, capabilities, depth function and unpack alignment.
+ * Unknown state is represented by {@code -1}, any call made while the state is unknown goes through.
+ * <p>
+ * The cache can be bypassed for debugging, either with {@link #setEnabled(boolean)}
+ * or by starting the game with {@code -Dres_errare.gl.state_cache=false}.
+ */
+public final class GLStateCache {
+	private static final int UNKNOWN = -1;
+	private static final int MAX_TEXTURE_UNITS = 32;
+	private static final BufferTarget[] BUFFER_TARGETS = BufferTarget.values();
+	private static final TextureType[] TEXTURE_TYPES = TextureType.values();
+
+	private boolean enabled = !"false".equals(System.getProperty("res_errare.gl.state_cache"));
+
+	private int program;
+	private int vertexArray;
+	private final int[] buffers = new int[BUFFER_TARGETS.length];
+	private int activeTextureUnit;
+	private final int[] textures = new int[MAX_TEXTURE_UNITS * TEXTURE_TYPES.length];
+	private final Int2IntOpenHashMap capabilities = new Int2IntOpenHashMap();
+	private int depthFunc;
+	private int unpackAlignment;
+
+	private long calls;
+	private long redundantCalls;
+
+	GLStateCache() {
+		this.capabilities.defaultReturnValue(UNKNOWN);
+		this.invalidate();
+	}
+
+	/**
+	 * {@return {@code true} if this cache filters redundant calls, else {@code false}}
+	 */
+	public boolean isEnabled() {
+		return this.enabled;
+	}
+
+	/**
+	 * Enables or disables the filtering of redundant calls.
+	 * <p>
+	 * The tracked state is invalidated as calls made while disabled are not tracked.
+	 *
+	 * @param enabled {@code true} to filter redundant calls, else {@code false}
+	 */
+	public void setEnabled(boolean enabled) {
+		this.enabled = enabled;
+		this.invalidate();
+	}
+
+	/**
+	 * Forgets every tracked state, the next call of each kind goes through.
+	 * <p>
+	 * This must be called if the OpenGL state is modified outside of {@link GL}.
+	 */
+	public void invalidate() {
+		this.program = UNKNOWN;
+		this.vertexArray = UNKNOWN;
+		Arrays.fill(this.buffers, UNKNOWN);
+		this.activeTextureUnit = UNKNOWN;
+		Arrays.fill(this.textures, UNKNOWN);
+		this.capabilities.clear();
+		this.depthFunc = UNKNOWN;
+		this.unpackAlignment = UNKNOWN;
+	}
+
+	/* Statistics */
+
+	/**
+	 * {@return the number of state changes that went through this cache}
+	 */
+	public long calls() {
+		return this.calls;
+	}
+
+	/**
+	 * {@return the number of state changes that were dropped because they were redundant}
+	 */
+	public long redundantCalls() {
+		return this.redundantCalls;
+	}
+
+	/**
+	 * {@return the ratio of redundant state changes over all state changes, between {@code 0} and {@code 1}}
+	 */
+	public double redundantCallRatio() {
+		if (this.calls == 0)
+			return 0.0;
+		return (double) this.redundantCalls / this.calls;
+	}
+
+	public void resetStatistics() {
+		this.calls = 0;
+		this.redundantCalls = 0;
+	}
+
+	/* State tracking */
+
+	/**
+	 * Records a state change.
+	 *
+	 * @param current the current tracked value
+	 * @param value the new value
+	 * @return {@code true} if the call must be issued, else {@code false}
+	 */
+	private boolean record(int current, int value) {
+		this.calls++;
+
+		if (!this.enabled)
+			return true;
+
+		if (current == value) {
+			this.redundantCalls++;
+			return false;
+		}
+
+		return true;
+	}
+
+	boolean useProgram(int program) {
+		if (!this.record(this.program, program))
+			return false;
+
+		this.program = this.enabled ? program : UNKNOWN;
+		return true;
+	}
+
+	boolean bindVertexArray(int vertexArray) {
+		if (!this.record(this.vertexArray, vertexArray))
+			return false;
+
+		this.vertexArray = this.enabled ? vertexArray : UNKNOWN;
+		return true;
+	}
+
+	boolean bindBuffer(BufferTarget target, int buffer) {
+		int index = target.ordinal();
+		if (!this.record(this.buffers[index], buffer))
+			return false;
+
+		this.buffers[index] = this.enabled ? buffer : UNKNOWN;
+		return true;
+	}
+
+	boolean activeTexture(int unit) {
+		if (!this.record(this.activeTextureUnit, unit))
+			return false;
+
+		this.activeTextureUnit = this.enabled ? unit : UNKNOWN;
+		return true;
+	}
+
+	boolean bindTexture(TextureType type, int texture) {
+		int index = this.textureIndex(type);
+
+		if (index == UNKNOWN) {
+			this.calls++;
+			return true;
+		}
+
+		if (!this.record(this.textures[index], texture))
+			return false;
+
+		this.textures[index] = this.enabled ? texture : UNKNOWN;
+		return true;
+	}
+
+	boolean setCapability(int capability, boolean enabled) {
+		int value = enabled ? 1 : 0;
+		if (!this.record(this.capabilities.get(capability), value))
+			return false;
+
+		if (this.enabled)
+			this.capabilities.put(capability, value);
+		return true;
+	}
+
+	boolean depthFunc(int func) {
+		if (!this.record(this.depthFunc, func))
+			return false;
+
+		this.depthFunc = this.enabled ? func : UNKNOWN;
+		return true;
+	}
+
+	boolean unpackAlignment(int alignment) {
+		if (!this.record(this.unpackAlignment, alignment))
+			return false;
+
+		this.unpackAlignment = this.enabled ? alignment : UNKNOWN;
+		return true;
+	}
+
+	/**
+	 * {@return the tracked unpack alignment, or {@code -1} if unknown}
+	 */
+	int unpackAlignment() {
+		return this.unpackAlignment;
+	}
+
+	void onUnpackAlignmentQueried(int alignment) {
+		this.unpackAlignment = this.enabled ? alignment : UNKNOWN;
+	}
+
+	void onBufferRangeBound(BufferTarget target, int buffer) {
+		this.buffers[target.ordinal()] = this.enabled ? buffer : UNKNOWN;
+	}
+
+	/* Deletion, OpenGL reverts the bindings of deleted objects to 0 */
+
+	void onProgramDeleted(int program) {
+		if (this.program == program)
+			this.program = UNKNOWN;
+	}
+
+	void onVertexArrayDeleted(int vertexArray) {
+		if (this.vertexArray == vertexArray)
+			this.vertexArray = 0;
+	}
+
+	void onBufferDeleted(int buffer) {
+		for (int i = 0; i < this.buffers.length; i++) {
+			if (this.buffers[i] == buffer)
+				this.buffers[i] = 0;
+		}
+	}
+
+	void onTextureDeleted(int texture) {
+		for (int i = 0; i < this.textures.length; i++) {
+			if (this.textures[i] == texture)
+				this.textures[i] = 0;
+		}
+	}
+
+	private int textureIndex(TextureType type) {
+		if (this.activeTextureUnit == UNKNOWN)
+			return UNKNOWN;
+
+		int unit = this.activeTextureUnit - GL.GL13.TEXTURE0;
+		if (unit < 0 || unit >= MAX_TEXTURE_UNITS)
+			return UNKNOWN;
+
+		return unit * TEXTURE_TYPES.length + type.ordinal();
+	}
+}
@@ -0,0 +1,275 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.system;
+
+import it.unimi.dsi.fastutil.ints.Int2IntOpenHashMap;
+import it.unimi.dsi.fastutil.ints.IntOpenHashSet;
+import it.unimi.dsi.fastutil.ints.IntSet;
+import it.unimi.dsi.fastutil.objects.Object2IntMap;
+import it.unimi.dsi.fastutil.objects.Object2IntOpenHashMap;
+import jdk.incubator.foreign.*;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.MethodType;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * Represents a function fetcher which backs OpenGL functions with Java upcalls instead of a driver,
+ * allowing to run rendering code without a GPU or a context.
+ * <p>
+ * Every function does nothing besides what is needed for the engine to keep running:
+ * object creation returns increasing names, compile and link statuses are successful, fences are always signaled
+ * and mapped buffers are backed by native memory owned by this fetcher.
+ * Program binaries are a fixed blob in the {@linkplain #PROGRAM_BINARY_FORMAT headless format}, binaries of other formats are rejected.
+ * The only exposed extension is {@code GL_KHR_parallel_shader_compile}, for which every compilation is already completed.
+ * <p>
+ * A recording fetcher additionally records every call, which allows to check what would have been sent to the driver.
+ * <p>
+ * Usage:
+ * <pre>{@code
+ * var backend = HeadlessFunctionFetcher.recording();
+ * var gl = GL.init(backend);
+ * commands.replay(gl);
+ * backend.calls();
+ * }</pre>
+ * The fetcher must outlive the OpenGL bindings initialized with it.
+ */
+public final class HeadlessFunctionFetcher implements GL.FunctionFetcher, AutoCloseable {
+	public static final int PROGRAM_BINARY_FORMAT = 0x4845;
+	private static final byte[] PROGRAM_BINARY = "headless program".getBytes(StandardCharsets.US_ASCII);
+	private static final MethodHandle ON_CALL = fetchOnCall();
+
+	private final boolean recording;
+	private final Set<String> unavailableFunctions;
+	private final ResourceScope scope = ResourceScope.newSharedScope();
+	private final MemoryAddress rendererString;
+	private final MemoryAddress extensionString;
+	private final Int2IntOpenHashMap integers = new Int2IntOpenHashMap();
+	private final IntSet unlinkedPrograms = new IntOpenHashSet();
+	private final List<Call> calls = new ArrayList<>();
+	private final Object2IntMap<String> callCounts = new Object2IntOpenHashMap<>();
+	private int nextName = 1;
+
+	private HeadlessFunctionFetcher(boolean recording, Set<String> unavailableFunctions) {
+		this.recording = recording;
+		this.unavailableFunctions = unavailableFunctions;
+		this.rendererString = CLinker.toCString("Headless", this.scope).address();
+		this.extensionString = CLinker.toCString(GL.KHRParallelShaderCompile.NAME, this.scope).address();
+		this.integers.put(GL.GL31.UNIFORM_BUFFER_OFFSET_ALIGNMENT, 256);
+		this.integers.put(GL.GL41.NUM_PROGRAM_BINARY_FORMATS, 1);
+		this.integers.put(GL.GL30.NUM_EXTENSIONS, 1);
+		this.integers.put(GL.GL11.UNPACK_ALIGNMENT, 4);
+	}
+
+	/**
+	 * {@return a new fetcher whose functions do nothing}
+	 *
+	 * @param unavailableFunctions the functions to report as not available
+	 */
+	public static HeadlessFunctionFetcher noop(String... unavailableFunctions) {
+		return new HeadlessFunctionFetcher(false, Set.of(unavailableFunctions));
+	}
+
+	/**
+	 * {@return a new fetcher whose functions record their calls}
+	 *
+	 * @param unavailableFunctions the functions to report as not available
+	 */
+	public static HeadlessFunctionFetcher recording(String... unavailableFunctions) {
+		return new HeadlessFunctionFetcher(true, Set.of(unavailableFunctions));
+	}
+
+	/**
+	 * Sets the value returned by {@code glGetIntegerv} for the given parameter, other parameters return {@code 0}.
+	 *
+	 * @param name the parameter
+	 * @param value the value
+	 * @return this fetcher
+	 */
+	public HeadlessFunctionFetcher setInteger(int name, int value) {
+		this.integers.put(name, value);
+		return this;
+	}
+
+	/**
+	 * {@return the recorded calls, in order}
+	 */
+	public List<Call> calls() {
+		return Collections.unmodifiableList(this.calls);
+	}
+
+	/**
+	 * {@return the number of calls made to the given function}
+	 *
+	 * @param name the name of the function
+	 */
+	public int callCount(String name) {
+		return this.callCounts.getInt(name);
+	}
+
+	/**
+	 * Clears the recorded calls and call counts.
+	 */
+	public void clear() {
+		this.calls.clear();
+		this.callCounts.clear();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The signature of the function is needed to back it, so this always returns {@link MemoryAddress#NULL}.
+	 */
+	@Override
+	public MemoryAddress fetch(String name) {
+		return MemoryAddress.NULL;
+	}
+
+	@Override
+	public MemoryAddress fetch(String name, Class<?> returnType, Class<?>... params) {
+		if (this.unavailableFunctions.contains(name))
+			return MemoryAddress.NULL;
+
+		var target = MethodHandles.insertArguments(ON_CALL, 0, this, name, returnType)
+				.asCollector(Object[].class, params.length)
+				.asType(MethodType.methodType(returnType, params));
+
+		FunctionDescriptor descriptor;
+		if (returnType == void.class) {
+			descriptor = FunctionDescriptor.ofVoid(LibraryLoader.mapTypesToLayout(params));
+		} else {
+			descriptor = FunctionDescriptor.of(LibraryLoader.mapTypeToLayout(returnType), LibraryLoader.mapTypesToLayout(params));
+		}
+
+		return CLinker.getInstance().upcallStub(target, descriptor, this.scope);
+	}
+
+	private Object onCall(String name, Class<?> returnType, Object[] args) {
+		if (this.recording) {
+			this.calls.add(new Call(name, List.of(args)));
+			this.callCounts.mergeInt(name, 1, Integer::sum);
+		}
+
+		// glGenerateMipmap also starts with glGen but does not generate names.
+		if (name.startsWith("glGen") && args.length == 2 && args[1] instanceof MemoryAddress) {
+			int n = (int) args[0];
+			var names = ((MemoryAddress) args[1]).asSegment(n * CLinker.C_INT.byteSize(), ResourceScope.globalScope());
+
+			for (int i = 0; i < n; i++) {
+				MemoryAccess.setIntAtIndex(names, i, this.nextName++);
+			}
+		} else if (name.startsWith("glCreate")) {
+			return this.nextName++;
+		}
+
+		switch (name) {
+			case "glGetIntegerv" -> this.writeInt(args[1], this.integers.get((int) args[0]));
+			case "glPixelStorei" -> this.integers.put((int) args[0], (int) args[1]);
+			case "glGetShaderiv", "glGetProgramiv" -> {
+				int param = (int) args[1];
+				int value = switch (param) {
+					case GL.GL20.COMPILE_STATUS, GL.KHRParallelShaderCompile.COMPLETION_STATUS -> 1;
+					case GL.GL20.LINK_STATUS -> this.unlinkedPrograms.contains((int) args[0]) ? 0 : 1;
+					case GL.GL41.PROGRAM_BINARY_LENGTH -> PROGRAM_BINARY.length;
+					default -> 0;
+				};
+				this.writeInt(args[2], value);
+			}
+			case "glLinkProgram" -> this.unlinkedPrograms.remove((int) args[0]);
+			case "glGetProgramBinary" -> {
+				int length = Math.min((int) args[1], PROGRAM_BINARY.length);
+				this.writeInt(args[2], length);
+				this.writeInt(args[3], PROGRAM_BINARY_FORMAT);
+				((MemoryAddress) args[4]).asSegment(length, ResourceScope.globalScope())
+						.copyFrom(MemorySegment.ofArray(PROGRAM_BINARY).asSlice(0, length));
+			}
+			case "glProgramBinary" -> {
+				var binary = ((MemoryAddress) args[2]).asSegment((int) args[3], ResourceScope.globalScope()).toByteArray();
+				if ((int) args[1] == PROGRAM_BINARY_FORMAT && Arrays.equals(binary, PROGRAM_BINARY))
+					this.unlinkedPrograms.remove((int) args[0]);
+				else
+					this.unlinkedPrograms.add((int) args[0]);
+			}
+			case "glGetString" -> {
+				return this.rendererString;
+			}
+			case "glGetStringi" -> {
+				return this.extensionString;
+			}
+			case "glMapBufferRange" -> {
+				return MemorySegment.allocateNative((long) args[2], 64, this.scope).address();
+			}
+			case "glUnmapBuffer" -> {
+				return 1;
+			}
+			case "glClientWaitSync" -> {
+				return GL.GL32.ALREADY_SIGNALED;
+			}
+		}
+
+		return defaultValue(returnType);
+	}
+
+	private void writeInt(Object address, int value) {
+		MemoryAccess.setInt(((MemoryAddress) address).asSegment(CLinker.C_INT.byteSize(), ResourceScope.globalScope()), value);
+	}
+
+	private static Object defaultValue(Class<?> type) {
+		if (type == int.class)
+			return 0;
+		else if (type == long.class)
+			return 0L;
+		else if (type == float.class)
+			return 0.f;
+		else if (type == MemoryAddress.class)
+			return MemoryAddress.NULL;
+		return null;
+	}
+
+	/**
+	 * Frees the native memory backing the functions, the OpenGL bindings created from this fetcher must not be used anymore.
+	 */
+	@Override
+	public void close() {
+		this.scope.close();
+	}
+
+	/**
+	 * Represents a recorded call.
+	 *
+	 * @param function the name of the called function
+	 * @param arguments the arguments of the call, primitives are boxed and pointers are {@link MemoryAddress}
+	 */
+	public record Call(String function, List<Object> arguments) {
+	}
+
+	private static MethodHandle fetchOnCall() {
+		try {
+			return MethodHandles.lookup().findVirtual(HeadlessFunctionFetcher.class, "onCall",
+					MethodType.methodType(Object.class, String.class, Class.class, Object[].class));
+		} catch (NoSuchMethodException | IllegalAccessException e) {
+			throw new ExceptionInInitializerError(e);
+		}
+	}
+}
@@ -100,6 +100,8 @@ public final class LibraryLoader {
 			return CLinker.C_LONG;
 		} else if (type == float.class) {
 			return CLinker.C_FLOAT;
+		} else if (type == double.class) {
+			return CLinker.C_DOUBLE;
 		} else if (Addressable.class.isAssignableFrom(type) || type == String.class) {
 			return CLinker.C_POINTER;
 		} else {
@@ -0,0 +1,69 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.system.memory;
+
+/**
+ * Represents the standard GLSL memory layouts of interface blocks.
+ * <p>
+ * Both layouts align scalars on their size and vectors on their size, with three-component vectors aligned
+ * as four-component vectors. {@link #STD140} additionally rounds up the alignment of arrays and structures
+ * to the alignment of a {@code vec4}.
+ */
+public enum BufferPacking {
+	STD140(true),
+	STD430(false);
+
+	public static final long VEC4_ALIGNMENT = 16;
+
+	private final boolean roundUpToVec4;
+
+	BufferPacking(boolean roundUpToVec4) {
+		this.roundUpToVec4 = roundUpToVec4;
+	}
+
+	/**
+	 * {@return the alignment of an array element or of a structure given its natural alignment}
+	 *
+	 * @param alignment the natural alignment of the element or the maximum alignment of the structure members
+	 */
+	public long aggregateAlignment(long alignment) {
+		if (this.roundUpToVec4)
+			return align(alignment, VEC4_ALIGNMENT);
+		return alignment;
+	}
+
+	/**
+	 * {@return the stride between two elements of an array}
+	 *
+	 * @param elementSize the size of an element
+	 * @param elementAlignment the natural alignment of an element
+	 */
+	public long arrayStride(long elementSize, long elementAlignment) {
+		return align(elementSize, this.aggregateAlignment(elementAlignment));
+	}
+
+	/**
+	 * {@return the given offset rounded up to the given alignment}
+	 *
+	 * @param offset the offset
+	 * @param alignment the alignment, must be a power of two
+	 */
+	public static long align(long offset, long alignment) {
+		return (offset + alignment - 1) & -alignment;
+	}
+}
@@ -0,0 +1,198 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.system.memory;
+
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+import jdk.incubator.foreign.SegmentAllocator;
+
+import java.lang.ref.Cleaner;
+
+/**
+ * Represents a per-thread native stack allocator.
+ * <p>
+ * The stack reserves a single native segment once, allocations bump a pointer inside of it
+ * and popping a frame releases everything allocated since the matching push.
+ * <p>
+ * Usage:
+ * <pre>{@code
+ * try (var stack = NativeStack.stackPush()) {
+ *     var value = stack.allocate(CLinker.C_INT);
+ *     // ...
+ * }
+ * }</pre>
+ */
+public final class NativeStack implements SegmentAllocator, AutoCloseable {
+	public static final long DEFAULT_SIZE = 64 * 1024;
+	private static final int MAX_FRAMES = 32;
+	private static final Cleaner CLEANER = Cleaner.create();
+	private static final ThreadLocal<NativeStack> STACKS = ThreadLocal.withInitial(() -> new NativeStack(DEFAULT_SIZE));
+
+	private final MemorySegment segment;
+	private final long address;
+	private final long[] frames = new long[MAX_FRAMES];
+	private int frameIndex = 0;
+	private long pointer = 0;
+
+	private NativeStack(long size) {
+		this.segment = MemorySegment.allocateNative(size, 64, ResourceScope.newConfinedScope(CLEANER));
+		this.address = this.segment.address().toRawLongValue();
+	}
+
+	/**
+	 * {@return the native stack of the current thread}
+	 */
+	public static NativeStack get() {
+		return STACKS.get();
+	}
+
+	/**
+	 * Pushes a new frame on the native stack of the current thread.
+	 *
+	 * @return the native stack of the current thread
+	 */
+	public static NativeStack stackPush() {
+		return get().push();
+	}
+
+	/**
+	 * Pushes a new frame on this stack.
+	 *
+	 * @return this stack
+	 */
+	public NativeStack push() {
+		if (this.frameIndex == MAX_FRAMES)
+			throw new IllegalStateException("Native stack frame overflow.");
+
+		this.frames[this.frameIndex++] = this.pointer;
+		return this;
+	}
+
+	/**
+	 * Pops the current frame, every allocation made since the matching {@link #push()} is released.
+	 *
+	 * @return this stack
+	 */
+	public NativeStack pop() {
+		if (this.frameIndex == 0)
+			throw new IllegalStateException("Native stack frame underflow.");
+
+		this.pointer = this.frames[--this.frameIndex];
+		return this;
+	}
+
+	/**
+	 * {@return the total size of this stack in bytes}
+	 */
+	public long size() {
+		return this.segment.byteSize();
+	}
+
+	/**
+	 * {@return the remaining size of this stack in bytes}
+	 */
+	public long remaining() {
+		return this.segment.byteSize() - this.pointer;
+	}
+
+	/**
+	 * {@return {@code true} if an allocation of the given size and alignment fits in this stack, else {@code false}}
+	 *
+	 * @param bytesSize the size of the allocation
+	 * @param bytesAlignment the alignment of the allocation
+	 */
+	public boolean fits(long bytesSize, long bytesAlignment) {
+		return align(this.pointer, bytesAlignment) + bytesSize <= this.segment.byteSize();
+	}
+
+	/**
+	 * {@inheritDoc}
+	 * <p>
+	 * The returned segment is a slice of the stack segment, its heap object is scalar-replaced by the JIT once the allocation
+	 * is inlined in the caller: a warmed up push, allocate and pop sequence doesn't allocate on the heap.
+	 */
+	@Override
+	public MemorySegment allocate(long bytesSize, long bytesAlignment) {
+		long offset = this.allocateOffset(bytesSize, bytesAlignment);
+		return this.segment.asSlice(offset, bytesSize);
+	}
+
+	/**
+	 * Allocates a block of memory in this stack.
+	 * <p>
+	 * Unlike {@link #allocate(long, long)}, no slice is created: a slice passed to or returned from a method
+	 * the JIT does not inline is allocated on the heap. The block is accessed through the {@linkplain #segment() stack segment}
+	 * at the returned offset, and its address is given by {@link #address(long)}.
+	 *
+	 * @param bytesSize the size of the block
+	 * @param bytesAlignment the alignment of the block
+	 * @return the offset of the block in the stack segment
+	 */
+	public long allocateOffset(long bytesSize, long bytesAlignment) {
+		if (bytesAlignment <= 0 || (bytesAlignment & (bytesAlignment - 1)) != 0)
+			throw invalidAlignment(bytesAlignment);
+
+		long offset = align(this.pointer, bytesAlignment);
+
+		if (offset + bytesSize > this.segment.byteSize())
+			throw this.outOfSpace(bytesSize);
+
+		this.pointer = offset + bytesSize;
+		return offset;
+	}
+
+	/*
+	 * The exceptions are built outside of the allocation methods so that the message concatenation does not bloat
+	 * their compiled code: the JIT no longer inlines a method whose compiled code is too large,
+	 * and a slice returned by a method that is not inlined gets allocated on the heap.
+	 */
+
+	private static IllegalArgumentException invalidAlignment(long bytesAlignment) {
+		return new IllegalArgumentException("Invalid alignment " + bytesAlignment + ".");
+	}
+
+	private OutOfMemoryError outOfSpace(long bytesSize) {
+		return new OutOfMemoryError("Out of native stack space: requested " + bytesSize + " bytes, "
+				+ this.remaining() + " remaining.");
+	}
+
+	/**
+	 * {@return the segment backing this stack, only the blocks allocated in the current frames may be accessed}
+	 */
+	public MemorySegment segment() {
+		return this.segment;
+	}
+
+	/**
+	 * {@return the raw address of the given offset in the stack segment}
+	 *
+	 * @param offset the offset of an allocated block, as returned by {@link #allocateOffset(long, long)}
+	 */
+	public long address(long offset) {
+		return this.address + offset;
+	}
+
+	@Override
+	public void close() {
+		this.pop();
+	}
+
+	private static long align(long offset, long alignment) {
+		return (offset + alignment - 1) & -alignment;
+	}
+}
@@ -22,19 +22,112 @@ import jdk.incubator.foreign.MemoryAccess;
 import jdk.incubator.foreign.MemorySegment;
 import org.jetbrains.annotations.NotNull;
 
+import java.io.Externalizable;
 import java.io.IOException;
+import java.io.NotSerializableException;
 import java.io.ObjectOutput;
+import java.io.UTFDataFormatException;
+import java.nio.FloatBuffer;
+import java.util.Objects;
 
+/**
+ * Represents a positioned writer into native memory.
+ * <p>
+ * Unlike what {@link java.io.DataOutput} specifies, values are written in native byte order
+ * as the memory is meant to be read by native code or the GPU.
+ * Every write is bounds-checked against the segment.
+ */
 public class SegmentOutput implements ObjectOutput {
 	private final MemorySegment segment;
-	private int offset = 0;
+	private long offset;
 
 	public SegmentOutput(MemorySegment segment) {
+		this(segment, 0);
+	}
+
+	public SegmentOutput(MemorySegment segment, long offset) {
 		this.segment = segment;
+		this.offset = Objects.checkIndex(offset, segment.byteSize() + 1);
+	}
+
+	/**
+	 * {@return the segment this output writes into}
+	 */
+	public MemorySegment segment() {
+		return this.segment;
+	}
+
+	/**
+	 * {@return the current write offset in bytes}
+	 */
+	public long position() {
+		return this.offset;
+	}
+
+	/**
+	 * Sets the current write offset.
+	 *
+	 * @param position the new write offset in bytes
+	 * @return this output
+	 */
+	public SegmentOutput position(long position) {
+		this.offset = Objects.checkIndex(position, this.segment.byteSize() + 1);
+		return this;
+	}
+
+	/**
+	 * {@return the number of bytes which can still be written}
+	 */
+	public long remaining() {
+		return this.segment.byteSize() - this.offset;
 	}
 
+	/**
+	 * Skips the given amount of bytes, leaving their content untouched.
+	 *
+	 * @param bytes the amount of bytes to skip
+	 * @return this output
+	 */
+	public SegmentOutput skip(long bytes) {
+		return this.position(this.offset + bytes);
+	}
+
+	/**
+	 * Skips bytes until the position is a multiple of the given alignment.
+	 *
+	 * @param alignment the alignment, must be a power of two
+	 * @return this output
+	 */
+	public SegmentOutput align(long alignment) {
+		return this.position(BufferPacking.align(this.offset, alignment));
+	}
+
+	/**
+	 * Writes zeroes until the position is a multiple of the given alignment.
+	 *
+	 * @param alignment the alignment, must be a power of two
+	 * @return this output
+	 */
+	public SegmentOutput pad(long alignment) {
+		long aligned = BufferPacking.align(this.offset, alignment);
+		this.slice(aligned - this.offset).fill((byte) 0);
+		this.offset = aligned;
+		return this;
+	}
+
+	/**
+	 * Writes the given object, which must be {@link Externalizable} as there is no native representation of arbitrary objects.
+	 *
+	 * @param obj the object to write
+	 * @throws NotSerializableException if the object is not externalizable
+	 * @throws IOException if the object could not be written
+	 */
 	@Override
-	public void writeObject(Object obj) {
+	public void writeObject(Object obj) throws IOException {
+		if (obj instanceof Externalizable externalizable)
+			externalizable.writeExternal(this);
+		else
+			throw new NotSerializableException("Cannot write non-externalizable object " + obj + " into native memory.");
 	}
 
 	@Override
@@ -49,19 +142,112 @@ public class SegmentOutput implements ObjectOutput {
 
 	@Override
 	public void write(byte[] bytes, int off, int len) {
-		for (byte b : bytes) {
-			writeByte(b);
+		Objects.checkFromIndexSize(off, len, bytes.length);
+		this.slice(len).copyFrom(MemorySegment.ofArray(bytes).asSlice(off, len));
+		this.offset += len;
+	}
+
+	/**
+	 * Writes the given floats.
+	 *
+	 * @param values the floats to write
+	 * @return this output
+	 */
+	public SegmentOutput writeFloats(float[] values) {
+		return this.writeFloats(values, 0, values.length);
+	}
+
+	/**
+	 * Writes a range of the given floats.
+	 *
+	 * @param values the floats to write
+	 * @param off the index of the first float to write
+	 * @param len the number of floats to write
+	 * @return this output
+	 */
+	public SegmentOutput writeFloats(float[] values, int off, int len) {
+		Objects.checkFromIndexSize(off, len, values.length);
+		long size = len * NativeSizes.FLOAT_SIZE;
+		this.slice(size).copyFrom(MemorySegment.ofArray(values).asSlice(off * NativeSizes.FLOAT_SIZE, size));
+		this.offset += size;
+		return this;
+	}
+
+	/**
+	 * Writes the remaining floats of the given buffer, the position of the buffer is left untouched.
+	 *
+	 * @param values the floats to write
+	 * @return this output
+	 */
+	public SegmentOutput writeFloats(FloatBuffer values) {
+		if (values.hasArray())
+			return this.writeFloats(values.array(), values.arrayOffset() + values.position(), values.remaining());
+
+		long size = values.remaining() * NativeSizes.FLOAT_SIZE;
+		var dst = this.slice(size);
+		for (int i = 0; i < values.remaining(); i++) {
+			MemoryAccess.setFloatAtIndex(dst, i, values.get(values.position() + i));
 		}
+		this.offset += size;
+		return this;
 	}
 
-	@Override
-	public void flush() throws IOException {
+	/**
+	 * Writes the given integers.
+	 *
+	 * @param values the integers to write
+	 * @return this output
+	 */
+	public SegmentOutput writeInts(int[] values) {
+		return this.writeInts(values, 0, values.length);
+	}
 
+	/**
+	 * Writes a range of the given integers.
+	 *
+	 * @param values the integers to write
+	 * @param off the index of the first integer to write
+	 * @param len the number of integers to write
+	 * @return this output
+	 */
+	public SegmentOutput writeInts(int[] values, int off, int len) {
+		Objects.checkFromIndexSize(off, len, values.length);
+		long size = len * NativeSizes.INT_SIZE;
+		this.slice(size).copyFrom(MemorySegment.ofArray(values).asSlice(off * NativeSizes.INT_SIZE, size));
+		this.offset += size;
+		return this;
+	}
+
+	/**
+	 * Writes the given floats as a GLSL {@code float[]} following the given packing rules.
+	 * <p>
+	 * With {@link BufferPacking#STD140} each element is padded to 16 bytes.
+	 *
+	 * @param packing the packing rules
+	 * @param values the floats to write
+	 * @return this output
+	 */
+	public SegmentOutput writeFloatArray(BufferPacking packing, float[] values) {
+		long stride = packing.arrayStride(NativeSizes.FLOAT_SIZE, NativeSizes.FLOAT_SIZE);
+
+		if (stride == NativeSizes.FLOAT_SIZE)
+			return this.align(NativeSizes.FLOAT_SIZE).writeFloats(values);
+
+		this.align(packing.aggregateAlignment(NativeSizes.FLOAT_SIZE));
+		var dst = this.slice(stride * values.length);
+		for (int i = 0; i < values.length; i++) {
+			MemoryAccess.setFloatAtOffset(dst, i * stride, values[i]);
+		}
+		this.offset += stride * values.length;
+		return this;
 	}
 
 	@Override
-	public void close() throws IOException {
+	public void flush() {
+	}
 
+	@Override
+	public void close() {
 	}
 
 	@Override
@@ -106,23 +292,73 @@ public class SegmentOutput implements ObjectOutput {
 	}
 
 	@Override
-	public void writeDouble(double v) throws IOException {
+	public void writeDouble(double v) {
 		MemoryAccess.setDoubleAtOffset(this.segment, this.offset, v);
 		this.offset += NativeSizes.DOUBLE_SIZE;
 	}
 
+	/**
+	 * Writes the low byte of each character of the given string.
+	 *
+	 * @param s the string to write
+	 */
 	@Override
-	public void writeBytes(@NotNull String s) throws IOException {
-
+	public void writeBytes(@NotNull String s) {
+		var dst = this.slice(s.length());
+		for (int i = 0; i < s.length(); i++) {
+			MemoryAccess.setByteAtOffset(dst, i, (byte) s.charAt(i));
+		}
+		this.offset += s.length();
 	}
 
 	@Override
-	public void writeChars(@NotNull String s) throws IOException {
-
+	public void writeChars(@NotNull String s) {
+		var dst = this.slice(s.length() * 2L);
+		for (int i = 0; i < s.length(); i++) {
+			MemoryAccess.setCharAtIndex(dst, i, s.charAt(i));
+		}
+		this.offset += s.length() * 2L;
 	}
 
+	/**
+	 * Writes the given string as a 2-byte length followed by its modified UTF-8 encoding.
+	 *
+	 * @param s the string to write
+	 * @throws UTFDataFormatException if the encoded string is longer than 65535 bytes
+	 */
 	@Override
-	public void writeUTF(@NotNull String s) throws IOException {
+	public void writeUTF(@NotNull String s) throws UTFDataFormatException {
+		long length = 0;
+		for (int i = 0; i < s.length(); i++) {
+			char c = s.charAt(i);
+			if (c >= 0x0001 && c <= 0x007f) length++;
+			else if (c > 0x07ff) length += 3;
+			else length += 2;
+		}
+
+		if (length > 0xffff)
+			throw new UTFDataFormatException("Encoded string is too long: " + length + " bytes.");
+
+		var dst = this.slice(2 + length);
+		MemoryAccess.setShortAtOffset(dst, 0, (short) length);
+		long i = 2;
+		for (int j = 0; j < s.length(); j++) {
+			char c = s.charAt(j);
+			if (c >= 0x0001 && c <= 0x007f) {
+				MemoryAccess.setByteAtOffset(dst, i++, (byte) c);
+			} else if (c > 0x07ff) {
+				MemoryAccess.setByteAtOffset(dst, i++, (byte) (0xe0 | ((c >> 12) & 0x0f)));
+				MemoryAccess.setByteAtOffset(dst, i++, (byte) (0x80 | ((c >> 6) & 0x3f)));
+				MemoryAccess.setByteAtOffset(dst, i++, (byte) (0x80 | (c & 0x3f)));
+			} else {
+				MemoryAccess.setByteAtOffset(dst, i++, (byte) (0xc0 | ((c >> 6) & 0x1f)));
+				MemoryAccess.setByteAtOffset(dst, i++, (byte) (0x80 | (c & 0x3f)));
+			}
+		}
+		this.offset += dst.byteSize();
+	}
 
+	private MemorySegment slice(long size) {
+		return this.segment.asSlice(this.offset, size);
 	}
 }
@@ -52,4 +52,37 @@ public enum ResourceUtil {
 
 		return buffer;
 	}
+
+	/**
+	 * {@return a new input stream reading the remaining bytes of the given buffer, without copying them}
+	 *
+	 * @param buffer the buffer to read
+	 */
+	public static InputStream newInputStream(ByteBuffer buffer) {
+		var source = buffer.slice();
+
+		return new InputStream() {
+			@Override
+			public int read() {
+				return source.hasRemaining() ? source.get() & 0xff : -1;
+			}
+
+			@Override
+			public int read(byte[] bytes, int offset, int length) {
+				if (length == 0)
+					return 0;
+				if (!source.hasRemaining())
+					return -1;
+
+				length = Math.min(length, source.remaining());
+				source.get(bytes, offset, length);
+				return length;
+			}
+
+			@Override
+			public int available() {
+				return source.remaining();
+			}
+		};
+	}
 }
@@ -23,7 +23,7 @@ package dev.lambdaurora.res_errare.util;
 public enum StringUtil {
 	;
 
-	public static char getCharAt(String string, int index) {
+	public static char getCharAt(CharSequence string, int index) {
 		if (index < string.length())
 			return string.charAt(index);
 		return 0;
@@ -0,0 +1,123 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.lambdaurora.res_errare.render;
+
+import dev.lambdaurora.res_errare.render.buffer.BufferTarget;
+import dev.lambdaurora.res_errare.system.GL;
+import dev.lambdaurora.res_errare.system.HeadlessFunctionFetcher;
+import dev.lambdaurora.res_errare.system.HeadlessFunctionFetcher.Call;
+import dev.lambdaurora.res_errare.system.HeadlessGL;
+import jdk.incubator.foreign.MemoryAddress;
+import jdk.incubator.foreign.ResourceScope;
+import org.joml.Matrix4f;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class RenderCommandBufferTest {
+	@Test
+	void replaysRecordedCalls() {
+		var backend = backend();
+		var matrix = new Matrix4f().identity();
+
+		try (var commands = new RenderCommandBuffer()) {
+			commands.clearColor(.1f, .2f, .3f, 1.f)
+					.clear(GL.GL11.COLOR_BUFFER_BIT | GL.GL11.DEPTH_BUFFER_BIT)
+					.viewport(0, 0, 800, 600)
+					.useProgram(7)
+					.bindVertexArray(3)
+					.bindBuffer(BufferTarget.ARRAY, 5)
+					.bindBufferRange(BufferTarget.UNIFORM, 1, 6, 256L, 128L)
+					.uniform1i(2, 4)
+					.uniform1f(3, .5f)
+					.uniform3f(4, 1.f, 2.f, 3.f)
+					.uniformMatrix4fv(1, true, matrix)
+					.drawArrays(GeometricPrimitive.TRIANGLES, 0, 36)
+					.dispatchCompute(8, 4, 1)
+					.memoryBarrier(GL.GL42.SHADER_IMAGE_ACCESS_BARRIER_BIT);
+			assertEquals(14, commands.commandCount());
+
+			commands.replay(GL.get());
+
+			var calls = backend.calls();
+			assertEquals(List.of(
+					new Call("glClearColor", List.of(.1f, .2f, .3f, 1.f)),
+					new Call("glClear", List.of(GL.GL11.COLOR_BUFFER_BIT | GL.GL11.DEPTH_BUFFER_BIT)),
+					new Call("glViewport", List.of(0, 0, 800, 600)),
+					new Call("glUseProgram", List.of(7)),
+					new Call("glBindVertexArray", List.of(3)),
+					new Call("glBindBuffer", List.of(BufferTarget.ARRAY.glId(), 5)),
+					new Call("glBindBufferRange", List.of(BufferTarget.UNIFORM.glId(), 1, 6, 256L, 128L)),
+					new Call("glUniform1i", List.of(2, 4)),
+					new Call("glUniform1f", List.of(3, .5f)),
+					new Call("glUniform3f", List.of(4, 1.f, 2.f, 3.f))
+			), calls.subList(0, 10));
+
+			// The matrix is passed by address, it is read from the command buffer.
+			var matrixCall = calls.get(10);
+			assertEquals("glUniformMatrix4fv", matrixCall.function());
+			assertEquals(List.of(1, 1, 1), matrixCall.arguments().subList(0, 3));
+			var written = ((MemoryAddress) matrixCall.arguments().get(3)).asSegment(16 * Float.BYTES, ResourceScope.globalScope());
+			assertArrayEquals(matrix.get(new float[16]), written.toFloatArray());
+
+			assertEquals(List.of(
+					new Call("glDrawArrays", List.of(GeometricPrimitive.TRIANGLES.glId(), 0, 36)),
+					new Call("glDispatchCompute", List.of(8, 4, 1)),
+					new Call("glMemoryBarrier", List.of(GL.GL42.SHADER_IMAGE_ACCESS_BARRIER_BIT))
+			), calls.subList(11, calls.size()));
+		}
+	}
+
+	@Test
+	void growsAndReusesMemoryAfterReset() {
+		var backend = backend();
+
+		try (var commands = new RenderCommandBuffer(64)) {
+			// 100 commands of 12 bytes need several doublings of the initial 64 bytes.
+			var expected = new ArrayList<Call>();
+			for (int i = 0; i < 100; i++) {
+				commands.uniform1f(i, i * .5f);
+				expected.add(new Call("glUniform1f", List.of(i, i * .5f)));
+			}
+			assertEquals(100, commands.commandCount());
+			assertEquals(1200, commands.size());
+
+			commands.replay(GL.get());
+			assertEquals(expected, backend.calls());
+
+			commands.reset();
+			assertTrue(commands.isEmpty());
+			assertEquals(0, commands.size());
+
+			backend.clear();
+			commands.drawArrays(GeometricPrimitive.TRIANGLES, 3, 6);
+			commands.replay(GL.get());
+			assertEquals(List.of(new Call("glDrawArrays", List.of(GeometricPrimitive.TRIANGLES.glId(), 3, 6))), backend.calls());
+		}
+	}
+
+	private static HeadlessFunctionFetcher backend() {
+		var backend = HeadlessGL.backend();
+		// The bindings are shared with other tests, the cache must not skip the recorded binds.
+		GL.get().stateCache().invalidate();
+		backend.clear();
+		return backend;
+	}
+}
@@ -0,0 +1,184 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.buffer;
+
+import dev.lambdaurora.res_errare.render.buffer.range.*;
+import dev.lambdaurora.res_errare.render.shader.UniformType;
+import dev.lambdaurora.res_errare.system.memory.BufferPacking;
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+import org.joml.Matrix3f;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BufferLayoutTest {
+	record Pair(float x, float y) {
+	}
+
+	record Block(float f, Pair pair, Vector3f v, float w, Matrix3f m,
+	             @ArrayLength(3) float[] floats, @ArrayLength(2) Vector3f[] vectors, @ArrayLength(2) Pair[] pairs) {
+	}
+
+	private static BufferLayout schema(BufferPacking packing) {
+		var pair = BufferLayout.builder(packing)
+				.add("x", UniformType.FLOAT)
+				.add("y", UniformType.FLOAT)
+				.build();
+		return BufferLayout.builder(packing)
+				.add("f", UniformType.FLOAT)
+				.addStruct("pair", pair)
+				.add("v", UniformType.VEC3F)
+				.add("w", UniformType.FLOAT)
+				.add("m", UniformType.MAT3F)
+				.addArray("floats", UniformType.FLOAT, 3)
+				.addArray("vectors", UniformType.VEC3F, 2)
+				.addStructArray("pairs", pair, 2)
+				.build();
+	}
+
+	@Test
+	void std140Schema() {
+		var layout = schema(BufferPacking.STD140);
+
+		assertEquals(0, layout.get("f").offset());
+		assertEquals(16, layout.get("pair.x").offset());
+		assertEquals(20, layout.get("pair.y").offset());
+		assertEquals(32, layout.get("v").offset());
+		assertEquals(12, layout.get("v").size());
+		assertEquals(44, layout.get("w").offset());
+		assertEquals(48, layout.get("m").offset());
+		assertEquals(48, layout.get("m").size());
+
+		var floats = layout.get("floats", FloatArrayBufferRange.class);
+		assertEquals(96, floats.offset());
+		assertEquals(48, floats.size());
+
+		var vectors = layout.get("vectors", ArrayBufferRange.class);
+		assertEquals(144, vectors.offset());
+		assertEquals(16, vectors.stride());
+		assertEquals(160, vectors.element(1).offset());
+
+		assertEquals(176, layout.get("pairs[0].x").offset());
+		assertEquals(180, layout.get("pairs[0].y").offset());
+		assertEquals(192, layout.get("pairs[1].x").offset());
+		assertEquals(208, layout.size());
+	}
+
+	@Test
+	void std430Schema() {
+		var layout = schema(BufferPacking.STD430);
+
+		assertEquals(0, layout.get("f").offset());
+		assertEquals(4, layout.get("pair.x").offset());
+		assertEquals(8, layout.get("pair.y").offset());
+		assertEquals(16, layout.get("v").offset());
+		assertEquals(28, layout.get("w").offset());
+		assertEquals(32, layout.get("m").offset());
+
+		var floats = layout.get("floats", FloatArrayBufferRange.class);
+		assertEquals(80, floats.offset());
+		assertEquals(12, floats.size());
+
+		var vectors = layout.get("vectors", ArrayBufferRange.class);
+		assertEquals(96, vectors.offset());
+		assertEquals(16, vectors.stride());
+
+		assertEquals(128, layout.get("pairs[0].x").offset());
+		assertEquals(136, layout.get("pairs[1].x").offset());
+		assertEquals(144, layout.size());
+	}
+
+	@Test
+	void std140Record() {
+		var range = RecordBufferRange.of(Block.class, BufferPacking.STD140);
+		var layout = range.layout();
+
+		assertEquals(16, range.alignment());
+		assertEquals(0, layout.get("f").offset());
+
+		var pair = layout.get("pair", RecordBufferRange.class);
+		assertEquals(16, pair.offset());
+		assertEquals(16, pair.size());
+		assertEquals(4, pair.layout().get("y").offset());
+
+		assertEquals(32, layout.get("v").offset());
+		assertEquals(44, layout.get("w").offset());
+		assertEquals(48, layout.get("m").offset());
+		assertEquals(96, layout.get("floats").offset());
+		assertEquals(16, layout.get("floats", FloatArrayBufferRange.class).stride());
+		assertEquals(144, layout.get("vectors").offset());
+
+		var pairs = layout.get("pairs", ArrayBufferRange.class);
+		assertEquals(176, pairs.offset());
+		assertEquals(16, pairs.stride());
+		assertEquals(192, pairs.element(1).offset());
+		assertEquals(208, range.size());
+	}
+
+	@Test
+	void std430Record() {
+		var range = RecordBufferRange.of(Block.class, BufferPacking.STD430);
+		var layout = range.layout();
+
+		assertEquals(16, range.alignment());
+		assertEquals(4, layout.get("pair").offset());
+		assertEquals(8, layout.get("pair").size());
+		assertEquals(16, layout.get("v").offset());
+		assertEquals(28, layout.get("w").offset());
+		assertEquals(32, layout.get("m").offset());
+		assertEquals(80, layout.get("floats").offset());
+		assertEquals(4, layout.get("floats", FloatArrayBufferRange.class).stride());
+		assertEquals(96, layout.get("vectors").offset());
+
+		var pairs = layout.get("pairs", ArrayBufferRange.class);
+		assertEquals(128, pairs.offset());
+		assertEquals(8, pairs.stride());
+		assertEquals(144, range.size());
+	}
+
+	@Test
+	void recordWritesAtLayoutOffsets() {
+		var range = RecordBufferRange.of(Block.class, BufferPacking.STD140);
+		var block = new Block(1.f, new Pair(2.f, 3.f), new Vector3f(4.f, 5.f, 6.f), 7.f, new Matrix3f(),
+				new float[]{8.f, 9.f, 10.f}, new Vector3f[]{new Vector3f(11.f, 12.f, 13.f), new Vector3f(14.f, 15.f, 16.f)},
+				new Pair[]{new Pair(17.f, 18.f), new Pair(19.f, 20.f)});
+		var segment = MemorySegment.ofArray(new byte[(int) range.size()]);
+
+		range.write(segment, block);
+
+		assertEquals(1.f, MemoryAccess.getFloatAtOffset(segment, 0));
+		assertEquals(3.f, MemoryAccess.getFloatAtOffset(segment, 20));
+		assertEquals(6.f, MemoryAccess.getFloatAtOffset(segment, 40));
+		assertEquals(7.f, MemoryAccess.getFloatAtOffset(segment, 44));
+		assertEquals(9.f, MemoryAccess.getFloatAtOffset(segment, 112));
+		assertEquals(10.f, MemoryAccess.getFloatAtOffset(segment, 128));
+		assertEquals(14.f, MemoryAccess.getFloatAtOffset(segment, 160));
+		assertEquals(20.f, MemoryAccess.getFloatAtOffset(segment, 196));
+	}
+
+	@Test
+	void emptyArrayHasType() {
+		var range = new ArrayBufferRange<>(0, new Vector3fBufferRange(0), 0, 16);
+
+		assertEquals(Vector3f[].class, range.type());
+		assertEquals(0, range.size());
+		assertEquals(0, range.withOffset(32).length());
+	}
+}
@@ -0,0 +1,89 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.shader;
+
+import dev.lambdaurora.res_errare.resource.ResourceManager;
+import dev.lambdaurora.res_errare.resource.ResourceType;
+import dev.lambdaurora.res_errare.util.Identifier;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShaderLoaderTest {
+	private static ShaderLoader loader(Map<String, String> files) throws IOException {
+		var root = Files.createTempDirectory("res_errare");
+		for (var file : files.entrySet()) {
+			var path = root.resolve("assets/test/shaders").resolve(file.getKey());
+			Files.createDirectories(path.getParent());
+			Files.writeString(path, file.getValue());
+		}
+		return new ShaderLoader(new ResourceManager(ResourceType.ASSETS, root));
+	}
+
+	private static String load(ShaderLoader loader, String shader) {
+		var result = loader.loadShaderSource(new Identifier("test", shader));
+		if (result.hasError())
+			fail(result.getError().getMessage());
+		return result.get();
+	}
+
+	@Test
+	void pragmaOnceBreaksMutualIncludes() throws IOException {
+		var loader = loader(Map.of(
+				"main.glsl", "#version 430\n#include test:a.glsl\nvoid main() {}\n",
+				"a.glsl", "#pragma once\n#include test:b.glsl\nfloat a;\n",
+				"b.glsl", "#pragma once\n#include test:a.glsl\nfloat b;\n"
+		));
+
+		var source = load(loader, "main.glsl");
+		assertTrue(source.contains("float a;"));
+		assertTrue(source.contains("float b;"));
+	}
+
+	@Test
+	void includeGuardBreaksMutualIncludes() throws IOException {
+		var loader = loader(Map.of(
+				"main.glsl", "#version 430\n#include test:a.glsl\nvoid main() {}\n",
+				"a.glsl", "#ifndef A_GLSL\n#define A_GLSL\n#include test:b.glsl\nfloat a;\n#endif\n",
+				"b.glsl", "#ifndef B_GLSL\n#define B_GLSL\n#include test:a.glsl\nfloat b;\n#endif\n"
+		));
+
+		var source = load(loader, "main.glsl");
+		assertEquals(source.indexOf("float a;"), source.lastIndexOf("float a;"));
+		assertTrue(source.contains("float b;"));
+	}
+
+	@Test
+	void unguardedCycleFails() throws IOException {
+		var loader = loader(Map.of(
+				"main.glsl", "#version 430\n#include test:a.glsl\nvoid main() {}\n",
+				"a.glsl", "#include test:b.glsl\nfloat a;\n",
+				"b.glsl", "#include test:a.glsl\nfloat b;\n"
+		));
+
+		var result = loader.loadShaderSource(new Identifier("test", "main.glsl"));
+		assertTrue(result.hasError());
+		assertTrue(result.getError().getMessage().contains("Include cycle: test:main.glsl -> test:a.glsl -> test:b.glsl -> test:a.glsl."),
+				result.getError().getMessage());
+	}
+}
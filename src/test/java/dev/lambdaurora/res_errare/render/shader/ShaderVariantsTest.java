@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.shader;
+
+import dev.lambdaurora.res_errare.util.Identifier;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ShaderVariantsTest {
+	private static final ShaderVariants.Variant VARIANT = new ShaderVariants.Variant(
+			Map.of(ShaderType.COMPUTE, new Identifier("test", "shader")), Map.of("FOG", "")
+	);
+
+	@Test
+	void compiledVariantIsLookup() {
+		var variants = new ShaderVariants();
+		var uploads = new ArrayDeque<Runnable>();
+		var compiled = new CompletableFuture<ShaderProgram>();
+		int[] compilations = {0};
+
+		var first = variants.get(VARIANT, variant -> {
+			compilations[0]++;
+			return compiled;
+		}, uploads::add);
+		var second = variants.get(VARIANT.undefine("FOG").define("FOG", ""), variant -> fail("Compiled a variant being compiled."),
+				uploads::add);
+		assertSame(first, second);
+
+		var program = new ShaderProgram(1);
+		compiled.complete(program);
+		assertFalse(first.isDone(), "The program is cached on the thread owning the context.");
+		run(uploads);
+
+		assertSame(program, first.join());
+		assertTrue(variants.contains(VARIANT));
+		var third = variants.get(VARIANT, variant -> fail("Compiled a compiled variant."), uploads::add);
+		assertTrue(third.isDone());
+		assertSame(program, third.join());
+		assertEquals(1, compilations[0]);
+		assertEquals(1, variants.size());
+	}
+
+	@Test
+	void otherDefinesAreOtherVariants() {
+		var variants = new ShaderVariants();
+		var uploads = new ArrayDeque<Runnable>();
+
+		var fog = variants.get(VARIANT, variant -> CompletableFuture.completedFuture(new ShaderProgram(1)), uploads::add);
+		var noFog = variants.get(VARIANT.undefine("FOG"), variant -> CompletableFuture.completedFuture(new ShaderProgram(2)), uploads::add);
+		run(uploads);
+
+		assertEquals(1, fog.join().id());
+		assertEquals(2, noFog.join().id());
+		assertEquals(2, variants.size());
+	}
+
+	@Test
+	void failedCompilationIsNotCached() {
+		var variants = new ShaderVariants();
+		var uploads = new ArrayDeque<Runnable>();
+
+		var failed = variants.get(VARIANT, variant -> CompletableFuture.failedFuture(new IllegalStateException("compile error")),
+				uploads::add);
+		run(uploads);
+
+		var error = assertThrows(CompletionException.class, failed::join);
+		assertInstanceOf(IllegalStateException.class, error.getCause());
+		assertFalse(variants.contains(VARIANT));
+
+		var retried = variants.get(VARIANT, variant -> CompletableFuture.completedFuture(new ShaderProgram(3)), uploads::add);
+		run(uploads);
+		assertEquals(3, retried.join().id());
+	}
+
+	private static void run(Queue<Runnable> uploads) {
+		Runnable upload;
+		while ((upload = uploads.poll()) != null) {
+			upload.run();
+		}
+	}
+}
@@ -0,0 +1,62 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+package dev.lambdaurora.res_errare.render.shader;
+
+import dev.lambdaurora.res_errare.system.HeadlessFunctionFetcher.Call;
+import dev.lambdaurora.res_errare.system.HeadlessGL;
+import org.joml.Matrix4f;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class UniformTest {
+	@Test
+	void setsValuesOfAcceptedTypes() {
+		var backend = HeadlessGL.backend();
+		backend.clear();
+
+		new Uniform("yaw", 1, UniformType.FLOAT, 1).set(.5f);
+		new Uniform("enabled", 2, UniformType.BOOL, 1).set(true);
+		new Uniform("colormap", 3, UniformType.SAMPLER_2D, 1).set(2);
+		new Uniform("unknown", 4, UniformType.UNKNOWN, 1).set(1.f);
+
+		assertEquals(List.of(
+				new Call("glUniform1f", List.of(1, .5f)),
+				new Call("glUniform1i", List.of(2, 1)),
+				new Call("glUniform1i", List.of(3, 2)),
+				new Call("glUniform1f", List.of(4, 1.f))
+		), backend.calls());
+	}
+
+	@Test
+	void rejectsMismatchedTypesWithAssertions() {
+		assumeTrue(Uniform.class.desiredAssertionStatus(), "Assertions are disabled.");
+		var backend = HeadlessGL.backend();
+		backend.clear();
+
+		var yaw = new Uniform("yaw", 1, UniformType.FLOAT, 1);
+		var error = assertThrows(AssertionError.class, () -> yaw.set(1));
+		assertEquals("Uniform \"yaw\" of type FLOAT cannot be set with a value of type INT.", error.getMessage());
+		assertThrows(AssertionError.class, () -> yaw.set(new Matrix4f()));
+		assertThrows(AssertionError.class, () -> new Uniform("row_start", 2, UniformType.INT, 1).set(1.f));
+
+		assertTrue(backend.calls().isEmpty(), "A mismatched value was sent to the driver.");
+	}
+}
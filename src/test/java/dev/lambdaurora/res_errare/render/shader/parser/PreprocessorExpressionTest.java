@@ -0,0 +1,103 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.shader.parser;
+
+import dev.lambdaurora.res_errare.render.shader.error.ShaderPreprocessError;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class PreprocessorExpressionTest {
+	private static long evaluate(String expression, ShaderMacro... macros) {
+		var map = new HashMap<String, ShaderMacro>();
+		for (var macro : macros) {
+			map.put(macro.name(), macro);
+		}
+		return PreprocessorExpression.evaluate(expression, map);
+	}
+
+	@Test
+	void precedence() {
+		assertEquals(7, evaluate("1 + 2 * 3"));
+		assertEquals(9, evaluate("(1 + 2) * 3"));
+		assertEquals(1, evaluate("1 + 1 == 2 && 3 > 2"));
+		assertEquals(1, evaluate("1 << 2 + 1 == 8"));
+		assertEquals(-2, evaluate("~1"));
+		assertEquals(1, evaluate("!0"));
+		assertEquals(1, evaluate("10 - 4 - 5"));
+	}
+
+	@Test
+	void literals() {
+		assertEquals(255, evaluate("0xFF"));
+		assertEquals(8, evaluate("010"));
+		assertEquals(4, evaluate("4u"));
+		assertEquals(0, evaluate("0"));
+	}
+
+	@Test
+	void ternary() {
+		assertEquals(2, evaluate("0 ? 1 : 2"));
+		assertEquals(1, evaluate("1 ? 1 : 2"));
+		assertEquals(3, evaluate("0 ? 1 : 0 ? 2 : 3"));
+	}
+
+	@Test
+	void definedAndMacros() {
+		var lod = ShaderMacro.of("LOD_LEVELS", "4");
+		var fog = ShaderMacro.of("FOG", "");
+
+		assertEquals(1, evaluate("defined(FOG)", fog));
+		assertEquals(1, evaluate("defined FOG && LOD_LEVELS > 2", fog, lod));
+		assertEquals(0, evaluate("defined(FOG)", lod));
+		assertEquals(0, evaluate("UNDEFINED"));
+		assertEquals(8, evaluate("LOD_LEVELS * 2", lod));
+		assertEquals(8, evaluate("TWICE(LOD_LEVELS)", lod, ShaderMacro.parse("TWICE(x) ((x) * 2)")));
+	}
+
+	@Test
+	void shortCircuit() {
+		assertEquals(0, evaluate("defined(N) && 100 / N > 1"));
+		assertEquals(1, evaluate("defined(N) && 100 / N > 1", ShaderMacro.of("N", "10")));
+		assertEquals(1, evaluate("1 || 1 / 0"));
+		assertEquals(2, evaluate("0 ? 1 / 0 : 2"));
+		assertEquals(1, evaluate("1 ? 1 : 1 % 0"));
+		assertEquals(1, evaluate("(0 && 1 / 0) || 1"));
+	}
+
+	@Test
+	void divisionByZero() {
+		assertThrows(ShaderPreprocessError.class, () -> evaluate("1 / 0"));
+		assertThrows(ShaderPreprocessError.class, () -> evaluate("1 && 1 % 0"));
+		assertThrows(ShaderPreprocessError.class, () -> evaluate("0 || 1 / 0"));
+		assertThrows(ShaderPreprocessError.class, () -> evaluate("1 ? 1 / 0 : 2"));
+	}
+
+	@Test
+	void malformed() {
+		assertThrows(ShaderPreprocessError.class, () -> evaluate(""));
+		assertThrows(ShaderPreprocessError.class, () -> evaluate("1 +"));
+		assertThrows(ShaderPreprocessError.class, () -> evaluate("(1"));
+		assertThrows(ShaderPreprocessError.class, () -> evaluate("1 ? 2"));
+		assertThrows(ShaderPreprocessError.class, () -> evaluate("defined("));
+		assertThrows(ShaderPreprocessError.class, () -> evaluate("1 2"));
+		assertThrows(ShaderPreprocessError.class, () -> evaluate("0x"));
+	}
+}
@@ -0,0 +1,193 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.render.voxelspace;
+
+import jdk.incubator.foreign.MemoryAccess;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+import org.joml.Vector3f;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import static dev.lambdaurora.res_errare.render.voxelspace.VoxelSpaceRenderer.*;
+import static org.junit.jupiter.api.Assertions.*;
+
+class VoxelSpaceRendererTest {
+	private static final float[] SKY = {.1f, .3f, 1.f, 0.f};
+
+	@Test
+	void flatTerrainColumn() {
+		int width = 8, height = 64;
+		var terrain = uniformTerrain(64, 0.f, .5f, .25f, .75f);
+		// Looking towards positive coordinates, so that the left half of the screen stays in the terrain.
+		var view = new View(new Vector3f(0.f, 10.f, 0.f), (float) Math.PI, 32.f, 64);
+		var pixels = render(terrain, view, width, height);
+
+		// The ground is 10 units below the camera, it never reaches the horizon 32 pixels above the bottom of the screen.
+		for (int y = 0; y < 32; y++) {
+			var pixel = pixel(pixels, width, 0, y);
+			assertArrayEquals(new float[]{.5f, .25f, .75f}, Arrays.copyOf(pixel, 3), "row " + y);
+		}
+		assertEquals(1.f, pixel(pixels, width, 0, 0)[3]);
+
+		for (int y = 32; y < height; y++) {
+			assertArrayEquals(SKY, pixel(pixels, width, 0, y), "row " + y);
+		}
+	}
+
+	/**
+	 * The CPU renderer is only a reference for the shader with {@code max_lod = 0}, so it is compared to a transcription
+	 * of the shader in that mode rather than to the shipped default.
+	 */
+	@Test
+	void matchesShaderWithoutLevelOfDetail() {
+		var random = new Random(42);
+		int size = 128;
+		var heights = new float[size * size];
+		var red = new float[size * size];
+		var green = new float[size * size];
+		var blue = new float[size * size];
+		var alpha = new float[size * size];
+		for (int i = 0; i < heights.length; i++) {
+			heights[i] = random.nextFloat() * .3f;
+			red[i] = random.nextFloat();
+			green[i] = random.nextFloat();
+			blue[i] = random.nextFloat();
+			alpha[i] = 1.f;
+		}
+		var terrain = new Terrain(size, size, heights, red, green, blue, alpha);
+
+		// The width is not a multiple of the vector length so that the last group of columns is partial.
+		int width = 101, height = 73;
+		for (var view : new View[]{
+				new View(new Vector3f(40.f, 90.f, 60.f), 2.f, 20.f, size),
+				new View(new Vector3f(-300.f, 120.f, 500.f), -.7f, 45.f, 96)
+		}) {
+			var pixels = render(terrain, view, width, height);
+			var expected = renderShader(terrain, view, width, height);
+
+			for (int i = 0; i < expected.length; i++) {
+				assertEquals(expected[i], pixels[i], "pixel " + (i / 4 % width) + ", " + (i / 4 / width));
+			}
+		}
+	}
+
+	private static Terrain uniformTerrain(int size, float height, float red, float green, float blue) {
+		int area = size * size;
+		return new Terrain(size, size, filled(area, height), filled(area, red), filled(area, green), filled(area, blue),
+				filled(area, 1.f));
+	}
+
+	private static float[] filled(int length, float value) {
+		var array = new float[length];
+		Arrays.fill(array, value);
+		return array;
+	}
+
+	private static float[] pixel(float[] pixels, int width, int x, int y) {
+		int offset = (y * width + x) * 4;
+		return Arrays.copyOfRange(pixels, offset, offset + 4);
+	}
+
+	private static float[] render(Terrain terrain, View view, int width, int height) {
+		// The columns are written from the threads of the pool.
+		try (var scope = ResourceScope.newSharedScope()) {
+			var output = allocateOutput(width, height, scope);
+			new VoxelSpaceRenderer().render(terrain, view, output, width, height);
+			return output.toFloatArray();
+		}
+	}
+
+	/**
+	 * Renders the terrain one column at a time following {@code main} of {@code voxelspace/shader.csh},
+	 * with {@code max_lod = 0} and the whole screen written.
+	 * <p>
+	 * The empty space skipping is left out: it only skips the samples which would be fully occluded,
+	 * while stepping the depth the same way, so it does not change the image.
+	 */
+	private static float[] renderShader(Terrain terrain, View view, int width, int height) {
+		var pixels = new float[width * height * 4];
+		var output = MemorySegment.ofArray(pixels);
+		float posX = view.position().z();
+		float posZ = -view.position().x();
+		float posY = view.position().y();
+		float sinYaw = (float) Math.sin(view.yaw());
+		float cosYaw = (float) Math.cos(view.yaw());
+
+		for (int x = 0; x < width; x++) {
+			int yBuffer = height;
+			int filledRows = 0;
+
+			float z = 1.f, dz = 1.f;
+			while (z < RENDER_DISTANCE && yBuffer > 0) {
+				float leftX = -cosYaw * z - sinYaw * z;
+				float leftY = sinYaw * z - cosYaw * z;
+				float rightX = cosYaw * z - sinYaw * z;
+				float rightY = -sinYaw * z - cosYaw * z;
+				float dX = (rightX - leftX) / width;
+				float dY = (rightY - leftY) / width;
+
+				float pointX = x * dX + posX + leftX;
+				float pointY = x * dY + posZ + leftY;
+				// With max_lod = 0 the level sampled is always the full resolution, whatever the footprint of the step.
+				int index = terrain.indexOf((int) pointX % view.size(), (int) pointY % view.size());
+
+				float terrainHeight = index < 0 ? 0.f : terrain.heights()[index];
+				float heightOnScreen = (-terrainHeight * 255.f + posY) / z * SCALE_HEIGHT + view.pitch();
+				float distanceX = pointX - posX;
+				float distanceY = pointY - posZ;
+				float distance = (float) Math.sqrt(distanceX * distanceX + distanceY * distanceY);
+				float alpha = index < 0 ? 0.f : terrain.alpha()[index];
+				if (distance > FOG_DISTANCE)
+					alpha = Math.min((distance - FOG_DISTANCE) / (RENDER_DISTANCE - FOG_DISTANCE), .9f);
+
+				int top = (int) heightOnScreen;
+				int spanEnd = height - top;
+				fill(output, width, height, x, height - yBuffer, spanEnd,
+						index < 0 ? 0.f : terrain.red()[index], index < 0 ? 0.f : terrain.green()[index],
+						index < 0 ? 0.f : terrain.blue()[index], alpha);
+
+				if (spanEnd >= height - yBuffer)
+					filledRows = Math.max(filledRows, Math.min(spanEnd + 1, height));
+				if (heightOnScreen < yBuffer)
+					yBuffer = top;
+
+				dz *= 1.006f;
+				dz += 0.0001f;
+				z += dz;
+			}
+
+			fill(output, width, height, x, filledRows, height - 1, SKY[0], SKY[1], SKY[2], SKY[3]);
+		}
+
+		return pixels;
+	}
+
+	private static void fill(MemorySegment output, int width, int height, int x, int from, int to,
+	                         float red, float green, float blue, float alpha) {
+		for (int y = Math.max(from, 0); y <= Math.min(to, height - 1); y++) {
+			long offset = ((long) y * width + x) * PIXEL_SIZE;
+			MemoryAccess.setFloatAtOffset(output, offset, red);
+			MemoryAccess.setFloatAtOffset(output, offset + 4, green);
+			MemoryAccess.setFloatAtOffset(output, offset + 8, blue);
+			MemoryAccess.setFloatAtOffset(output, offset + 12, alpha);
+		}
+	}
+}
@@ -0,0 +1,105 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.resource;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.function.Consumer;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class ResourcePackTest {
+	private static final byte[] SHADER = "void main() {}\n".repeat(64).getBytes(StandardCharsets.UTF_8);
+	private static final byte[] TEXTURE = {1, 2, 3};
+
+	private static Path writePack() throws IOException {
+		var path = Files.createTempDirectory("res_errare").resolve("test.pack");
+		new ResourcePackWriter()
+				.add("assets/res_errare/shaders/test.fsh", SHADER)
+				.add("assets/res_errare/textures/test.png", TEXTURE)
+				.add("assets/res_errare/empty.txt", new byte[0])
+				.write(path);
+		return path;
+	}
+
+	private static byte[] read(ResourcePack pack, String path) throws IOException {
+		var buffer = pack.getBuffer(path);
+		assertNotNull(buffer, path);
+		var bytes = new byte[buffer.remaining()];
+		buffer.get(bytes);
+		return bytes;
+	}
+
+	@Test
+	void readsResources() throws IOException {
+		try (var pack = ResourcePack.open(writePack())) {
+			assertEquals(3, pack.size());
+			assertArrayEquals(SHADER, read(pack, "assets/res_errare/shaders/test.fsh"));
+			assertArrayEquals(TEXTURE, read(pack, "assets/res_errare/textures/test.png"));
+			assertArrayEquals(new byte[0], read(pack, "assets/res_errare/empty.txt"));
+			assertNull(pack.getBuffer("assets/res_errare/missing.txt"));
+		}
+	}
+
+	@Test
+	void rejectsOversizedIndex() throws IOException {
+		var path = writePack();
+		patch(path, buffer -> buffer.putInt(8, Integer.MAX_VALUE));
+
+		assertThrows(IOException.class, () -> ResourcePack.open(path));
+	}
+
+	@Test
+	void rejectsEntryOutsideOfThePack() throws IOException {
+		var path = writePack();
+		long size = Files.size(path);
+		// The data offset of the first entry.
+		patch(path, buffer -> buffer.putLong(ResourcePack.HEADER_SIZE + 8, size - 1));
+
+		assertThrows(IOException.class, () -> ResourcePack.open(path));
+	}
+
+	@Test
+	void rejectsNameOutsideOfTheNameTable() throws IOException {
+		var path = writePack();
+		patch(path, buffer -> buffer.putInt(ResourcePack.HEADER_SIZE + 24, 1 << 20));
+
+		assertThrows(IOException.class, () -> ResourcePack.open(path));
+	}
+
+	@Test
+	void rejectsTruncatedPack() throws IOException {
+		var path = writePack();
+		var bytes = Files.readAllBytes(path);
+		Files.write(path, Arrays.copyOf(bytes, ResourcePack.HEADER_SIZE + ResourcePack.ENTRY_SIZE));
+
+		assertThrows(IOException.class, () -> ResourcePack.open(path));
+	}
+
+	private static void patch(Path path, Consumer<ByteBuffer> patch) throws IOException {
+		var buffer = ByteBuffer.wrap(Files.readAllBytes(path)).order(ResourcePack.BYTE_ORDER);
+		patch.accept(buffer);
+		Files.write(path, buffer.array());
+	}
+}
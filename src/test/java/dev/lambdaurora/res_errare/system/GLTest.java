@@ -0,0 +1,126 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.system;
+
+import dev.lambdaurora.res_errare.render.GeometricPrimitive;
+import jdk.incubator.foreign.MemoryAddress;
+import jdk.incubator.foreign.MemorySegment;
+import jdk.incubator.foreign.ResourceScope;
+import org.junit.jupiter.api.Test;
+
+import java.lang.invoke.MethodHandle;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class GLTest {
+	private static final int CALLS = 10_000;
+	private static final long WARM_UP_TIMEOUT = TimeUnit.SECONDS.toNanos(10);
+	private static long sink;
+
+	/**
+	 * The headless backend allocates in its own upcalls, so each wrapper is compared to a raw downcall of the same function
+	 * with the same arguments, the difference being what the wrapper allocates.
+	 * <p>
+	 * Only the per-frame wrappers are covered. Wrappers which pass a native stack block to a shared helper or write
+	 * a whole matrix only avoid allocating when the JIT inlines the full downcall into them, which depends on the compile order.
+	 */
+	@Test
+	void warmedUpWrappersDoNotAllocateOnHeap() throws Throwable {
+		var threads = ManagementFactory.getThreadMXBean();
+		assumeTrue(threads instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemorySupported(),
+				"Thread allocation tracking is not supported.");
+		var bean = (com.sun.management.ThreadMXBean) threads;
+		bean.setThreadAllocatedMemoryEnabled(true);
+
+		var backend = HeadlessGL.backend();
+		var gl = GL.get();
+		var glGetIntegerv = handle(backend, "glGetIntegerv", void.class, int.class, MemoryAddress.class);
+		var glUniform1f = handle(backend, "glUniform1f", void.class, int.class, float.class);
+		var glDrawArrays = handle(backend, "glDrawArrays", void.class, int.class, int.class, int.class);
+
+		try (var scope = ResourceScope.newConfinedScope()) {
+			var memory = MemorySegment.allocateNative(16 * Float.BYTES, scope).address();
+
+			assertNoAllocation(bean, "getIntegerv",
+					calls -> {
+						for (int i = 0; i < calls; i++)
+							sink += gl.getIntegerv(GL.GL11.UNPACK_ALIGNMENT);
+					},
+					calls -> {
+						for (int i = 0; i < calls; i++)
+							glGetIntegerv.invokeExact(GL.GL11.UNPACK_ALIGNMENT, memory);
+					});
+			assertNoAllocation(bean, "uniform1f",
+					calls -> {
+						for (int i = 0; i < calls; i++)
+							gl.uniform1f(1, i);
+					},
+					calls -> {
+						for (int i = 0; i < calls; i++)
+							glUniform1f.invokeExact(1, (float) i);
+					});
+			assertNoAllocation(bean, "drawArrays",
+					calls -> {
+						for (int i = 0; i < calls; i++)
+							gl.drawArrays(GeometricPrimitive.TRIANGLES, 0, i);
+					},
+					calls -> {
+						for (int i = 0; i < calls; i++)
+							glDrawArrays.invokeExact(GeometricPrimitive.TRIANGLES.glId(), 0, i);
+					});
+		}
+	}
+
+	private static MethodHandle handle(HeadlessFunctionFetcher backend, String name, Class<?> returnType, Class<?>... params) {
+		return LibraryLoader.getFunctionHandle(backend.fetch(name, returnType, params), returnType, params);
+	}
+
+	private static void assertNoAllocation(com.sun.management.ThreadMXBean bean, String name, Call wrapper, Call raw) throws Throwable {
+		// The native stack slices are only scalar-replaced once the optimizing compiler compiled the loop,
+		// which may be delayed by a compile queue filled by other tests.
+		long deadline = System.nanoTime() + WARM_UP_TIMEOUT;
+		double bytesPerCall = Double.MAX_VALUE;
+		while (bytesPerCall >= 1 && System.nanoTime() < deadline) {
+			double rawBytes = bytesPerCall(bean, raw);
+			bytesPerCall = bytesPerCall(bean, wrapper) - rawBytes;
+		}
+
+		assertTrue(bytesPerCall < 1, "Expected " + name + " to not allocate, got " + bytesPerCall + " bytes per call.");
+	}
+
+	private static double bytesPerCall(com.sun.management.ThreadMXBean bean, Call call) throws Throwable {
+		// The recorded calls are cleared so the list does not grow while measuring.
+		HeadlessGL.backend().clear();
+
+		long before = bean.getCurrentThreadAllocatedBytes();
+		call.run(CALLS);
+		return (bean.getCurrentThreadAllocatedBytes() - before) / (double) CALLS;
+	}
+
+	/**
+	 * Each measured loop lives in its own lambda so the JIT compiles every wrapper in its own loop,
+	 * a shared loop calling through this interface would not inline them.
+	 */
+	@FunctionalInterface
+	private interface Call {
+		void run(int calls) throws Throwable;
+	}
+}
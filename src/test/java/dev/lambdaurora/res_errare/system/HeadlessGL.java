@@ -0,0 +1,40 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.system;
+
+/**
+ * Provides the headless backend of the OpenGL bindings used by the tests.
+ * <p>
+ * The bindings can only be initialized once per process, every test needing OpenGL shares this recording backend
+ * and {@linkplain HeadlessFunctionFetcher#clear() clears} it before recording its own calls.
+ */
+public final class HeadlessGL {
+	private static HeadlessFunctionFetcher backend;
+
+	/**
+	 * {@return the recording backend of the OpenGL bindings, initializing the bindings with it on the first call}
+	 */
+	public static synchronized HeadlessFunctionFetcher backend() {
+		if (backend == null) {
+			backend = HeadlessFunctionFetcher.recording();
+			GL.init(backend);
+		}
+
+		return backend;
+	}
+}
@@ -0,0 +1,102 @@
+/*
+ * Copyright (c) 2021 LambdAurora <aurora42lambda@gmail.com>
+ *
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ *
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with this program.  If not, see <http://www.gnu.org/licenses/>.
+ */
+
+package dev.lambdaurora.res_errare.system.memory;
+
+import jdk.incubator.foreign.CLinker;
+import jdk.incubator.foreign.MemoryAccess;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class NativeStackTest {
+	private static long sink;
+
+	@Test
+	void popReleasesFrame() {
+		var stack = NativeStack.get();
+		long remaining = stack.remaining();
+
+		try (var frame = NativeStack.stackPush()) {
+			frame.allocate(CLinker.C_INT);
+			frame.allocate(CLinker.C_LONG);
+			assertTrue(stack.remaining() < remaining);
+		}
+
+		assertEquals(remaining, stack.remaining());
+	}
+
+	@Test
+	void allocationsAreAligned() {
+		try (var stack = NativeStack.stackPush()) {
+			stack.allocate(1, 1);
+			var segment = stack.allocate(16, 16);
+
+			assertEquals(0, segment.address().toRawLongValue() % 16);
+			assertEquals(16, segment.byteSize());
+		}
+	}
+
+	@Test
+	void overflowThrows() {
+		try (var stack = NativeStack.stackPush()) {
+			assertThrows(OutOfMemoryError.class, () -> stack.allocate(stack.size() + 1, 1));
+		}
+		assertThrows(IllegalArgumentException.class, () -> NativeStack.get().allocate(4, 3));
+	}
+
+	@Test
+	void frameUnderflowThrows() {
+		assertThrows(IllegalStateException.class, () -> NativeStack.get().pop());
+	}
+
+	@Test
+	void warmedUpAllocationsDoNotAllocateOnHeap() {
+		var threads = ManagementFactory.getThreadMXBean();
+		assumeTrue(threads instanceof com.sun.management.ThreadMXBean bean && bean.isThreadAllocatedMemorySupported(),
+				"Thread allocation tracking is not supported.");
+		var bean = (com.sun.management.ThreadMXBean) threads;
+
+		bean.setThreadAllocatedMemoryEnabled(true);
+
+		// The slices are only scalar-replaced once the optimizing compiler compiled the loop,
+		// which may be delayed by a compile queue filled by other tests.
+		long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(10);
+		double bytesPerIteration = Double.MAX_VALUE;
+		while (bytesPerIteration >= 1 && System.nanoTime() < deadline) {
+			long before = bean.getCurrentThreadAllocatedBytes();
+			pushAllocatePop(100_000);
+			bytesPerIteration = (bean.getCurrentThreadAllocatedBytes() - before) / 100_000.;
+		}
+
+		assertTrue(bytesPerIteration < 1, "Expected no heap allocation, got " + bytesPerIteration + " bytes per iteration.");
+	}
+
+	private static void pushAllocatePop(int iterations) {
+		for (int i = 0; i < iterations; i++) {
+			try (var stack = NativeStack.stackPush()) {
+				var value = stack.allocate(CLinker.C_INT);
+				MemoryAccess.setInt(value, i);
+				sink += MemoryAccess.getInt(value);
+			}
+		}
+	}
+}